@@ -0,0 +1,83 @@
+package de.intension.halo.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.intension.halo.HaloBuilder;
+import de.intension.halo.LinkDefinition;
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+import de.intension.halo.hibernate.HibernateTemplateBuilder;
+
+/**
+ * Building HALO entities with links, one by one and as a batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HaloBuilderBenchmark
+{
+
+    private static final LinkDefinition SELF  = new LinkDefinition("self", "/cars/{id}{?brand,color}");
+    private static final LinkDefinition OWNER = new LinkDefinition("owner", "/cars/{id}/owner").setTitle("en", "Owner")
+        .setTitle("de", "Halter");
+
+    private HaloBuilder                 concatenating;
+    private HaloBuilder                 templated;
+    private HaloBuilder                 withTemplate;
+    private Object                      entity;
+    private List<Object>                entities;
+
+    @Setup
+    public void setup()
+    {
+        HibernateTemplateBuilder templates = new HibernateTemplateBuilder("edit");
+        concatenating = (haloEntity, entity) -> {
+            Shapes.Flat car = (Shapes.Flat)entity;
+            haloEntity.addLink(new Link("self", "/cars/" + car.getId() + "?brand=" + car.getBrand() + "&color=" + car.getColor()));
+            haloEntity.addLink(new Link("owner", "/cars/" + car.getId() + "/owner").setTitle("en", "Owner").setTitle("de", "Halter"));
+        };
+        templated = (haloEntity, entity) -> haloEntity.addLink(SELF.toLink(entity)).addLink(OWNER.toLink(entity));
+        withTemplate = (haloEntity, entity) -> haloEntity.addLink(SELF.toLink(entity).addTemplate(templates.build(entity)));
+        entity = Shapes.create("flat");
+        entities = Shapes.createAll("flat", 100);
+    }
+
+    @Benchmark
+    public Entity buildConcatenatedLinks()
+    {
+        return concatenating.build(entity);
+    }
+
+    @Benchmark
+    public Entity buildTemplatedLinks()
+    {
+        return templated.build(entity);
+    }
+
+    @Benchmark
+    public Entity buildWithTemplate()
+    {
+        return withTemplate.build(entity);
+    }
+
+    @Benchmark
+    public List<Entity> buildAll()
+    {
+        return templated.buildAll(entities);
+    }
+}
@@ -0,0 +1,84 @@
+package de.intension.halo.benchmarks;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.intension.halo.LocaleSelection;
+import de.intension.halo.MessageCatalog;
+import de.intension.halo.entity.Template;
+import de.intension.halo.hibernate.HibernateTemplateBuilder;
+
+/**
+ * Building templates with titles in many languages, with and without a language selection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocaleBenchmark
+{
+
+    @Param({"flat", "annotated"})
+    public String                    shape;
+    @Param({"2", "30"})
+    public int                       languages;
+    @Param({"de-CH, fr;q=0.8, en;q=0.5"})
+    public String                    acceptLanguage;
+
+    private HibernateTemplateBuilder builder;
+    private LocaleSelection          selection;
+    private Object                   entity;
+
+    @Setup
+    public void setup()
+    {
+        String[] codes = Locale.getISOLanguages();
+        Map<String, Map<String, String>> locales = new HashMap<>();
+        for (String key : Shapes.keys(shape)) {
+            Map<String, String> titles = new HashMap<>();
+            titles.put("en", key);
+            titles.put("de", key + " (de)");
+            for (int i = 2; i < languages; i++) {
+                titles.put(codes[i], key + " (" + codes[i] + ")");
+            }
+            locales.put(key, titles);
+        }
+        builder = new HibernateTemplateBuilder("entity").setMessages(MessageCatalog.of(locales));
+        entity = Shapes.create(shape);
+        selection = LocaleSelection.parse(acceptLanguage, "en");
+    }
+
+    @Benchmark
+    public Template buildAllLanguages()
+    {
+        return builder.build(entity);
+    }
+
+    @Benchmark
+    public Template buildSelectedLanguages()
+    {
+        return builder.build(entity, selection);
+    }
+
+    @Benchmark
+    public Template buildSelectedLanguagesPerRequest()
+    {
+        return builder.build(entity, LocaleSelection.parse(acceptLanguage, "en"));
+    }
+}
@@ -0,0 +1,146 @@
+package de.intension.halo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.intension.halo.HaloBuilder;
+import de.intension.halo.binary.HaloBinaryReader;
+import de.intension.halo.binary.HaloBinaryWriter;
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Template;
+import de.intension.halo.hibernate.HibernateTemplateBuilder;
+import de.intension.halo.json.FragmentCache;
+import de.intension.halo.json.HaloJsonReader;
+import de.intension.halo.json.HaloJsonWriter;
+
+/**
+ * Writing and reading an entity with data, links and an edit template as JSON and in the binary format.
+ * <br/>
+ * <br/>
+ * The output buffer is reused, so the allocation rate shows the allocations of the writers only. The read benchmarks
+ * decode the documents written once in the setup and report their sizes as the secondary results
+ * <code>jsonBytes</code> and <code>binaryBytes</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark
+{
+
+    @Param({"flat", "nested", "wide", "annotated"})
+    public String                 shape;
+
+    private Entity                entity;
+    private Entity                schemaEntity;
+    private FragmentCache         fragments;
+    private ByteArrayOutputStream out;
+    private byte[]                json;
+    private byte[]                binary;
+
+    @Setup
+    public void setup()
+    {
+        HibernateTemplateBuilder templates = new HibernateTemplateBuilder("edit");
+        Object data = Shapes.create(shape);
+        HaloBuilder builder = (haloEntity, object) -> haloEntity.addLink(new Link("self", "/entities/1")
+            .addTemplate(templates.build(object)));
+        entity = builder.build(data);
+        fragments = new FragmentCache(1 << 20, true);
+        Template schema = fragments.put(templates.buildSchema(data.getClass()));
+        schemaEntity = new Entity().setData(data).addLink(new Link("self", "/entities/1").addTemplate(schema));
+        out = new ByteArrayOutputStream(1 << 16);
+        try {
+            writeJson();
+            json = out.toByteArray();
+            writeBinary();
+            binary = out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public int writeJson() throws IOException
+    {
+        out.reset();
+        try (HaloJsonWriter writer = new HaloJsonWriter(out)) {
+            writer.write(entity);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeJsonWithCachedSchema() throws IOException
+    {
+        out.reset();
+        try (HaloJsonWriter writer = new HaloJsonWriter(out).setFragments(fragments)) {
+            writer.write(schemaEntity);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeBinary() throws IOException
+    {
+        out.reset();
+        try (HaloBinaryWriter writer = new HaloBinaryWriter(out)) {
+            writer.write(entity);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public Entity readJson(EncodedSize size) throws IOException
+    {
+        try (HaloJsonReader reader = new HaloJsonReader(new ByteArrayInputStream(json))) {
+            return reader.readEntity();
+        }
+    }
+
+    @Benchmark
+    public Entity readBinary(EncodedSize size) throws IOException
+    {
+        try (HaloBinaryReader reader = new HaloBinaryReader(new ByteArrayInputStream(binary))) {
+            return reader.readEntity();
+        }
+    }
+
+    /**
+     * Sizes of the decoded documents, reported next to the read benchmarks.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize
+    {
+
+        public long jsonBytes;
+        public long binaryBytes;
+
+        @Setup(Level.Iteration)
+        public void setup(SerializationBenchmark benchmark)
+        {
+            jsonBytes = benchmark.json.length;
+            binaryBytes = benchmark.binary.length;
+        }
+    }
+}
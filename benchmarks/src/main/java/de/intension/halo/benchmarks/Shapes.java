@@ -0,0 +1,452 @@
+package de.intension.halo.benchmarks;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.Id;
+import javax.validation.constraints.Email;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+import org.hibernate.validator.constraints.Length;
+import org.hibernate.validator.constraints.Range;
+
+import lombok.Getter;
+
+/**
+ * Entity shapes the benchmarks are parameterized with.
+ * <ul>
+ * <li>{@code flat}: a handful of scalar fields
+ * <li>{@code nested}: six levels of nested objects with a list on every level
+ * <li>{@code wide}: 120 scalar fields
+ * <li>{@code annotated}: every field carries several constraint annotations
+ * </ul>
+ */
+public final class Shapes
+{
+
+    /**
+     * Names of all shapes, as used in {@code @Param}.
+     */
+    public static final String[] NAMES = {"flat", "nested", "wide", "annotated"};
+
+    private Shapes()
+    {
+    }
+
+    /**
+     * Create an instance with values of a shape.
+     * 
+     * @param shape One of {@link #NAMES}.
+     * @return New entity.
+     */
+    public static Object create(String shape)
+    {
+        switch (shape) {
+            case "flat":
+                return flat(1);
+            case "nested":
+                return nested(0);
+            case "wide":
+                return wide();
+            case "annotated":
+                return annotated();
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    /**
+     * Create many instances of a shape.
+     * 
+     * @param shape One of {@link #NAMES}.
+     * @param count Number of instances.
+     * @return New entities.
+     */
+    public static List<Object> createAll(String shape, int count)
+    {
+        List<Object> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(create(shape));
+        }
+        return entities;
+    }
+
+    /**
+     * Message identifiers of all fields of a shape, like {@code "Flat.brand"}. Nested levels share one class.
+     * 
+     * @param shape One of {@link #NAMES}.
+     * @return Identifiers for a {@link de.intension.halo.MessageCatalog}.
+     */
+    public static List<String> keys(String shape)
+    {
+        Class<?> type = create(shape).getClass();
+        List<String> keys = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            keys.add(type.getSimpleName() + "." + field.getName());
+        }
+        return keys;
+    }
+
+    private static Flat flat(int id)
+    {
+        Flat flat = new Flat();
+        flat.id = (long)id;
+        flat.brand = "Audi";
+        flat.model = "A4";
+        flat.color = "black";
+        flat.seats = 5;
+        flat.price = 34999.99;
+        flat.electric = false;
+        flat.registered = LocalDateTime.of(2020, 1, 31, 12, 0);
+        return flat;
+    }
+
+    private static Level nested(int depth)
+    {
+        Level level = new Level();
+        level.name = "level " + depth;
+        level.position = depth;
+        level.active = true;
+        level.items = Arrays.asList("a", "b", "c");
+        if (depth < 5) {
+            level.child = nested(depth + 1);
+        }
+        return level;
+    }
+
+    private static Wide wide()
+    {
+        Wide wide = new Wide();
+        wide.field000 = "value 0";
+        wide.field001 = 1;
+        wide.field002 = 2L;
+        wide.field003 = false;
+        wide.field004 = 4.5;
+        wide.field005 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(5);
+        wide.field006 = "value 6";
+        wide.field007 = 7;
+        wide.field008 = 8L;
+        wide.field009 = false;
+        wide.field010 = 10.5;
+        wide.field011 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(11);
+        wide.field012 = "value 12";
+        wide.field013 = 13;
+        wide.field014 = 14L;
+        wide.field015 = false;
+        wide.field016 = 16.5;
+        wide.field017 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(17);
+        wide.field018 = "value 18";
+        wide.field019 = 19;
+        wide.field020 = 20L;
+        wide.field021 = false;
+        wide.field022 = 22.5;
+        wide.field023 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(23);
+        wide.field024 = "value 24";
+        wide.field025 = 25;
+        wide.field026 = 26L;
+        wide.field027 = false;
+        wide.field028 = 28.5;
+        wide.field029 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(29);
+        wide.field030 = "value 30";
+        wide.field031 = 31;
+        wide.field032 = 32L;
+        wide.field033 = false;
+        wide.field034 = 34.5;
+        wide.field035 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(35);
+        wide.field036 = "value 36";
+        wide.field037 = 37;
+        wide.field038 = 38L;
+        wide.field039 = false;
+        wide.field040 = 40.5;
+        wide.field041 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(41);
+        wide.field042 = "value 42";
+        wide.field043 = 43;
+        wide.field044 = 44L;
+        wide.field045 = false;
+        wide.field046 = 46.5;
+        wide.field047 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(47);
+        wide.field048 = "value 48";
+        wide.field049 = 49;
+        wide.field050 = 50L;
+        wide.field051 = false;
+        wide.field052 = 52.5;
+        wide.field053 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(53);
+        wide.field054 = "value 54";
+        wide.field055 = 55;
+        wide.field056 = 56L;
+        wide.field057 = false;
+        wide.field058 = 58.5;
+        wide.field059 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(59);
+        wide.field060 = "value 60";
+        wide.field061 = 61;
+        wide.field062 = 62L;
+        wide.field063 = false;
+        wide.field064 = 64.5;
+        wide.field065 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(65);
+        wide.field066 = "value 66";
+        wide.field067 = 67;
+        wide.field068 = 68L;
+        wide.field069 = false;
+        wide.field070 = 70.5;
+        wide.field071 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(71);
+        wide.field072 = "value 72";
+        wide.field073 = 73;
+        wide.field074 = 74L;
+        wide.field075 = false;
+        wide.field076 = 76.5;
+        wide.field077 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(77);
+        wide.field078 = "value 78";
+        wide.field079 = 79;
+        wide.field080 = 80L;
+        wide.field081 = false;
+        wide.field082 = 82.5;
+        wide.field083 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(83);
+        wide.field084 = "value 84";
+        wide.field085 = 85;
+        wide.field086 = 86L;
+        wide.field087 = false;
+        wide.field088 = 88.5;
+        wide.field089 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(89);
+        wide.field090 = "value 90";
+        wide.field091 = 91;
+        wide.field092 = 92L;
+        wide.field093 = false;
+        wide.field094 = 94.5;
+        wide.field095 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(95);
+        wide.field096 = "value 96";
+        wide.field097 = 97;
+        wide.field098 = 98L;
+        wide.field099 = false;
+        wide.field100 = 100.5;
+        wide.field101 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(101);
+        wide.field102 = "value 102";
+        wide.field103 = 103;
+        wide.field104 = 104L;
+        wide.field105 = false;
+        wide.field106 = 106.5;
+        wide.field107 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(107);
+        wide.field108 = "value 108";
+        wide.field109 = 109;
+        wide.field110 = 110L;
+        wide.field111 = false;
+        wide.field112 = 112.5;
+        wide.field113 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(113);
+        wide.field114 = "value 114";
+        wide.field115 = 115;
+        wide.field116 = 116L;
+        wide.field117 = false;
+        wide.field118 = 118.5;
+        wide.field119 = LocalDateTime.of(2020, 1, 1, 0, 0).plusDays(119);
+        return wide;
+    }
+
+    private static Annotated annotated()
+    {
+        Annotated annotated = new Annotated();
+        annotated.id = 7L;
+        annotated.number = "A-1";
+        annotated.customer = "Intension";
+        annotated.email = "info@example.com";
+        annotated.street = "Main Street 1";
+        annotated.city = "Berlin";
+        annotated.zip = "10115";
+        annotated.quantity = 5;
+        annotated.discount = 10;
+        annotated.tags = Arrays.asList("new", "express");
+        return annotated;
+    }
+
+    @Getter
+    public static class Flat
+    {
+
+        @Id
+        private Long          id;
+        private String        brand;
+        private String        model;
+        private String        color;
+        private Integer       seats;
+        private Double        price;
+        private Boolean       electric;
+        private LocalDateTime registered;
+    }
+
+    @Getter
+    public static class Level
+    {
+
+        private String       name;
+        private Integer      position;
+        private Boolean      active;
+        private List<String> items;
+        private Level        child;
+    }
+
+    @Getter
+    public static class Wide
+    {
+
+        private String        field000;
+        private Integer       field001;
+        private Long          field002;
+        private Boolean       field003;
+        private Double        field004;
+        private LocalDateTime field005;
+        private String        field006;
+        private Integer       field007;
+        private Long          field008;
+        private Boolean       field009;
+        private Double        field010;
+        private LocalDateTime field011;
+        private String        field012;
+        private Integer       field013;
+        private Long          field014;
+        private Boolean       field015;
+        private Double        field016;
+        private LocalDateTime field017;
+        private String        field018;
+        private Integer       field019;
+        private Long          field020;
+        private Boolean       field021;
+        private Double        field022;
+        private LocalDateTime field023;
+        private String        field024;
+        private Integer       field025;
+        private Long          field026;
+        private Boolean       field027;
+        private Double        field028;
+        private LocalDateTime field029;
+        private String        field030;
+        private Integer       field031;
+        private Long          field032;
+        private Boolean       field033;
+        private Double        field034;
+        private LocalDateTime field035;
+        private String        field036;
+        private Integer       field037;
+        private Long          field038;
+        private Boolean       field039;
+        private Double        field040;
+        private LocalDateTime field041;
+        private String        field042;
+        private Integer       field043;
+        private Long          field044;
+        private Boolean       field045;
+        private Double        field046;
+        private LocalDateTime field047;
+        private String        field048;
+        private Integer       field049;
+        private Long          field050;
+        private Boolean       field051;
+        private Double        field052;
+        private LocalDateTime field053;
+        private String        field054;
+        private Integer       field055;
+        private Long          field056;
+        private Boolean       field057;
+        private Double        field058;
+        private LocalDateTime field059;
+        private String        field060;
+        private Integer       field061;
+        private Long          field062;
+        private Boolean       field063;
+        private Double        field064;
+        private LocalDateTime field065;
+        private String        field066;
+        private Integer       field067;
+        private Long          field068;
+        private Boolean       field069;
+        private Double        field070;
+        private LocalDateTime field071;
+        private String        field072;
+        private Integer       field073;
+        private Long          field074;
+        private Boolean       field075;
+        private Double        field076;
+        private LocalDateTime field077;
+        private String        field078;
+        private Integer       field079;
+        private Long          field080;
+        private Boolean       field081;
+        private Double        field082;
+        private LocalDateTime field083;
+        private String        field084;
+        private Integer       field085;
+        private Long          field086;
+        private Boolean       field087;
+        private Double        field088;
+        private LocalDateTime field089;
+        private String        field090;
+        private Integer       field091;
+        private Long          field092;
+        private Boolean       field093;
+        private Double        field094;
+        private LocalDateTime field095;
+        private String        field096;
+        private Integer       field097;
+        private Long          field098;
+        private Boolean       field099;
+        private Double        field100;
+        private LocalDateTime field101;
+        private String        field102;
+        private Integer       field103;
+        private Long          field104;
+        private Boolean       field105;
+        private Double        field106;
+        private LocalDateTime field107;
+        private String        field108;
+        private Integer       field109;
+        private Long          field110;
+        private Boolean       field111;
+        private Double        field112;
+        private LocalDateTime field113;
+        private String        field114;
+        private Integer       field115;
+        private Long          field116;
+        private Boolean       field117;
+        private Double        field118;
+        private LocalDateTime field119;
+    }
+
+    @Getter
+    public static class Annotated
+    {
+
+        @Id
+        @NotNull
+        private Long         id;
+        @NotNull
+        @NotEmpty
+        @Pattern(regexp = "[A-Z]-[0-9]+")
+        @Length(min = 3, max = 12)
+        private String       number;
+        @NotNull
+        @Length(min = 2, max = 40)
+        private String       customer;
+        @NotNull
+        @Email
+        @Length(max = 80)
+        private String       email;
+        @NotEmpty
+        @Length(max = 60)
+        private String       street;
+        @NotEmpty
+        @Length(max = 40)
+        private String       city;
+        @NotNull
+        @Pattern(regexp = "[0-9]{5}")
+        private String       zip;
+        @NotNull
+        @Range(min = 1, max = 999)
+        private Integer      quantity;
+        @Range(min = 0, max = 100)
+        private Integer      discount;
+        @NotEmpty
+        private List<String> tags;
+    }
+}
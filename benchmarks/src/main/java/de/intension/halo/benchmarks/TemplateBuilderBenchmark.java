@@ -0,0 +1,96 @@
+package de.intension.halo.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.TemplateValues;
+import de.intension.halo.hibernate.CompiledTemplateBuilder;
+import de.intension.halo.hibernate.HibernateTemplateBuilder;
+
+/**
+ * Building templates from classes and instances with {@link HibernateTemplateBuilder}.
+ * <br/>
+ * <br/>
+ * {@code reanalyzeClass} measures a builder with an empty class cache, all other benchmarks a warm one. It is not the
+ * cost of the first request after startup: the JDK reflection data, the annotation instances and the global
+ * {@link de.intension.halo.AccessorPlan} of the class are warm after the first invocation, so only the analysis of
+ * the builder itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateBuilderBenchmark
+{
+
+    @Param({"flat", "nested", "wide", "annotated"})
+    public String                    shape;
+
+    private HibernateTemplateBuilder builder;
+    private CompiledTemplateBuilder  compiled;
+    private Class<?>                 type;
+    private Object                   entity;
+    private List<Object>             entities;
+
+    @Setup
+    public void setup()
+    {
+        builder = new HibernateTemplateBuilder("entity");
+        compiled = builder.compile();
+        entity = Shapes.create(shape);
+        entities = Shapes.createAll(shape, 100);
+        type = entity.getClass();
+        builder.build(type);
+    }
+
+    @Benchmark
+    public Template reanalyzeClass()
+    {
+        return new HibernateTemplateBuilder("entity").build(type);
+    }
+
+    @Benchmark
+    public Template buildClass()
+    {
+        return builder.build(type);
+    }
+
+    @Benchmark
+    public Template buildObject()
+    {
+        return builder.build(entity);
+    }
+
+    @Benchmark
+    public TemplateValues buildValues()
+    {
+        return builder.buildValues(entity);
+    }
+
+    @Benchmark
+    public List<Template> buildCollection()
+    {
+        return builder.build(entities);
+    }
+
+    @Benchmark
+    public Template buildSchemaCompiled()
+    {
+        return compiled.buildSchema(type);
+    }
+}
@@ -0,0 +1,442 @@
+package de.intension.halo;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+import de.intension.halo.entity.Frozen;
+import lombok.extern.java.Log;
+
+/**
+ * Compiled access to the fields of a class.
+ * <br/>
+ * <br/>
+ * The getters and setters of a class are looked up once and bound to functions, so reading or writing a value needs
+ * neither reflection nor an intermediate map. Accessors of {@link #of(Class)} are indexed in the order of
+ * {@link Class#getDeclaredFields()}, which matches the properties of the template builder. {@link #ofBean(Class)}
+ * also covers the fields of superclasses like a {@code @MappedSuperclass}, it is used to write the data of entities.
+ * Setters may return a value, like chained setters do.
+ * 
+ * <pre>
+ * AccessorPlan plan = AccessorPlan.of(Car.class);
+ * for (int i = 0; i &lt; plan.size(); i++) {
+ *     Object value = plan.get(car, i);
+ * }
+ * </pre>
+ */
+@Log
+public final class AccessorPlan
+{
+
+    private static final ClassValue<AccessorPlan> PLANS = new ClassValue<AccessorPlan>() {
+
+        @Override
+        protected AccessorPlan computeValue(Class<?> type)
+        {
+            if (Frozen.class.isAssignableFrom(type)) {
+                return PLANS.get(type.getSuperclass());
+            }
+            return new AccessorPlan(type, type.getDeclaredFields());
+        }
+    };
+
+    private static final ClassValue<AccessorPlan> BEANS = new ClassValue<AccessorPlan>() {
+
+        @Override
+        protected AccessorPlan computeValue(Class<?> type)
+        {
+            if (Frozen.class.isAssignableFrom(type)) {
+                return BEANS.get(type.getSuperclass());
+            }
+            return new AccessorPlan(type, getBeanFields(type));
+        }
+    };
+
+    private final Class<?>                     type;
+    private final Field[]                      fields;
+    private final String[]                     names;
+    private final Function<Object, Object>[]   getters;
+    private final BiConsumer<Object, Object>[] setters;
+    private final Map<String, Integer>         indexes;
+    private final Supplier<Object>             constructor;
+
+    @SuppressWarnings("unchecked")
+    private AccessorPlan(Class<?> type, Field[] fields)
+    {
+        this.type = type;
+        this.fields = fields;
+        Map<String, Method> readMethods = getReadMethods(type);
+        names = new String[fields.length];
+        getters = new Function[fields.length];
+        setters = new BiConsumer[fields.length];
+        indexes = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            names[i] = fields[i].getName();
+            indexes.put(names[i], i);
+            Method readMethod = readMethods.get(names[i]);
+            if (readMethod != null) {
+                getters[i] = bind(readMethod);
+            }
+            Method writeMethod = getWriteMethod(fields[i].getDeclaringClass(), fields[i]);
+            if (writeMethod != null) {
+                setters[i] = bindSetter(writeMethod);
+            }
+        }
+        constructor = bindConstructor(type);
+    }
+
+    /**
+     * Get the accessor plan of a class. Frozen model objects share the plan of the model class.
+     * 
+     * @param type Class to read values from.
+     * @return Cached accessor plan.
+     */
+    public static AccessorPlan of(Class<?> type)
+    {
+        return PLANS.get(type);
+    }
+
+    /**
+     * Get the accessor plan of a class including the fields of its superclasses.
+     * <br/>
+     * <br/>
+     * Fields of superclasses come first, static fields and fields hidden by a field of a subclass are left out. For
+     * subclasses generated at runtime, like lazy loading proxies, the getters of the entity class are bound and called
+     * on the proxy.
+     * 
+     * @param type Class to read values from.
+     * @return Cached accessor plan.
+     */
+    public static AccessorPlan ofBean(Class<?> type)
+    {
+        return BEANS.get(type);
+    }
+
+    /**
+     * Class whose fields are accessed.
+     * 
+     * @return Class of the plan.
+     */
+    public Class<?> getType()
+    {
+        return type;
+    }
+
+    /**
+     * Number of fields of this plan.
+     * 
+     * @return Number of accessors of this plan.
+     */
+    public int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * Get the field name for an index.
+     * 
+     * @param index Position in the fields of this plan.
+     * @return Name of the field.
+     */
+    public String getName(int index)
+    {
+        return names[index];
+    }
+
+    /**
+     * Get the index of a field.
+     * 
+     * @param name Name of the field.
+     * @return Position in the fields of this plan or <b>-1</b> if there is no such field.
+     */
+    public int indexOf(String name)
+    {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Check whether the field has a getter.
+     * 
+     * @param index Position in the fields of this plan.
+     * @return <b>true</b> if {@link #get(Object, int)} can return a value.
+     */
+    public boolean isReadable(int index)
+    {
+        return getters[index] != null;
+    }
+
+    /**
+     * Read the value of a field through its getter.
+     * 
+     * @param bean Instance of {@link #getType()}.
+     * @param index Position in the fields of this plan.
+     * @return Value of the field or <b>null</b> if the field has no getter.
+     */
+    public Object get(Object bean, int index)
+    {
+        Function<Object, Object> getter = getters[index];
+        return getter == null ? null : getter.apply(bean);
+    }
+
+    /**
+     * Get the declared type of a field, including type arguments like the element type of a list.
+     * 
+     * @param index Position in the fields of this plan.
+     * @return Generic type of the field.
+     */
+    public Type getGenericType(int index)
+    {
+        return fields[index].getGenericType();
+    }
+
+    /**
+     * Check whether the field has a setter.
+     * 
+     * @param index Position in the fields of this plan.
+     * @return <b>true</b> if {@link #set(Object, int, Object)} can change the value.
+     */
+    public boolean isWritable(int index)
+    {
+        return setters[index] != null;
+    }
+
+    /**
+     * Write the value of a field through its setter.
+     * 
+     * @param bean Instance of {@link #getType()}.
+     * @param index Position in the fields of this plan.
+     * @param value New value of the field, must match its type.
+     * @return <b>true</b> if the value was set, <b>false</b> if the field has no setter.
+     */
+    public boolean set(Object bean, int index, Object value)
+    {
+        BiConsumer<Object, Object> setter = setters[index];
+        if (setter == null) {
+            return false;
+        }
+        setter.accept(bean, value);
+        return true;
+    }
+
+    /**
+     * Create an instance through the constructor without parameters.
+     * 
+     * @return New instance of {@link #getType()}.
+     * @throws IllegalStateException If the class has no accessible constructor without parameters.
+     */
+    public Object newInstance()
+    {
+        if (constructor == null) {
+            throw new IllegalStateException(type.getName() + " has no constructor without parameters.");
+        }
+        return constructor.get();
+    }
+
+    /**
+     * Read the value of a field through its getter.
+     * 
+     * @param bean Instance of {@link #getType()}.
+     * @param name Name of the field.
+     * @return Value of the field or <b>null</b> if the field does not exist or has no getter.
+     */
+    public Object get(Object bean, String name)
+    {
+        int index = indexOf(name);
+        return index < 0 ? null : get(bean, index);
+    }
+
+    private static Field[] getBeanFields(Class<?> type)
+    {
+        Set<String> names = new HashSet<>();
+        Deque<Field> fields = new ArrayDeque<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            Field[] declared = current.getDeclaredFields();
+            for (int i = declared.length - 1; i >= 0; i--) {
+                if (!Modifier.isStatic(declared[i].getModifiers()) && !declared[i].isSynthetic()
+                    && names.add(declared[i].getName())) {
+                    fields.addFirst(declared[i]);
+                }
+            }
+        }
+        return fields.toArray(new Field[fields.size()]);
+    }
+
+    private static Map<String, Method> getReadMethods(Class<?> type)
+    {
+        Map<String, Method> readMethods = new HashMap<>();
+        try {
+            for (PropertyDescriptor propertyDescriptor : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                if (propertyDescriptor.getReadMethod() != null) {
+                    readMethods.put(propertyDescriptor.getName(), propertyDescriptor.getReadMethod());
+                }
+            }
+        } catch (IntrospectionException e) {
+            log.log(Level.SEVERE, "AccessorPlan failed to inspect " + type.getName() + ".", e);
+        }
+        return readMethods;
+    }
+
+    /**
+     * Find the setter of a field, which may return a value for chained calls.
+     */
+    private static Method getWriteMethod(Class<?> type, Field field)
+    {
+        if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+            return null;
+        }
+        String name = "set" + Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        try {
+            return type.getDeclaredMethod(name, field.getType());
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> bindSetter(Method method)
+    {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            if (isLinkable(method)) {
+                MethodHandle handle = lookup.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                                                              MethodType.methodType(void.class, Object.class, Object.class), handle,
+                                                              handle.type().wrap().changeReturnType(void.class));
+                return (BiConsumer<Object, Object>)site.getTarget().invokeExact();
+            }
+            method.setAccessible(true);
+            MethodHandle handle = lookup.unreflect(method).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return (bean, value) -> invoke(handle, bean, value);
+        } catch (Throwable e) {
+            log.log(Level.WARNING, "AccessorPlan cannot bind " + method + ".", e);
+            return null;
+        }
+    }
+
+    private static Supplier<Object> bindConstructor(Class<?> type)
+    {
+        if (Modifier.isAbstract(type.getModifiers()) || type.isInterface()) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+            return () -> invoke(handle);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> bind(Method method)
+    {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            if (isLinkable(method)) {
+                MethodHandle handle = lookup.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                                                              MethodType.methodType(Object.class, Object.class), handle,
+                                                              handle.type().wrap());
+                return (Function<Object, Object>)site.getTarget().invokeExact();
+            }
+            method.setAccessible(true);
+            MethodHandle handle = lookup.unreflect(method).asType(MethodType.methodType(Object.class, Object.class));
+            return bean -> invoke(handle, bean);
+        } catch (Throwable e) {
+            log.log(Level.WARNING, "AccessorPlan cannot bind " + method + ".", e);
+            return null;
+        }
+    }
+
+    private static Object invoke(MethodHandle handle, Object bean)
+    {
+        try {
+            return handle.invokeExact(bean);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void invoke(MethodHandle handle, Object bean, Object value)
+    {
+        try {
+            handle.invokeExact(bean, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object invoke(MethodHandle handle)
+    {
+        try {
+            return handle.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generated lambda classes live next to this class, so the accessor, its declaring class and the types of its
+     * parameters and result must be public and visible from this class loader.
+     */
+    private static boolean isLinkable(Method method)
+    {
+        if (!Modifier.isPublic(method.getModifiers()) || !isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType())) {
+            return false;
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!isVisible(parameterType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isVisible(Class<?> type)
+    {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        for (Class<?> enclosing = type; enclosing != null; enclosing = enclosing.getEnclosingClass()) {
+            if (!Modifier.isPublic(enclosing.getModifiers())) {
+                return false;
+            }
+        }
+        try {
+            return Class.forName(type.getName(), false, AccessorPlan.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package de.intension.halo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Bytes allocated by the current thread, if the JVM can measure them.
+ */
+final class Allocations
+{
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private Allocations()
+    {
+    }
+
+    /**
+     * @return Bytes allocated by the current thread so far or <b>-1</b> if not supported.
+     */
+    static long current()
+    {
+        return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threads()
+    {
+        try {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean)threads;
+                if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) {
+                    return allocations;
+                }
+            }
+        } catch (LinkageError | RuntimeException e) {
+            // runtime without the com.sun.management extension
+        }
+        return null;
+    }
+}
@@ -4,6 +4,7 @@ import java.lang.annotation.Annotation;
 import java.util.Map;
 
 import de.intension.halo.entity.Property;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
@@ -29,8 +30,15 @@ import lombok.RequiredArgsConstructor;
 public abstract class AnnotationTransformer<T extends Annotation>
 {
 
+    /**
+     * Annotation type this transformer is responsible for.
+     * 
+     * @return Class of <b>&lt;T&gt;</b>.
+     */
+    @Getter
     @NonNull
-    private Class<T> annotationType;
+    private Class<T>              annotationType;
+    private volatile CatalogEntry lastCatalog;
 
     /**
      * Check whether annotation class matches <b>&lt;T&gt;</b>.
@@ -63,4 +71,55 @@ public abstract class AnnotationTransformer<T extends Annotation>
     {
         transformProperty(annotation, property);
     }
+
+    /**
+     * Transform the property based on the information of an annotation and use a shared message catalog.
+     * Override this method instead of {@link #transformProperty(Annotation, Property, Map)} to profit from
+     * precompiled messages, by default the mappings the catalog was created from are passed on.
+     * 
+     * @param annotation Annotation to take information from.
+     * @param property Property to transform.
+     * @param messages Localization provider, may be <b>null</b>.
+     */
+    public void transformProperty(T annotation, Property property, MessageCatalog messages)
+    {
+        transformProperty(annotation, property, messages == null ? null : messages.getLocales());
+    }
+
+    /**
+     * Get the catalog of mappings for transformers that implement {@link #transformProperty(Annotation, Property, Map)}
+     * with a catalog.
+     * <br/>
+     * <br/>
+     * The catalog of the last mappings is kept, so transforming all fields of a class with the same mappings copies
+     * them only once. Changes made to the mappings after they were passed the first time are not seen.
+     * 
+     * @param locales Mappings of identifier to multi-language mapping, may be <b>null</b>.
+     * @return Catalog of the mappings.
+     */
+    protected final MessageCatalog toCatalog(Map<String, Map<String, String>> locales)
+    {
+        CatalogEntry entry = lastCatalog;
+        if (entry == null || entry.locales != locales) {
+            entry = new CatalogEntry(locales, MessageCatalog.of(locales));
+            lastCatalog = entry;
+        }
+        return entry.catalog;
+    }
+
+    /**
+     * Mappings and the catalog created from them.
+     */
+    private static final class CatalogEntry
+    {
+
+        private final Map<String, Map<String, String>> locales;
+        private final MessageCatalog                   catalog;
+
+        private CatalogEntry(Map<String, Map<String, String>> locales, MessageCatalog catalog)
+        {
+            this.locales = locales;
+            this.catalog = catalog;
+        }
+    }
 }
@@ -0,0 +1,257 @@
+package de.intension.halo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+
+/**
+ * Builds HALO entities without blocking the calling thread on links that need remote lookups.
+ * <br/>
+ * <br/>
+ * Every {@link LinkProvider} runs as an independent task on the executor of the builder, so slow providers do not
+ * wait for each other. By default the executor starts a virtual thread per task when the runtime supports them and
+ * otherwise queues the tasks on a dedicated pool of at most 64 daemon threads, which idle threads leave after a
+ * minute. Blocking lookups therefore never run on the common fork join pool. A provider can be given a timeout; when
+ * it expires the link is either omitted or the whole entity completes exceptionally with a
+ * {@link TimeoutException}. The provider itself is not interrupted, its result is ignored.
+ * 
+ * <pre>
+ * AsyncHaloBuilder builder = new AsyncHaloBuilder()
+ *     .addLinkProvider(car -&gt; new Link("self", "/cars/" + ((Car)car).getId()))
+ *     .addLinkProvider(car -&gt; service.hasOwner(car) ? new Link("owner", "/owners/...") : null,
+ *                      Duration.ofMillis(200), true);
+ * builder.build(car).thenAccept(response::send);
+ * </pre>
+ * 
+ * Builders are safe to use from many threads once all providers are added.
+ */
+public class AsyncHaloBuilder
+{
+
+    private final Executor            executor;
+    private final List<TimedProvider> providers = new ArrayList<>();
+
+    /**
+     * Create a builder that runs the link providers on virtual threads if available, otherwise on a shared pool of at
+     * most 64 daemon threads.
+     */
+    public AsyncHaloBuilder()
+    {
+        this(Executors.DEFAULT);
+    }
+
+    /**
+     * Create a builder that runs the link providers on the given executor.
+     * 
+     * @param executor Executor of the link providers
+     */
+    public AsyncHaloBuilder(Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Add a provider without timeout.
+     * 
+     * @param provider Provider of one link
+     * @return this builder
+     */
+    public AsyncHaloBuilder addLinkProvider(LinkProvider provider)
+    {
+        providers.add(new TimedProvider(provider, 0, false));
+        return this;
+    }
+
+    /**
+     * Add a provider that has to deliver its link within the timeout.
+     * 
+     * @param provider Provider of one link
+     * @param timeout Maximum time to wait for the link
+     * @param omitOnTimeout <b>true</b> to build the entity without the link if the timeout expires, <b>false</b> to
+     *            fail the entity with a {@link TimeoutException}
+     * @return this builder
+     */
+    public AsyncHaloBuilder addLinkProvider(LinkProvider provider, Duration timeout, boolean omitOnTimeout)
+    {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+        }
+        providers.add(new TimedProvider(provider, timeout.toNanos(), omitOnTimeout));
+        return this;
+    }
+
+    /**
+     * Build the HALO entity from a POJO.
+     * <br/>
+     * <br/>
+     * Links are added in the order of their providers, providers that return <b>null</b> add no link. The future
+     * completes exceptionally if a provider throws, times out without being omittable or cannot be scheduled on the
+     * executor.
+     * 
+     * @param entity Plain old Java object
+     * @return Future of the HALO entity
+     */
+    public CompletableFuture<Entity> build(Object entity)
+    {
+        List<CompletableFuture<Link>> links = new ArrayList<>(providers.size());
+        for (TimedProvider provider : providers) {
+            links.add(provider.provide(entity, executor));
+        }
+        return CompletableFuture.allOf(links.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Entity halEntity = new Entity().setData(entity);
+            for (CompletableFuture<Link> link : links) {
+                Link value = link.join();
+                if (value != null) {
+                    halEntity.addLink(value);
+                }
+            }
+            return halEntity;
+        });
+    }
+
+    /**
+     * Build the HALO entity from a POJO with only the selected languages.
+     * 
+     * @param entity Plain old Java object
+     * @param locales Requested languages of the client
+     * @return Future of the HALO entity
+     * @see #build(Object)
+     */
+    public CompletableFuture<Entity> build(Object entity, LocaleSelection locales)
+    {
+        return build(entity).thenApply(locales::localize);
+    }
+
+    /**
+     * @return Providers of this builder in the order they were added.
+     */
+    public List<LinkProvider> getLinkProviders()
+    {
+        List<LinkProvider> result = new ArrayList<>(providers.size());
+        for (TimedProvider provider : providers) {
+            result.add(provider.provider);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Provides one link of an entity.
+     */
+    @FunctionalInterface
+    public interface LinkProvider
+    {
+
+        /**
+         * Create the link of an entity, may block on remote lookups.
+         * 
+         * @param entity Plain old Java object
+         * @return Link or <b>null</b> if the entity has no such link
+         * @throws Exception if the link cannot be determined
+         */
+        Link getLink(Object entity) throws Exception;
+    }
+
+    private static final class TimedProvider
+    {
+
+        private final LinkProvider provider;
+        private final long         timeout;
+        private final boolean      omitOnTimeout;
+
+        TimedProvider(LinkProvider provider, long timeout, boolean omitOnTimeout)
+        {
+            this.provider = provider;
+            this.timeout = timeout;
+            this.omitOnTimeout = omitOnTimeout;
+        }
+
+        CompletableFuture<Link> provide(Object entity, Executor executor)
+        {
+            CompletableFuture<Link> link = new CompletableFuture<>();
+            try {
+                executor.execute(() -> {
+                    try {
+                        link.complete(provider.getLink(entity));
+                    } catch (Throwable e) {
+                        link.completeExceptionally(new CompletionException(e));
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                link.completeExceptionally(e);
+                return link;
+            }
+            if (timeout > 0 && !link.isDone()) {
+                ScheduledFuture<?> timer = Executors.TIMER.schedule(() -> {
+                    if (omitOnTimeout) {
+                        link.complete(null);
+                    } else {
+                        link.completeExceptionally(new TimeoutException("Link provider timed out after "
+                                + TimeUnit.NANOSECONDS.toMillis(timeout) + " ms"));
+                    }
+                }, timeout, TimeUnit.NANOSECONDS);
+                link.whenComplete((value, e) -> timer.cancel(false));
+            }
+            return link;
+        }
+    }
+
+    /**
+     * Lazily created shared executors.
+     */
+    private static final class Executors
+    {
+
+        /**
+         * Maximum number of threads of the fallback pool for runtimes without virtual threads.
+         */
+        static final int                         MAX_THREADS = 64;
+        static final Executor                    DEFAULT     = defaultExecutor();
+        static final ScheduledThreadPoolExecutor TIMER       = timer();
+
+        private static Executor defaultExecutor()
+        {
+            try {
+                return (Executor)java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(), daemon("halo-link-provider"));
+                pool.allowCoreThreadTimeOut(true);
+                return pool;
+            }
+        }
+
+        private static ScheduledThreadPoolExecutor timer()
+        {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, daemon("halo-link-timeout"));
+            timer.setRemoveOnCancelPolicy(true);
+            return timer;
+        }
+
+        private static ThreadFactory daemon(String name)
+        {
+            AtomicInteger count = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
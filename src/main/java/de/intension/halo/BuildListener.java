@@ -0,0 +1,87 @@
+package de.intension.halo;
+
+import java.util.function.Supplier;
+
+/**
+ * Receives timings and counts from the builders, to find out where request time goes.
+ * <br/>
+ * <br/>
+ * All methods do nothing by default, so a listener only implements what it records. Builders skip all measurements
+ * as long as their listener is {@link #NONE}, which is the default. {@link BuildMetrics} aggregates the events and
+ * exports them over JMX.
+ * <br/>
+ * <br/>
+ * Listeners are called from every thread that builds, so they must be thread-safe and fast.
+ */
+public interface BuildListener
+{
+
+    /**
+     * Listener that ignores all events, builders do not measure anything for it.
+     */
+    public static final BuildListener NONE = new BuildListener() {};
+
+    /**
+     * Called after a phase has finished.
+     * 
+     * @param phase Finished phase.
+     * @param type Class of the built object, <b>null</b> for batches of objects.
+     * @param nanos Duration of the phase including nested phases, see {@link BuildPhase}.
+     * @param allocatedBytes Bytes allocated by the phase or <b>-1</b> if not measured.
+     */
+    public default void onPhase(BuildPhase phase, Class<?> type, long nanos, long allocatedBytes)
+    {
+    }
+
+    /**
+     * Called after a class structure was analyzed, which is a miss of the class cache.
+     * 
+     * @param type Analyzed class.
+     * @param fields Number of fields including the fields of nested classes.
+     * @param annotations Number of field annotations.
+     * @param transformations Number of annotation transformers applied.
+     */
+    public default void onAnalyzed(Class<?> type, int fields, int annotations, int transformations)
+    {
+    }
+
+    /**
+     * Called for every lookup in the class cache of a template builder.
+     * 
+     * @param type Class that is looked up.
+     */
+    public default void onCacheRequest(Class<?> type)
+    {
+    }
+
+    /**
+     * Whether {@link #onPhase(BuildPhase, Class, long, long)} should get the allocated bytes. Measuring them costs
+     * about as much as reading the clock.
+     * 
+     * @return <b>true</b> to measure allocations.
+     */
+    public default boolean isMeasuringAllocations()
+    {
+        return false;
+    }
+
+    /**
+     * Run a phase and report its duration and allocations.
+     * 
+     * @param phase Phase to run.
+     * @param type Class of the built object, <b>null</b> for batches of objects.
+     * @param work Work of the phase.
+     * @param <T> Result of the phase.
+     * @return Result of the work.
+     */
+    public default <T> T measure(BuildPhase phase, Class<?> type, Supplier<T> work)
+    {
+        boolean allocations = isMeasuringAllocations();
+        long bytes = allocations ? Allocations.current() : -1;
+        long start = System.nanoTime();
+        T result = work.get();
+        long nanos = System.nanoTime() - start;
+        onPhase(phase, type, nanos, bytes < 0 ? -1 : Allocations.current() - bytes);
+        return result;
+    }
+}
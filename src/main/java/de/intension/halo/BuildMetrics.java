@@ -0,0 +1,229 @@
+package de.intension.halo;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Listener that sums up all events and exports them as MXBean.
+ * <br/>
+ * <br/>
+ * The counters are {@link LongAdder}s, so recording from many threads does not contend.
+ * 
+ * <pre>
+ * BuildMetrics metrics = new BuildMetrics(true).register("orders");
+ * HibernateTemplateBuilder builder = new HibernateTemplateBuilder("order").setListener(metrics);
+ * </pre>
+ * 
+ * The metrics are then visible in JMX clients as {@code de.intension.halo:type=BuildMetrics,name=orders}.
+ */
+public class BuildMetrics implements BuildListener, BuildMetricsMXBean
+{
+
+    private static final BuildPhase[] PHASES          = BuildPhase.values();
+
+    private final boolean             measureAllocations;
+    private final LongAdder[]         counts          = adders();
+    private final LongAdder[]         nanos           = adders();
+    private final LongAdder[]         allocatedBytes  = adders();
+    private final LongAdder           cacheRequests   = new LongAdder();
+    private final LongAdder           analyzedClasses = new LongAdder();
+    private final LongAdder           fields          = new LongAdder();
+    private final LongAdder           annotations     = new LongAdder();
+    private final LongAdder           transformations = new LongAdder();
+    private volatile ObjectName       name;
+
+    /**
+     * Create metrics without allocation measurement.
+     */
+    public BuildMetrics()
+    {
+        this(false);
+    }
+
+    /**
+     * @param measureAllocations Whether the bytes allocated by each phase are measured.
+     */
+    public BuildMetrics(boolean measureAllocations)
+    {
+        this.measureAllocations = measureAllocations;
+    }
+
+    /**
+     * Register these metrics at the platform MBean server.
+     * 
+     * @param name Value of the {@code name} key of the object name.
+     * @return this metrics
+     * @throws IllegalStateException if the name is already registered or invalid.
+     */
+    public BuildMetrics register(String name)
+    {
+        try {
+            ObjectName objectName = ObjectName.getInstance("de.intension.halo:type=BuildMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.name = objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register build metrics " + name, e);
+        }
+        return this;
+    }
+
+    /**
+     * Remove these metrics from the platform MBean server if they were registered.
+     */
+    public void unregister()
+    {
+        ObjectName objectName = name;
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister build metrics " + objectName, e);
+        }
+        name = null;
+    }
+
+    /**
+     * @return Name under which these metrics are registered or <b>null</b>.
+     */
+    public ObjectName getObjectName()
+    {
+        return name;
+    }
+
+    @Override
+    public void onPhase(BuildPhase phase, Class<?> type, long nanos, long allocatedBytes)
+    {
+        counts[phase.ordinal()].increment();
+        this.nanos[phase.ordinal()].add(nanos);
+        if (allocatedBytes > 0) {
+            this.allocatedBytes[phase.ordinal()].add(allocatedBytes);
+        }
+    }
+
+    @Override
+    public void onAnalyzed(Class<?> type, int fields, int annotations, int transformations)
+    {
+        analyzedClasses.increment();
+        this.fields.add(fields);
+        this.annotations.add(annotations);
+        this.transformations.add(transformations);
+    }
+
+    @Override
+    public void onCacheRequest(Class<?> type)
+    {
+        cacheRequests.increment();
+    }
+
+    @Override
+    public boolean isMeasuringAllocations()
+    {
+        return measureAllocations;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseCounts()
+    {
+        return sums(counts);
+    }
+
+    @Override
+    public Map<String, Double> getPhaseMillis()
+    {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        for (BuildPhase phase : PHASES) {
+            millis.put(phase.name(), nanos[phase.ordinal()].sum() / 1_000_000d);
+        }
+        return millis;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseAllocatedBytes()
+    {
+        return sums(allocatedBytes);
+    }
+
+    @Override
+    public long getCacheRequests()
+    {
+        return cacheRequests.sum();
+    }
+
+    @Override
+    public long getAnalyzedClasses()
+    {
+        return analyzedClasses.sum();
+    }
+
+    @Override
+    public double getCacheHitRatio()
+    {
+        long requests = cacheRequests.sum();
+        if (requests == 0) {
+            return Double.NaN;
+        }
+        return Math.max(0, requests - analyzedClasses.sum()) / (double)requests;
+    }
+
+    @Override
+    public long getFields()
+    {
+        return fields.sum();
+    }
+
+    @Override
+    public long getAnnotations()
+    {
+        return annotations.sum();
+    }
+
+    @Override
+    public long getTransformations()
+    {
+        return transformations.sum();
+    }
+
+    @Override
+    public void reset()
+    {
+        for (BuildPhase phase : PHASES) {
+            counts[phase.ordinal()].reset();
+            nanos[phase.ordinal()].reset();
+            allocatedBytes[phase.ordinal()].reset();
+        }
+        cacheRequests.reset();
+        analyzedClasses.reset();
+        fields.reset();
+        annotations.reset();
+        transformations.reset();
+    }
+
+    private static Map<String, Long> sums(LongAdder[] adders)
+    {
+        Map<String, Long> sums = new LinkedHashMap<>();
+        for (BuildPhase phase : PHASES) {
+            sums.put(phase.name(), adders[phase.ordinal()].sum());
+        }
+        return sums;
+    }
+
+    private static LongAdder[] adders()
+    {
+        LongAdder[] adders = new LongAdder[PHASES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,60 @@
+package de.intension.halo;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link BuildMetrics}.
+ */
+public interface BuildMetricsMXBean
+{
+
+    /**
+     * @return Number of finished phases by name of the {@link BuildPhase}.
+     */
+    Map<String, Long> getPhaseCounts();
+
+    /**
+     * @return Total time of the phases in milliseconds by name of the {@link BuildPhase}.
+     */
+    Map<String, Double> getPhaseMillis();
+
+    /**
+     * @return Total bytes allocated in the phases by name of the {@link BuildPhase}, only if allocations are measured.
+     */
+    Map<String, Long> getPhaseAllocatedBytes();
+
+    /**
+     * @return Number of class cache lookups.
+     */
+    long getCacheRequests();
+
+    /**
+     * @return Number of analyzed classes, the misses of the class cache.
+     */
+    long getAnalyzedClasses();
+
+    /**
+     * @return Share of class cache lookups that needed no analysis, <b>NaN</b> before the first lookup.
+     */
+    double getCacheHitRatio();
+
+    /**
+     * @return Number of fields processed by analyses.
+     */
+    long getFields();
+
+    /**
+     * @return Number of field annotations processed by analyses.
+     */
+    long getAnnotations();
+
+    /**
+     * @return Number of annotation transformers applied by analyses.
+     */
+    long getTransformations();
+
+    /**
+     * Set all counters to zero.
+     */
+    void reset();
+}
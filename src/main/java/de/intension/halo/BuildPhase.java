@@ -0,0 +1,36 @@
+package de.intension.halo;
+
+/**
+ * Phases of building templates and entities that are reported to a {@link BuildListener}.
+ * <br/>
+ * <br/>
+ * Phases nest, the time of a phase includes the time of all phases that run inside of it: {@link #READ_VALUES}
+ * includes {@link #LOCALIZE} and, when a class is read for the first time, {@link #ANALYZE}, which in turn includes
+ * {@link #TRANSFORM}. {@link #LINKS} includes whatever the links of a {@link HaloBuilder} build. The times of
+ * different phases therefore must not be added up; to get the exclusive time of a phase, subtract the phases nested
+ * in it.
+ */
+public enum BuildPhase
+{
+
+    /**
+     * Analysis of a class structure by reflection, once per class and configuration, including {@link #TRANSFORM}.
+     */
+    ANALYZE,
+    /**
+     * Annotation transformers applied during an analysis.
+     */
+    TRANSFORM,
+    /**
+     * Reduction of a cached template to the selected languages.
+     */
+    LOCALIZE,
+    /**
+     * Reading the field values of an object, including the lookup of its class.
+     */
+    READ_VALUES,
+    /**
+     * Adding the links of a {@link HaloBuilder}.
+     */
+    LINKS
+}
@@ -0,0 +1,49 @@
+package de.intension.halo;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Snapshot of the hit and miss counts of a cache.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class CacheStatistics
+{
+
+    /**
+     * Number of lookups that were answered from the cache.
+     * 
+     * @return Number of cache hits.
+     */
+    private final long hits;
+    /**
+     * Number of lookups that had to compute a new value.
+     * 
+     * @return Number of cache misses.
+     */
+    private final long misses;
+
+    /**
+     * Total number of lookups.
+     * 
+     * @return Sum of {@link #hits} and {@link #misses}.
+     */
+    public long getRequests()
+    {
+        return hits + misses;
+    }
+
+    /**
+     * Ratio of lookups that were answered from the cache.
+     * 
+     * @return Value between <b>0</b> and <b>1</b>, <b>0</b> if there were no lookups yet.
+     */
+    public double getHitRatio()
+    {
+        long requests = getRequests();
+        return requests == 0 ? 0 : (double)hits / requests;
+    }
+}
@@ -0,0 +1,409 @@
+package de.intension.halo;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.BaseStream;
+
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Frozen;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.TemplateValues;
+import de.intension.halo.entity.Validation;
+import lombok.NonNull;
+
+/**
+ * Stable 64-bit content hash of HALO documents, for strong {@code ETag} headers.
+ * <br/>
+ * <br/>
+ * The hash is computed from the document itself, without writing it. It only depends on the content, so it is the same
+ * in every JVM: fields that are <b>null</b> are ignored like {@link de.intension.halo.json.HaloJsonWriter} ignores them,
+ * and the order of map entries does not matter. The hash of a frozen shared template of {@link TemplateValues}, like
+ * the templates of a template builder, is computed once and combined with the hash of the values, so the structure
+ * derived from a class is not walked again for every object.
+ * <br/>
+ * <br/>
+ * A strong entity tag must differ between representations, so a resource that is served in several
+ * {@link HaloFormat}s needs the tag of the negotiated format:
+ * 
+ * <pre>
+ * HaloFormat format = HaloFormat.negotiate(request.getHeader("Accept"));
+ * String etag = ContentHash.etag(entity, format);
+ * if (ContentHash.matches(request.getHeader("If-None-Match"), etag)) {
+ *     response.setStatus(304);
+ * } else {
+ *     response.setHeader("ETag", etag);
+ *     format.write(entity, response.getOutputStream());
+ * }
+ * </pre>
+ */
+public final class ContentHash
+{
+
+    /**
+     * Maximum number of cached template hashes, the cache is cleared when it is full.
+     */
+    private static final int                     MAX_SCHEMAS = 1024;
+    private static final long                    SEED        = 0x48414c4f2d763131L;
+    private static final long                    MULTIPLIER  = 0x9e3779b97f4a7c15L;
+
+    private static final int                     NULL        = 1;
+    private static final int                     FALSE       = 2;
+    private static final int                     TRUE        = 3;
+    private static final int                     INTEGER     = 4;
+    private static final int                     DECIMAL     = 5;
+    private static final int                     STRING      = 6;
+    private static final int                     LIST        = 7;
+    private static final int                     MAP         = 8;
+    private static final int                     OBJECT      = 9;
+    private static final int                     ENTITY      = 16;
+    private static final int                     LINK        = 17;
+    private static final int                     TEMPLATE    = 18;
+    private static final int                     PROPERTY    = 19;
+    private static final int                     VALIDATION  = 20;
+    private static final int                     MESSAGE     = 21;
+    private static final int                     VALUES      = 22;
+
+    private static final Map<IdentityKey, Long>  SCHEMAS     = new ConcurrentHashMap<>();
+
+    private ContentHash()
+    {
+    }
+
+    /**
+     * Compute the hash of a document.
+     * 
+     * @param document HALO entity, link, template, property or any other value.
+     * @return Hash of the content.
+     * @throws IllegalArgumentException If the document contains an iterator or stream, which cannot be hashed without
+     *             consuming it.
+     */
+    public static long of(Object document)
+    {
+        return finish(hash(SEED, document));
+    }
+
+    /**
+     * Compute a strong entity tag for a document that is served in a single format.
+     * 
+     * @param document HALO entity, link, template, property or any other value.
+     * @return Quoted hash like {@code "\"5f0c3a9e1b2d4c68\""}.
+     * @throws IllegalArgumentException If the document contains an iterator or stream.
+     * @see #etag(Object, HaloFormat)
+     */
+    public static String etag(Object document)
+    {
+        return etag(of(document));
+    }
+
+    /**
+     * Compute a strong entity tag for the representation of a document in a format.
+     * <br/>
+     * <br/>
+     * The media type of the format is part of the hash, so the JSON and the binary representation of the same document
+     * have different tags.
+     * 
+     * @param document HALO entity, link, template, property or any other value.
+     * @param format Format the document is written in.
+     * @return Quoted hash like {@code "\"5f0c3a9e1b2d4c68\""}.
+     * @throws IllegalArgumentException If the document contains an iterator or stream.
+     */
+    public static String etag(Object document, @NonNull HaloFormat format)
+    {
+        return etag(finish(hash(hash(SEED, format.getMediaType()), document)));
+    }
+
+    private static String etag(long hash)
+    {
+        String hex = Long.toHexString(hash);
+        StringBuilder etag = new StringBuilder(18).append('"');
+        for (int i = hex.length(); i < 16; i++) {
+            etag.append('0');
+        }
+        return etag.append(hex).append('"').toString();
+    }
+
+    /**
+     * Check whether a client already has the current representation.
+     * 
+     * @param ifNoneMatch Value of the {@code If-None-Match} header, may be <b>null</b>.
+     * @param etag Current entity tag, see {@link #etag(Object)}.
+     * @return <b>true</b> if the header contains the entity tag or is {@code *}, compared weakly as required for
+     *         {@code If-None-Match}.
+     */
+    public static boolean matches(String ifNoneMatch, String etag)
+    {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove all cached template hashes.
+     */
+    public static void clearCache()
+    {
+        SCHEMAS.clear();
+    }
+
+    private static long hash(long h, Object value)
+    {
+        if (value == null) {
+            return mix(h, NULL);
+        } else if (value instanceof String) {
+            return hash(h, (String)value);
+        } else if (value instanceof Boolean) {
+            return mix(h, (Boolean)value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return mix(mix(h, INTEGER), ((Number)value).longValue());
+        } else if (value instanceof BigInteger) {
+            BigInteger number = (BigInteger)value;
+            return number.bitLength() < 64 ? mix(mix(h, INTEGER), number.longValue()) : hash(mix(h, DECIMAL), number.toString());
+        } else if (value instanceof BigDecimal) {
+            return hash(mix(h, DECIMAL), ((BigDecimal)value).stripTrailingZeros().toPlainString());
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number)value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                return mix(h, NULL);
+            }
+            return mix(mix(h, DECIMAL), Double.doubleToLongBits(number == 0 ? 0 : number));
+        } else if (value instanceof Number || value instanceof CharSequence || value instanceof Character) {
+            return hash(h, value.toString());
+        } else if (value instanceof Enum) {
+            return hash(h, ((Enum<?>)value).name());
+        } else if (value instanceof Date) {
+            return hash(h, Dates.format((Date)value));
+        } else if (value instanceof Entity) {
+            return hash(h, (Entity)value);
+        } else if (value instanceof Link) {
+            return hash(h, (Link)value);
+        } else if (value instanceof Template) {
+            return hash(h, (Template)value);
+        } else if (value instanceof TemplateValues) {
+            return hash(h, (TemplateValues)value);
+        } else if (value instanceof Property) {
+            return hash(h, (Property)value);
+        } else if (value instanceof Validation) {
+            return hash(h, (Validation)value);
+        } else if (value instanceof Message) {
+            return hash(h, (Message)value);
+        } else if (value instanceof Map) {
+            return hash(h, (Map<?, ?>)value);
+        } else if (value instanceof Iterable) {
+            h = mix(h, LIST);
+            for (Object element : (Iterable<?>)value) {
+                h = hash(h, element);
+            }
+            return mix(h, LIST);
+        } else if (value instanceof Iterator || value instanceof BaseStream) {
+            throw new IllegalArgumentException("Lazy values cannot be hashed without consuming them.");
+        } else if (value.getClass().isArray()) {
+            h = mix(h, LIST);
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                h = hash(h, Array.get(value, i));
+            }
+            return mix(h, LIST);
+        } else if (value.getClass().getName().startsWith("java.")) {
+            return hash(h, value.toString());
+        }
+        AccessorPlan accessors = AccessorPlan.ofBean(value.getClass());
+        h = mix(h, OBJECT);
+        for (int i = 0; i < accessors.size(); i++) {
+            Object field = accessors.isReadable(i) ? accessors.get(value, i) : null;
+            if (field != null) {
+                h = hash(hash(h, accessors.getName(i)), field);
+            }
+        }
+        return mix(h, OBJECT);
+    }
+
+    private static long hash(long h, Entity entity)
+    {
+        h = mix(h, ENTITY);
+        h = field(h, 1, entity.getData());
+        h = field(h, 2, entity.getMessages());
+        h = field(h, 3, entity.getLinks());
+        return mix(h, ENTITY);
+    }
+
+    private static long hash(long h, Link link)
+    {
+        h = mix(h, LINK);
+        h = field(h, 1, link.getName());
+        h = field(h, 2, link.getHref());
+        h = field(h, 3, link.getTitle());
+        h = field(h, 4, link.getTemplates());
+        return mix(h, LINK);
+    }
+
+    private static long hash(long h, Template template)
+    {
+        h = mix(h, TEMPLATE);
+        h = field(h, 1, template.getName());
+        h = field(h, 2, template.getMethod());
+        h = field(h, 3, template.getTitle());
+        h = field(h, 4, template.getContentType());
+        h = field(h, 5, template.getProperties());
+        h = field(h, 6, template.getQuery());
+        return mix(h, TEMPLATE);
+    }
+
+    /**
+     * Combine the cached hash of the shared template with the values.
+     */
+    private static long hash(long h, TemplateValues values)
+    {
+        h = mix(mix(h, VALUES), schemaHash(values.getTemplate()));
+        for (int i = 0; i < values.size(); i++) {
+            h = hash(h, values.getValue(i));
+        }
+        return mix(h, VALUES);
+    }
+
+    private static long hash(long h, Property property)
+    {
+        h = mix(h, PROPERTY);
+        h = field(h, 1, property.getName());
+        h = field(h, 2, property.getValue());
+        h = field(h, 3, property.getTitle());
+        h = field(h, 4, property.getValidations());
+        h = field(h, 5, property.getReadOnly());
+        h = field(h, 6, property.getType());
+        h = field(h, 7, property.getMultivalued());
+        h = field(h, 8, property.getProperties());
+        h = field(h, 9, property.getLink());
+        return mix(h, PROPERTY);
+    }
+
+    private static long hash(long h, Validation validation)
+    {
+        h = mix(h, VALIDATION);
+        h = field(h, 1, validation.getName());
+        h = field(h, 2, validation.getValue());
+        h = field(h, 3, validation.getMessage());
+        return mix(h, VALIDATION);
+    }
+
+    private static long hash(long h, Message message)
+    {
+        h = mix(h, MESSAGE);
+        h = field(h, 1, message.getName());
+        h = field(h, 2, message.getProperty());
+        h = field(h, 3, message.getValue());
+        return mix(h, MESSAGE);
+    }
+
+    /**
+     * Hash the entries independent of their order, entries with <b>null</b> values are ignored.
+     */
+    private static long hash(long h, Map<?, ?> map)
+    {
+        long entries = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                entries += finish(hash(hash(SEED, String.valueOf(entry.getKey())), entry.getValue()));
+            }
+        }
+        return mix(mix(h, MAP), entries);
+    }
+
+    private static long hash(long h, String string)
+    {
+        int length = string.length();
+        h = mix(mix(h, STRING), length);
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            h = mix(h, string.charAt(i) | (long)string.charAt(i + 1) << 16 | (long)string.charAt(i + 2) << 32
+                    | (long)string.charAt(i + 3) << 48);
+        }
+        long rest = 0;
+        for (int shift = 0; i < length; i++, shift += 16) {
+            rest |= (long)string.charAt(i) << shift;
+        }
+        return mix(h, rest);
+    }
+
+    /**
+     * Hash a field of the model, fields that are <b>null</b> are skipped.
+     */
+    private static long field(long h, int field, Object value)
+    {
+        return value == null ? h : hash(mix(h, field), value);
+    }
+
+    /**
+     * Get the hash of a template, cached by identity if the template is frozen and cannot change.
+     */
+    private static long schemaHash(Template template)
+    {
+        if (!(template instanceof Frozen)) {
+            return finish(hash(SEED, template));
+        }
+        IdentityKey key = new IdentityKey(template);
+        Long hash = SCHEMAS.get(key);
+        if (hash == null) {
+            hash = finish(hash(SEED, template));
+            if (SCHEMAS.size() >= MAX_SCHEMAS) {
+                SCHEMAS.clear();
+            }
+            SCHEMAS.put(key, hash);
+        }
+        return hash;
+    }
+
+    private static long mix(long h, long value)
+    {
+        return Long.rotateLeft(h ^ value * 0xc2b2ae3d27d4eb4fL, 31) * MULTIPLIER;
+    }
+
+    private static long finish(long h)
+    {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ h >>> 33;
+    }
+
+    /**
+     * Compares frozen templates by identity.
+     */
+    private static final class IdentityKey
+    {
+
+        private final Template template;
+
+        private IdentityKey(Template template)
+        {
+            this.template = template;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof IdentityKey && ((IdentityKey)obj).template == template;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(template);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package de.intension.halo;
+
+import java.util.Date;
+
+/**
+ * Text form of {@link Date} values, shared by the writers, the patch differ and the content hash.
+ */
+public final class Dates
+{
+
+    private Dates()
+    {
+    }
+
+    /**
+     * Format a date as ISO-8601 text.
+     * <br/>
+     * <br/>
+     * {@link java.sql.Date} and {@link java.sql.Time} have no instant and are written as local date like
+     * {@code 2020-05-01} and local time like {@code 13:45:30}, all other dates as UTC instant like
+     * {@code 2020-05-01T11:45:30Z}.
+     * 
+     * @param date Date, timestamp or SQL date or time.
+     * @return ISO-8601 text of the date.
+     */
+    public static String format(Date date)
+    {
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date)date).toLocalDate().toString();
+        }
+        if (date instanceof java.sql.Time) {
+            return ((java.sql.Time)date).toLocalTime().toString();
+        }
+        return date.toInstant().toString();
+    }
+}
@@ -1,5 +1,14 @@
 package de.intension.halo;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 import de.intension.halo.entity.Entity;
 
 /**
@@ -17,10 +26,110 @@ public interface HaloBuilder
     public default Entity build(Object entity)
     {
         Entity halEntity = new Entity().setData(entity);
-        addLinks(halEntity, entity);
+        BuildListener listener = getListener();
+        if (listener == BuildListener.NONE) {
+            addLinks(halEntity, entity);
+        } else {
+            listener.measure(BuildPhase.LINKS, entity == null ? null : entity.getClass(), () -> {
+                addLinks(halEntity, entity);
+                return null;
+            });
+        }
         return halEntity;
     }
 
+    /**
+     * Build the HALO entity from a POJO with only the selected languages.
+     * <br/>
+     * <br/>
+     * Titles of links and templates and values of messages are reduced to the best matching language.
+     * 
+     * @param entity Plain old Java object
+     * @param locales Requested languages of the client
+     * @return HALO entity
+     */
+    public default Entity build(Object entity, LocaleSelection locales)
+    {
+        return locales.localize(build(entity));
+    }
+
+    /**
+     * Build HALO entities from many POJOs at once.
+     * <br/>
+     * <br/>
+     * The links of all entities are added with a single call of {@link #addLinks(List, List)}, so an implementation
+     * can look up permissions and link targets for all entities together.
+     * 
+     * @param entities Plain old Java objects
+     * @return HALO entities in the order of the objects
+     */
+    public default List<Entity> buildAll(Collection<?> entities)
+    {
+        List<Object> objects = new ArrayList<>(entities);
+        List<Entity> halEntities = new ArrayList<>(objects.size());
+        for (Object entity : objects) {
+            halEntities.add(new Entity().setData(entity));
+        }
+        BuildListener listener = getListener();
+        if (listener == BuildListener.NONE) {
+            addLinks(halEntities, objects);
+        } else {
+            listener.measure(BuildPhase.LINKS, null, () -> {
+                addLinks(halEntities, objects);
+                return null;
+            });
+        }
+        return halEntities;
+    }
+
+    /**
+     * Build HALO entities from many POJOs at once with only the selected languages.
+     * 
+     * @param entities Plain old Java objects
+     * @param locales Requested languages of the client
+     * @return HALO entities in the order of the objects
+     * @see #buildAll(Collection)
+     */
+    public default List<Entity> buildAll(Collection<?> entities, LocaleSelection locales)
+    {
+        List<Entity> halEntities = buildAll(entities);
+        halEntities.replaceAll(locales::localize);
+        return halEntities;
+    }
+
+    /**
+     * Build a HALO entity for a result that is too large to be held in memory.
+     * <br/>
+     * <br/>
+     * The data of the returned entity is a lazy stream of HALO entities, each element is built with
+     * {@link #build(Object)} only when a writer like {@link de.intension.halo.json.HaloJsonWriter} requests it. The
+     * stream is closed after it was written. Links for the whole result can be added to the returned entity.
+     * 
+     * <pre>
+     * try (Stream&lt;Order&gt; orders = repository.streamAll()) {
+     *     HaloFormat.JSON.write(builder.buildStreaming(orders), response.getOutputStream());
+     * }
+     * </pre>
+     * 
+     * @param entities Plain old Java objects, consumed once
+     * @return HALO entity with a stream of HALO entities as data
+     */
+    public default Entity buildStreaming(Stream<?> entities)
+    {
+        return new Entity().setData(entities.map(this::build));
+    }
+
+    /**
+     * Build a HALO entity for a result that is too large to be held in memory, see {@link #buildStreaming(Stream)}.
+     * 
+     * @param entities Plain old Java objects, consumed once
+     * @return HALO entity with a stream of HALO entities as data
+     */
+    public default Entity buildStreaming(Iterator<?> entities)
+    {
+        return buildStreaming(StreamSupport.stream(Spliterators.spliteratorUnknownSize(entities, Spliterator.ORDERED), false));
+    }
+
     /**
      * Implement this method to add links to the entity.
      * 
@@ -29,4 +138,28 @@ public interface HaloBuilder
      */
     public abstract void addLinks(Entity haloEntity, Object entity);
 
+    /**
+     * Override this method to measure how long adding the links takes.
+     * 
+     * @return Listener for {@link BuildPhase#LINKS}, {@link BuildListener#NONE} by default.
+     */
+    public default BuildListener getListener()
+    {
+        return BuildListener.NONE;
+    }
+
+    /**
+     * Override this method to add links to many entities at once, for example to check the permissions of all entities
+     * with one lookup. By default {@link #addLinks(Entity, Object)} is called for each entity.
+     * 
+     * @param haloEntities HALO entities to add the links to
+     * @param entities Plain old java objects, in the order of the HALO entities
+     */
+    public default void addLinks(List<Entity> haloEntities, List<?> entities)
+    {
+        for (int i = 0; i < haloEntities.size(); i++) {
+            addLinks(haloEntities.get(i), entities.get(i));
+        }
+    }
+
 }
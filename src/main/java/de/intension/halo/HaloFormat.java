@@ -0,0 +1,169 @@
+package de.intension.halo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import de.intension.halo.binary.HaloBinaryReader;
+import de.intension.halo.binary.HaloBinaryWriter;
+import de.intension.halo.entity.Entity;
+import de.intension.halo.json.HaloJsonReader;
+import de.intension.halo.json.HaloJsonWriter;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Supported encodings of HALO documents and their media types.
+ * 
+ * <pre>
+ * HaloFormat format = HaloFormat.negotiate(request.getHeader("Accept"));
+ * if (format == null) {
+ *     response.setStatus(406);
+ * } else {
+ *     response.setContentType(format.getMediaType());
+ *     format.write(entity, response.getOutputStream());
+ * }
+ * </pre>
+ */
+@RequiredArgsConstructor
+public enum HaloFormat
+{
+
+    /**
+     * UTF-8 encoded JSON, see {@link HaloJsonWriter}.
+     */
+    JSON("application/json"),
+    /**
+     * Compact binary encoding for service-to-service calls, see {@link HaloBinaryWriter}.
+     */
+    BINARY("application/x-halo-binary");
+
+    /**
+     * Media type for the {@code Content-Type} header.
+     * 
+     * @return Media type without parameters.
+     */
+    @Getter
+    private final String mediaType;
+
+    /**
+     * Select the format for an {@code Accept} header.
+     * <br/>
+     * <br/>
+     * The most specific media range of the header determines the quality of each format. The format with the highest
+     * quality is selected, {@link #JSON} is preferred if both have the same quality.
+     * 
+     * @param accept Header value like {@code "application/x-halo-binary, application/json;q=0.5"}, may be <b>null</b>.
+     * @return Selected format, {@link #JSON} if the header is empty or <b>null</b> if no format is acceptable.
+     */
+    public static HaloFormat negotiate(String accept)
+    {
+        if (accept == null || accept.trim().isEmpty()) {
+            return JSON;
+        }
+        HaloFormat selected = null;
+        double selectedQuality = 0;
+        for (HaloFormat format : values()) {
+            double quality = format.quality(accept);
+            if (quality > selectedQuality) {
+                selected = format;
+                selectedQuality = quality;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Get the format of a {@code Content-Type} header.
+     * 
+     * @param contentType Header value like {@code "application/json; charset=UTF-8"}, may be <b>null</b>.
+     * @return Format of the content, {@link #JSON} if there is no content type or <b>null</b> if it is not supported.
+     */
+    public static HaloFormat forContentType(String contentType)
+    {
+        if (contentType == null || contentType.trim().isEmpty()) {
+            return JSON;
+        }
+        String mediaType = mediaType(contentType);
+        for (HaloFormat format : values()) {
+            if (format.mediaType.equals(mediaType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Write a HALO entity or any other value in this format.
+     * 
+     * @param value Value to write.
+     * @param out Target of the document, is flushed but not closed.
+     * @throws IOException If the target cannot be written.
+     */
+    public void write(Object value, OutputStream out) throws IOException
+    {
+        if (this == BINARY) {
+            new HaloBinaryWriter(out).write(value).flush();
+        } else {
+            new HaloJsonWriter(out).write(value).flush();
+        }
+    }
+
+    /**
+     * Read a HALO entity in this format.
+     * 
+     * @param in Source of the document, is not closed.
+     * @return HALO entity.
+     * @throws IOException If the source cannot be read or is malformed.
+     */
+    public Entity readEntity(InputStream in) throws IOException
+    {
+        if (this == BINARY) {
+            return new HaloBinaryReader(in).readEntity();
+        }
+        return new HaloJsonReader(in).readEntity();
+    }
+
+    /**
+     * Get the quality of the most specific media range that matches this format.
+     */
+    private double quality(String accept)
+    {
+        int separator = mediaType.indexOf('/');
+        String wildcard = mediaType.substring(0, separator) + "/*";
+        double quality = 0;
+        int specificity = -1;
+        for (String range : accept.split(",")) {
+            String[] parts = range.split(";");
+            String type = mediaType(parts[0]);
+            int rangeSpecificity = type.equals(mediaType) ? 2 : type.equals(wildcard) ? 1 : type.equals("*/*") ? 0 : -1;
+            if (rangeSpecificity > specificity) {
+                specificity = rangeSpecificity;
+                quality = quality(parts);
+            }
+        }
+        return quality;
+    }
+
+    private static double quality(String[] parameters)
+    {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static String mediaType(String value)
+    {
+        int parameters = value.indexOf(';');
+        return (parameters < 0 ? value : value.substring(0, parameters)).trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,101 @@
+package de.intension.halo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import de.intension.halo.entity.Link;
+
+/**
+ * Definition of a link whose location is expanded from a {@link UriTemplate} for each entity.
+ * <br/>
+ * <br/>
+ * The variables of the template are bound to the fields of the entity, so a builder does not have to assemble and
+ * encode the URL itself:
+ * 
+ * <pre>
+ * private static final LinkDefinition SELF = new LinkDefinition("self", "/cars/{id}");
+ * 
+ * public void addLinks(Entity haloEntity, Object entity)
+ * {
+ *     haloEntity.addLink(SELF.toLink(entity));
+ * }
+ * </pre>
+ * 
+ * Definitions can be shared between threads once their titles are set.
+ */
+public final class LinkDefinition implements AsyncHaloBuilder.LinkProvider
+{
+
+    private final String              name;
+    private final UriTemplate         href;
+    private final Map<String, String> title = new HashMap<>();
+
+    /**
+     * @param name Name of the link.
+     * @param href URI template of the location.
+     */
+    public LinkDefinition(String name, String href)
+    {
+        this(name, UriTemplate.parse(href));
+    }
+
+    /**
+     * @param name Name of the link.
+     * @param href URI template of the location.
+     */
+    public LinkDefinition(String name, UriTemplate href)
+    {
+        this.name = name;
+        this.href = href;
+    }
+
+    /**
+     * Set title for a given locale.
+     * 
+     * @param locale Language code for this title translation.
+     * @param value Translation of the title in the given language.
+     * @return this definition
+     */
+    public LinkDefinition setTitle(String locale, String value)
+    {
+        title.put(locale, value);
+        return this;
+    }
+
+    /**
+     * @return Name of the link.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return URI template of the location.
+     */
+    public UriTemplate getHref()
+    {
+        return href;
+    }
+
+    /**
+     * Create the link of an entity.
+     * 
+     * @param entity Bean or {@link Map} with the variables of the URI template.
+     * @return New link with expanded location.
+     */
+    public Link toLink(Object entity)
+    {
+        Link link = new Link(name, href.expand(entity));
+        if (!title.isEmpty()) {
+            link.setTitle(new HashMap<>(title));
+        }
+        return link;
+    }
+
+    @Override
+    public Link getLink(Object entity)
+    {
+        return toLink(entity);
+    }
+}
@@ -0,0 +1,336 @@
+package de.intension.halo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Locale.LanguageRange;
+import java.util.Map;
+import java.util.Set;
+
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Frozen;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.Validation;
+
+/**
+ * Requested languages of a client with a precomputed fallback chain.
+ * <br/>
+ * <br/>
+ * Every requested language is followed by its more general forms, the default language comes last. A request
+ * for {@code "de-CH, fr;q=0.8"} with default language {@code "en"} resolves to the chain
+ * {@code de-ch → de → fr → en}. Multi-language mappings are reduced to the first language of the chain they
+ * contain, mappings that contain none of the languages are dropped.
+ * <br/>
+ * <br/>
+ * Selections are immutable and equal if their chains are equal, so they can be used as cache keys. The chain comes
+ * from the client, so caches should key by {@link #retain(Collection)}, which reduces it to the languages that
+ * actually exist. Localized copies of {@link Frozen} links and templates, like the nested links of a template builder,
+ * are frozen as well.
+ * 
+ * <pre>
+ * LocaleSelection locales = LocaleSelection.parse(request.getHeader("Accept-Language"), "en");
+ * Template template = builder.build(entity, locales);
+ * </pre>
+ */
+public final class LocaleSelection
+{
+
+    /**
+     * Selection that keeps all languages.
+     */
+    public static final LocaleSelection ALL = new LocaleSelection(Collections.emptyList());
+
+    private final List<String>          languages;
+    private final Map<String, Integer>  ranks;
+
+    private LocaleSelection(List<String> languages)
+    {
+        this.languages = Collections.unmodifiableList(languages);
+        Map<String, Integer> ranking = new HashMap<>();
+        for (int i = 0; i < languages.size(); i++) {
+            ranking.put(languages.get(i), i);
+        }
+        this.ranks = ranking;
+    }
+
+    /**
+     * Create a selection from the value of an {@code Accept-Language} header.
+     * <br/>
+     * <br/>
+     * Ranges are ordered by their quality, wildcards and ranges with quality 0 are ignored.
+     * A header that cannot be parsed selects the default language only.
+     * 
+     * @param acceptLanguage Header value like {@code "de-CH,de;q=0.9,en;q=0.8"}, may be <b>null</b>.
+     * @param defaultLanguage Language used if none of the requested languages is available, may be <b>null</b>.
+     * @return New selection.
+     */
+    public static LocaleSelection parse(String acceptLanguage, String defaultLanguage)
+    {
+        List<String> requested = new ArrayList<>();
+        if (acceptLanguage != null && !acceptLanguage.trim().isEmpty()) {
+            try {
+                for (LanguageRange range : LanguageRange.parse(acceptLanguage)) {
+                    if (range.getWeight() > 0 && !range.getRange().contains("*")) {
+                        requested.add(range.getRange());
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                requested.clear();
+            }
+        }
+        return of(requested, defaultLanguage);
+    }
+
+    /**
+     * Create a selection from locales in order of preference.
+     * 
+     * @param defaultLanguage Language used if none of the requested languages is available, may be <b>null</b>.
+     * @param locales Requested locales.
+     * @return New selection.
+     */
+    public static LocaleSelection of(String defaultLanguage, Locale... locales)
+    {
+        List<String> requested = new ArrayList<>(locales.length);
+        for (Locale locale : locales) {
+            requested.add(locale.toLanguageTag());
+        }
+        return of(requested, defaultLanguage);
+    }
+
+    private static LocaleSelection of(List<String> requested, String defaultLanguage)
+    {
+        Set<String> chain = new LinkedHashSet<>();
+        for (String language : requested) {
+            String tag = normalize(language);
+            while (!tag.isEmpty()) {
+                chain.add(tag);
+                int separator = tag.lastIndexOf('-');
+                tag = separator < 0 ? "" : tag.substring(0, separator);
+            }
+        }
+        if (defaultLanguage != null) {
+            chain.add(normalize(defaultLanguage));
+        }
+        return new LocaleSelection(new ArrayList<>(chain));
+    }
+
+    private static String normalize(String language)
+    {
+        return language.trim().replace('_', '-').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get the fallback chain of this selection.
+     * 
+     * @return Normalized language tags in order of preference, empty for {@link #ALL}.
+     */
+    public List<String> getLanguages()
+    {
+        return languages;
+    }
+
+    /**
+     * Reduce this selection to the available languages, for example the languages of a message catalog.
+     * <br/>
+     * <br/>
+     * The reduced selection selects the same translation from every mapping whose languages are available. Unlike
+     * the requested chain it can only take as many values as there are orders of the available languages, so it is
+     * the key to cache localized templates by. If none of the languages is available, only the default language is
+     * kept, which drops all mappings like the full chain does.
+     * 
+     * @param available Language codes that occur in the mappings to select from.
+     * @return Selection with only the available languages, this selection for {@link #ALL}.
+     */
+    public LocaleSelection retain(Collection<String> available)
+    {
+        if (languages.isEmpty()) {
+            return this;
+        }
+        Set<String> normalized = new HashSet<>();
+        for (String language : available) {
+            normalized.add(normalize(language));
+        }
+        List<String> retained = new ArrayList<>(languages.size());
+        for (String language : languages) {
+            if (normalized.contains(language)) {
+                retained.add(language);
+            }
+        }
+        if (retained.size() == languages.size()) {
+            return this;
+        }
+        if (retained.isEmpty()) {
+            retained.add(languages.get(languages.size() - 1));
+        }
+        return new LocaleSelection(retained);
+    }
+
+    /**
+     * Reduce a multi-language mapping to the best matching language.
+     * 
+     * @param translations Mappings of language code to translation, may be <b>null</b>.
+     * @return Read-only mapping with a single language, <b>null</b> if none of the languages is available or the
+     *         given mappings if this selection keeps all languages.
+     */
+    public Map<String, String> select(Map<String, String> translations)
+    {
+        if (translations == null || languages.isEmpty()) {
+            return translations;
+        }
+        String preferred = translations.get(languages.get(0));
+        if (preferred != null) {
+            return Collections.singletonMap(languages.get(0), preferred);
+        }
+        String bestLanguage = null;
+        int bestRank = Integer.MAX_VALUE;
+        for (Map.Entry<String, String> entry : translations.entrySet()) {
+            Integer rank = ranks.get(normalize(entry.getKey()));
+            if (rank != null && rank < bestRank && entry.getValue() != null) {
+                bestLanguage = entry.getKey();
+                bestRank = rank;
+            }
+        }
+        return bestLanguage == null ? null : Collections.singletonMap(bestLanguage, translations.get(bestLanguage));
+    }
+
+    /**
+     * Copy a property with only the selected languages.
+     * 
+     * @param property Property with all languages, is not modified.
+     * @return New property.
+     */
+    public Property localize(Property property)
+    {
+        Property copy = property.copy();
+        localizeCopy(copy);
+        return copy;
+    }
+
+    /**
+     * Copy a template with only the selected languages.
+     * 
+     * @param template Template with all languages, is not modified.
+     * @return New template, frozen if the given template is frozen.
+     */
+    public Template localize(Template template)
+    {
+        if (template instanceof Frozen) {
+            return localizeTemplate(template).freeze();
+        }
+        return localizeTemplate(template);
+    }
+
+    private Template localizeTemplate(Template template)
+    {
+        Template copy = template.copy();
+        copy.setTitle(select(copy.getTitle()));
+        if (copy.getProperties() != null) {
+            for (Property property : copy.getProperties()) {
+                localizeCopy(property);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Copy a link and its templates with only the selected languages.
+     * 
+     * @param link Link with all languages, is not modified.
+     * @return New link, frozen if the given link is frozen.
+     */
+    public Link localize(Link link)
+    {
+        if (link instanceof Frozen) {
+            return localizeLink(link).freeze();
+        }
+        return localizeLink(link);
+    }
+
+    private Link localizeLink(Link link)
+    {
+        Link copy = new Link(link.getName(), link.getHref()).setTitle(select(link.getTitle()));
+        if (link.getTemplates() != null) {
+            for (Template template : link.getTemplates()) {
+                copy.addTemplate(localize(template));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Copy a message with only the selected languages.
+     * 
+     * @param message Message with all languages, is not modified.
+     * @return New message.
+     */
+    public Message localize(Message message)
+    {
+        return new Message().setName(message.getName()).setProperty(message.getProperty()).setValue(select(message.getValue()));
+    }
+
+    /**
+     * Copy the links and messages of an entity with only the selected languages.
+     * 
+     * @param entity Entity with all languages, is not modified.
+     * @return New entity with the same data.
+     */
+    public Entity localize(Entity entity)
+    {
+        Entity copy = new Entity().setData(entity.getData());
+        if (entity.getLinks() != null) {
+            for (Link link : entity.getLinks()) {
+                copy.addLink(localize(link));
+            }
+        }
+        if (entity.getMessages() != null) {
+            for (Message message : entity.getMessages()) {
+                copy.addMessage(localize(message));
+            }
+        }
+        return copy;
+    }
+
+    private void localizeCopy(Property property)
+    {
+        property.setTitle(select(property.getTitle()));
+        if (property.getValidations() != null) {
+            for (Validation validation : property.getValidations()) {
+                validation.setMessage(select(validation.getMessage()));
+            }
+        }
+        if (property.getProperties() != null) {
+            for (Property nested : property.getProperties()) {
+                localizeCopy(nested);
+            }
+        }
+        if (property.getLink() != null) {
+            property.setLink(localize(property.getLink()));
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof LocaleSelection && languages.equals(((LocaleSelection)obj).languages);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return languages.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LocaleSelection" + languages;
+    }
+}
@@ -0,0 +1,225 @@
+package de.intension.halo;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache that evicts the least recently used entries, shared by the caches of the builders and writers.
+ * <br/>
+ * <br/>
+ * Lookups do not lock: entries live in a {@link ConcurrentHashMap} and carry the value of a clock that advances
+ * with every insertion, a lookup only updates the stamp of its entry. The order is therefore approximate: entries
+ * used between two insertions count as used at the same time. Insertions that exceed the budget scan the cache for
+ * the oldest entry, so the cache is meant for a moderate number of values that are expensive to compute.
+ * 
+ * @param <K> Type of the keys, compared with {@link Object#equals(Object)}.
+ * @param <V> Type of the values.
+ */
+public final class LruCache<K, V>
+{
+
+    private final ConcurrentHashMap<K, Node<V>> entries = new ConcurrentHashMap<>();
+    private final long                          maxWeight;
+    private final ToLongFunction<? super V>     weigher;
+    private final AtomicLong                    weight  = new AtomicLong();
+    private final AtomicLong                    clock   = new AtomicLong();
+    private final LongAdder                     hits    = new LongAdder();
+    private final LongAdder                     misses  = new LongAdder();
+
+    /**
+     * Create a cache with a budget for the summed up weight of its values.
+     * 
+     * @param maxWeight Maximum weight of all values.
+     * @param weigher Weight of a value, like its size in bytes.
+     */
+    public LruCache(long maxWeight, ToLongFunction<? super V> weigher)
+    {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Budget must not be negative: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Create a cache for a maximum number of values.
+     * 
+     * @param maxSize Maximum number of values.
+     * @return New cache.
+     */
+    public static <K, V> LruCache<K, V> ofSize(int maxSize)
+    {
+        return new LruCache<>(maxSize, value -> 1);
+    }
+
+    /**
+     * Get a cached value and mark it as used.
+     * 
+     * @param key Key of the value.
+     * @return Cached value or <b>null</b>.
+     */
+    public V get(K key)
+    {
+        Node<V> node = entries.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        touch(node);
+        return node.value;
+    }
+
+    /**
+     * Cache a value unless another value is cached for the key already.
+     * 
+     * @param key Key of the value.
+     * @param value New value.
+     * @return The cached value if there is one, the given value otherwise.
+     */
+    public V putIfAbsent(K key, V value)
+    {
+        Node<V> node = entries.get(key);
+        if (node == null) {
+            long valueWeight = weigher.applyAsLong(value);
+            if (valueWeight > maxWeight) {
+                return value;
+            }
+            node = entries.putIfAbsent(key, new Node<>(value, valueWeight, tick()));
+            if (node == null) {
+                weight.addAndGet(valueWeight);
+                evict();
+                return value;
+            }
+        }
+        touch(node);
+        return node.value;
+    }
+
+    /**
+     * Cache a value, replacing a previous value of the key. Values heavier than the whole budget are not cached.
+     * 
+     * @param key Key of the value.
+     * @param value New value.
+     */
+    public void put(K key, V value)
+    {
+        long valueWeight = weigher.applyAsLong(value);
+        if (valueWeight > maxWeight) {
+            remove(key);
+            return;
+        }
+        Node<V> previous = entries.put(key, new Node<>(value, valueWeight, tick()));
+        weight.addAndGet(previous == null ? valueWeight : valueWeight - previous.weight);
+        evict();
+    }
+
+    /**
+     * Remove the value of a key.
+     * 
+     * @param key Key of the value.
+     */
+    public void remove(K key)
+    {
+        Node<V> previous = entries.remove(key);
+        if (previous != null) {
+            weight.addAndGet(-previous.weight);
+        }
+    }
+
+    /**
+     * Remove all values.
+     */
+    public void clear()
+    {
+        for (K key : entries.keySet()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Number of cached values.
+     * 
+     * @return Number of entries.
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Weight of the cached values.
+     * 
+     * @return Sum of the weights of all values.
+     */
+    public long getWeight()
+    {
+        return weight.get();
+    }
+
+    /**
+     * Get the hit and miss counts of {@link #get(Object)}.
+     * 
+     * @return Current cache statistics.
+     */
+    public CacheStatistics getStatistics()
+    {
+        return new CacheStatistics(hits.sum(), misses.sum());
+    }
+
+    /**
+     * Advance the clock for an insertion. The clock moves by two, so entries used after this insertion get a later
+     * stamp than the inserted entry.
+     */
+    private long tick()
+    {
+        return clock.addAndGet(2) - 1;
+    }
+
+    private void touch(Node<V> node)
+    {
+        long now = clock.get();
+        if (node.stamp != now) {
+            node.stamp = now;
+        }
+    }
+
+    private void evict()
+    {
+        while (weight.get() > maxWeight) {
+            Map.Entry<K, Node<V>> eldest = null;
+            for (Map.Entry<K, Node<V>> entry : entries.entrySet()) {
+                if (eldest == null || entry.getValue().stamp < eldest.getValue().stamp) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (entries.remove(eldest.getKey(), eldest.getValue())) {
+                weight.addAndGet(-eldest.getValue().weight);
+            }
+        }
+    }
+
+    /**
+     * Cached value with its weight and the clock value of its last use.
+     */
+    private static final class Node<V>
+    {
+
+        private final V       value;
+        private final long    weight;
+        private volatile long stamp;
+
+        private Node(V value, long weight, long stamp)
+        {
+            this.value = value;
+            this.weight = weight;
+            this.stamp = stamp;
+        }
+    }
+}
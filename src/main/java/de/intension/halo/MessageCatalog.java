@@ -0,0 +1,262 @@
+package de.intension.halo;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Immutable catalog of multi-language messages and titles.
+ * <br/>
+ * <br/>
+ * The catalog copies the given mappings once. Placeholders like {@code {min}} are parsed the first time a
+ * message is rendered and reused afterwards, so a catalog can be shared by any number of builders and threads.
+ * 
+ * <pre>
+ * MessageCatalog messages = MessageCatalog.of(locales);
+ * Map&lt;String, String&gt; message = messages.render("{Car.brand.length}", name -&gt; "max".equals(name) ? 20 : null);
+ * </pre>
+ */
+public final class MessageCatalog
+{
+
+    /**
+     * Catalog without any messages.
+     */
+    public static final MessageCatalog             EMPTY    = new MessageCatalog(null);
+
+    private final Map<String, Map<String, String>> locales;
+    private final Map<String, Map<String, String>> translations;
+    private final Map<String, CompiledMessage>     compiled = new ConcurrentHashMap<>();
+
+    private MessageCatalog(Map<String, Map<String, String>> locales)
+    {
+        Map<String, Map<String, String>> copy = new HashMap<>();
+        if (locales != null) {
+            for (Map.Entry<String, Map<String, String>> entry : locales.entrySet()) {
+                if (entry.getValue() != null) {
+                    copy.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<>(entry.getValue())));
+                }
+            }
+        }
+        this.translations = Collections.unmodifiableMap(copy);
+        this.locales = locales == null ? null : new Locales(this);
+    }
+
+    /**
+     * Create a catalog from mappings of identifier to multi-language mapping.
+     * 
+     * @param locales Mappings of identifier to multi-language mapping, may be <b>null</b>.
+     * @return New catalog, {@link #EMPTY} if there are no mappings or the catalog the mappings were taken from by
+     *         {@link #getLocales()}.
+     */
+    public static MessageCatalog of(Map<String, Map<String, String>> locales)
+    {
+        if (locales instanceof Locales) {
+            return ((Locales)locales).catalog;
+        }
+        return locales == null ? EMPTY : new MessageCatalog(locales);
+    }
+
+    /**
+     * Get the mappings of this catalog, for transformers that do not support catalogs.
+     * 
+     * @return Read-only copy of the mappings this catalog was created from or <b>null</b>.
+     */
+    public Map<String, Map<String, String>> getLocales()
+    {
+        return locales;
+    }
+
+    /**
+     * Get the translations of an identifier.
+     * 
+     * @param key Identifier like {@code "Car.brand"}.
+     * @return Read-only mapping of language code to translation or <b>null</b> if there is none.
+     */
+    public Map<String, String> get(String key)
+    {
+        return key == null ? null : translations.get(key);
+    }
+
+    /**
+     * Get the translations of a message without replacing placeholders.
+     * 
+     * @param message Message identifier that may be surrounded by curly braces.
+     * @return Read-only mapping of language code to translation or <b>null</b> if there is none.
+     */
+    public Map<String, String> getMessage(String message)
+    {
+        return message == null ? null : get(key(message));
+    }
+
+    /**
+     * Get the translations of a message and replace its placeholders.
+     * <br/>
+     * <br/>
+     * Placeholders without a parameter value are kept as they are.
+     * 
+     * @param message Message identifier that may be surrounded by curly braces.
+     * @param parameters Value of each placeholder name, <b>null</b> if there is none.
+     * @return Mapping of language code to message or <b>null</b> if there is none.
+     */
+    public Map<String, String> render(String message, Function<String, Object> parameters)
+    {
+        if (message == null) {
+            return null;
+        }
+        String key = key(message);
+        Map<String, String> translation = translations.get(key);
+        if (translation == null) {
+            return null;
+        }
+        CompiledMessage compiledMessage = compiled.computeIfAbsent(key, k -> new CompiledMessage(translation));
+        if (compiledMessage.constant) {
+            return translation;
+        }
+        Map<String, String> rendered = new HashMap<>(compiledMessage.languages.length * 2);
+        for (int i = 0; i < compiledMessage.languages.length; i++) {
+            rendered.put(compiledMessage.languages[i], compiledMessage.templates[i].render(parameters));
+        }
+        return rendered;
+    }
+
+    /**
+     * Remove the curly braces around a message identifier.
+     * 
+     * @param message Message like {@code "{Example.message}"}.
+     * @return Identifier like {@code "Example.message"}.
+     */
+    public static String key(String message)
+    {
+        int start = message.startsWith("{") ? 1 : 0;
+        int end = message.endsWith("}") && message.length() > start ? message.length() - 1 : message.length();
+        return start == 0 && end == message.length() ? message : message.substring(start, end);
+    }
+
+    /**
+     * Read-only mappings of a catalog, which {@link MessageCatalog#of(Map)} turns back into the catalog.
+     */
+    private static final class Locales extends AbstractMap<String, Map<String, String>>
+    {
+
+        private final MessageCatalog catalog;
+
+        private Locales(MessageCatalog catalog)
+        {
+            this.catalog = catalog;
+        }
+
+        @Override
+        public Map<String, String> get(Object key)
+        {
+            return catalog.translations.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return catalog.translations.containsKey(key);
+        }
+
+        @Override
+        public int size()
+        {
+            return catalog.translations.size();
+        }
+
+        @Override
+        public Set<Map.Entry<String, Map<String, String>>> entrySet()
+        {
+            return catalog.translations.entrySet();
+        }
+    }
+
+    /**
+     * Parsed translations of one message.
+     */
+    private static final class CompiledMessage
+    {
+
+        private final String[]          languages;
+        private final MessageTemplate[] templates;
+        private final boolean           constant;
+
+        private CompiledMessage(Map<String, String> translation)
+        {
+            languages = new String[translation.size()];
+            templates = new MessageTemplate[translation.size()];
+            boolean hasPlaceholders = false;
+            int i = 0;
+            for (Map.Entry<String, String> entry : translation.entrySet()) {
+                languages[i] = entry.getKey();
+                templates[i] = new MessageTemplate(entry.getValue());
+                hasPlaceholders |= templates[i].names.length > 0;
+                i++;
+            }
+            constant = !hasPlaceholders;
+        }
+    }
+
+    /**
+     * Message split into literal text and placeholder names.
+     * The literals are one element longer than the names.
+     */
+    private static final class MessageTemplate
+    {
+
+        private final String   text;
+        private final String[] literals;
+        private final String[] names;
+
+        private MessageTemplate(String text)
+        {
+            this.text = text;
+            List<String> literalList = new ArrayList<>();
+            List<String> nameList = new ArrayList<>();
+            int position = 0;
+            int literalStart = 0;
+            while (text != null && (position = text.indexOf('{', position)) >= 0) {
+                int end = text.indexOf('}', position + 1);
+                if (end < 0) {
+                    break;
+                }
+                String name = text.substring(position + 1, end);
+                if (name.isEmpty() || name.indexOf('{') >= 0) {
+                    position++;
+                    continue;
+                }
+                literalList.add(text.substring(literalStart, position));
+                nameList.add(name);
+                position = end + 1;
+                literalStart = position;
+            }
+            literalList.add(text == null ? null : text.substring(literalStart));
+            literals = literalList.toArray(new String[0]);
+            names = nameList.toArray(new String[0]);
+        }
+
+        private String render(Function<String, Object> parameters)
+        {
+            if (names.length == 0) {
+                return text;
+            }
+            StringBuilder rendered = new StringBuilder(text.length() + 16);
+            for (int i = 0; i < names.length; i++) {
+                rendered.append(literals[i]);
+                Object value = parameters.apply(names[i]);
+                if (value == null) {
+                    rendered.append('{').append(names[i]).append('}');
+                } else {
+                    rendered.append(value);
+                }
+            }
+            return rendered.append(literals[names.length]).toString();
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package de.intension.halo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.json.JsonException;
+
+import de.intension.halo.entity.DataType;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.Validation;
+import de.intension.halo.json.HaloJsonReader;
+import lombok.NonNull;
+
+/**
+ * Server-side validation of incoming values against the validations of a HALO template.
+ * <br/>
+ * <br/>
+ * The template is compiled once into a flat list of checks per property: patterns and date formats are compiled,
+ * lengths and bounds are kept as primitives and nested properties get their own validator. Validating values is a
+ * single pass over the checks without reflection, so a validator should be compiled once per template and shared,
+ * it is immutable and thread-safe.
+ * <br/>
+ * <br/>
+ * The validations {@code required}, {@code minLength}, {@code maxLength}, {@code minValue}, {@code maxValue},
+ * {@code regex} and {@code format} are checked, as well as the {@link DataType} of each value. Read-only properties and
+ * values without a property are ignored.
+ * 
+ * <pre>
+ * TemplateValidator validator = TemplateValidator.compile(builder.buildSchema(Car.class));
+ * List&lt;Message&gt; messages = validator.validate(request.getInputStream());
+ * messages.forEach(entity::addMessage);
+ * </pre>
+ */
+public final class TemplateValidator
+{
+
+    private final PropertyCheck[]            checks;
+    private final Map<String, PropertyCheck> index;
+
+    private TemplateValidator(List<Property> properties, String prefix)
+    {
+        List<PropertyCheck> compiled = new ArrayList<>();
+        if (properties != null) {
+            for (Property property : properties) {
+                if (!Boolean.TRUE.equals(property.getReadOnly())) {
+                    compiled.add(new PropertyCheck(property, prefix));
+                }
+            }
+        }
+        checks = compiled.toArray(new PropertyCheck[0]);
+        index = new HashMap<>();
+        for (PropertyCheck check : checks) {
+            index.put(check.name, check);
+        }
+    }
+
+    /**
+     * Compile the validations of a template.
+     * 
+     * @param template HALO template, is not modified.
+     * @return New validator for the properties of the template.
+     * @throws IllegalArgumentException If a regular expression or date format of the template is invalid.
+     */
+    public static TemplateValidator compile(@NonNull Template template)
+    {
+        return new TemplateValidator(template.getProperties(), "");
+    }
+
+    /**
+     * Validate values like the fields of a JSON object.
+     * 
+     * @param values Mappings of property name to value.
+     * @return Messages of all failed validations, named like the validation and referencing the property by its
+     *         path like {@code "owner.name"} or {@code "lines[2].quantity"}. The message values are the translations
+     *         of the validation. The list is empty if all values are valid.
+     */
+    public List<Message> validate(@NonNull Map<String, ?> values)
+    {
+        List<Message> messages = validate(values, null, null);
+        return messages == null ? Collections.emptyList() : messages;
+    }
+
+    /**
+     * Read a JSON object and validate its fields, see {@link #validate(Map)}.
+     * 
+     * @param json UTF-8 encoded JSON object, is not closed.
+     * @return Messages of all failed validations.
+     * @throws IOException If the source cannot be read.
+     * @throws JsonException If the source is not a JSON object.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Message> validate(@NonNull InputStream json) throws IOException
+    {
+        Object values = new HaloJsonReader(json).readValue();
+        if (!(values instanceof Map)) {
+            throw new JsonException("Expected JSON object");
+        }
+        return validate((Map<String, ?>)values);
+    }
+
+    /**
+     * Get the compiled validations of a property, for readers that validate values while parsing.
+     * 
+     * @param name Name of the property.
+     * @return Validations of the property or <b>null</b> if there is no such property or it is read-only.
+     */
+    public PropertyCheck getCheck(String name)
+    {
+        return index.get(name);
+    }
+
+    /**
+     * Get the compiled validations of all properties that are not read-only.
+     * 
+     * @return Validations in the order of the template properties.
+     */
+    public List<PropertyCheck> getChecks()
+    {
+        return Collections.unmodifiableList(Arrays.asList(checks));
+    }
+
+    /**
+     * Check all values of an object.
+     * 
+     * @param prefix Path of the object if it is an element of a collection, <b>null</b> to use the compiled paths.
+     * @param messages Collected messages, created on the first failure.
+     */
+    private List<Message> validate(Map<?, ?> values, String prefix, List<Message> messages)
+    {
+        for (PropertyCheck check : checks) {
+            Object value = values.get(check.name);
+            if (value == null) {
+                if (check.required) {
+                    messages = fail(messages, "required", check.path(prefix), check.requiredMessage);
+                }
+            } else if (check.multivalued) {
+                if (!(value instanceof Iterable)) {
+                    messages = fail(messages, "type", check.path(prefix), null);
+                    continue;
+                }
+                int index = 0;
+                for (Object element : (Iterable<?>)value) {
+                    messages = check.validate(element, prefix, index++, messages);
+                }
+            } else {
+                messages = check.validate(value, prefix, -1, messages);
+            }
+        }
+        return messages;
+    }
+
+    private static List<Message> fail(List<Message> messages, String name, String path, Map<String, String> text)
+    {
+        if (messages == null) {
+            messages = new ArrayList<>();
+        }
+        messages.add(new Message().setName(name).setProperty(path).setValue(text == null ? null : new HashMap<>(text)));
+        return messages;
+    }
+
+    /**
+     * Compiled validations of a single property.
+     * <br/>
+     * <br/>
+     * Checks are immutable like their validator.
+     */
+    public static final class PropertyCheck
+    {
+
+        private final String              name;
+        private final String              path;
+        private final DataType            type;
+        private final boolean             multivalued;
+        private final TemplateValidator   nested;
+        private final boolean             required;
+        private final Map<String, String> requiredMessage;
+        private final int                 minLength;
+        private final Map<String, String> minLengthMessage;
+        private final int                 maxLength;
+        private final Map<String, String> maxLengthMessage;
+        private final boolean             hasMinValue;
+        private final long                minValue;
+        private final Map<String, String> minValueMessage;
+        private final boolean             hasMaxValue;
+        private final long                maxValue;
+        private final Map<String, String> maxValueMessage;
+        private final Pattern             regex;
+        private final Map<String, String> regexMessage;
+        private final DateTimeFormatter   format;
+        private final Map<String, String> formatMessage;
+
+        PropertyCheck(Property property, String prefix)
+        {
+            name = property.getName();
+            path = prefix + name;
+            type = property.getType() == null ? DataType.STRING : property.getType();
+            multivalued = Boolean.TRUE.equals(property.getMultivalued());
+            boolean complex = type == DataType.OBJECT && property.getProperties() != null;
+            nested = complex ? new TemplateValidator(property.getProperties(), path + ".") : null;
+            List<Validation> validations = property.getValidations();
+            Validation validation = find(validations, "required");
+            required = validation != null && Boolean.TRUE.equals(validation.getValue());
+            requiredMessage = message(validation);
+            validation = find(validations, "minLength");
+            minLength = validation == null ? -1 : ((Number)validation.getValue()).intValue();
+            minLengthMessage = message(validation);
+            validation = find(validations, "maxLength");
+            maxLength = validation == null ? -1 : ((Number)validation.getValue()).intValue();
+            maxLengthMessage = message(validation);
+            validation = find(validations, "minValue");
+            hasMinValue = validation != null;
+            minValue = validation == null ? 0 : ((Number)validation.getValue()).longValue();
+            minValueMessage = message(validation);
+            validation = find(validations, "maxValue");
+            hasMaxValue = validation != null;
+            maxValue = validation == null ? 0 : ((Number)validation.getValue()).longValue();
+            maxValueMessage = message(validation);
+            validation = find(validations, "regex");
+            regex = validation == null ? null : Pattern.compile(validation.getValue().toString());
+            regexMessage = message(validation);
+            validation = find(validations, "format");
+            format = validation == null ? null : DateTimeFormatter.ofPattern(validation.getValue().toString());
+            formatMessage = message(validation);
+        }
+
+        /**
+         * Find the last validation with a name, like a later annotation overrides an earlier one.
+         */
+        private static Validation find(List<Validation> validations, String name)
+        {
+            Validation found = null;
+            if (validations != null) {
+                for (Validation validation : validations) {
+                    if (name.equals(validation.getName())) {
+                        found = validation;
+                    }
+                }
+            }
+            return found;
+        }
+
+        private static Map<String, String> message(Validation validation)
+        {
+            return validation == null ? null : validation.getMessage();
+        }
+
+        /**
+         * Name of the property.
+         * 
+         * @return Property name.
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Data type of the values, {@link DataType#STRING} if the property has no type.
+         * 
+         * @return Data type of the property.
+         */
+        public DataType getType()
+        {
+            return type;
+        }
+
+        /**
+         * Whether the property contains a collection.
+         * 
+         * @return <b>true</b> if values are validated per element.
+         */
+        public boolean isMultivalued()
+        {
+            return multivalued;
+        }
+
+        /**
+         * Compiled validations of the nested properties of a complex value.
+         * 
+         * @return Nested validator or <b>null</b> if the property is not of type {@link DataType#OBJECT} with
+         *         properties.
+         */
+        public TemplateValidator getNested()
+        {
+            return nested;
+        }
+
+        /**
+         * Validate a value or a single element of a multivalued property.
+         * 
+         * @param value Value to check, <b>null</b> checks only whether the property is required.
+         * @param prefix Path of the enclosing object followed by a dot, <b>null</b> for the compiled path.
+         * @param index Position of the element in a collection or <b>-1</b>.
+         * @param messages Collected messages, may be <b>null</b>.
+         * @return Given messages or a new list if a validation failed and no list was given.
+         */
+        public List<Message> check(Object value, String prefix, int index, List<Message> messages)
+        {
+            if (value == null) {
+                return required ? fail(messages, "required", path(prefix), requiredMessage) : messages;
+            }
+            return validate(value, prefix, index, messages);
+        }
+
+        /**
+         * Report a failed validation of this property that was detected elsewhere, like an unexpected JSON token.
+         * 
+         * @param validation Name of the validation, like {@code "type"}.
+         * @param prefix Path of the enclosing object followed by a dot, <b>null</b> for the compiled path.
+         * @param index Position of the element in a collection or <b>-1</b>.
+         * @param messages Collected messages, may be <b>null</b>.
+         * @return Given messages or a new list.
+         */
+        public List<Message> reject(String validation, String prefix, int index, List<Message> messages)
+        {
+            return fail(messages, validation, path(prefix, index), null);
+        }
+
+        String path(String prefix)
+        {
+            return prefix == null ? path : prefix + name;
+        }
+
+        String path(String prefix, int index)
+        {
+            return index < 0 ? path(prefix) : path(prefix) + "[" + index + "]";
+        }
+
+        /**
+         * Check a single value or an element of a multivalued property.
+         */
+        List<Message> validate(Object value, String prefix, int index, List<Message> messages)
+        {
+            switch (type) {
+                case STRING:
+                    if (!(value instanceof CharSequence)) {
+                        return fail(messages, "type", path(prefix, index), null);
+                    }
+                    int length = ((CharSequence)value).length();
+                    if (minLength >= 0 && length < minLength) {
+                        messages = fail(messages, "minLength", path(prefix, index), minLengthMessage);
+                    }
+                    if (maxLength >= 0 && length > maxLength) {
+                        messages = fail(messages, "maxLength", path(prefix, index), maxLengthMessage);
+                    }
+                    if (regex != null && !regex.matcher((CharSequence)value).matches()) {
+                        messages = fail(messages, "regex", path(prefix, index), regexMessage);
+                    }
+                    return messages;
+                case BOOLEAN:
+                    return value instanceof Boolean ? messages : fail(messages, "type", path(prefix, index), null);
+                case INTEGER:
+                    if (!isInteger(value)) {
+                        return fail(messages, "type", path(prefix, index), null);
+                    }
+                    return validateBounds((Number)value, prefix, index, messages);
+                case FLOAT:
+                    if (!(value instanceof Number)) {
+                        return fail(messages, "type", path(prefix, index), null);
+                    }
+                    return validateBounds((Number)value, prefix, index, messages);
+                case DATE:
+                    if (value instanceof Date || value instanceof Temporal) {
+                        return messages;
+                    }
+                    if (!(value instanceof CharSequence)) {
+                        return fail(messages, "type", path(prefix, index), null);
+                    }
+                    if (format != null) {
+                        try {
+                            format.parse((CharSequence)value);
+                        } catch (DateTimeParseException e) {
+                            messages = fail(messages, "format", path(prefix, index), formatMessage);
+                        }
+                    }
+                    return messages;
+                default:
+                    if (nested == null) {
+                        return messages;
+                    }
+                    if (!(value instanceof Map)) {
+                        return fail(messages, "type", path(prefix, index), null);
+                    }
+                    return nested.validate((Map<?, ?>)value, prefix == null && index < 0 ? null : path(prefix, index) + ".", messages);
+            }
+        }
+
+        private List<Message> validateBounds(Number value, String prefix, int index, List<Message> messages)
+        {
+            if (hasMinValue && compare(value, minValue) < 0) {
+                messages = fail(messages, "minValue", path(prefix, index), minValueMessage);
+            }
+            if (hasMaxValue && compare(value, maxValue) > 0) {
+                messages = fail(messages, "maxValue", path(prefix, index), maxValueMessage);
+            }
+            return messages;
+        }
+
+        private static boolean isInteger(Object value)
+        {
+            return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                    || value instanceof BigInteger;
+        }
+
+        private static int compare(Number value, long bound)
+        {
+            if (value instanceof BigInteger) {
+                return ((BigInteger)value).compareTo(BigInteger.valueOf(bound));
+            }
+            if (isInteger(value)) {
+                return Long.compare(value.longValue(), bound);
+            }
+            return Double.compare(value.doubleValue(), bound);
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package de.intension.halo;
+
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * URI template as defined in [<a href="https://tools.ietf.org/html/rfc6570">RFC6570</a>], up to level 4.
+ * <br/>
+ * <br/>
+ * The template is parsed once into literals and expressions, literals are encoded in advance. Variables are taken
+ * from a {@link Map} or from the fields of a bean, which are read through its {@link AccessorPlan}. Strings and other
+ * scalar values are expanded with their {@link Object#toString()}, arrays and {@link Iterable}s as lists and maps as
+ * associative arrays. <b>null</b> and empty lists or maps are undefined and left out.
+ * 
+ * <pre>
+ * UriTemplate cars = UriTemplate.parse("/cars/{id}{?brand,tags*}");
+ * String href = cars.expand(car); // e.g. /cars/7?brand=M%C3%BCller&amp;tags=new&amp;tags=red
+ * </pre>
+ * 
+ * Templates are immutable and can be shared between threads.
+ */
+public final class UriTemplate
+{
+
+    private static final char[]                     HEX     = "0123456789ABCDEF".toCharArray();
+    private static final boolean[]                  UNRESERVED_CHARS;
+    private static final boolean[]                  RESERVED_CHARS;
+    private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    static {
+        UNRESERVED_CHARS = new boolean[128];
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED_CHARS[c] = true;
+            UNRESERVED_CHARS[Character.toUpperCase(c)] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED_CHARS[c] = true;
+        }
+        for (char c : "-._~".toCharArray()) {
+            UNRESERVED_CHARS[c] = true;
+        }
+        RESERVED_CHARS = UNRESERVED_CHARS.clone();
+        for (char c : ":/?#[]@!$&'()*+,;=".toCharArray()) {
+            RESERVED_CHARS[c] = true;
+        }
+    }
+
+    private final String     template;
+    private final Object[]   parts;
+    private final String[]   variables;
+    private volatile Binding binding;
+
+    private UriTemplate(String template, Object[] parts, String[] variables)
+    {
+        this.template = template;
+        this.parts = parts;
+        this.variables = variables;
+    }
+
+    /**
+     * Parse a URI template.
+     * 
+     * @param template URI template like {@code /cars/{id}{?fields*}}
+     * @return Compiled template
+     * @throws IllegalArgumentException if the template is malformed
+     */
+    public static UriTemplate parse(String template)
+    {
+        List<Object> parts = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '{') {
+                int end = template.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed expression near offset " + i);
+                }
+                if (literal.length() > 0) {
+                    parts.add(literal.toString());
+                    literal.setLength(0);
+                }
+                parts.add(Expression.parse(template, i + 1, end, variables));
+                i = end + 1;
+            } else if (c == '}') {
+                throw new IllegalArgumentException("Unexpected '}' near offset " + i);
+            } else {
+                int next = template.indexOf('{', i);
+                int end = next < 0 ? template.length() : next;
+                int close = template.indexOf('}', i);
+                if (close >= 0 && close < end) {
+                    end = close;
+                }
+                encode(template.substring(i, end), RESERVED_CHARS, true, literal);
+                i = end;
+            }
+        }
+        if (literal.length() > 0) {
+            parts.add(literal.toString());
+        }
+        return new UriTemplate(template, parts.toArray(), variables.toArray(new String[0]));
+    }
+
+    /**
+     * @return Template this URI template was parsed from.
+     */
+    public String getTemplate()
+    {
+        return template;
+    }
+
+    /**
+     * @return Names of the variables in the order of their first occurrence.
+     */
+    public List<String> getVariables()
+    {
+        return Collections.unmodifiableList(Arrays.asList(variables));
+    }
+
+    /**
+     * Expand the template.
+     * 
+     * @param values {@link Map} of variable names to values or a bean with fields named like the variables
+     * @return Expanded URI reference
+     */
+    public String expand(Object values)
+    {
+        StringBuilder buffer = BUFFERS.get();
+        buffer.setLength(0);
+        return expand(values, buffer).toString();
+    }
+
+    /**
+     * Expand the template into a buffer, to build a URI without intermediate strings.
+     * 
+     * @param values {@link Map} of variable names to values or a bean with fields named like the variables
+     * @param out Buffer the URI reference is appended to
+     * @return The buffer
+     */
+    public StringBuilder expand(Object values, StringBuilder out)
+    {
+        Object[] resolved = resolve(values);
+        for (Object part : parts) {
+            if (part instanceof String) {
+                out.append((String)part);
+            } else {
+                ((Expression)part).expand(resolved, out);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof UriTemplate && template.equals(((UriTemplate)obj).template);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return template.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return template;
+    }
+
+    private Object[] resolve(Object values)
+    {
+        Object[] resolved = new Object[variables.length];
+        if (values instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>)values;
+            for (int i = 0; i < variables.length; i++) {
+                resolved[i] = map.get(variables[i]);
+            }
+        } else if (values != null) {
+            Binding bound = bind(values.getClass());
+            for (int i = 0; i < variables.length; i++) {
+                int index = bound.indexes[i];
+                resolved[i] = index < 0 ? null : bound.plan.get(values, index);
+            }
+        }
+        return resolved;
+    }
+
+    private Binding bind(Class<?> type)
+    {
+        Binding bound = binding;
+        if (bound == null || bound.type != type) {
+            AccessorPlan plan = AccessorPlan.of(type);
+            int[] indexes = new int[variables.length];
+            for (int i = 0; i < variables.length; i++) {
+                int index = plan.indexOf(variables[i]);
+                indexes[i] = index >= 0 && plan.isReadable(index) ? index : -1;
+            }
+            bound = new Binding(type, plan, indexes);
+            binding = bound;
+        }
+        return bound;
+    }
+
+    /**
+     * Percent-encode a value as UTF-8.
+     * 
+     * @param value Value to encode
+     * @param allowed Characters that are copied as they are
+     * @param keepEncoded Whether existing percent-encoded triplets are copied as they are
+     * @param out Buffer the encoded value is appended to
+     */
+    static void encode(CharSequence value, boolean[] allowed, boolean keepEncoded, StringBuilder out)
+    {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 128 && allowed[c]) {
+                out.append(c);
+            } else if (c == '%' && keepEncoded && i + 2 < value.length() && isHex(value.charAt(i + 1))
+                    && isHex(value.charAt(i + 2))) {
+                out.append(c);
+            } else if (c < 128) {
+                appendByte(c, out);
+            } else {
+                int end = Character.isHighSurrogate(c) && i + 1 < value.length() ? i + 2 : i + 1;
+                for (byte b : value.subSequence(i, end).toString().getBytes(StandardCharsets.UTF_8)) {
+                    appendByte(b & 0xFF, out);
+                }
+                i = end - 1;
+            }
+        }
+    }
+
+    private static void appendByte(int b, StringBuilder out)
+    {
+        out.append('%').append(HEX[b >> 4]).append(HEX[b & 0xF]);
+    }
+
+    private static boolean isHex(char c)
+    {
+        return c >= '0' && c <= '9' || c >= 'A' && c <= 'F' || c >= 'a' && c <= 'f';
+    }
+
+    private static final class Binding
+    {
+
+        private final Class<?>     type;
+        private final AccessorPlan plan;
+        private final int[]        indexes;
+
+        Binding(Class<?> type, AccessorPlan plan, int[] indexes)
+        {
+            this.type = type;
+            this.plan = plan;
+            this.indexes = indexes;
+        }
+    }
+
+    /**
+     * Behaviour of an expression operator, see appendix A of RFC6570.
+     */
+    private enum Operator
+    {
+
+        SIMPLE('\0', "", ",", false, "", false),
+        RESERVED('+', "", ",", false, "", true),
+        FRAGMENT('#', "#", ",", false, "", true),
+        LABEL('.', ".", ".", false, "", false),
+        PATH('/', "/", "/", false, "", false),
+        PARAMETER(';', ";", ";", true, "", false),
+        QUERY('?', "?", "&", true, "=", false),
+        CONTINUATION('&', "&", "&", true, "=", false);
+
+        private final char    symbol;
+        private final String  first;
+        private final String  separator;
+        private final boolean named;
+        private final String  ifEmpty;
+        private final boolean reserved;
+
+        Operator(char symbol, String first, String separator, boolean named, String ifEmpty, boolean reserved)
+        {
+            this.symbol = symbol;
+            this.first = first;
+            this.separator = separator;
+            this.named = named;
+            this.ifEmpty = ifEmpty;
+            this.reserved = reserved;
+        }
+
+        static Operator of(char symbol)
+        {
+            for (Operator operator : values()) {
+                if (operator.symbol == symbol) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        void encode(CharSequence value, StringBuilder out)
+        {
+            UriTemplate.encode(value, reserved ? RESERVED_CHARS : UNRESERVED_CHARS, reserved, out);
+        }
+    }
+
+    private static final class Expression
+    {
+
+        private final Operator  operator;
+        private final int[]     variables;
+        private final String[]  names;
+        private final int[]     prefixes;
+        private final boolean[] explodes;
+
+        private Expression(Operator operator, int[] variables, String[] names, int[] prefixes, boolean[] explodes)
+        {
+            this.operator = operator;
+            this.variables = variables;
+            this.names = names;
+            this.prefixes = prefixes;
+            this.explodes = explodes;
+        }
+
+        static Expression parse(String template, int start, int end, List<String> variables)
+        {
+            Operator operator = start < end ? Operator.of(template.charAt(start)) : null;
+            if (operator == null || operator == Operator.SIMPLE) {
+                operator = Operator.SIMPLE;
+            } else {
+                start++;
+            }
+            String[] specs = template.substring(start, end).split(",", -1);
+            int[] indexes = new int[specs.length];
+            String[] names = new String[specs.length];
+            int[] prefixes = new int[specs.length];
+            boolean[] explodes = new boolean[specs.length];
+            int offset = start;
+            for (int i = 0; i < specs.length; i++) {
+                String spec = specs[i];
+                String name = spec;
+                if (spec.endsWith("*")) {
+                    explodes[i] = true;
+                    name = spec.substring(0, spec.length() - 1);
+                } else if (spec.indexOf(':') >= 0) {
+                    name = spec.substring(0, spec.indexOf(':'));
+                    prefixes[i] = parsePrefix(spec.substring(spec.indexOf(':') + 1), offset + name.length() + 1);
+                }
+                if (!isVariableName(name)) {
+                    throw new IllegalArgumentException("Invalid variable '" + spec + "' near offset " + offset);
+                }
+                int index = variables.indexOf(name);
+                if (index < 0) {
+                    index = variables.size();
+                    variables.add(name);
+                }
+                indexes[i] = index;
+                names[i] = name;
+                offset += spec.length() + 1;
+            }
+            return new Expression(operator, indexes, names, prefixes, explodes);
+        }
+
+        private static int parsePrefix(String length, int offset)
+        {
+            if (length.isEmpty() || length.length() > 4 || length.charAt(0) == '0'
+                    || !length.chars().allMatch(Character::isDigit)) {
+                throw new IllegalArgumentException("Invalid prefix length near offset " + offset);
+            }
+            return Integer.parseInt(length);
+        }
+
+        private static boolean isVariableName(String name)
+        {
+            if (name.isEmpty() || name.startsWith(".") || name.endsWith(".")) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c == '%' && i + 2 < name.length() && isHex(name.charAt(i + 1)) && isHex(name.charAt(i + 2))) {
+                    i += 2;
+                } else if (c >= 128 || !(UNRESERVED_CHARS[c] && c != '-' && c != '~')) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void expand(Object[] values, StringBuilder out)
+        {
+            boolean first = true;
+            for (int i = 0; i < variables.length; i++) {
+                Object value = values[variables[i]];
+                if (value == null) {
+                    continue;
+                }
+                if (value instanceof Map) {
+                    if (((Map<?, ?>)value).isEmpty()) {
+                        continue;
+                    }
+                    out.append(first ? operator.first : operator.separator);
+                    expandMap(names[i], (Map<?, ?>)value, explodes[i], out);
+                } else if (value instanceof Iterable || value.getClass().isArray()) {
+                    Iterator<?> items = iterator(value);
+                    if (!items.hasNext()) {
+                        continue;
+                    }
+                    out.append(first ? operator.first : operator.separator);
+                    expandList(names[i], items, explodes[i], out);
+                } else {
+                    out.append(first ? operator.first : operator.separator);
+                    String string = value.toString();
+                    appendName(names[i], string, out);
+                    operator.encode(prefixes[i] > 0 ? prefix(string, prefixes[i]) : string, out);
+                }
+                first = false;
+            }
+        }
+
+        private void expandList(String name, Iterator<?> items, boolean explode, StringBuilder out)
+        {
+            if (!explode && operator.named) {
+                out.append(name).append('=');
+            }
+            boolean first = true;
+            while (items.hasNext()) {
+                String item = String.valueOf(items.next());
+                if (!first) {
+                    out.append(explode ? operator.separator : ",");
+                }
+                if (explode && operator.named) {
+                    appendName(name, item, out);
+                }
+                operator.encode(item, out);
+                first = false;
+            }
+        }
+
+        private void expandMap(String name, Map<?, ?> map, boolean explode, StringBuilder out)
+        {
+            if (!explode && operator.named) {
+                out.append(name).append('=');
+            }
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!first) {
+                    out.append(explode ? operator.separator : ",");
+                }
+                operator.encode(String.valueOf(entry.getKey()), out);
+                out.append(explode ? '=' : ',');
+                operator.encode(String.valueOf(entry.getValue()), out);
+                first = false;
+            }
+        }
+
+        private void appendName(String name, String value, StringBuilder out)
+        {
+            if (operator.named) {
+                out.append(name).append(value.isEmpty() ? operator.ifEmpty : "=");
+            }
+        }
+
+        private static String prefix(String value, int length)
+        {
+            if (value.length() <= length) {
+                return value;
+            }
+            return value.substring(0, value.offsetByCodePoints(0, Math.min(length, value.codePointCount(0, value.length()))));
+        }
+
+        private static Iterator<?> iterator(Object value)
+        {
+            if (value instanceof Iterable) {
+                return ((Iterable<?>)value).iterator();
+            }
+            List<Object> items = new ArrayList<>(Array.getLength(value));
+            for (int i = 0; i < Array.getLength(value); i++) {
+                items.add(Array.get(value, i));
+            }
+            return items.iterator();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package de.intension.halo.binary;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants of the binary format shared by {@link HaloBinaryWriter} and {@link HaloBinaryReader}.
+ * <br/>
+ * <br/>
+ * A stream starts with {@link #MAGIC} and {@link #VERSION}, followed by the documents. Every document and every
+ * untyped value starts with a tag byte. Strings are written as an unsigned variable-length integer whose two lowest
+ * bits select {@link #LITERAL}, {@link #INTERNED} or {@link #REFERENCE}, the remaining bits hold the byte length or
+ * the index of the interned string. Sequences of unknown length are terminated with {@link #END} instead of
+ * starting with the number of elements.
+ */
+final class BinaryFormat
+{
+
+    static final byte[] MAGIC       = "HALO".getBytes(StandardCharsets.US_ASCII);
+    static final int    VERSION     = 1;
+
+    static final int    NULL        = 0;
+    static final int    FALSE       = 1;
+    static final int    TRUE        = 2;
+    static final int    INT         = 3;
+    static final int    LONG        = 4;
+    static final int    DOUBLE      = 5;
+    static final int    STRING      = 6;
+    static final int    LIST        = 7;
+    static final int    MAP         = 8;
+    static final int    BIG_INTEGER = 9;
+    static final int    BIG_DECIMAL = 10;
+    static final int    SEQUENCE    = 11;
+    static final int    END         = 12;
+    static final int    ENTITY      = 16;
+    static final int    LINK        = 17;
+    static final int    TEMPLATE    = 18;
+    static final int    PROPERTY    = 19;
+    static final int    VALIDATION  = 20;
+    static final int    MESSAGE     = 21;
+
+    static final int    LITERAL     = 0;
+    static final int    INTERNED    = 1;
+    static final int    REFERENCE   = 2;
+
+    private BinaryFormat()
+    {
+    }
+}
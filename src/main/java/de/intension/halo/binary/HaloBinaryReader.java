@@ -0,0 +1,550 @@
+package de.intension.halo.binary;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.intension.halo.entity.DataType;
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.Validation;
+import lombok.NonNull;
+
+/**
+ * Reads the HALO entity model from the binary format of {@link HaloBinaryWriter}.
+ * <br/>
+ * <br/>
+ * Untyped values are read as {@link String}, {@link Boolean}, {@link Integer}, {@link Long}, {@link Double},
+ * {@link BigInteger}, {@link BigDecimal}, {@link Map} or {@link List}, like {@link de.intension.halo.json.HaloJsonReader}
+ * reads them. Malformed input is reported with a {@link StreamCorruptedException}.
+ * <br/>
+ * <br/>
+ * Strings are limited to 16 MiB by default and their memory grows with the bytes actually read, so a forged length
+ * cannot force a large allocation. Lists, maps, properties and links nested deeper than {@link #setMaxDepth(int)}
+ * are rejected before they exhaust the stack.
+ */
+public final class HaloBinaryReader implements Closeable
+{
+
+    private static final int          BUFFER_SIZE     = 8192;
+    private static final int          CHUNK_SIZE      = 65536;
+    private static final DataType[]   DATA_TYPES      = DataType.values();
+
+    private final InputStream         in;
+    private final ReadableByteChannel channel;
+    private final byte[]              buffer          = new byte[BUFFER_SIZE];
+    private final List<String>        interned        = new ArrayList<>();
+    private int                       maxStringLength = 16 * 1024 * 1024;
+    private int                       maxDepth        = 64;
+    private int                       depth;
+    private int                       position;
+    private int                       limit;
+    private boolean                   started;
+
+    /**
+     * Create a reader for a stream.
+     * 
+     * @param in Source of the binary documents, closed by {@link #close()}.
+     */
+    public HaloBinaryReader(@NonNull InputStream in)
+    {
+        this.in = in;
+        this.channel = null;
+    }
+
+    /**
+     * Create a reader for a channel.
+     * 
+     * @param channel Source of the binary documents, closed by {@link #close()}.
+     */
+    public HaloBinaryReader(@NonNull ReadableByteChannel channel)
+    {
+        this.in = null;
+        this.channel = channel;
+    }
+
+    /**
+     * Set the maximum length of a single string.
+     * 
+     * @param maxStringLength Maximum number of UTF-8 bytes of a string, default is 16 MiB.
+     * @return this reader
+     */
+    public HaloBinaryReader setMaxStringLength(int maxStringLength)
+    {
+        this.maxStringLength = maxStringLength;
+        return this;
+    }
+
+    /**
+     * Set the maximum nesting of lists, maps, properties and links.
+     * 
+     * @param maxDepth Maximum number of nested values, default is 64.
+     * @return this reader
+     */
+    public HaloBinaryReader setMaxDepth(int maxDepth)
+    {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Read the next document.
+     * 
+     * @return HALO entity, link, template, property, validation, message or untyped value.
+     * @throws IOException If the source cannot be read or is malformed.
+     */
+    public Object read() throws IOException
+    {
+        if (!started) {
+            byte[] magic = new byte[BinaryFormat.MAGIC.length];
+            for (int i = 0; i < magic.length; i++) {
+                magic[i] = (byte)readByte();
+            }
+            if (!Arrays.equals(magic, BinaryFormat.MAGIC)) {
+                throw new StreamCorruptedException("Not a HALO binary stream");
+            }
+            int version = readByte();
+            if (version != BinaryFormat.VERSION) {
+                throw new StreamCorruptedException("Unsupported HALO binary version " + version);
+            }
+            started = true;
+        }
+        depth = 0;
+        return readValue();
+    }
+
+    /**
+     * Read the next document as HALO entity.
+     * 
+     * @return Entity or <b>null</b>.
+     * @throws IOException If the source cannot be read or contains another document.
+     */
+    public Entity readEntity() throws IOException
+    {
+        return read(Entity.class);
+    }
+
+    /**
+     * Read the next document as template.
+     * 
+     * @return Template or <b>null</b>.
+     * @throws IOException If the source cannot be read or contains another document.
+     */
+    public Template readTemplate() throws IOException
+    {
+        return read(Template.class);
+    }
+
+    /**
+     * Read the next document as link.
+     * 
+     * @return Link or <b>null</b>.
+     * @throws IOException If the source cannot be read or contains another document.
+     */
+    public Link readLink() throws IOException
+    {
+        return read(Link.class);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (in != null) {
+            in.close();
+        } else {
+            channel.close();
+        }
+    }
+
+    private <T> T read(Class<T> type) throws IOException
+    {
+        Object document = read();
+        if (document != null && !type.isInstance(document)) {
+            throw new StreamCorruptedException("Expected " + type.getSimpleName() + " but found " + document.getClass().getSimpleName());
+        }
+        return type.cast(document);
+    }
+
+    private Entity readEntityFields() throws IOException
+    {
+        int fields = (int)readUnsigned();
+        Entity entity = new Entity();
+        if ((fields & 1) != 0) {
+            entity.setData(readValue());
+        }
+        if ((fields & 2) != 0) {
+            int count = readCount();
+            List<Message> messages = new ArrayList<>(Math.min(count, 64));
+            for (int i = 0; i < count; i++) {
+                messages.add(readMessageFields());
+            }
+            entity.setMessages(messages);
+        }
+        if ((fields & 4) != 0) {
+            entity.setLinks(readLinks());
+        }
+        return entity;
+    }
+
+    private List<Link> readLinks() throws IOException
+    {
+        int count = readCount();
+        List<Link> links = new ArrayList<>(Math.min(count, 64));
+        for (int i = 0; i < count; i++) {
+            links.add(readLinkFields());
+        }
+        return links;
+    }
+
+    private Link readLinkFields() throws IOException
+    {
+        enter();
+        int fields = (int)readUnsigned();
+        Link link = new Link();
+        if ((fields & 1) != 0) {
+            link.setName(readString());
+        }
+        if ((fields & 2) != 0) {
+            link.setHref(readString());
+        }
+        if ((fields & 4) != 0) {
+            link.setTitle(readTranslations());
+        }
+        if ((fields & 8) != 0) {
+            int count = readCount();
+            List<Template> templates = new ArrayList<>(Math.min(count, 64));
+            for (int i = 0; i < count; i++) {
+                templates.add(readTemplateFields());
+            }
+            link.setTemplates(templates);
+        }
+        depth--;
+        return link;
+    }
+
+    private Template readTemplateFields() throws IOException
+    {
+        int fields = (int)readUnsigned();
+        Template template = new Template();
+        if ((fields & 1) != 0) {
+            template.setName(readString());
+        }
+        if ((fields & 2) != 0) {
+            template.setMethod(readString());
+        }
+        if ((fields & 4) != 0) {
+            template.setTitle(readTranslations());
+        }
+        if ((fields & 8) != 0) {
+            template.setContentType(readString());
+        }
+        if ((fields & 16) != 0) {
+            template.setProperties(readProperties());
+        }
+        if ((fields & 32) != 0) {
+            template.setQuery(readByte() != 0);
+        }
+        return template;
+    }
+
+    private List<Property> readProperties() throws IOException
+    {
+        int count = readCount();
+        List<Property> properties = new ArrayList<>(Math.min(count, 64));
+        for (int i = 0; i < count; i++) {
+            properties.add(readPropertyFields());
+        }
+        return properties;
+    }
+
+    private Property readPropertyFields() throws IOException
+    {
+        enter();
+        int fields = (int)readUnsigned();
+        Property property = new Property();
+        if ((fields & 1) != 0) {
+            property.setName(readString());
+        }
+        if ((fields & 2) != 0) {
+            property.setValue(readValue());
+        }
+        if ((fields & 4) != 0) {
+            property.setTitle(readTranslations());
+        }
+        if ((fields & 8) != 0) {
+            int count = readCount();
+            List<Validation> validations = new ArrayList<>(Math.min(count, 64));
+            for (int i = 0; i < count; i++) {
+                validations.add(readValidationFields());
+            }
+            property.setValidations(validations);
+        }
+        if ((fields & 16) != 0) {
+            property.setReadOnly(readByte() != 0);
+        }
+        if ((fields & 32) != 0) {
+            int type = readByte();
+            if (type >= DATA_TYPES.length) {
+                throw new StreamCorruptedException("Unknown data type " + type);
+            }
+            property.setType(DATA_TYPES[type]);
+        }
+        if ((fields & 64) != 0) {
+            property.setMultivalued(readByte() != 0);
+        }
+        if ((fields & 128) != 0) {
+            property.setProperties(readProperties());
+        }
+        if ((fields & 256) != 0) {
+            property.setLink(readLinkFields());
+        }
+        depth--;
+        return property;
+    }
+
+    private Validation readValidationFields() throws IOException
+    {
+        int fields = (int)readUnsigned();
+        Validation validation = new Validation();
+        if ((fields & 1) != 0) {
+            validation.setName(readString());
+        }
+        if ((fields & 2) != 0) {
+            validation.setValue(readValue());
+        }
+        if ((fields & 4) != 0) {
+            validation.setMessage(readTranslations());
+        }
+        return validation;
+    }
+
+    private Message readMessageFields() throws IOException
+    {
+        int fields = (int)readUnsigned();
+        Message message = new Message();
+        if ((fields & 1) != 0) {
+            message.setName(readString());
+        }
+        if ((fields & 2) != 0) {
+            message.setProperty(readString());
+        }
+        if ((fields & 4) != 0) {
+            message.setValue(readTranslations());
+        }
+        return message;
+    }
+
+    private Object readValue() throws IOException
+    {
+        return readValue(readByte());
+    }
+
+    private Object readValue(int tag) throws IOException
+    {
+        switch (tag) {
+            case BinaryFormat.NULL:
+                return null;
+            case BinaryFormat.FALSE:
+                return Boolean.FALSE;
+            case BinaryFormat.TRUE:
+                return Boolean.TRUE;
+            case BinaryFormat.INT:
+                return (int)readSigned();
+            case BinaryFormat.LONG:
+                return readSigned();
+            case BinaryFormat.DOUBLE:
+                return readDouble();
+            case BinaryFormat.STRING:
+                return readString();
+            case BinaryFormat.BIG_INTEGER:
+                return new BigInteger(readString());
+            case BinaryFormat.BIG_DECIMAL:
+                return new BigDecimal(readString());
+            case BinaryFormat.LIST:
+                enter();
+                int count = readCount();
+                List<Object> list = new ArrayList<>(Math.min(count, 64));
+                for (int i = 0; i < count; i++) {
+                    list.add(readValue());
+                }
+                depth--;
+                return list;
+            case BinaryFormat.SEQUENCE:
+                enter();
+                List<Object> elements = new ArrayList<>();
+                for (int element = readByte(); element != BinaryFormat.END; element = readByte()) {
+                    elements.add(readValue(element));
+                }
+                depth--;
+                return elements;
+            case BinaryFormat.MAP:
+                enter();
+                int size = readCount();
+                Map<String, Object> map = new LinkedHashMap<>(Math.min(size, 64) * 2);
+                for (int i = 0; i < size; i++) {
+                    map.put(readString(), readValue());
+                }
+                depth--;
+                return map;
+            case BinaryFormat.ENTITY:
+                return readEntityFields();
+            case BinaryFormat.LINK:
+                return readLinkFields();
+            case BinaryFormat.TEMPLATE:
+                return readTemplateFields();
+            case BinaryFormat.PROPERTY:
+                return readPropertyFields();
+            case BinaryFormat.VALIDATION:
+                return readValidationFields();
+            case BinaryFormat.MESSAGE:
+                return readMessageFields();
+            default:
+                throw new StreamCorruptedException("Unknown value tag " + tag);
+        }
+    }
+
+    private void enter() throws StreamCorruptedException
+    {
+        if (++depth > maxDepth) {
+            throw new StreamCorruptedException("Document is nested deeper than " + maxDepth + " levels");
+        }
+    }
+
+    private Map<String, String> readTranslations() throws IOException
+    {
+        int count = readCount();
+        Map<String, String> translations = new HashMap<>(Math.min(count, 64) * 2);
+        for (int i = 0; i < count; i++) {
+            translations.put(readString(), readString());
+        }
+        return translations;
+    }
+
+    private String readString() throws IOException
+    {
+        long header = readUnsigned();
+        int mode = (int)(header & 3);
+        long length = header >>> 2;
+        if (mode == BinaryFormat.REFERENCE) {
+            if (length >= interned.size()) {
+                throw new StreamCorruptedException("Unknown string reference " + length);
+            }
+            return interned.get((int)length);
+        }
+        if (mode != BinaryFormat.LITERAL && mode != BinaryFormat.INTERNED) {
+            throw new StreamCorruptedException("Invalid string header " + header);
+        }
+        if (length > maxStringLength) {
+            throw new StreamCorruptedException("String length " + length + " exceeds " + maxStringLength + " bytes");
+        }
+        if (mode == BinaryFormat.INTERNED && interned.size() >= HaloBinaryWriter.MAX_INTERNED) {
+            throw new StreamCorruptedException("More than " + HaloBinaryWriter.MAX_INTERNED + " interned strings");
+        }
+        String value = readUtf8((int)length);
+        if (mode == BinaryFormat.INTERNED) {
+            interned.add(value);
+        }
+        return value;
+    }
+
+    private String readUtf8(int length) throws IOException
+    {
+        if (length <= limit - position) {
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+        byte[] bytes = new byte[Math.min(length, CHUNK_SIZE)];
+        int offset = 0;
+        while (offset < length) {
+            if (position == limit) {
+                fill();
+            }
+            if (offset == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int)Math.min(length, 2L * bytes.length));
+            }
+            int chunk = Math.min(bytes.length - offset, limit - position);
+            System.arraycopy(buffer, position, bytes, offset, chunk);
+            position += chunk;
+            offset += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readCount() throws IOException
+    {
+        long count = readUnsigned();
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new StreamCorruptedException("Invalid element count " + count);
+        }
+        return (int)count;
+    }
+
+    private long readSigned() throws IOException
+    {
+        long value = readUnsigned();
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private long readUnsigned() throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long)(b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Variable-length integer is too long");
+    }
+
+    private double readDouble() throws IOException
+    {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = bits << 8 | readByte();
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    private int readByte() throws IOException
+    {
+        if (position == limit) {
+            fill();
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private void fill() throws IOException
+    {
+        position = 0;
+        limit = 0;
+        int read;
+        if (in != null) {
+            read = in.read(buffer);
+        } else {
+            read = channel.read(ByteBuffer.wrap(buffer));
+        }
+        if (read <= 0) {
+            throw new EOFException("Unexpected end of HALO binary stream");
+        }
+        limit = read;
+    }
+}
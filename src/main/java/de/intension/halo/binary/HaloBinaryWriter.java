@@ -0,0 +1,530 @@
+package de.intension.halo.binary;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.BaseStream;
+
+import de.intension.halo.AccessorPlan;
+import de.intension.halo.Dates;
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.TemplateValues;
+import de.intension.halo.entity.Validation;
+import lombok.NonNull;
+
+/**
+ * Writes the HALO entity model in a compact binary format.
+ * <br/>
+ * <br/>
+ * Names, language codes, validation names, methods, content types and translations are interned: the first
+ * occurrence is written with its UTF-8 bytes, every further occurrence in the same stream as an index into the
+ * table of interned strings. {@link de.intension.halo.entity.DataType} is written as a single byte and numbers
+ * as variable-length integers. Fields with a value of <b>null</b> are skipped, a bit mask per object marks the
+ * fields that are present.
+ * <br/>
+ * <br/>
+ * Iterators and streams are consumed lazily like {@link de.intension.halo.json.HaloJsonWriter} consumes them. Values
+ * of other types are written like {@link de.intension.halo.json.HaloJsonWriter} writes them. Each call of
+ * {@link #write(Object)} writes one document, all documents of a stream share the string table and have to be
+ * read by a single {@link HaloBinaryReader}.
+ */
+public final class HaloBinaryWriter implements Closeable, Flushable
+{
+
+    /**
+     * Maximum number of interned strings per stream, further strings are written without interning.
+     */
+    static final int                   MAX_INTERNED = 4096;
+
+    private static final int           BUFFER_SIZE  = 8192;
+
+    private final OutputStream         out;
+    private final WritableByteChannel  channel;
+    private final byte[]               buffer       = new byte[BUFFER_SIZE];
+    private final Map<String, Integer> interned     = new HashMap<>();
+    private int                        position;
+    private boolean                    started;
+
+    /**
+     * Create a writer for a stream.
+     * 
+     * @param out Target of the binary documents, closed by {@link #close()}.
+     */
+    public HaloBinaryWriter(@NonNull OutputStream out)
+    {
+        this.out = out;
+        this.channel = null;
+    }
+
+    /**
+     * Create a writer for a channel.
+     * 
+     * @param channel Target of the binary documents, closed by {@link #close()}.
+     */
+    public HaloBinaryWriter(@NonNull WritableByteChannel channel)
+    {
+        this.out = null;
+        this.channel = channel;
+    }
+
+    /**
+     * Write a value as one document.
+     * 
+     * @param value HALO entity, link, template, property or any other value.
+     * @return This writer.
+     * @throws IOException If the target cannot be written.
+     */
+    public HaloBinaryWriter write(Object value) throws IOException
+    {
+        if (!started) {
+            writeBytes(BinaryFormat.MAGIC);
+            writeByte(BinaryFormat.VERSION);
+            started = true;
+        }
+        writeValue(value);
+        return this;
+    }
+
+    /**
+     * Pass all buffered bytes to the target and flush it.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        flushBuffer();
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Pass all buffered bytes to the target and close it.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try {
+            flush();
+        } finally {
+            if (out != null) {
+                out.close();
+            } else {
+                channel.close();
+            }
+        }
+    }
+
+    private void writeEntity(Entity entity) throws IOException
+    {
+        writeUnsigned(bit(entity.getData(), 0) | bit(entity.getMessages(), 1) | bit(entity.getLinks(), 2));
+        if (entity.getData() != null) {
+            writeValue(entity.getData());
+        }
+        if (entity.getMessages() != null) {
+            writeCount(entity.getMessages().size());
+            for (Message message : entity.getMessages()) {
+                writeMessage(message);
+            }
+        }
+        if (entity.getLinks() != null) {
+            writeLinks(entity.getLinks());
+        }
+    }
+
+    private void writeLinks(List<Link> links) throws IOException
+    {
+        writeCount(links.size());
+        for (Link link : links) {
+            writeLink(link);
+        }
+    }
+
+    private void writeLink(Link link) throws IOException
+    {
+        writeUnsigned(bit(link.getName(), 0) | bit(link.getHref(), 1) | bit(link.getTitle(), 2) | bit(link.getTemplates(), 3));
+        if (link.getName() != null) {
+            writeString(link.getName(), true);
+        }
+        if (link.getHref() != null) {
+            writeString(link.getHref(), false);
+        }
+        if (link.getTitle() != null) {
+            writeTranslations(link.getTitle());
+        }
+        if (link.getTemplates() != null) {
+            writeCount(link.getTemplates().size());
+            for (Template template : link.getTemplates()) {
+                writeTemplate(template, null);
+            }
+        }
+    }
+
+    private void writeTemplate(Template template, TemplateValues values) throws IOException
+    {
+        writeUnsigned(bit(template.getName(), 0) | bit(template.getMethod(), 1) | bit(template.getTitle(), 2)
+                | bit(template.getContentType(), 3) | bit(template.getProperties(), 4) | bit(template.getQuery(), 5));
+        if (template.getName() != null) {
+            writeString(template.getName(), true);
+        }
+        if (template.getMethod() != null) {
+            writeString(template.getMethod(), true);
+        }
+        if (template.getTitle() != null) {
+            writeTranslations(template.getTitle());
+        }
+        if (template.getContentType() != null) {
+            writeString(template.getContentType(), true);
+        }
+        if (template.getProperties() != null) {
+            List<Property> properties = template.getProperties();
+            writeCount(properties.size());
+            for (int i = 0; i < properties.size(); i++) {
+                Property property = properties.get(i);
+                writeProperty(property, values == null ? property.getValue() : values.getValue(i));
+            }
+        }
+        if (template.getQuery() != null) {
+            writeByte(template.getQuery() ? 1 : 0);
+        }
+    }
+
+    private void writeProperty(Property property, Object value) throws IOException
+    {
+        writeUnsigned(bit(property.getName(), 0) | bit(value, 1) | bit(property.getTitle(), 2) | bit(property.getValidations(), 3)
+                | bit(property.getReadOnly(), 4) | bit(property.getType(), 5) | bit(property.getMultivalued(), 6)
+                | bit(property.getProperties(), 7) | bit(property.getLink(), 8));
+        if (property.getName() != null) {
+            writeString(property.getName(), true);
+        }
+        if (value != null) {
+            writeValue(value);
+        }
+        if (property.getTitle() != null) {
+            writeTranslations(property.getTitle());
+        }
+        if (property.getValidations() != null) {
+            writeCount(property.getValidations().size());
+            for (Validation validation : property.getValidations()) {
+                writeValidation(validation);
+            }
+        }
+        if (property.getReadOnly() != null) {
+            writeByte(property.getReadOnly() ? 1 : 0);
+        }
+        if (property.getType() != null) {
+            writeByte(property.getType().ordinal());
+        }
+        if (property.getMultivalued() != null) {
+            writeByte(property.getMultivalued() ? 1 : 0);
+        }
+        if (property.getProperties() != null) {
+            writeCount(property.getProperties().size());
+            for (Property nested : property.getProperties()) {
+                writeProperty(nested, nested.getValue());
+            }
+        }
+        if (property.getLink() != null) {
+            writeLink(property.getLink());
+        }
+    }
+
+    private void writeValidation(Validation validation) throws IOException
+    {
+        writeUnsigned(bit(validation.getName(), 0) | bit(validation.getValue(), 1) | bit(validation.getMessage(), 2));
+        if (validation.getName() != null) {
+            writeString(validation.getName(), true);
+        }
+        if (validation.getValue() != null) {
+            writeValue(validation.getValue());
+        }
+        if (validation.getMessage() != null) {
+            writeTranslations(validation.getMessage());
+        }
+    }
+
+    private void writeMessage(Message message) throws IOException
+    {
+        writeUnsigned(bit(message.getName(), 0) | bit(message.getProperty(), 1) | bit(message.getValue(), 2));
+        if (message.getName() != null) {
+            writeString(message.getName(), true);
+        }
+        if (message.getProperty() != null) {
+            writeString(message.getProperty(), true);
+        }
+        if (message.getValue() != null) {
+            writeTranslations(message.getValue());
+        }
+    }
+
+    private void writeValue(Object value) throws IOException
+    {
+        if (value == null) {
+            writeByte(BinaryFormat.NULL);
+        } else if (value instanceof String) {
+            writeByte(BinaryFormat.STRING);
+            writeString((String)value, false);
+        } else if (value instanceof Boolean) {
+            writeByte((Boolean)value ? BinaryFormat.TRUE : BinaryFormat.FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writeByte(BinaryFormat.INT);
+            writeSigned(((Number)value).intValue());
+        } else if (value instanceof Long) {
+            writeByte(BinaryFormat.LONG);
+            writeSigned((Long)value);
+        } else if (value instanceof Double || value instanceof Float) {
+            writeByte(BinaryFormat.DOUBLE);
+            writeDouble(((Number)value).doubleValue());
+        } else if (value instanceof BigInteger) {
+            writeByte(BinaryFormat.BIG_INTEGER);
+            writeString(value.toString(), false);
+        } else if (value instanceof BigDecimal || value instanceof Number) {
+            writeByte(BinaryFormat.BIG_DECIMAL);
+            writeString(value.toString(), false);
+        } else if (value instanceof CharSequence || value instanceof Character) {
+            writeByte(BinaryFormat.STRING);
+            writeString(value.toString(), false);
+        } else if (value instanceof Enum) {
+            writeByte(BinaryFormat.STRING);
+            writeString(((Enum<?>)value).name(), true);
+        } else if (value instanceof Date) {
+            writeByte(BinaryFormat.STRING);
+            writeString(Dates.format((Date)value), false);
+        } else if (value instanceof Entity) {
+            writeByte(BinaryFormat.ENTITY);
+            writeEntity((Entity)value);
+        } else if (value instanceof Link) {
+            writeByte(BinaryFormat.LINK);
+            writeLink((Link)value);
+        } else if (value instanceof Template) {
+            writeByte(BinaryFormat.TEMPLATE);
+            writeTemplate((Template)value, null);
+        } else if (value instanceof TemplateValues) {
+            writeByte(BinaryFormat.TEMPLATE);
+            writeTemplate(((TemplateValues)value).getTemplate(), (TemplateValues)value);
+        } else if (value instanceof Property) {
+            writeByte(BinaryFormat.PROPERTY);
+            writeProperty((Property)value, ((Property)value).getValue());
+        } else if (value instanceof Validation) {
+            writeByte(BinaryFormat.VALIDATION);
+            writeValidation((Validation)value);
+        } else if (value instanceof Message) {
+            writeByte(BinaryFormat.MESSAGE);
+            writeMessage((Message)value);
+        } else if (value instanceof Map) {
+            writeMap((Map<?, ?>)value);
+        } else if (value instanceof Collection) {
+            writeByte(BinaryFormat.LIST);
+            writeCount(((Collection<?>)value).size());
+            for (Object element : (Collection<?>)value) {
+                writeValue(element);
+            }
+        } else if (value instanceof Iterable) {
+            writeElements(((Iterable<?>)value).iterator());
+        } else if (value instanceof Iterator) {
+            writeElements((Iterator<?>)value);
+        } else if (value instanceof BaseStream) {
+            try (BaseStream<?, ?> stream = (BaseStream<?, ?>)value) {
+                writeElements(stream.iterator());
+            }
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            writeByte(BinaryFormat.LIST);
+            writeCount(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(Array.get(value, i));
+            }
+        } else if (value.getClass().getName().startsWith("java.")) {
+            writeByte(BinaryFormat.STRING);
+            writeString(value.toString(), false);
+        } else {
+            writeBean(value);
+        }
+    }
+
+    /**
+     * Write elements of unknown number, each element is requested only after the previous one was written.
+     */
+    private void writeElements(Iterator<?> elements) throws IOException
+    {
+        writeByte(BinaryFormat.SEQUENCE);
+        while (elements.hasNext()) {
+            writeValue(elements.next());
+        }
+        writeByte(BinaryFormat.END);
+    }
+
+    private void writeMap(Map<?, ?> map) throws IOException
+    {
+        int count = 0;
+        for (Object element : map.values()) {
+            if (element != null) {
+                count++;
+            }
+        }
+        writeByte(BinaryFormat.MAP);
+        writeCount(count);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                writeString(String.valueOf(entry.getKey()), true);
+                writeValue(entry.getValue());
+            }
+        }
+    }
+
+    private void writeBean(Object bean) throws IOException
+    {
+        AccessorPlan accessors = AccessorPlan.ofBean(bean.getClass());
+        Object[] values = new Object[accessors.size()];
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (accessors.isReadable(i)) {
+                values[i] = accessors.get(bean, i);
+                if (values[i] != null) {
+                    count++;
+                }
+            }
+        }
+        writeByte(BinaryFormat.MAP);
+        writeCount(count);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                writeString(accessors.getName(i), true);
+                writeValue(values[i]);
+            }
+        }
+    }
+
+    private void writeTranslations(Map<String, String> translations) throws IOException
+    {
+        int count = 0;
+        for (String translation : translations.values()) {
+            if (translation != null) {
+                count++;
+            }
+        }
+        writeCount(count);
+        for (Map.Entry<String, String> entry : translations.entrySet()) {
+            if (entry.getValue() != null) {
+                writeString(entry.getKey(), true);
+                writeString(entry.getValue(), true);
+            }
+        }
+    }
+
+    /**
+     * Get the bit of a field in the mask of present fields.
+     */
+    private static int bit(Object field, int index)
+    {
+        return field == null ? 0 : 1 << index;
+    }
+
+    private void writeCount(int count) throws IOException
+    {
+        writeUnsigned(count);
+    }
+
+    /**
+     * Write a string or a reference to an interned string.
+     */
+    private void writeString(String value, boolean intern) throws IOException
+    {
+        if (intern) {
+            Integer index = interned.get(value);
+            if (index != null) {
+                writeUnsigned((long)index << 2 | BinaryFormat.REFERENCE);
+                return;
+            }
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        boolean add = intern && interned.size() < MAX_INTERNED;
+        if (add) {
+            interned.put(value, interned.size());
+        }
+        writeUnsigned((long)bytes.length << 2 | (add ? BinaryFormat.INTERNED : BinaryFormat.LITERAL));
+        writeBytes(bytes);
+    }
+
+    private void writeSigned(long value) throws IOException
+    {
+        writeUnsigned(value << 1 ^ value >> 63);
+    }
+
+    private void writeUnsigned(long value) throws IOException
+    {
+        if (buffer.length - position < 10) {
+            flushBuffer();
+        }
+        while ((value & ~0x7fL) != 0) {
+            buffer[position++] = (byte)(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte)value;
+    }
+
+    private void writeDouble(double value) throws IOException
+    {
+        if (buffer.length - position < 8) {
+            flushBuffer();
+        }
+        long bits = Double.doubleToLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte)(bits >>> shift);
+        }
+    }
+
+    private void writeByte(int value) throws IOException
+    {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte)value;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException
+    {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int chunk = Math.min(bytes.length - offset, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, chunk);
+            position += chunk;
+            offset += chunk;
+        }
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        if (position == 0) {
+            return;
+        }
+        if (out != null) {
+            out.write(buffer, 0, position);
+        } else {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, position);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+        position = 0;
+    }
+}
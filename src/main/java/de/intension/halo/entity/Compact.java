@@ -0,0 +1,254 @@
+package de.intension.halo.entity;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.Period;
+import java.time.ZonedDateTime;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compact unmodifiable collections of frozen model objects.
+ */
+final class Compact
+{
+
+    /**
+     * Maps up to this size are stored in a single array and searched linearly.
+     */
+    private static final int ARRAY_MAP_SIZE = 8;
+
+    /**
+     * Final value classes whose hash code cannot change.
+     */
+    private static final Set<Class<?>> IMMUTABLE = new HashSet<>(Arrays.asList(String.class, Boolean.class,
+                                                                                Character.class, Byte.class,
+                                                                                Short.class, Integer.class, Long.class,
+                                                                                Float.class, Double.class,
+                                                                                BigInteger.class, BigDecimal.class,
+                                                                                UUID.class, URI.class,
+                                                                                LocalDate.class, LocalTime.class,
+                                                                                LocalDateTime.class,
+                                                                                OffsetDateTime.class,
+                                                                                ZonedDateTime.class, Instant.class,
+                                                                                Duration.class, Period.class));
+
+    private Compact()
+    {
+    }
+
+    /**
+     * Copy a list to an unmodifiable list of exactly its size.
+     */
+    static <T> List<T> list(List<T> list, UnaryOperator<T> freeze)
+    {
+        if (list == null) {
+            return null;
+        }
+        switch (list.size()) {
+            case 0:
+                return Collections.emptyList();
+            case 1:
+                return Collections.singletonList(freeze(list.get(0), freeze));
+            default:
+                Object[] elements = new Object[list.size()];
+                for (int i = 0; i < elements.length; i++) {
+                    elements[i] = freeze(list.get(i), freeze);
+                }
+                return new FixedList<>(elements);
+        }
+    }
+
+    /**
+     * Copy a map to an unmodifiable map, small maps like titles in one or two languages are stored in a single array.
+     */
+    static <K, V> Map<K, V> map(Map<K, V> map)
+    {
+        if (map == null) {
+            return null;
+        }
+        if (map.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (map.size() == 1) {
+            Map.Entry<K, V> entry = map.entrySet().iterator().next();
+            return Collections.singletonMap(entry.getKey(), entry.getValue());
+        }
+        if (map.size() <= ARRAY_MAP_SIZE) {
+            Object[] entries = new Object[map.size() * 2];
+            int i = 0;
+            for (Map.Entry<K, V> entry : map.entrySet()) {
+                entries[i++] = entry.getKey();
+                entries[i++] = entry.getValue();
+            }
+            return new ArrayMap<>(entries);
+        }
+        return Collections.unmodifiableMap(new HashMap<>(map));
+    }
+
+    /**
+     * Whether the hash code of a value cannot change anymore, so a frozen object holding it may cache its own hash
+     * code. This is true for null, enums, the usual immutable JDK value classes and frozen model objects that only
+     * hold such values.
+     */
+    static boolean immutable(Object value)
+    {
+        if (value == null || value instanceof Enum || IMMUTABLE.contains(value.getClass())) {
+            return true;
+        }
+        return value instanceof FrozenModel && ((FrozenModel)value).hasStableHash();
+    }
+
+    /**
+     * Whether all elements of a list of frozen model objects are {@link #immutable(Object) immutable}.
+     */
+    static boolean immutable(List<?> list)
+    {
+        if (list != null) {
+            for (Object element : list) {
+                if (!immutable(element)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Exception thrown by the setters of frozen objects.
+     */
+    static UnsupportedOperationException frozen(Object model)
+    {
+        return new UnsupportedOperationException(model.getClass().getSuperclass().getSimpleName() + " is frozen");
+    }
+
+    private static <T> T freeze(T element, UnaryOperator<T> freeze)
+    {
+        return element == null ? null : freeze.apply(element);
+    }
+
+    private static final class FixedList<E> extends AbstractList<E> implements RandomAccess
+    {
+
+        private final Object[] elements;
+
+        FixedList(Object[] elements)
+        {
+            this.elements = elements;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index)
+        {
+            return (E)elements[index];
+        }
+
+        @Override
+        public int size()
+        {
+            return elements.length;
+        }
+    }
+
+    private static final class ArrayMap<K, V> extends AbstractMap<K, V>
+    {
+
+        private final Object[] entries;
+
+        ArrayMap(Object[] entries)
+        {
+            this.entries = entries;
+        }
+
+        @Override
+        public int size()
+        {
+            return entries.length / 2;
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key)
+        {
+            int index = indexOf(key);
+            return index < 0 ? null : (V)entries[index + 1];
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet()
+        {
+            return new AbstractSet<Map.Entry<K, V>>() {
+
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator()
+                {
+                    return new Iterator<Map.Entry<K, V>>() {
+
+                        private int index;
+
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return index < entries.length;
+                        }
+
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Map.Entry<K, V> next()
+                        {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            index += 2;
+                            return new SimpleImmutableEntry<>((K)entries[index - 2], (V)entries[index - 1]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size()
+                {
+                    return entries.length / 2;
+                }
+            };
+        }
+
+        private int indexOf(Object key)
+        {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (Objects.equals(entries[i], key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -12,7 +12,7 @@ import lombok.experimental.Accessors;
  */
 @Data
 @Accessors(chain = true)
-public final class Entity
+public class Entity
 {
 
     /**
@@ -67,4 +67,88 @@ public final class Entity
         messages.add(message);
         return this;
     }
+
+    /**
+     * Create a read-only snapshot of this entity with its links and messages.
+     * <br/>
+     * <br/>
+     * The data is not copied, so modifying it afterwards changes equals() and hashCode() of the snapshot as well. The
+     * hash code is only cached if the data and all property values of the links are immutable, e.g. strings, numbers,
+     * enums, java.time values or frozen objects.
+     * 
+     * @return Frozen entity or this entity if it is frozen already.
+     * @see Frozen
+     */
+    public Entity freeze()
+    {
+        Entity frozen = new FrozenEntity();
+        frozen.data = data;
+        frozen.messages = Compact.list(messages, Message::freeze);
+        frozen.links = Compact.list(links, Link::freeze);
+        ((FrozenEntity)frozen).stable = Compact.immutable(data) && Compact.immutable(frozen.links);
+        return frozen;
+    }
+
+    private static final class FrozenEntity extends Entity implements FrozenModel
+    {
+
+        private boolean stable;
+        private int     hash;
+
+        @Override
+        public Entity freeze()
+        {
+            return this;
+        }
+
+        @Override
+        public Entity setData(Object data)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Entity setMessages(List<Message> messages)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Entity setLinks(List<Link> links)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Entity addLink(Link link)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Entity addMessage(Message message)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public boolean hasStableHash()
+        {
+            return stable;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            if (!stable) {
+                return super.hashCode();
+            }
+            int h = hash;
+            if (h == 0) {
+                h = super.hashCode();
+                hash = h;
+            }
+            return h;
+        }
+    }
 }
@@ -0,0 +1,17 @@
+package de.intension.halo.entity;
+
+/**
+ * Marks a read-only snapshot of a model object, created by its {@code freeze()} method.
+ * <br/>
+ * <br/>
+ * Frozen objects throw an {@link UnsupportedOperationException} from every setter, hold unmodifiable collections of
+ * exactly the needed size and cache their hash code. A frozen tree can be shared between threads and caches once it
+ * has been published safely, for example through a concurrent map or a volatile field. Values of type
+ * {@link Object}, like {@link Entity#getData()}, are not copied and must not be modified afterwards. Frozen objects
+ * holding other values than strings, numbers, enums, java.time values or frozen objects do not cache their hash
+ * code, since it could still change with the value. Use {@link Template#copy()} or {@link Property#copy()} to get a
+ * modifiable copy again.
+ */
+public interface Frozen
+{
+}
@@ -0,0 +1,14 @@
+package de.intension.halo.entity;
+
+/**
+ * Frozen model object whose hash code may still change through a mutable value of type {@link Object}, like
+ * {@link Entity#getData()} or {@link Property#getValue()}.
+ */
+interface FrozenModel extends Frozen
+{
+
+    /**
+     * @return Whether all values reachable from this object are immutable, so its hash code can be cached.
+     */
+    boolean hasStableHash();
+}
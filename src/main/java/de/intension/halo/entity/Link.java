@@ -80,4 +80,90 @@ public class Link
         templates.add(template);
         return this;
     }
+
+    /**
+     * Create a read-only snapshot of this link with its templates.
+     * 
+     * @return Frozen link or this link if it is frozen already.
+     * @see Frozen
+     */
+    public Link freeze()
+    {
+        Link frozen = new FrozenLink();
+        frozen.name = name;
+        frozen.href = href;
+        frozen.title = Compact.map(title);
+        frozen.templates = Compact.list(templates, Template::freeze);
+        ((FrozenLink)frozen).stable = Compact.immutable(frozen.templates);
+        return frozen;
+    }
+
+    private static final class FrozenLink extends Link implements FrozenModel
+    {
+
+        private boolean stable;
+        private int     hash;
+
+        @Override
+        public Link freeze()
+        {
+            return this;
+        }
+
+        @Override
+        public Link setName(String name)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Link setHref(String href)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Link setTitle(Map<String, String> title)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Link setTemplates(List<Template> templates)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Link setTitle(String locale, String value)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Link addTemplate(Template template)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public boolean hasStableHash()
+        {
+            return stable;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            if (!stable) {
+                return super.hashCode();
+            }
+            int h = hash;
+            if (h == 0) {
+                h = super.hashCode();
+                hash = h;
+            }
+            return h;
+        }
+    }
 }
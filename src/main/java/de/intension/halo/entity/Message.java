@@ -52,4 +52,66 @@ public class Message
         value.put(locale, message);
         return this;
     }
+
+    /**
+     * Create a read-only snapshot of this message.
+     * 
+     * @return Frozen message or this message if it is frozen already.
+     * @see Frozen
+     */
+    public Message freeze()
+    {
+        Message frozen = new FrozenMessage();
+        frozen.name = name;
+        frozen.property = property;
+        frozen.value = Compact.map(value);
+        return frozen;
+    }
+
+    private static final class FrozenMessage extends Message implements Frozen
+    {
+
+        private int hash;
+
+        @Override
+        public Message freeze()
+        {
+            return this;
+        }
+
+        @Override
+        public Message setName(String name)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Message setProperty(String property)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Message setValue(Map<String, String> value)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Message setValue(String locale, String message)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int h = hash;
+            if (h == 0) {
+                h = super.hashCode();
+                hash = h;
+            }
+            return h;
+        }
+    }
 }
@@ -136,4 +136,166 @@ public class Property
         validations.add(validation);
         return this;
     }
+
+    /**
+     * Create a deep copy of this property.
+     * <br/>
+     * <br/>
+     * Titles, validations and nested properties are copied, the {@link #value} and {@link #link} are shared.
+     * 
+     * @return New property with the same content.
+     */
+    public Property copy()
+    {
+        Property copy = new Property();
+        copy.name = name;
+        copy.value = value;
+        copy.readOnly = readOnly;
+        copy.type = type;
+        copy.multivalued = multivalued;
+        copy.link = link;
+        if (title != null) {
+            copy.title = new HashMap<>(title);
+        }
+        if (validations != null) {
+            copy.validations = new ArrayList<>(validations.size());
+            for (Validation validation : validations) {
+                copy.validations.add(validation.copy());
+            }
+        }
+        if (properties != null) {
+            copy.properties = new ArrayList<>(properties.size());
+            for (Property property : properties) {
+                copy.properties.add(property.copy());
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Create a read-only snapshot of this property with its validations, nested properties and link.
+     * <br/>
+     * <br/>
+     * The value is not copied, so modifying it afterwards changes equals() and hashCode() of the snapshot as well. The
+     * hash code is only cached if the value and all values of validations and nested properties are immutable, e.g.
+     * strings, numbers, enums, java.time values or frozen objects.
+     * 
+     * @return Frozen property or this property if it is frozen already.
+     * @see Frozen
+     */
+    public Property freeze()
+    {
+        Property frozen = new FrozenProperty();
+        frozen.name = name;
+        frozen.value = value;
+        frozen.title = Compact.map(title);
+        frozen.validations = Compact.list(validations, Validation::freeze);
+        frozen.readOnly = readOnly;
+        frozen.type = type;
+        frozen.multivalued = multivalued;
+        frozen.properties = Compact.list(properties, Property::freeze);
+        frozen.link = link == null ? null : link.freeze();
+        ((FrozenProperty)frozen).stable = Compact.immutable(value) && Compact.immutable(frozen.validations)
+                                          && Compact.immutable(frozen.properties) && Compact.immutable(frozen.link);
+        return frozen;
+    }
+
+    private static final class FrozenProperty extends Property implements FrozenModel
+    {
+
+        private boolean stable;
+        private int     hash;
+
+        @Override
+        public Property freeze()
+        {
+            return this;
+        }
+
+        @Override
+        public Property setName(String name)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Property setValue(Object value)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Property setTitle(Map<String, String> title)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Property setValidations(List<Validation> validations)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Property setReadOnly(Boolean readOnly)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Property setType(DataType type)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Property setMultivalued(Boolean multivalued)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Property setProperties(List<Property> properties)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Property setLink(Link link)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Property setTitle(String locale, String value)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Property addValidation(Validation validation)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public boolean hasStableHash()
+        {
+            return stable;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            if (!stable) {
+                return super.hashCode();
+            }
+            int h = hash;
+            if (h == 0) {
+                h = super.hashCode();
+                hash = h;
+            }
+            return h;
+        }
+    }
 }
@@ -104,4 +104,128 @@ public class Template
         this.properties.addAll(Arrays.asList(properties));
         return this;
     }
+
+    /**
+     * Create a deep copy of this template.
+     * 
+     * @return New template with copies of the title and properties.
+     */
+    public Template copy()
+    {
+        Template copy = new Template();
+        copy.name = name;
+        copy.method = method;
+        copy.contentType = contentType;
+        copy.query = query;
+        if (title != null) {
+            copy.title = new HashMap<>(title);
+        }
+        if (properties != null) {
+            copy.properties = new ArrayList<>(properties.size());
+            for (Property property : properties) {
+                copy.properties.add(property.copy());
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Create a read-only snapshot of this template with its properties.
+     * 
+     * @return Frozen template or this template if it is frozen already.
+     * @see Frozen
+     */
+    public Template freeze()
+    {
+        Template frozen = new FrozenTemplate();
+        frozen.name = name;
+        frozen.method = method;
+        frozen.title = Compact.map(title);
+        frozen.contentType = contentType;
+        frozen.properties = Compact.list(properties, Property::freeze);
+        frozen.query = query;
+        ((FrozenTemplate)frozen).stable = Compact.immutable(frozen.properties);
+        return frozen;
+    }
+
+    private static final class FrozenTemplate extends Template implements FrozenModel
+    {
+
+        private boolean stable;
+        private int     hash;
+
+        @Override
+        public Template freeze()
+        {
+            return this;
+        }
+
+        @Override
+        public Template setName(String name)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Template setMethod(String method)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Template setTitle(Map<String, String> title)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Template setContentType(String contentType)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Template setProperties(List<Property> properties)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Template setQuery(Boolean query)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Template setTitle(String locale, String value)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Template addProperties(Property... properties)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public boolean hasStableHash()
+        {
+            return stable;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            if (!stable) {
+                return super.hashCode();
+            }
+            int h = hash;
+            if (h == 0) {
+                h = super.hashCode();
+                hash = h;
+            }
+            return h;
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package de.intension.halo.entity;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Values of a single object on top of a shared {@link Template}.
+ * <br/>
+ * <br/>
+ * The template only describes the structure and is never modified, the values are kept in an array with one
+ * element per property of the template. Use {@link #toTemplate()} to merge both into a standalone template.
+ */
+public final class TemplateValues
+{
+
+    /**
+     * Shared template that describes the properties.
+     * 
+     * @return Template without values, frozen if built by a template builder.
+     */
+    @Getter
+    private final Template template;
+    private final Object[] values;
+
+    /**
+     * Create values for a template.
+     * 
+     * @param template Shared template that describes the properties.
+     * @param values Value of each property, in the order of {@link Template#getProperties()}.
+     */
+    public TemplateValues(@NonNull Template template, @NonNull Object[] values)
+    {
+        this.template = template;
+        this.values = values;
+    }
+
+    /**
+     * Number of values.
+     * 
+     * @return Number of properties of the template.
+     */
+    public int size()
+    {
+        return values.length;
+    }
+
+    /**
+     * Get the value of a property.
+     * 
+     * @param index Position of the property in the template.
+     * @return Value of the property.
+     */
+    public Object getValue(int index)
+    {
+        return values[index];
+    }
+
+    /**
+     * Get the value of a property.
+     * 
+     * @param name Name of the property.
+     * @return Value of the property or <b>null</b> if the template has no such property.
+     */
+    public Object getValue(String name)
+    {
+        List<Property> properties = template.getProperties();
+        for (int i = 0; i < values.length; i++) {
+            if (name.equals(properties.get(i).getName())) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Merge the values into a copy of the template.
+     * 
+     * @return New template that can be modified.
+     */
+    public Template toTemplate()
+    {
+        Template copy = template.copy();
+        List<Property> properties = copy.getProperties();
+        for (int i = 0; i < values.length; i++) {
+            properties.get(i).setValue(values[i]);
+        }
+        return copy;
+    }
+}
@@ -1,5 +1,6 @@
 package de.intension.halo.entity;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import lombok.Data;
@@ -32,4 +33,88 @@ public class Validation
      * @return Mappings of language code to translation.
      */
     private Map<String, String> message;
+
+    /**
+     * Create a copy of this validation with its own message mappings.
+     * 
+     * @return New validation with the same content.
+     */
+    public Validation copy()
+    {
+        Validation copy = new Validation();
+        copy.name = name;
+        copy.value = value;
+        if (message != null) {
+            copy.message = new HashMap<>(message);
+        }
+        return copy;
+    }
+
+    /**
+     * Create a read-only snapshot of this validation. The value is not copied and must not be modified after freezing,
+     * the hash code is only cached if it is immutable.
+     * 
+     * @return Frozen validation or this validation if it is frozen already.
+     * @see Frozen
+     */
+    public Validation freeze()
+    {
+        Validation frozen = new FrozenValidation();
+        frozen.name = name;
+        frozen.value = value;
+        frozen.message = Compact.map(message);
+        ((FrozenValidation)frozen).stable = Compact.immutable(value);
+        return frozen;
+    }
+
+    private static final class FrozenValidation extends Validation implements FrozenModel
+    {
+
+        private boolean stable;
+        private int     hash;
+
+        @Override
+        public Validation freeze()
+        {
+            return this;
+        }
+
+        @Override
+        public Validation setName(String name)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Validation setValue(Object value)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public Validation setMessage(Map<String, String> message)
+        {
+            throw Compact.frozen(this);
+        }
+
+        @Override
+        public boolean hasStableHash()
+        {
+            return stable;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            if (!stable) {
+                return super.hashCode();
+            }
+            int h = hash;
+            if (h == 0) {
+                h = super.hashCode();
+                hash = h;
+            }
+            return h;
+        }
+    }
 }
@@ -0,0 +1,804 @@
+package de.intension.halo.hibernate;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+
+import de.intension.halo.AccessorPlan;
+import de.intension.halo.AnnotationTransformer;
+import de.intension.halo.BuildListener;
+import de.intension.halo.BuildPhase;
+import de.intension.halo.CacheStatistics;
+import de.intension.halo.LocaleSelection;
+import de.intension.halo.MessageCatalog;
+import de.intension.halo.TemplateValidator;
+import de.intension.halo.entity.DataType;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.TemplateValues;
+import de.intension.halo.entity.Validation;
+import lombok.extern.java.Log;
+
+/**
+ * Immutable snapshot of a {@link HibernateTemplateBuilder} configuration that builds HALO templates.
+ * <br/>
+ * <br/>
+ * A compiled builder never changes, so a single instance can be shared by any number of threads without locks.
+ * Nested links are frozen when the builder is compiled. To change the configuration at runtime, for example to add a
+ * transformer of a plugin, {@link #reconfigure(Consumer)} creates a new compiled builder, which can be published
+ * atomically:
+ * 
+ * <pre>
+ * AtomicReference&lt;CompiledTemplateBuilder&gt; builder = new AtomicReference&lt;&gt;(
+ *     new HibernateTemplateBuilder("car").compile());
+ * 
+ * builder.updateAndGet(current -&gt; current.reconfigure(config -&gt; config.addTransformers(transformer)));
+ * Template template = builder.get().build(car);
+ * </pre>
+ */
+@Log
+public final class CompiledTemplateBuilder
+{
+
+    private final String                                            templateName;
+    private final MessageCatalog                                    messages;
+    private final List<AnnotationTransformer<? extends Annotation>> transformers;
+    private final Map<String, Link>                                 nestedLinks;
+    private final List<Class<? extends Annotation>>                 transientAnnotations;
+    private final int                                               maxDepth;
+    private final BuildListener                                     listener;
+    private final TransformerDispatcher                             dispatcher;
+    private final ClassValue<CacheEntry>                            cache;
+    private final LongAdder                                         cacheRequests;
+    private final LongAdder                                         cacheMisses;
+
+    /**
+     * Copy the configuration of a {@link HibernateTemplateBuilder}, nested links are frozen.
+     */
+    CompiledTemplateBuilder(String templateName, MessageCatalog messages,
+                            List<AnnotationTransformer<? extends Annotation>> transformers,
+                            Map<String, Link> nestedLinks, List<Class<? extends Annotation>> transientAnnotations,
+                            int maxDepth, BuildListener listener, LongAdder cacheRequests, LongAdder cacheMisses)
+    {
+        this.templateName = templateName;
+        this.messages = messages;
+        this.transformers = transformers == null ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(transformers));
+        if (nestedLinks == null) {
+            this.nestedLinks = null;
+        } else {
+            Map<String, Link> links = new HashMap<>();
+            nestedLinks.forEach((name, link) -> links.put(name, link == null ? null : link.freeze()));
+            this.nestedLinks = Collections.unmodifiableMap(links);
+        }
+        this.transientAnnotations = Collections.unmodifiableList(new ArrayList<>(transientAnnotations));
+        this.maxDepth = maxDepth;
+        this.listener = listener == null ? BuildListener.NONE : listener;
+        this.dispatcher = new TransformerDispatcher(transformers);
+        this.cache = newCache();
+        this.cacheRequests = cacheRequests;
+        this.cacheMisses = cacheMisses;
+    }
+
+    private CompiledTemplateBuilder(CompiledTemplateBuilder source, String templateName, BuildListener listener)
+    {
+        this.templateName = templateName;
+        this.messages = source.messages;
+        this.transformers = source.transformers;
+        this.nestedLinks = source.nestedLinks;
+        this.transientAnnotations = source.transientAnnotations;
+        this.maxDepth = source.maxDepth;
+        this.listener = listener;
+        this.dispatcher = source.dispatcher;
+        this.cache = source.cache;
+        this.cacheRequests = source.cacheRequests;
+        this.cacheMisses = source.cacheMisses;
+    }
+
+    /**
+     * @return Name of the generated templates.
+     */
+    public String getTemplateName()
+    {
+        return templateName;
+    }
+
+    /**
+     * Create a builder with another template name that shares the analyzed class structures of this builder.
+     * 
+     * @param templateName Name of the generated templates.
+     * @return Compiled builder with the new name.
+     */
+    public CompiledTemplateBuilder withTemplateName(String templateName)
+    {
+        return templateName.equals(this.templateName) ? this
+                : new CompiledTemplateBuilder(this, templateName, listener);
+    }
+
+    /**
+     * Create a builder with another listener that shares the analyzed class structures of this builder.
+     * <br/>
+     * <br/>
+     * The listener does not change the analysis, so attaching metrics to a running builder keeps its cache.
+     * 
+     * @param listener Listener like {@link de.intension.halo.BuildMetrics}, <b>null</b> or {@link BuildListener#NONE}
+     *            to measure nothing.
+     * @return Compiled builder with the new listener.
+     */
+    public CompiledTemplateBuilder withListener(BuildListener listener)
+    {
+        BuildListener next = listener == null ? BuildListener.NONE : listener;
+        return next == this.listener ? this : new CompiledTemplateBuilder(this, templateName, next);
+    }
+
+    /**
+     * Create a modifiable configuration with the settings of this builder.
+     * 
+     * @return New template builder, changes do not affect this compiled builder.
+     */
+    @SuppressWarnings("unchecked")
+    public HibernateTemplateBuilder toBuilder()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder(templateName).setMessages(messages)
+            .setTransformers(new ArrayList<>(transformers)).setMaxDepth(maxDepth).setListener(listener)
+            .setTransientAnnotations(transientAnnotations.toArray(new Class[transientAnnotations.size()]));
+        if (nestedLinks != null) {
+            nestedLinks.forEach(builder::addNestedLink);
+        }
+        return builder;
+    }
+
+    /**
+     * Compile a changed copy of this configuration, this builder stays unchanged.
+     * <br/>
+     * <br/>
+     * The change may be applied more than once if it is used with
+     * {@link java.util.concurrent.atomic.AtomicReference#updateAndGet(java.util.function.UnaryOperator)}, so it should
+     * only modify the given configuration.
+     * 
+     * @param change Modification of the configuration.
+     * @return New compiled builder with empty cache.
+     */
+    public CompiledTemplateBuilder reconfigure(Consumer<HibernateTemplateBuilder> change)
+    {
+        HibernateTemplateBuilder builder = toBuilder();
+        change.accept(builder);
+        return builder.compile();
+    }
+
+    /**
+     * Get the hit and miss counts of the class structure cache.
+     * 
+     * @return Current cache statistics.
+     */
+    public CacheStatistics getCacheStatistics()
+    {
+        long misses = cacheMisses.sum();
+        return new CacheStatistics(cacheRequests.sum() - misses, misses);
+    }
+
+    /**
+     * Build HALO template from an object instance.
+     * 
+     * @param entity Object instance.
+     * @return Generated HALO template.
+     */
+    public Template build(Object entity)
+    {
+        return buildValues(entity).toTemplate();
+    }
+
+    /**
+     * Read the values of an object instance on top of its shared template.
+     * <br/>
+     * <br/>
+     * Unlike {@link #build(Object)} this creates no properties, only an array of values.
+     * The template contains the same properties as a template built by {@link #build(Object)}.
+     * 
+     * @param entity Object instance.
+     * @return Values of the object and the shared template.
+     */
+    public TemplateValues buildValues(Object entity)
+    {
+        return new ValueReader(null).read(entity);
+    }
+
+    /**
+     * Build HALO template from an object instance with only the selected languages.
+     * 
+     * @param entity Object instance.
+     * @param locales Requested languages of the client.
+     * @return Generated HALO template.
+     */
+    public Template build(Object entity, LocaleSelection locales)
+    {
+        return buildValues(entity, locales).toTemplate();
+    }
+
+    /**
+     * Read the values of an object instance on top of its shared template with only the selected languages.
+     * <br/>
+     * <br/>
+     * The localized template is cached per class and selection like the template of {@link #buildValues(Object)}.
+     * 
+     * @param entity Object instance.
+     * @param locales Requested languages of the client.
+     * @return Values of the object and the shared localized template.
+     */
+    public TemplateValues buildValues(Object entity, LocaleSelection locales)
+    {
+        return new ValueReader(locales).read(entity);
+    }
+
+    /**
+     * Build HALO templates for a collection of object instances.
+     * <br/>
+     * <br/>
+     * Each distinct class is looked up once per run of elements with that class.
+     * 
+     * @param entities Object instances.
+     * @return Generated HALO templates in the order of the collection.
+     */
+    public List<Template> build(Collection<?> entities)
+    {
+        return build(entities, (LocaleSelection)null);
+    }
+
+    /**
+     * Build HALO templates for a collection of object instances with only the selected languages.
+     * 
+     * @param entities Object instances.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Generated HALO templates in the order of the collection.
+     */
+    public List<Template> build(Collection<?> entities, LocaleSelection locales)
+    {
+        List<Template> templates = new ArrayList<>(entities.size());
+        ValueReader reader = new ValueReader(locales);
+        for (Object entity : entities) {
+            templates.add(reader.read(entity).toTemplate());
+        }
+        return templates;
+    }
+
+    /**
+     * Build HALO templates for a collection of object instances in parallel.
+     * 
+     * @param entities Object instances.
+     * @param pool Pool the value extraction is spread across.
+     * @return Generated HALO templates in the order of the collection.
+     */
+    public List<Template> build(Collection<?> entities, ForkJoinPool pool)
+    {
+        return build(entities, pool, null);
+    }
+
+    /**
+     * Build HALO templates for a collection of object instances in parallel with only the selected languages.
+     * 
+     * @param entities Object instances.
+     * @param pool Pool the value extraction is spread across.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Generated HALO templates in the order of the collection.
+     */
+    public List<Template> build(Collection<?> entities, ForkJoinPool pool, LocaleSelection locales)
+    {
+        Object[] source = entities.toArray();
+        Template[] templates = new Template[source.length];
+        pool.invoke(new BuildTask<>(source, templates, 0, source.length, locales, TemplateValues::toTemplate));
+        return new ArrayList<>(Arrays.asList(templates));
+    }
+
+    /**
+     * Build HALO templates for a stream of object instances.
+     * <br/>
+     * <br/>
+     * Like for collections, each distinct class is looked up once per run of elements with that class, on every
+     * thread the stream is processed by.
+     * 
+     * @param entities Object instances.
+     * @return Lazy stream of generated HALO templates.
+     */
+    public Stream<Template> build(Stream<?> entities)
+    {
+        return build(entities, null);
+    }
+
+    /**
+     * Build HALO templates for a stream of object instances with only the selected languages.
+     * 
+     * @param entities Object instances.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Lazy stream of generated HALO templates.
+     * @see #build(Stream)
+     */
+    public Stream<Template> build(Stream<?> entities, LocaleSelection locales)
+    {
+        ThreadLocal<ValueReader> readers = ThreadLocal.withInitial(() -> new ValueReader(locales));
+        return entities.map(entity -> readers.get().read(entity).toTemplate());
+    }
+
+    /**
+     * Read the values of a collection of object instances on top of their shared templates.
+     * 
+     * @param entities Object instances.
+     * @return Values of the objects in the order of the collection.
+     * @see #buildValues(Object)
+     */
+    public List<TemplateValues> buildValues(Collection<?> entities)
+    {
+        return buildValues(entities, (LocaleSelection)null);
+    }
+
+    /**
+     * Read the values of a collection of object instances on top of their shared templates with only the selected
+     * languages.
+     * 
+     * @param entities Object instances.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Values of the objects in the order of the collection.
+     * @see #buildValues(Object, LocaleSelection)
+     */
+    public List<TemplateValues> buildValues(Collection<?> entities, LocaleSelection locales)
+    {
+        List<TemplateValues> values = new ArrayList<>(entities.size());
+        ValueReader reader = new ValueReader(locales);
+        for (Object entity : entities) {
+            values.add(reader.read(entity));
+        }
+        return values;
+    }
+
+    /**
+     * Read the values of a collection of object instances in parallel.
+     * 
+     * @param entities Object instances.
+     * @param pool Pool the value extraction is spread across.
+     * @return Values of the objects in the order of the collection.
+     * @see #buildValues(Object)
+     */
+    public List<TemplateValues> buildValues(Collection<?> entities, ForkJoinPool pool)
+    {
+        return buildValues(entities, pool, null);
+    }
+
+    /**
+     * Read the values of a collection of object instances in parallel with only the selected languages.
+     * 
+     * @param entities Object instances.
+     * @param pool Pool the value extraction is spread across.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Values of the objects in the order of the collection.
+     * @see #buildValues(Object, LocaleSelection)
+     */
+    public List<TemplateValues> buildValues(Collection<?> entities, ForkJoinPool pool, LocaleSelection locales)
+    {
+        Object[] source = entities.toArray();
+        TemplateValues[] values = new TemplateValues[source.length];
+        pool.invoke(new BuildTask<>(source, values, 0, source.length, locales, Function.identity()));
+        return new ArrayList<>(Arrays.asList(values));
+    }
+
+    private Object getValue(AccessorPlan accessors, Object entity, int index)
+    {
+        try {
+            return accessors.get(entity, index);
+        } catch (RuntimeException e) {
+            log.log(Level.SEVERE, "HibernateTemplateBuilder failed to read object.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Build HALO template from an objects class.
+     * 
+     * @param entityType Class of the object.
+     * @return Generated HALO template.
+     */
+    public Template build(Class<?> entityType)
+    {
+        return build(entityType, null);
+    }
+
+    /**
+     * Build HALO template from an objects class with only the selected languages.
+     * 
+     * @param entityType Class of the object.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Generated HALO template.
+     */
+    public Template build(Class<?> entityType, LocaleSelection locales)
+    {
+        return new Template(templateName).setProperties(TemplateMetadata.copy(getMetadata(entityType, locales).properties));
+    }
+
+    /**
+     * Get the shared HALO template of an objects class.
+     * <br/>
+     * <br/>
+     * The template is built once per class and returned by every call. It has the same content as a template built
+     * by {@link #build(Class)}, but is frozen: modifications throw an {@link UnsupportedOperationException}.
+     * 
+     * @param entityType Class of the object.
+     * @return Shared HALO template.
+     */
+    public Template buildSchema(Class<?> entityType)
+    {
+        return buildSchema(entityType, null);
+    }
+
+    /**
+     * Get the shared HALO template of an objects class with only the selected languages.
+     * 
+     * @param entityType Class of the object.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Shared frozen HALO template.
+     * @see #buildSchema(Class)
+     */
+    public Template buildSchema(Class<?> entityType, LocaleSelection locales)
+    {
+        return getMetadata(entityType, locales).schema(templateName);
+    }
+
+    /**
+     * Get the compiled validations of an objects class to validate incoming values on the server.
+     * <br/>
+     * <br/>
+     * The validator is compiled once per class and returned by every call.
+     * 
+     * @param entityType Class of the object.
+     * @return Shared validator of the template built by {@link #build(Class)}.
+     */
+    public TemplateValidator buildValidator(Class<?> entityType)
+    {
+        return buildValidator(entityType, null);
+    }
+
+    /**
+     * Get the compiled validations of an objects class with messages in only the selected languages.
+     * 
+     * @param entityType Class of the object.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Shared validator.
+     * @see #buildValidator(Class)
+     */
+    public TemplateValidator buildValidator(Class<?> entityType, LocaleSelection locales)
+    {
+        TemplateMetadata metadata = getMetadata(entityType, locales);
+        TemplateValidator validator = metadata.validator;
+        if (validator == null) {
+            validator = TemplateValidator.compile(new Template(templateName).setProperties(metadata.properties));
+            metadata.validator = validator;
+        }
+        return validator;
+    }
+
+    private TemplateMetadata getMetadata(Class<?> entityType, LocaleSelection locales)
+    {
+        cacheRequests.increment();
+        if (listener == BuildListener.NONE) {
+            return getAnalyzed(entityType).localize(locales);
+        }
+        listener.onCacheRequest(entityType);
+        TemplateMetadata metadata = getAnalyzed(entityType);
+        if (locales == null) {
+            return metadata;
+        }
+        return listener.measure(BuildPhase.LOCALIZE, entityType, () -> metadata.localize(locales));
+    }
+
+    /**
+     * Get the analyzed structure of a class, the first builder that looks it up analyzes it with its listener.
+     */
+    private TemplateMetadata getAnalyzed(Class<?> entityType)
+    {
+        CacheEntry entry = cache.get(entityType);
+        TemplateMetadata metadata = entry.metadata;
+        if (metadata == null) {
+            synchronized (entry) {
+                metadata = entry.metadata;
+                if (metadata == null) {
+                    cacheMisses.increment();
+                    if (listener == BuildListener.NONE) {
+                        metadata = analyze(entityType);
+                    } else {
+                        metadata = listener.measure(BuildPhase.ANALYZE, entityType, () -> analyze(entityType));
+                    }
+                    entry.metadata = metadata;
+                }
+            }
+        }
+        return metadata;
+    }
+
+    private static ClassValue<CacheEntry> newCache()
+    {
+        return new ClassValue<CacheEntry>() {
+
+            @Override
+            protected CacheEntry computeValue(Class<?> type)
+            {
+                return new CacheEntry();
+            }
+        };
+    }
+
+    private TemplateMetadata analyze(Class<?> entityType)
+    {
+        Expansion expansion = new Expansion();
+        expansion.path.add(entityType);
+        Field[] fields = entityType.getDeclaredFields();
+        List<Property> fieldProperties = new ArrayList<>(fields.length);
+        boolean[] transients = new boolean[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            fieldProperties.add(buildProperty(entityType, fields[i], expansion));
+            transients[i] = isTransient(fields[i]);
+        }
+        if (listener != BuildListener.NONE) {
+            listener.onPhase(BuildPhase.TRANSFORM, entityType, expansion.transformNanos, -1);
+            listener.onAnalyzed(entityType, expansion.fields, expansion.annotations, expansion.transformations);
+        }
+        return new TemplateMetadata(fieldProperties, transients);
+    }
+
+    /**
+     * Build the properties of a nested type.
+     * 
+     * @return Properties of the type or <b>null</b> if the type is already being expanded or too deep.
+     */
+    private List<Property> buildProperties(Class<?> entityType, Expansion expansion)
+    {
+        int level = expansion.path.size();
+        Expansion.Memo memo = expansion.memo.get(entityType);
+        if (memo != null && level + memo.height <= maxDepth) {
+            expansion.deepest = Math.max(expansion.deepest, level + memo.height);
+            return memo.properties;
+        }
+        if (expansion.path.contains(entityType) || level > maxDepth) {
+            expansion.truncated = true;
+            return null;
+        }
+        boolean truncated = expansion.truncated;
+        int deepest = expansion.deepest;
+        expansion.truncated = false;
+        expansion.deepest = level;
+        expansion.path.add(entityType);
+        List<Property> properties = new ArrayList<>();
+        for (Field field : entityType.getDeclaredFields()) {
+            if (isTransient(field)) {
+                continue;
+            }
+            Property property = buildProperty(entityType, field, expansion);
+            properties.add(property);
+        }
+        expansion.path.remove(entityType);
+        if (!expansion.truncated) {
+            expansion.memo.put(entityType, new Expansion.Memo(properties, expansion.deepest - level));
+        }
+        expansion.truncated |= truncated;
+        expansion.deepest = Math.max(deepest, expansion.deepest);
+        return properties;
+    }
+
+    private Property buildProperty(Class<?> entityType, Field field, Expansion expansion)
+    {
+        Property property = new Property(field.getName());
+        if (messages != null) {
+            property.setTitle(messages.get(entityType.getSimpleName() + "." + field.getName()));
+        }
+        setDataType(property, field.getGenericType(), expansion);
+        Annotation[] annotations = field.getAnnotations();
+        boolean timed = listener != BuildListener.NONE;
+        long start = timed ? System.nanoTime() : 0;
+        for (Annotation annotation : annotations) {
+            expansion.transformations += dispatcher.transform(annotation, property, messages);
+        }
+        if (timed) {
+            expansion.transformNanos += System.nanoTime() - start;
+        }
+        expansion.fields++;
+        expansion.annotations += annotations.length;
+        return property;
+    }
+
+    private void setDataType(Property property, Type type, Expansion expansion)
+    {
+        if (type instanceof ParameterizedType) {
+            property.setMultivalued(true);
+            type = ((ParameterizedType)type).getActualTypeArguments()[0];
+        }
+        if (type.equals(Boolean.class)) {
+            property.setType(DataType.BOOLEAN);
+            return;
+        }
+        if (type.equals(String.class)) {
+            property.setType(DataType.STRING);
+            return;
+        }
+        if (type.equals(Integer.class) || type.equals(Long.class)) {
+            property.setType(DataType.INTEGER);
+            return;
+        }
+        if (type.equals(Float.class) || type.equals(Double.class)) {
+            property.setType(DataType.FLOAT);
+            return;
+        }
+        if (type.equals(LocalDateTime.class)) {
+            property.setType(DataType.DATE);
+            property.addValidation(new Validation("format", "yyyy-MM-dd'T'HH:mm:ss.SSS"));
+            return;
+        }
+        property.setType(DataType.OBJECT);
+        property.setProperties(buildProperties((Class<?>)type, expansion));
+        if (nestedLinks != null) {
+            property.setLink(nestedLinks.get(property.getName()));
+        }
+    }
+
+    private boolean isTransient(Field field)
+    {
+        for (Annotation annotation : field.getAnnotations()) {
+            if (transientAnnotations.contains(annotation.annotationType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Analyzed structure of a class, shared by all builders that only differ in the template name or the listener.
+     */
+    private static final class CacheEntry
+    {
+
+        private volatile TemplateMetadata metadata;
+    }
+
+    /**
+     * Reads values of objects and keeps the template and accessors of the last class.
+     */
+    private final class ValueReader
+    {
+
+        private final LocaleSelection locales;
+        private Class<?>              type;
+        private Template              schema;
+        private AccessorPlan          accessors;
+
+        private ValueReader(LocaleSelection locales)
+        {
+            this.locales = locales;
+        }
+
+        private TemplateValues read(Object entity)
+        {
+            if (listener == BuildListener.NONE) {
+                return readValues(entity);
+            }
+            return listener.measure(BuildPhase.READ_VALUES, entity.getClass(), () -> readValues(entity));
+        }
+
+        private TemplateValues readValues(Object entity)
+        {
+            if (entity.getClass() != type) {
+                type = entity.getClass();
+                schema = getMetadata(type, locales).fieldSchema(templateName);
+                accessors = AccessorPlan.of(type);
+            }
+            Object[] values = new Object[accessors.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = getValue(accessors, entity, i);
+            }
+            return new TemplateValues(schema, values);
+        }
+    }
+
+    /**
+     * Reads values of a range of objects, splitting large ranges into subtasks.
+     */
+    private final class BuildTask<T> extends RecursiveAction
+    {
+
+        private static final long                 serialVersionUID = 1L;
+        private static final int                  THRESHOLD        = 256;
+
+        private final Object[]                    source;
+        private final T[]                         target;
+        private final int                         from;
+        private final int                         to;
+        private final LocaleSelection             locales;
+        private final Function<TemplateValues, T> finisher;
+
+        private BuildTask(Object[] source, T[] target, int from, int to, LocaleSelection locales,
+                          Function<TemplateValues, T> finisher)
+        {
+            this.source = source;
+            this.target = target;
+            this.from = from;
+            this.to = to;
+            this.locales = locales;
+            this.finisher = finisher;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= THRESHOLD) {
+                ValueReader reader = new ValueReader(locales);
+                for (int i = from; i < to; i++) {
+                    target[i] = finisher.apply(reader.read(source[i]));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BuildTask<>(source, target, from, middle, locales, finisher),
+                      new BuildTask<>(source, target, middle, to, locales, finisher));
+        }
+    }
+
+    /**
+     * State of the expansion of nested types during the analysis of one class.
+     */
+    private static final class Expansion
+    {
+
+        /**
+         * Types that are currently expanded, starting with the analyzed class.
+         */
+        private final Set<Class<?>>       path = new LinkedHashSet<>();
+        /**
+         * Properties of nested types whose expansion does not depend on the {@link #path}.
+         */
+        private final Map<Class<?>, Memo> memo = new HashMap<>();
+        /**
+         * Whether the current expansion was cut off because of a cycle or the maximum depth.
+         */
+        private boolean                   truncated;
+        /**
+         * Deepest level reached by the current expansion.
+         */
+        private int                       deepest;
+        /**
+         * Counts of the analysis that are reported to the {@link BuildListener}.
+         */
+        private int                       fields;
+        private int                       annotations;
+        private int                       transformations;
+        private long                      transformNanos;
+
+        /**
+         * Properties of a nested type and the number of levels below it.
+         */
+        private static final class Memo
+        {
+
+            private final List<Property> properties;
+            private final int            height;
+
+            private Memo(List<Property> properties, int height)
+            {
+                this.properties = properties;
+                this.height = height;
+            }
+        }
+    }
+}
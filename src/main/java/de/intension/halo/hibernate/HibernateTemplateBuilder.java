@@ -1,37 +1,38 @@
 package de.intension.halo.hibernate;
 
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.beans.Transient;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Level;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 import de.intension.halo.AnnotationTransformer;
+import de.intension.halo.BuildListener;
+import de.intension.halo.CacheStatistics;
+import de.intension.halo.LocaleSelection;
+import de.intension.halo.MessageCatalog;
+import de.intension.halo.TemplateValidator;
 import de.intension.halo.entity.DataType;
 import de.intension.halo.entity.Link;
-import de.intension.halo.entity.Property;
 import de.intension.halo.entity.Template;
-import de.intension.halo.entity.Validation;
+import de.intension.halo.entity.TemplateValues;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
-import lombok.extern.java.Log;
 
 /**
  * Can be used to build a HALO template from an object with Hibernate and Jakarta EE annotations.
+ * <br/>
+ * <br/>
+ * The builder holds a modifiable configuration. To share one configuration between threads, build with the immutable
+ * snapshot returned by {@link #compile()}.
  */
-@Log
 @Accessors(chain = true)
 public class HibernateTemplateBuilder
 {
@@ -44,26 +45,15 @@ public class HibernateTemplateBuilder
     @Setter
     @NonNull
     private String                                            templateName;
-    /**
-     * Mappings of property identifier to multi-language mapping.
-     * <br/>
-     * <br/>
-     * Property identifier should consist of object class and field name, separated by a dot.
-     * For example {@code "Car.brand"}.
-     * 
-     * @param locales Set mappings of property identifier to multi-language mapping.
-     */
-    @Setter
-    private Map<String, Map<String, String>>                  locales;
-    /**
-     * List of annotation transformers.
-     * 
-     * @param transformers Override list of annotation transformers.
-     */
-    @Setter
+    private MessageCatalog                                    messages;
     private List<AnnotationTransformer<? extends Annotation>> transformers;
     private Map<String, Link>                                 nestedLinks;
     private List<Class<? extends Annotation>>                 transientAnnotations = Arrays.asList(Transient.class);
+    private int                                               maxDepth             = Integer.MAX_VALUE;
+    private BuildListener                                     listener             = BuildListener.NONE;
+    private volatile CompiledTemplateBuilder                  compiled;
+    private final LongAdder                                   cacheRequests        = new LongAdder();
+    private final LongAdder                                   cacheMisses          = new LongAdder();
 
     /**
      * Initialize a new template builder.
@@ -89,6 +79,50 @@ public class HibernateTemplateBuilder
                         new IdTransformer(), new NotNullTransformer(), new NotEmptyTransformer());
     }
 
+    /**
+     * Set mappings of property identifier to multi-language mapping.
+     * <br/>
+     * <br/>
+     * Property identifier should consist of object class and field name, separated by a dot.
+     * For example {@code "Car.brand"}.
+     * <br/>
+     * <br/>
+     * The mappings are copied into a new {@link MessageCatalog}, changes made to the map after this call are not seen.
+     * 
+     * @param locales Mappings of property identifier to multi-language mapping.
+     */
+    public HibernateTemplateBuilder setLocales(Map<String, Map<String, String>> locales)
+    {
+        return setMessages(locales == null ? null : MessageCatalog.of(locales));
+    }
+
+    /**
+     * Set catalog of property titles and validation messages.
+     * <br/>
+     * <br/>
+     * Catalogs are immutable and can be shared by any number of builders.
+     * 
+     * @param messages Catalog with property identifiers like {@code "Car.brand"} and message identifiers.
+     */
+    public HibernateTemplateBuilder setMessages(MessageCatalog messages)
+    {
+        this.messages = messages;
+        clearCache();
+        return this;
+    }
+
+    /**
+     * Override list of annotation transformers.
+     * 
+     * @param transformers List of annotation transformers.
+     */
+    public HibernateTemplateBuilder setTransformers(List<AnnotationTransformer<? extends Annotation>> transformers)
+    {
+        this.transformers = transformers;
+        clearCache();
+        return this;
+    }
+
     /**
      * Add an annotation transformer to match for a certain annotation.
      * 
@@ -103,6 +137,7 @@ public class HibernateTemplateBuilder
         for (AnnotationTransformer<?> transformer : transformers) {
             this.transformers.add(transformer);
         }
+        clearCache();
         return this;
     }
 
@@ -116,6 +151,7 @@ public class HibernateTemplateBuilder
     public final HibernateTemplateBuilder setTransientAnnotations(Class<? extends Annotation>... annotations)
     {
         this.transientAnnotations = Arrays.asList(annotations);
+        clearCache();
         return this;
     }
 
@@ -131,9 +167,94 @@ public class HibernateTemplateBuilder
             nestedLinks = new HashMap<>();
         }
         nestedLinks.put(propertyName, link);
+        clearCache();
+        return this;
+    }
+
+    /**
+     * Set how many levels of nested objects are expanded into properties.
+     * <br/>
+     * <br/>
+     * Nested objects below this depth and objects that reference one of their parents are not expanded,
+     * their property only gets the type {@link DataType#OBJECT} and the nested link if one was added.
+     * By default the depth is unlimited.
+     * 
+     * @param maxDepth Number of nested levels, <b>0</b> to expand no nested objects at all.
+     */
+    public HibernateTemplateBuilder setMaxDepth(int maxDepth)
+    {
+        this.maxDepth = maxDepth;
+        clearCache();
+        return this;
+    }
+
+    /**
+     * Set the listener that receives timings and counts of the analysis and of reading values.
+     * <br/>
+     * <br/>
+     * Unlike the other settings the listener does not clear the cache, already analyzed classes are kept.
+     * 
+     * @param listener Listener like {@link de.intension.halo.BuildMetrics}, <b>null</b> or {@link BuildListener#NONE}
+     *            to measure nothing.
+     */
+    public HibernateTemplateBuilder setListener(BuildListener listener)
+    {
+        this.listener = listener == null ? BuildListener.NONE : listener;
+        CompiledTemplateBuilder current = compiled;
+        if (current != null) {
+            compiled = current.withListener(this.listener);
+        }
         return this;
     }
 
+    /**
+     * Discard all cached class structures.
+     * <br/>
+     * <br/>
+     * Called automatically whenever the configuration of this builder changes, except for the listener.
+     * Call it manually after modifying the maps or links that were passed to this builder.
+     */
+    public void clearCache()
+    {
+        compiled = null;
+    }
+
+    /**
+     * Take a snapshot of the current configuration.
+     * <br/>
+     * <br/>
+     * The compiled builder is immutable and can be shared by any number of threads, later changes to this
+     * builder do not affect it. All build methods of this builder delegate to the same snapshot until the
+     * configuration changes, so its cache statistics are counted here as well.
+     * 
+     * @return Compiled builder of the current configuration.
+     */
+    public CompiledTemplateBuilder compile()
+    {
+        CompiledTemplateBuilder current = compiled;
+        if (current == null) {
+            current = new CompiledTemplateBuilder(templateName, messages, transformers, nestedLinks,
+                                                  transientAnnotations, maxDepth, listener, cacheRequests,
+                                                  cacheMisses);
+            compiled = current;
+        } else if (!current.getTemplateName().equals(templateName)) {
+            current = current.withTemplateName(templateName);
+            compiled = current;
+        }
+        return current;
+    }
+
+    /**
+     * Get the hit and miss counts of the class structure cache.
+     * 
+     * @return Current cache statistics.
+     */
+    public CacheStatistics getCacheStatistics()
+    {
+        long misses = cacheMisses.sum();
+        return new CacheStatistics(cacheRequests.sum() - misses, misses);
+    }
+
     /**
      * Build HALO template from an object instance.
      * 
@@ -142,28 +263,176 @@ public class HibernateTemplateBuilder
      */
     public Template build(Object entity)
     {
-        Class<?> entityType = entity.getClass();
-        Map<String, Object> attributes = getAttributes(entity);
-        List<Property> properties = new ArrayList<>();
-        for (Field field : entityType.getDeclaredFields()) {
-            Property property = buildProperty(entityType, field);
-            property.setValue(attributes.get(field.getName()));
-            properties.add(property);
-        }
-        return new Template(templateName).setProperties(properties);
+        return compile().build(entity);
     }
 
-    private Map<String, Object> getAttributes(Object entity)
+    /**
+     * Read the values of an object instance on top of its shared template.
+     * <br/>
+     * <br/>
+     * Unlike {@link #build(Object)} this creates no properties, only an array of values.
+     * The template contains the same properties as a template built by {@link #build(Object)}.
+     * 
+     * @param entity Object instance.
+     * @return Values of the object and the shared template.
+     */
+    public TemplateValues buildValues(Object entity)
     {
-        Map<String, Object> attributes = new HashMap<>();
-        try {
-            for (PropertyDescriptor propertyDescriptor : Introspector.getBeanInfo(entity.getClass()).getPropertyDescriptors()) {
-                attributes.put(propertyDescriptor.getName(), propertyDescriptor.getReadMethod().invoke(entity));
-            }
-        } catch (IntrospectionException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            log.log(Level.SEVERE, "HibernateTemplateBuilder failed to read object.", e);
-        }
-        return attributes;
+        return compile().buildValues(entity);
+    }
+
+    /**
+     * Build HALO template from an object instance with only the selected languages.
+     * 
+     * @param entity Object instance.
+     * @param locales Requested languages of the client.
+     * @return Generated HALO template.
+     */
+    public Template build(Object entity, LocaleSelection locales)
+    {
+        return compile().build(entity, locales);
+    }
+
+    /**
+     * Read the values of an object instance on top of its shared template with only the selected languages.
+     * <br/>
+     * <br/>
+     * The localized template is cached per class and selection like the template of {@link #buildValues(Object)}.
+     * 
+     * @param entity Object instance.
+     * @param locales Requested languages of the client.
+     * @return Values of the object and the shared localized template.
+     */
+    public TemplateValues buildValues(Object entity, LocaleSelection locales)
+    {
+        return compile().buildValues(entity, locales);
+    }
+
+    /**
+     * Build HALO templates for a collection of object instances.
+     * <br/>
+     * <br/>
+     * Each distinct class is looked up once per run of elements with that class.
+     * 
+     * @param entities Object instances.
+     * @return Generated HALO templates in the order of the collection.
+     */
+    public List<Template> build(Collection<?> entities)
+    {
+        return compile().build(entities);
+    }
+
+    /**
+     * Build HALO templates for a collection of object instances with only the selected languages.
+     * 
+     * @param entities Object instances.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Generated HALO templates in the order of the collection.
+     */
+    public List<Template> build(Collection<?> entities, LocaleSelection locales)
+    {
+        return compile().build(entities, locales);
+    }
+
+    /**
+     * Build HALO templates for a collection of object instances in parallel.
+     * 
+     * @param entities Object instances.
+     * @param pool Pool the value extraction is spread across.
+     * @return Generated HALO templates in the order of the collection.
+     */
+    public List<Template> build(Collection<?> entities, ForkJoinPool pool)
+    {
+        return compile().build(entities, pool);
+    }
+
+    /**
+     * Build HALO templates for a collection of object instances in parallel with only the selected languages.
+     * 
+     * @param entities Object instances.
+     * @param pool Pool the value extraction is spread across.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Generated HALO templates in the order of the collection.
+     */
+    public List<Template> build(Collection<?> entities, ForkJoinPool pool, LocaleSelection locales)
+    {
+        return compile().build(entities, pool, locales);
+    }
+
+    /**
+     * Build HALO templates for a stream of object instances.
+     * 
+     * @param entities Object instances.
+     * @return Lazy stream of generated HALO templates.
+     */
+    public Stream<Template> build(Stream<?> entities)
+    {
+        return compile().build(entities);
+    }
+
+    /**
+     * Build HALO templates for a stream of object instances with only the selected languages.
+     * 
+     * @param entities Object instances.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Lazy stream of generated HALO templates.
+     */
+    public Stream<Template> build(Stream<?> entities, LocaleSelection locales)
+    {
+        return compile().build(entities, locales);
+    }
+
+    /**
+     * Read the values of a collection of object instances on top of their shared templates.
+     * 
+     * @param entities Object instances.
+     * @return Values of the objects in the order of the collection.
+     * @see #buildValues(Object)
+     */
+    public List<TemplateValues> buildValues(Collection<?> entities)
+    {
+        return compile().buildValues(entities);
+    }
+
+    /**
+     * Read the values of a collection of object instances on top of their shared templates with only the selected
+     * languages.
+     * 
+     * @param entities Object instances.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Values of the objects in the order of the collection.
+     * @see #buildValues(Object, LocaleSelection)
+     */
+    public List<TemplateValues> buildValues(Collection<?> entities, LocaleSelection locales)
+    {
+        return compile().buildValues(entities, locales);
+    }
+
+    /**
+     * Read the values of a collection of object instances in parallel.
+     * 
+     * @param entities Object instances.
+     * @param pool Pool the value extraction is spread across.
+     * @return Values of the objects in the order of the collection.
+     * @see #buildValues(Object)
+     */
+    public List<TemplateValues> buildValues(Collection<?> entities, ForkJoinPool pool)
+    {
+        return compile().buildValues(entities, pool);
+    }
+
+    /**
+     * Read the values of a collection of object instances in parallel with only the selected languages.
+     * 
+     * @param entities Object instances.
+     * @param pool Pool the value extraction is spread across.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Values of the objects in the order of the collection.
+     * @see #buildValues(Object, LocaleSelection)
+     */
+    public List<TemplateValues> buildValues(Collection<?> entities, ForkJoinPool pool, LocaleSelection locales)
+    {
+        return compile().buildValues(entities, pool, locales);
     }
 
     /**
@@ -174,82 +443,75 @@ public class HibernateTemplateBuilder
      */
     public Template build(Class<?> entityType)
     {
-        return new Template(templateName).setProperties(buildProperties(entityType));
+        return compile().build(entityType);
     }
 
-    private List<Property> buildProperties(Class<?> entityType)
+    /**
+     * Build HALO template from an objects class with only the selected languages.
+     * 
+     * @param entityType Class of the object.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Generated HALO template.
+     */
+    public Template build(Class<?> entityType, LocaleSelection locales)
     {
-        List<Property> properties = new ArrayList<>();
-        for (Field field : entityType.getDeclaredFields()) {
-            if (isTransient(field)) {
-                continue;
-            }
-            Property property = buildProperty(entityType, field);
-            properties.add(property);
-        }
-        return properties;
+        return compile().build(entityType, locales);
     }
 
-    @SuppressWarnings("unchecked")
-    private Property buildProperty(Class<?> entityType, Field field)
+    /**
+     * Get the shared HALO template of an objects class.
+     * <br/>
+     * <br/>
+     * The template is built once per class and returned by every call, as long as the configuration of this
+     * builder does not change. It has the same content as a template built by {@link #build(Class)},
+     * but is frozen: modifications throw an {@link UnsupportedOperationException}.
+     * 
+     * @param entityType Class of the object.
+     * @return Shared HALO template.
+     */
+    public Template buildSchema(Class<?> entityType)
     {
-        Property property = new Property(field.getName());
-        if (locales != null) {
-            property.setTitle(locales.get(entityType.getSimpleName() + "." + field.getName()));
-        }
-        setDataType(property, field.getGenericType());
-        for (Annotation annotation : field.getAnnotations()) {
-            Class<? extends Annotation> annotationType = annotation.annotationType();
-            for (AnnotationTransformer<?> transformer : transformers) {
-                if (transformer.matchesAnnotation(annotationType)) {
-                    ((AnnotationTransformer<Annotation>)transformer).transformProperty(annotation, property, locales);
-                }
-            }
-        }
-        return property;
+        return compile().buildSchema(entityType);
     }
 
-    private void setDataType(Property property, Type type)
+    /**
+     * Get the shared HALO template of an objects class with only the selected languages.
+     * 
+     * @param entityType Class of the object.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Shared frozen HALO template.
+     * @see #buildSchema(Class)
+     */
+    public Template buildSchema(Class<?> entityType, LocaleSelection locales)
     {
-        if (type instanceof ParameterizedType) {
-            property.setMultivalued(true);
-            type = ((ParameterizedType)type).getActualTypeArguments()[0];
-        }
-        if (type.equals(Boolean.class)) {
-            property.setType(DataType.BOOLEAN);
-            return;
-        }
-        if (type.equals(String.class)) {
-            property.setType(DataType.STRING);
-            return;
-        }
-        if (type.equals(Integer.class) || type.equals(Long.class)) {
-            property.setType(DataType.INTEGER);
-            return;
-        }
-        if (type.equals(Float.class) || type.equals(Double.class)) {
-            property.setType(DataType.FLOAT);
-            return;
-        }
-        if (type.equals(LocalDateTime.class)) {
-            property.setType(DataType.DATE);
-            property.addValidation(new Validation("format", "yyyy-MM-dd'T'HH:mm:ss.SSS"));
-            return;
-        }
-        property.setType(DataType.OBJECT);
-        property.setProperties(buildProperties((Class<?>)type));
-        if (nestedLinks != null) {
-            property.setLink(nestedLinks.get(property.getName()));
-        }
+        return compile().buildSchema(entityType, locales);
     }
 
-    private boolean isTransient(Field field)
+    /**
+     * Get the compiled validations of an objects class to validate incoming values on the server.
+     * <br/>
+     * <br/>
+     * The validator is compiled once per class and returned by every call, as long as the configuration of this
+     * builder does not change.
+     * 
+     * @param entityType Class of the object.
+     * @return Shared validator of the template built by {@link #build(Class)}.
+     */
+    public TemplateValidator buildValidator(Class<?> entityType)
     {
-        for (Annotation annotation : field.getAnnotations()) {
-            if (transientAnnotations.contains(annotation.annotationType())) {
-                return true;
-            }
-        }
-        return false;
+        return compile().buildValidator(entityType);
+    }
+
+    /**
+     * Get the compiled validations of an objects class with messages in only the selected languages.
+     * 
+     * @param entityType Class of the object.
+     * @param locales Requested languages of the client, <b>null</b> for all languages.
+     * @return Shared validator.
+     * @see #buildValidator(Class)
+     */
+    public TemplateValidator buildValidator(Class<?> entityType, LocaleSelection locales)
+    {
+        return compile().buildValidator(entityType, locales);
     }
 }
@@ -5,6 +5,7 @@ import java.util.Map;
 import org.hibernate.validator.constraints.Length;
 
 import de.intension.halo.AnnotationTransformer;
+import de.intension.halo.MessageCatalog;
 import de.intension.halo.entity.Property;
 import de.intension.halo.entity.Validation;
 
@@ -24,29 +25,46 @@ public class LengthValidationMapper
     @Override
     public void transformProperty(Length annotation, Property property)
     {
-        if (annotation.min() > 0) {
-            property.addValidation(new Validation("minLength", annotation.min()));
-        }
-        if (annotation.max() < Integer.MAX_VALUE) {
-            property.addValidation(new Validation("maxLength", annotation.max()));
-        }
+        addValidations(property, annotation.min(), annotation.max(), null, null);
     }
 
     @Override
     public void transformProperty(Length annotation, Property property, Map<String, Map<String, String>> locales)
     {
-        Map<String, String> message = getValidationMessage(annotation.message(), locales);
-        if (annotation.min() > 0) {
-            if (message != null) {
-                message.replaceAll((key, value) -> value.replace("{min}", String.valueOf(annotation.min())));
+        transformProperty(annotation, property, toCatalog(locales));
+    }
+
+    @Override
+    public void transformProperty(Length annotation, Property property, MessageCatalog messages)
+    {
+        addValidations(property, annotation.min(), annotation.max(), annotation.message(), messages);
+    }
+
+    /**
+     * Add the validations described by a {@link Length} annotation.
+     * <br/>
+     * <br/>
+     * The placeholders {@code {min}} and {@code {max}} of the message are replaced by the given values.
+     * 
+     * @param property Property to transform.
+     * @param min Minimum length, no validation is added if it is not positive.
+     * @param max Maximum length, no validation is added for {@link Integer#MAX_VALUE}.
+     * @param message Message identifier of the annotation.
+     * @param messages Localization provider, may be <b>null</b>.
+     */
+    public void addValidations(Property property, int min, int max, String message, MessageCatalog messages)
+    {
+        Map<String, String> text = messages == null ? null : messages.render(message, name -> {
+            if ("min".equals(name)) {
+                return min;
             }
-            property.addValidation(new Validation("minLength", annotation.min()).setMessage(message));
+            return "max".equals(name) ? max : null;
+        });
+        if (min > 0) {
+            property.addValidation(new Validation("minLength", min).setMessage(text));
         }
-        if (annotation.max() < Integer.MAX_VALUE) {
-            if (message != null) {
-                message.replaceAll((key, value) -> value.replace("{max}", String.valueOf(annotation.max())));
-            }
-            property.addValidation(new Validation("maxLength", annotation.max()).setMessage(message));
+        if (max < Integer.MAX_VALUE) {
+            property.addValidation(new Validation("maxLength", max).setMessage(text));
         }
     }
 }
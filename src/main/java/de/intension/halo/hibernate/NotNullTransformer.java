@@ -5,6 +5,7 @@ import java.util.Map;
 import javax.validation.constraints.NotNull;
 
 import de.intension.halo.AnnotationTransformer;
+import de.intension.halo.MessageCatalog;
 import de.intension.halo.entity.Property;
 import de.intension.halo.entity.Validation;
 
@@ -24,13 +25,30 @@ public class NotNullTransformer
     @Override
     public void transformProperty(NotNull annotation, Property property)
     {
-        property.addValidation(new Validation("required", true));
+        addValidation(property, null, null);
     }
 
     @Override
     public void transformProperty(NotNull annotation, Property property, Map<String, Map<String, String>> locales)
     {
-        property.addValidation(new Validation("required", true)
-            .setMessage(getValidationMessage(annotation.message(), locales)));
+        transformProperty(annotation, property, toCatalog(locales));
+    }
+
+    @Override
+    public void transformProperty(NotNull annotation, Property property, MessageCatalog messages)
+    {
+        addValidation(property, annotation.message(), messages);
+    }
+
+    /**
+     * Add the 'required' validation described by a {@link NotNull} annotation.
+     * 
+     * @param property Property to transform.
+     * @param message Message identifier of the annotation.
+     * @param messages Localization provider, may be <b>null</b>.
+     */
+    public void addValidation(Property property, String message, MessageCatalog messages)
+    {
+        property.addValidation(new Validation("required", true).setMessage(messages == null ? null : messages.getMessage(message)));
     }
 }
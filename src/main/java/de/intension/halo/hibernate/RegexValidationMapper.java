@@ -5,6 +5,7 @@ import java.util.Map;
 import javax.validation.constraints.Pattern;
 
 import de.intension.halo.AnnotationTransformer;
+import de.intension.halo.MessageCatalog;
 import de.intension.halo.entity.Property;
 import de.intension.halo.entity.Validation;
 
@@ -24,13 +25,31 @@ public class RegexValidationMapper
     @Override
     public void transformProperty(Pattern annotation, Property property)
     {
-        property.addValidation(new Validation("regex", annotation.regexp()));
+        addValidation(property, annotation.regexp(), null, null);
     }
 
     @Override
     public void transformProperty(Pattern annotation, Property property, Map<String, Map<String, String>> locales)
     {
-        property.addValidation(new Validation("regex", annotation.regexp())
-            .setMessage(getValidationMessage(annotation.message(), locales)));
+        transformProperty(annotation, property, toCatalog(locales));
+    }
+
+    @Override
+    public void transformProperty(Pattern annotation, Property property, MessageCatalog messages)
+    {
+        addValidation(property, annotation.regexp(), annotation.message(), messages);
+    }
+
+    /**
+     * Add the validation described by a {@link Pattern} annotation.
+     * 
+     * @param property Property to transform.
+     * @param regexp Regular expression the value has to match.
+     * @param message Message identifier of the annotation.
+     * @param messages Localization provider, may be <b>null</b>.
+     */
+    public void addValidation(Property property, String regexp, String message, MessageCatalog messages)
+    {
+        property.addValidation(new Validation("regex", regexp).setMessage(messages == null ? null : messages.getMessage(message)));
     }
 }
@@ -0,0 +1,40 @@
+package de.intension.halo.hibernate;
+
+import java.util.Optional;
+import java.util.ServiceLoader;
+
+/**
+ * Looks up the generated {@link TemplateFactory} of an entity class.
+ */
+public final class TemplateFactories
+{
+
+    private static final ClassValue<Optional<TemplateFactory>> FACTORIES = new ClassValue<Optional<TemplateFactory>>() {
+
+        @Override
+        protected Optional<TemplateFactory> computeValue(Class<?> type)
+        {
+            for (TemplateFactory factory : ServiceLoader.load(TemplateFactory.class, type.getClassLoader())) {
+                if (factory.getEntityType() == type) {
+                    return Optional.of(factory);
+                }
+            }
+            return Optional.empty();
+        }
+    };
+
+    private TemplateFactories()
+    {
+    }
+
+    /**
+     * Get the generated factory of an entity class.
+     * 
+     * @param entityType Class of the entity.
+     * @return Registered factory or <b>null</b> if no factory was generated for the class.
+     */
+    public static TemplateFactory get(Class<?> entityType)
+    {
+        return FACTORIES.get(entityType).orElse(null);
+    }
+}
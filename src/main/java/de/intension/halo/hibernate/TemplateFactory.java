@@ -0,0 +1,50 @@
+package de.intension.halo.hibernate;
+
+import java.util.List;
+import java.util.Map;
+
+import de.intension.halo.MessageCatalog;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+
+/**
+ * Builds the HALO template of one entity class without reflection.
+ * <br/>
+ * <br/>
+ * Implementations are generated by {@link de.intension.halo.processor.TemplateFactoryProcessor} and produce the
+ * same templates as a {@link HibernateTemplateBuilder} with its default annotation transformers.
+ * Generated factories are registered as services and can be looked up with {@link TemplateFactories#get(Class)}.
+ */
+public interface TemplateFactory
+{
+
+    /**
+     * Class whose template is built by this factory.
+     * 
+     * @return Entity class.
+     */
+    Class<?> getEntityType();
+
+    /**
+     * Build the properties of the entity class.
+     * 
+     * @param messages Catalog of property titles and validation messages, may be <b>null</b>.
+     * @param nestedLinks Links of nested properties by property name, may be <b>null</b>.
+     * @return New list of properties.
+     */
+    List<Property> buildProperties(MessageCatalog messages, Map<String, Link> nestedLinks);
+
+    /**
+     * Build HALO template of the entity class.
+     * 
+     * @param templateName Name of the template to build.
+     * @param messages Catalog of property titles and validation messages, may be <b>null</b>.
+     * @param nestedLinks Links of nested properties by property name, may be <b>null</b>.
+     * @return Generated HALO template.
+     */
+    default Template build(String templateName, MessageCatalog messages, Map<String, Link> nestedLinks)
+    {
+        return new Template(templateName).setProperties(buildProperties(messages, nestedLinks));
+    }
+}
@@ -0,0 +1,219 @@
+package de.intension.halo.hibernate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.intension.halo.LocaleSelection;
+import de.intension.halo.LruCache;
+import de.intension.halo.TemplateValidator;
+import de.intension.halo.entity.Frozen;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.Validation;
+
+/**
+ * Analyzed structure of a class, as cached by {@link HibernateTemplateBuilder}.
+ * <br/>
+ * <br/>
+ * The contained properties are frozen prototypes. They are shared by the schemas and copied for everything
+ * else that is handed out, so a caller that modifies a shared schema gets an exception instead of changing the
+ * templates of other requests.
+ */
+final class TemplateMetadata
+{
+
+    /**
+     * Maximum number of locale selections cached per class, the least recently used one is evicted first.
+     */
+    private static final int                                  MAX_LOCALIZED = 32;
+
+    /**
+     * Maximum number of template names cached per class, the least recently used one is evicted first.
+     */
+    private static final int                                  MAX_SCHEMAS   = 8;
+
+    /**
+     * Property prototypes for each declared field of the class, including transient ones.
+     */
+    final List<Property>                                      fieldProperties;
+    /**
+     * Property prototypes of the fields that are not transient.
+     */
+    final List<Property>                                      properties;
+    /**
+     * Compiled validations of the {@link #properties}.
+     */
+    volatile TemplateValidator                                validator;
+    private final boolean[]                                   transients;
+    /**
+     * Languages that occur in the {@link #fieldProperties}, selections are reduced to them before they are cached.
+     */
+    private final Set<String>                                 languages;
+    private final LruCache<LocaleSelection, TemplateMetadata> localized     = LruCache.ofSize(MAX_LOCALIZED);
+    private final LruCache<String, Template>                  schemas       = LruCache.ofSize(MAX_SCHEMAS);
+    private final LruCache<String, Template>                  fieldSchemas  = LruCache.ofSize(MAX_SCHEMAS);
+
+    TemplateMetadata(List<Property> fieldProperties, boolean[] transients)
+    {
+        this.transients = transients;
+        List<Property> frozenProperties = new ArrayList<>(fieldProperties.size());
+        List<Property> nonTransient = new ArrayList<>(fieldProperties.size());
+        Map<Property, Property> frozen = new IdentityHashMap<>();
+        for (int i = 0; i < transients.length; i++) {
+            Property property = freeze(fieldProperties.get(i), frozen);
+            frozenProperties.add(property);
+            if (!transients[i]) {
+                nonTransient.add(property);
+            }
+        }
+        this.fieldProperties = Collections.unmodifiableList(frozenProperties);
+        this.properties = Collections.unmodifiableList(nonTransient);
+        Set<String> found = new HashSet<>();
+        for (Property property : this.fieldProperties) {
+            collectLanguages(property, found);
+        }
+        this.languages = found;
+    }
+
+    /**
+     * Get the metadata with only the selected languages.
+     * 
+     * @param locales Selected languages, {@link LocaleSelection#ALL} or <b>null</b> for this metadata.
+     * @return Cached metadata for the selection.
+     */
+    TemplateMetadata localize(LocaleSelection locales)
+    {
+        if (locales == null || locales.getLanguages().isEmpty()) {
+            return this;
+        }
+        LocaleSelection available = locales.retain(languages);
+        TemplateMetadata metadata = localized.get(available);
+        if (metadata == null) {
+            List<Property> localizedProperties = new ArrayList<>(fieldProperties.size());
+            for (Property property : fieldProperties) {
+                localizedProperties.add(available.localize(property));
+            }
+            metadata = localized.putIfAbsent(available, new TemplateMetadata(localizedProperties, transients));
+        }
+        return metadata;
+    }
+
+    /**
+     * Get the shared template of the {@link #properties}.
+     * <br/>
+     * <br/>
+     * Builders that only differ in the template name share this metadata, so the template is cached per name.
+     * 
+     * @param templateName Name of the template.
+     * @return Frozen template.
+     */
+    Template schema(String templateName)
+    {
+        return schema(schemas, templateName, properties);
+    }
+
+    /**
+     * Get the shared template of the {@link #fieldProperties}.
+     * 
+     * @param templateName Name of the template.
+     * @return Frozen template.
+     * @see #schema(String)
+     */
+    Template fieldSchema(String templateName)
+    {
+        return schema(fieldSchemas, templateName, fieldProperties);
+    }
+
+    private static Template schema(LruCache<String, Template> schemas, String templateName, List<Property> properties)
+    {
+        Template schema = schemas.get(templateName);
+        if (schema == null) {
+            schema = schemas.putIfAbsent(templateName, new Template(templateName).setProperties(properties).freeze());
+        }
+        return schema;
+    }
+
+    /**
+     * Collect the languages of the titles and messages of a property, its nested properties and its link.
+     */
+    private static void collectLanguages(Property property, Set<String> languages)
+    {
+        addKeys(property.getTitle(), languages);
+        if (property.getValidations() != null) {
+            for (Validation validation : property.getValidations()) {
+                addKeys(validation.getMessage(), languages);
+            }
+        }
+        if (property.getProperties() != null) {
+            for (Property nested : property.getProperties()) {
+                collectLanguages(nested, languages);
+            }
+        }
+        Link link = property.getLink();
+        if (link != null) {
+            addKeys(link.getTitle(), languages);
+            if (link.getTemplates() != null) {
+                for (Template template : link.getTemplates()) {
+                    addKeys(template.getTitle(), languages);
+                    if (template.getProperties() != null) {
+                        for (Property nested : template.getProperties()) {
+                            collectLanguages(nested, languages);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addKeys(Map<String, String> translations, Set<String> languages)
+    {
+        if (translations != null) {
+            languages.addAll(translations.keySet());
+        }
+    }
+
+    /**
+     * Freeze a prototype and its nested properties.
+     * Nested properties of memoized types are shared and frozen only once.
+     */
+    private static Property freeze(Property property, Map<Property, Property> frozen)
+    {
+        if (property instanceof Frozen) {
+            return property;
+        }
+        Property result = frozen.get(property);
+        if (result == null) {
+            if (property.getProperties() != null) {
+                List<Property> nested = new ArrayList<>(property.getProperties().size());
+                for (Property child : property.getProperties()) {
+                    nested.add(freeze(child, frozen));
+                }
+                property.setProperties(nested);
+            }
+            result = property.freeze();
+            frozen.put(property, result);
+        }
+        return result;
+    }
+
+    /**
+     * Copy property prototypes for handing them out.
+     * 
+     * @param prototypes Cached properties.
+     * @return Deep copies of the prototypes.
+     */
+    static List<Property> copy(List<Property> prototypes)
+    {
+        List<Property> copies = new ArrayList<>(prototypes.size());
+        for (Property prototype : prototypes) {
+            copies.add(prototype.copy());
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,103 @@
+package de.intension.halo.hibernate;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.intension.halo.AnnotationTransformer;
+import de.intension.halo.MessageCatalog;
+import de.intension.halo.entity.Property;
+
+/**
+ * Dispatch table from annotation type to the transformers that handle it.
+ * <br/>
+ * <br/>
+ * Annotations without a transformer of their own are expanded into their meta-annotations, so composed
+ * constraints like an annotation that is itself annotated with {@code @Length} and {@code @Pattern} are
+ * transformed as well. The expansion is resolved once per annotation type.
+ */
+final class TransformerDispatcher
+{
+
+    private static final Target[]                                                   NONE    = new Target[0];
+
+    private final Map<Class<? extends Annotation>, List<AnnotationTransformer<?>>> direct  = new HashMap<>();
+    private final ClassValue<Target[]>                                              targets = new ClassValue<Target[]>() {
+
+        @Override
+        protected Target[] computeValue(Class<?> type)
+        {
+            List<Target> resolved = new ArrayList<>();
+            resolve(type, null, resolved, new HashSet<>());
+            return resolved.isEmpty() ? NONE : resolved.toArray(NONE);
+        }
+    };
+
+    TransformerDispatcher(List<AnnotationTransformer<? extends Annotation>> transformers)
+    {
+        if (transformers != null) {
+            for (AnnotationTransformer<?> transformer : transformers) {
+                direct.computeIfAbsent(transformer.getAnnotationType(), type -> new ArrayList<>()).add(transformer);
+            }
+        }
+    }
+
+    /**
+     * Apply all transformers that match the annotation or one of its meta-annotations.
+     * 
+     * @param annotation Annotation of a field.
+     * @param property Property to transform.
+     * @param messages Localization provider, may be <b>null</b>.
+     * @return Number of transformers applied.
+     */
+    int transform(Annotation annotation, Property property, MessageCatalog messages)
+    {
+        Target[] matching = targets.get(annotation.annotationType());
+        for (Target target : matching) {
+            target.transformer.transformProperty(target.annotation == null ? annotation : target.annotation, property, messages);
+        }
+        return matching.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resolve(Class<?> type, Annotation annotation, List<Target> resolved, Set<Class<?>> visited)
+    {
+        if (!visited.add(type)) {
+            return;
+        }
+        List<AnnotationTransformer<?>> transformers = direct.get(type);
+        if (transformers != null) {
+            for (AnnotationTransformer<?> transformer : transformers) {
+                resolved.add(new Target((AnnotationTransformer<Annotation>)transformer, annotation));
+            }
+            return;
+        }
+        for (Annotation metaAnnotation : type.getAnnotations()) {
+            Class<? extends Annotation> metaType = metaAnnotation.annotationType();
+            if (!metaType.getName().startsWith("java.lang.annotation.")) {
+                resolve(metaType, metaAnnotation, resolved, visited);
+            }
+        }
+    }
+
+    /**
+     * Transformer together with the annotation it is applied to.
+     * The annotation is <b>null</b> if the transformer matches the field annotation itself.
+     */
+    private static final class Target
+    {
+
+        private final AnnotationTransformer<Annotation> transformer;
+        private final Annotation                        annotation;
+
+        private Target(AnnotationTransformer<Annotation> transformer, Annotation annotation)
+        {
+            this.transformer = transformer;
+            this.annotation = annotation;
+        }
+    }
+}
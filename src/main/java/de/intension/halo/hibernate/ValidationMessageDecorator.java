@@ -2,6 +2,8 @@ package de.intension.halo.hibernate;
 
 import java.util.Map;
 
+import de.intension.halo.MessageCatalog;
+
 /**
  * Provides utility methods for validation message processing.
  */
@@ -24,6 +26,6 @@ public interface ValidationMessageDecorator
         if (message == null || locales == null) {
             return null;
         }
-        return locales.get(message.replaceAll("^\\{|\\}$", ""));
+        return locales.get(MessageCatalog.key(message));
     }
 }
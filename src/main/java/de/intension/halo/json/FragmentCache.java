@@ -0,0 +1,151 @@
+package de.intension.halo.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import de.intension.halo.CacheStatistics;
+import de.intension.halo.LruCache;
+import de.intension.halo.entity.Template;
+
+/**
+ * Bounded cache of templates that are already encoded as UTF-8 JSON.
+ * <br/>
+ * <br/>
+ * Templates are registered explicitly and looked up by identity, which fits the shared templates of
+ * {@link de.intension.halo.hibernate.HibernateTemplateBuilder#buildSchema(Class)}: there is one instance per class,
+ * template name and locale selection. A {@link HaloJsonWriter} with this cache copies the cached bytes into its
+ * output instead of encoding the template again. Only frozen templates are cached, so the bytes cannot get stale:
+ * {@link #put(Template)} freezes a mutable template and returns the frozen instance to write.
+ * <br/>
+ * <br/>
+ * Lookups do not lock, the least recently used fragments are evicted as soon as the cached bytes exceed the budget,
+ * see {@link LruCache}.
+ * 
+ * <pre>
+ * FragmentCache fragments = new FragmentCache(1 &lt;&lt; 20, true);
+ * Template schema = fragments.put(builder.buildSchema(Car.class, locales));
+ * new HaloJsonWriter(channel).setFragments(fragments).write(new Entity().addLink(new Link("self", href).addTemplate(schema)));
+ * </pre>
+ */
+public final class FragmentCache
+{
+
+    private final boolean                           direct;
+    private final LruCache<IdentityKey, ByteBuffer> fragments;
+
+    /**
+     * Create a cache.
+     * 
+     * @param maxBytes Maximum number of cached bytes.
+     * @param direct Weither the fragments are held off-heap in direct buffers.
+     */
+    public FragmentCache(long maxBytes, boolean direct)
+    {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Byte budget must not be negative: " + maxBytes);
+        }
+        this.direct = direct;
+        this.fragments = new LruCache<>(maxBytes, ByteBuffer::capacity);
+    }
+
+    /**
+     * Encode a template and cache the result, replacing a previous fragment of the same template.
+     * Templates larger than the whole budget are not cached.
+     * 
+     * @param template Shared template, a mutable template is frozen first.
+     * @return The frozen template to write, the given template if it is frozen already.
+     */
+    public Template put(Template template)
+    {
+        template = template.freeze();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HaloJsonWriter writer = new HaloJsonWriter(out)) {
+            writer.write(template);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] encoded = out.toByteArray();
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(encoded.length) : ByteBuffer.allocate(encoded.length);
+        buffer.put(encoded).flip();
+        fragments.put(new IdentityKey(template), buffer.asReadOnlyBuffer());
+        return template;
+    }
+
+    /**
+     * Get the encoded bytes of a template.
+     * 
+     * @param template Template to look up.
+     * @return Read-only buffer with the UTF-8 JSON of the template, <b>null</b> if it is not cached.
+     */
+    public ByteBuffer get(Template template)
+    {
+        ByteBuffer fragment = fragments.get(new IdentityKey(template));
+        return fragment == null ? null : fragment.duplicate();
+    }
+
+    /**
+     * Number of cached bytes.
+     * 
+     * @return Sum of the sizes of all fragments.
+     */
+    public long getBytes()
+    {
+        return fragments.getWeight();
+    }
+
+    /**
+     * Number of cached fragments.
+     * 
+     * @return Number of templates in this cache.
+     */
+    public int size()
+    {
+        return fragments.size();
+    }
+
+    /**
+     * Remove all fragments.
+     */
+    public void clear()
+    {
+        fragments.clear();
+    }
+
+    /**
+     * Get the hit and miss counts of {@link #get(Template)}.
+     * 
+     * @return Current cache statistics.
+     */
+    public CacheStatistics getStatistics()
+    {
+        return fragments.getStatistics();
+    }
+
+    /**
+     * Compares templates by identity, their content may be large.
+     */
+    private static final class IdentityKey
+    {
+
+        private final Template template;
+
+        private IdentityKey(Template template)
+        {
+            this.template = template;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof IdentityKey && ((IdentityKey)obj).template == template;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(template);
+        }
+    }
+}
@@ -0,0 +1,781 @@
+package de.intension.halo.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.JsonException;
+
+import de.intension.halo.entity.DataType;
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.Validation;
+import lombok.NonNull;
+
+/**
+ * Reads the HALO entity model from UTF-8 encoded JSON, as written by {@link HaloJsonWriter}.
+ * <br/>
+ * <br/>
+ * Unknown fields are skipped. Values without a type in the model, like {@link Entity#getData()} or
+ * {@link Property#getValue()}, are read as {@link String}, {@link Boolean}, {@link Integer}, {@link Long},
+ * {@link BigInteger}, {@link Double}, {@link Map} or {@link List}.
+ * <br/>
+ * <br/>
+ * Malformed input is reported with a {@link JsonException} that contains the character offset. Objects and arrays
+ * may be nested at most 64 levels deep by default, so untrusted input cannot exhaust the stack.
+ * 
+ * <pre>
+ * try (HaloJsonReader reader = new HaloJsonReader(request.getInputStream())) {
+ *     Entity entity = reader.readEntity();
+ * }
+ * </pre>
+ */
+public final class HaloJsonReader implements Closeable
+{
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader     in;
+    private final char[]     buffer      = new char[BUFFER_SIZE];
+    private int              position;
+    private int              limit;
+    private long             offset;
+    private int              maxDepth    = 64;
+    private int              depth;
+
+    /**
+     * Create a reader for a stream.
+     * 
+     * @param in Source of the UTF-8 encoded JSON, closed by {@link #close()}.
+     */
+    public HaloJsonReader(@NonNull InputStream in)
+    {
+        this.in = new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Create a reader for a channel.
+     * 
+     * @param channel Source of the UTF-8 encoded JSON, closed by {@link #close()}.
+     */
+    public HaloJsonReader(@NonNull ReadableByteChannel channel)
+    {
+        this.in = Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1);
+    }
+
+    /**
+     * Set the maximum nesting of objects and arrays.
+     * 
+     * @param maxDepth Maximum number of nested objects and arrays, default is 64.
+     * @return this reader
+     */
+    public HaloJsonReader setMaxDepth(int maxDepth)
+    {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Read a HALO entity.
+     * 
+     * @return Entity or <b>null</b> if the document is <b>null</b>.
+     * @throws IOException If the source cannot be read.
+     */
+    public Entity readEntity() throws IOException
+    {
+        if (readNull()) {
+            return null;
+        }
+        Entity entity = new Entity();
+        if (beginObject()) {
+            do {
+                switch (readName()) {
+                    case "data":
+                        entity.setData(readValue());
+                        break;
+                    case "messages":
+                        entity.setMessages(readList(this::readMessage));
+                        break;
+                    case "links":
+                        entity.setLinks(readList(this::readLink));
+                        break;
+                    default:
+                        readValue();
+                }
+            } while (nextElement('}'));
+        }
+        return entity;
+    }
+
+    /**
+     * Read a link.
+     * 
+     * @return Link or <b>null</b> if the document is <b>null</b>.
+     * @throws IOException If the source cannot be read.
+     */
+    public Link readLink() throws IOException
+    {
+        if (readNull()) {
+            return null;
+        }
+        Link link = new Link();
+        if (beginObject()) {
+            do {
+                switch (readName()) {
+                    case "name":
+                        link.setName(readString());
+                        break;
+                    case "href":
+                        link.setHref(readString());
+                        break;
+                    case "title":
+                        link.setTitle(readTranslations());
+                        break;
+                    case "templates":
+                        link.setTemplates(readList(this::readTemplate));
+                        break;
+                    default:
+                        readValue();
+                }
+            } while (nextElement('}'));
+        }
+        return link;
+    }
+
+    /**
+     * Read a template.
+     * 
+     * @return Template or <b>null</b> if the document is <b>null</b>.
+     * @throws IOException If the source cannot be read.
+     */
+    public Template readTemplate() throws IOException
+    {
+        if (readNull()) {
+            return null;
+        }
+        Template template = new Template();
+        if (beginObject()) {
+            do {
+                switch (readName()) {
+                    case "name":
+                        template.setName(readString());
+                        break;
+                    case "method":
+                        template.setMethod(readString());
+                        break;
+                    case "title":
+                        template.setTitle(readTranslations());
+                        break;
+                    case "contentType":
+                        template.setContentType(readString());
+                        break;
+                    case "properties":
+                        template.setProperties(readList(this::readProperty));
+                        break;
+                    case "query":
+                        template.setQuery(readBoolean());
+                        break;
+                    default:
+                        readValue();
+                }
+            } while (nextElement('}'));
+        }
+        return template;
+    }
+
+    /**
+     * Read a property.
+     * 
+     * @return Property or <b>null</b> if the document is <b>null</b>.
+     * @throws IOException If the source cannot be read.
+     */
+    public Property readProperty() throws IOException
+    {
+        if (readNull()) {
+            return null;
+        }
+        Property property = new Property();
+        if (beginObject()) {
+            do {
+                switch (readName()) {
+                    case "name":
+                        property.setName(readString());
+                        break;
+                    case "value":
+                        property.setValue(readValue());
+                        break;
+                    case "title":
+                        property.setTitle(readTranslations());
+                        break;
+                    case "validations":
+                        property.setValidations(readList(this::readValidation));
+                        break;
+                    case "readOnly":
+                        property.setReadOnly(readBoolean());
+                        break;
+                    case "type":
+                        property.setType(readDataType());
+                        break;
+                    case "multivalued":
+                        property.setMultivalued(readBoolean());
+                        break;
+                    case "properties":
+                        property.setProperties(readList(this::readProperty));
+                        break;
+                    case "link":
+                        property.setLink(readLink());
+                        break;
+                    default:
+                        readValue();
+                }
+            } while (nextElement('}'));
+        }
+        return property;
+    }
+
+    /**
+     * Read a validation.
+     * 
+     * @return Validation or <b>null</b> if the document is <b>null</b>.
+     * @throws IOException If the source cannot be read.
+     */
+    public Validation readValidation() throws IOException
+    {
+        if (readNull()) {
+            return null;
+        }
+        Validation validation = new Validation();
+        if (beginObject()) {
+            do {
+                switch (readName()) {
+                    case "name":
+                        validation.setName(readString());
+                        break;
+                    case "value":
+                        validation.setValue(readValue());
+                        break;
+                    case "message":
+                        validation.setMessage(readTranslations());
+                        break;
+                    default:
+                        readValue();
+                }
+            } while (nextElement('}'));
+        }
+        return validation;
+    }
+
+    /**
+     * Read a message.
+     * 
+     * @return Message or <b>null</b> if the document is <b>null</b>.
+     * @throws IOException If the source cannot be read.
+     */
+    public Message readMessage() throws IOException
+    {
+        if (readNull()) {
+            return null;
+        }
+        Message message = new Message();
+        if (beginObject()) {
+            do {
+                switch (readName()) {
+                    case "name":
+                        message.setName(readString());
+                        break;
+                    case "property":
+                        message.setProperty(readString());
+                        break;
+                    case "value":
+                        message.setValue(readTranslations());
+                        break;
+                    default:
+                        readValue();
+                }
+            } while (nextElement('}'));
+        }
+        return message;
+    }
+
+    /**
+     * Read a JSON Patch.
+     * 
+     * @return Operations of the patch or <b>null</b> if the document is <b>null</b>.
+     * @throws IOException If the source cannot be read.
+     * @see JsonPatch
+     */
+    public List<PatchOperation> readPatch() throws IOException
+    {
+        return readList(this::readPatchOperation);
+    }
+
+    /**
+     * Read a single operation of a JSON Patch.
+     * 
+     * @return Operation or <b>null</b> if the document is <b>null</b>.
+     * @throws IOException If the source cannot be read.
+     */
+    public PatchOperation readPatchOperation() throws IOException
+    {
+        if (readNull()) {
+            return null;
+        }
+        PatchOperation operation = new PatchOperation();
+        if (beginObject()) {
+            do {
+                switch (readName()) {
+                    case "op":
+                        operation.setOp(readString());
+                        break;
+                    case "path":
+                        operation.setPath(readString());
+                        break;
+                    case "from":
+                        operation.setFrom(readString());
+                        break;
+                    case "value":
+                        operation.setValue(readValue());
+                        break;
+                    default:
+                        readValue();
+                }
+            } while (nextElement('}'));
+        }
+        if (operation.getOp() == null || operation.getPath() == null) {
+            throw new JsonException("Patch operation requires 'op' and 'path' near offset " + (offset + position));
+        }
+        return operation;
+    }
+
+    /**
+     * Read any JSON value.
+     * 
+     * @return String, boolean, number, map, list or <b>null</b>.
+     * @throws IOException If the source cannot be read.
+     */
+    public Object readValue() throws IOException
+    {
+        int c = peek();
+        switch (c) {
+            case '{':
+                enter();
+                Map<String, Object> map = new LinkedHashMap<>();
+                if (beginObject()) {
+                    do {
+                        map.put(readName(), readValue());
+                    } while (nextElement('}'));
+                }
+                depth--;
+                return map;
+            case '[':
+                return readList(this::readValue);
+            case '"':
+                return readString();
+            case 't':
+            case 'f':
+                return readBoolean();
+            case 'n':
+                readNull();
+                return null;
+            default:
+                if (c == '-' || c >= '0' && c <= '9') {
+                    return readNumber();
+                }
+                throw unexpected(c);
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+
+    private <T> List<T> readList(ElementReader<T> elementReader) throws IOException
+    {
+        if (readNull()) {
+            return null;
+        }
+        expect('[');
+        List<T> list = new ArrayList<>();
+        if (peek() == ']') {
+            position++;
+            return list;
+        }
+        enter();
+        do {
+            list.add(elementReader.read());
+        } while (nextElement(']'));
+        depth--;
+        return list;
+    }
+
+    private void enter()
+    {
+        if (++depth > maxDepth) {
+            throw new JsonException("Document is nested deeper than " + maxDepth + " levels near offset "
+                    + (offset + position));
+        }
+    }
+
+    private Map<String, String> readTranslations() throws IOException
+    {
+        if (readNull()) {
+            return null;
+        }
+        Map<String, String> translations = new HashMap<>();
+        if (beginObject()) {
+            do {
+                translations.put(readName(), readString());
+            } while (nextElement('}'));
+        }
+        return translations;
+    }
+
+    private DataType readDataType() throws IOException
+    {
+        String name = readString();
+        try {
+            return name == null ? null : DataType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new JsonException("Unknown data type '" + name + "' near offset " + (offset + position), e);
+        }
+    }
+
+    private Boolean readBoolean() throws IOException
+    {
+        int c = peek();
+        if (c == 't') {
+            expectLiteral("true");
+            return Boolean.TRUE;
+        } else if (c == 'f') {
+            expectLiteral("false");
+            return Boolean.FALSE;
+        } else if (readNull()) {
+            return null;
+        }
+        throw unexpected(c);
+    }
+
+    /**
+     * Read a number as defined by the JSON grammar, without leading zeros or a leading plus sign.
+     */
+    private Number readNumber() throws IOException
+    {
+        StringBuilder number = new StringBuilder(16);
+        int c = read();
+        if (c == '-') {
+            number.append('-');
+            c = read();
+        }
+        if (c == '0') {
+            number.append('0');
+            c = read();
+            if (c >= '0' && c <= '9') {
+                throw invalidNumber(number.append((char)c));
+            }
+        } else {
+            c = readDigits(number, c);
+        }
+        boolean decimal = false;
+        if (c == '.') {
+            decimal = true;
+            number.append('.');
+            c = readDigits(number, read());
+        }
+        if (c == 'e' || c == 'E') {
+            decimal = true;
+            number.append((char)c);
+            c = read();
+            if (c == '+' || c == '-') {
+                number.append((char)c);
+                c = read();
+            }
+            c = readDigits(number, c);
+        }
+        if (c >= 0) {
+            position--;
+        }
+        try {
+            if (decimal) {
+                return Double.valueOf(number.toString());
+            }
+            if (number.length() < 19) {
+                long value = Long.parseLong(number.toString());
+                return value == (int)value ? (Number)Integer.valueOf((int)value) : Long.valueOf(value);
+            }
+            BigInteger value = new BigInteger(number.toString());
+            return value.bitLength() < 64 ? (Number)Long.valueOf(value.longValue()) : value;
+        } catch (NumberFormatException e) {
+            throw new JsonException("Invalid number '" + number + "' near offset " + (offset + position), e);
+        }
+    }
+
+    /**
+     * Read at least one digit.
+     * 
+     * @return The character after the digits.
+     */
+    private int readDigits(StringBuilder number, int c) throws IOException
+    {
+        if (c < '0' || c > '9') {
+            throw invalidNumber(c < 0 ? number : number.append((char)c));
+        }
+        do {
+            number.append((char)c);
+            c = read();
+        } while (c >= '0' && c <= '9');
+        return c;
+    }
+
+    private JsonException invalidNumber(StringBuilder number)
+    {
+        return new JsonException("Invalid number '" + number + "' near offset " + (offset + position));
+    }
+
+    String readString() throws IOException
+    {
+        if (readNull()) {
+            return null;
+        }
+        expect('"');
+        StringBuilder string = null;
+        int start = position;
+        while (true) {
+            if (position == limit) {
+                string = append(string, start, limit);
+                if (!fill()) {
+                    throw new JsonException("Unterminated string near offset " + (offset + position));
+                }
+                start = position;
+            }
+            char c = buffer[position++];
+            if (c == '"') {
+                if (string == null) {
+                    return new String(buffer, start, position - start - 1);
+                }
+                return string.append(buffer, start, position - start - 1).toString();
+            } else if (c == '\\') {
+                string = append(string, start, position - 1);
+                string.append(readEscape());
+                start = position;
+            } else if (c < 0x20) {
+                throw unexpected(c);
+            }
+        }
+    }
+
+    private StringBuilder append(StringBuilder string, int start, int end)
+    {
+        StringBuilder target = string == null ? new StringBuilder() : string;
+        return target.append(buffer, start, end - start);
+    }
+
+    private char readEscape() throws IOException
+    {
+        int c = read();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char)c;
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw new JsonException("Invalid unicode escape near offset " + (offset + position));
+                    }
+                    value = value << 4 | digit;
+                }
+                return (char)value;
+            default:
+                throw unexpected(c);
+        }
+    }
+
+    boolean readNull() throws IOException
+    {
+        if (peek() != 'n') {
+            return false;
+        }
+        expectLiteral("null");
+        return true;
+    }
+
+    private void expectLiteral(String literal) throws IOException
+    {
+        for (int i = 0; i < literal.length(); i++) {
+            int c = read();
+            if (c != literal.charAt(i)) {
+                throw unexpected(c);
+            }
+        }
+    }
+
+    /**
+     * Consume the start of an object.
+     * 
+     * @return <b>true</b> if the object has members, <b>false</b> if it is empty.
+     */
+    boolean beginObject() throws IOException
+    {
+        expect('{');
+        if (peek() == '}') {
+            position++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Consume the start of an array.
+     * 
+     * @return <b>true</b> if the array has elements, <b>false</b> if it is empty.
+     */
+    boolean beginArray() throws IOException
+    {
+        expect('[');
+        if (peek() == ']') {
+            position++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Skip the next value without keeping it, nested values are skipped without recursion.
+     */
+    void skipValue() throws IOException
+    {
+        int depth = 0;
+        do {
+            int c = peek();
+            if (c == '{' || c == '[') {
+                position++;
+                depth++;
+            } else if (depth == 0 && (c == '}' || c == ']' || c == ',' || c == ':')) {
+                throw unexpected(c);
+            } else if (c == '}' || c == ']') {
+                position++;
+                depth--;
+            } else if (c == ',' || c == ':') {
+                position++;
+            } else {
+                readValue();
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Read the name of an object member and the following colon.
+     */
+    String readName() throws IOException
+    {
+        String name = readString();
+        if (name == null) {
+            throw new JsonException("Member name must not be null near offset " + (offset + position));
+        }
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Consume the separator after an element.
+     * 
+     * @return <b>true</b> if another element follows, <b>false</b> at the end.
+     */
+    boolean nextElement(char end) throws IOException
+    {
+        int c = peek();
+        position++;
+        if (c == ',') {
+            return true;
+        } else if (c == end) {
+            return false;
+        }
+        throw unexpected(c);
+    }
+
+    private void expect(char expected) throws IOException
+    {
+        int c = peek();
+        if (c != expected) {
+            throw unexpected(c);
+        }
+        position++;
+    }
+
+    /**
+     * Skip whitespace and get the next character without consuming it.
+     */
+    int peek() throws IOException
+    {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            position++;
+        }
+    }
+
+    private int read() throws IOException
+    {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException
+    {
+        offset += limit;
+        position = 0;
+        limit = Math.max(in.read(buffer), 0);
+        return limit > 0;
+    }
+
+    private JsonException unexpected(int c)
+    {
+        String found = c < 0 ? "end of input" : "character '" + (char)c + "'";
+        return new JsonException("Unexpected " + found + " near offset " + (offset + position));
+    }
+
+    /**
+     * Reads one element of a list.
+     */
+    @FunctionalInterface
+    private interface ElementReader<T>
+    {
+
+        T read() throws IOException;
+    }
+}
@@ -0,0 +1,718 @@
+package de.intension.halo.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.BaseStream;
+
+import javax.json.JsonException;
+
+import de.intension.halo.AccessorPlan;
+import de.intension.halo.Dates;
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.TemplateValues;
+import de.intension.halo.entity.Validation;
+import lombok.NonNull;
+
+/**
+ * Writes the HALO entity model as UTF-8 encoded JSON.
+ * <br/>
+ * <br/>
+ * The model is written field by field into a byte buffer that is passed to the target whenever it is full, so no
+ * intermediate tree or string is created. Fields with a value of <b>null</b> are skipped. {@link TemplateValues}
+ * are written like the merged template, without creating it.
+ * <br/>
+ * <br/>
+ * Values of other types are written as follows:
+ * <ul>
+ * <li>Strings, characters, enums, dates and {@code java.time} types as strings.
+ * <li>Numbers and booleans as JSON literals, infinite and NaN numbers as <b>null</b>.
+ * <li>Maps as objects, collections, iterators, streams and arrays as arrays.
+ * <li>Other objects as objects with their readable fields including inherited ones, see
+ * {@link AccessorPlan#ofBean(Class)}.
+ * </ul>
+ * Objects that contain themselves, like both sides of a bidirectional JPA association, and documents nested deeper
+ * than {@link #setMaxDepth(int)} are rejected with a {@link JsonException}.
+ * Iterators and streams are consumed lazily, one element at a time, and streams are closed afterwards. As the buffer is
+ * passed on whenever it is full, an {@link Entity} with a lazy sequence as data is written
+ * with constant memory, and a slow target slows down the production of the elements.
+ * Each call of {@link #write(Object)} writes one document, consecutive documents are separated by a line break.
+ * 
+ * <pre>
+ * try (HaloJsonWriter writer = new HaloJsonWriter(response.getOutputStream())) {
+ *     writer.write(entity);
+ * }
+ * </pre>
+ */
+public final class HaloJsonWriter implements Closeable, Flushable
+{
+
+    private static final int          BUFFER_SIZE  = 8192;
+    private static final byte[]       HEX          = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[]       NULL         = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[]       TRUE         = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[]       FALSE        = "false".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[]       NAME         = key("name");
+    private static final byte[]       DATA         = key("data");
+    private static final byte[]       MESSAGES     = key("messages");
+    private static final byte[]       LINKS        = key("links");
+    private static final byte[]       HREF         = key("href");
+    private static final byte[]       TITLE        = key("title");
+    private static final byte[]       TEMPLATES    = key("templates");
+    private static final byte[]       METHOD       = key("method");
+    private static final byte[]       CONTENT_TYPE = key("contentType");
+    private static final byte[]       PROPERTIES   = key("properties");
+    private static final byte[]       QUERY        = key("query");
+    private static final byte[]       VALUE        = key("value");
+    private static final byte[]       VALIDATIONS  = key("validations");
+    private static final byte[]       READ_ONLY    = key("readOnly");
+    private static final byte[]       TYPE         = key("type");
+    private static final byte[]       MULTIVALUED  = key("multivalued");
+    private static final byte[]       LINK         = key("link");
+    private static final byte[]       MESSAGE      = key("message");
+    private static final byte[]       PROPERTY     = key("property");
+    private static final byte[]       OP           = key("op");
+    private static final byte[]       PATH         = key("path");
+    private static final byte[]       FROM         = key("from");
+
+    private final OutputStream        out;
+    private final WritableByteChannel channel;
+    private final byte[]              buffer       = new byte[BUFFER_SIZE];
+    private int                       position;
+    private boolean[]                 separators   = new boolean[16];
+    private int                       depth;
+    private int                       maxDepth     = 64;
+    private Set<Object>               beans;
+    private boolean                   documents;
+    private FragmentCache             fragments;
+
+    /**
+     * Create a writer for a stream.
+     * 
+     * @param out Target of the UTF-8 encoded JSON, closed by {@link #close()}.
+     */
+    public HaloJsonWriter(@NonNull OutputStream out)
+    {
+        this.out = out;
+        this.channel = null;
+    }
+
+    /**
+     * Create a writer for a channel.
+     * 
+     * @param channel Target of the UTF-8 encoded JSON, closed by {@link #close()}.
+     */
+    public HaloJsonWriter(@NonNull WritableByteChannel channel)
+    {
+        this.out = null;
+        this.channel = channel;
+    }
+
+    /**
+     * Set the maximum nesting of objects and arrays.
+     * 
+     * @param maxDepth Maximum number of nested objects and arrays, default is 64.
+     * @return This writer.
+     */
+    public HaloJsonWriter setMaxDepth(int maxDepth)
+    {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Use pre-encoded templates instead of encoding them again.
+     * <br/>
+     * <br/>
+     * Cached fragments that do not fit into the remaining buffer are passed to a {@link GatheringByteChannel}
+     * together with the buffer in a single gathering write.
+     * 
+     * @param fragments Cache of encoded templates, may be <b>null</b>.
+     * @return This writer.
+     */
+    public HaloJsonWriter setFragments(FragmentCache fragments)
+    {
+        this.fragments = fragments;
+        return this;
+    }
+
+    private static byte[] key(String name)
+    {
+        return ('"' + name + "\":").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Write a value as one JSON document.
+     * 
+     * @param value HALO entity, link, template, property or any other value.
+     * @return This writer.
+     * @throws IOException If the target cannot be written.
+     * @throws JsonException If the value contains itself or is nested too deep.
+     */
+    public HaloJsonWriter write(Object value) throws IOException
+    {
+        if (documents) {
+            writeByte('\n');
+        }
+        documents = true;
+        depth = 0;
+        if (beans != null) {
+            beans.clear();
+        }
+        writeValue(value);
+        return this;
+    }
+
+    /**
+     * Pass all buffered bytes to the target and flush it.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        flushBuffer();
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Pass all buffered bytes to the target and close it.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try {
+            flush();
+        } finally {
+            if (out != null) {
+                out.close();
+            } else {
+                channel.close();
+            }
+        }
+    }
+
+    private void writeEntity(Entity entity) throws IOException
+    {
+        beginObject();
+        if (entity.getData() != null) {
+            name(DATA);
+            writeValue(entity.getData());
+        }
+        if (entity.getMessages() != null) {
+            name(MESSAGES);
+            beginArray();
+            for (Message message : entity.getMessages()) {
+                element();
+                writeMessage(message);
+            }
+            endArray();
+        }
+        if (entity.getLinks() != null) {
+            name(LINKS);
+            writeLinks(entity.getLinks());
+        }
+        endObject();
+    }
+
+    private void writeLinks(List<Link> links) throws IOException
+    {
+        beginArray();
+        for (Link link : links) {
+            element();
+            writeLink(link);
+        }
+        endArray();
+    }
+
+    private void writeLink(Link link) throws IOException
+    {
+        beginObject();
+        stringField(NAME, link.getName());
+        stringField(HREF, link.getHref());
+        translationsField(TITLE, link.getTitle());
+        if (link.getTemplates() != null) {
+            name(TEMPLATES);
+            beginArray();
+            for (Template template : link.getTemplates()) {
+                element();
+                writeTemplate(template, null);
+            }
+            endArray();
+        }
+        endObject();
+    }
+
+    /**
+     * Write a template, with the values of the properties taken from the given values if present.
+     */
+    private void writeTemplate(Template template, TemplateValues values) throws IOException
+    {
+        if (values == null && fragments != null) {
+            ByteBuffer fragment = fragments.get(template);
+            if (fragment != null) {
+                writeFragment(fragment);
+                return;
+            }
+        }
+        beginObject();
+        stringField(NAME, template.getName());
+        stringField(METHOD, template.getMethod());
+        translationsField(TITLE, template.getTitle());
+        stringField(CONTENT_TYPE, template.getContentType());
+        if (template.getProperties() != null) {
+            name(PROPERTIES);
+            beginArray();
+            List<Property> properties = template.getProperties();
+            for (int i = 0; i < properties.size(); i++) {
+                element();
+                Property property = properties.get(i);
+                writeProperty(property, values == null ? property.getValue() : values.getValue(i));
+            }
+            endArray();
+        }
+        booleanField(QUERY, template.getQuery());
+        endObject();
+    }
+
+    private void writeProperties(List<Property> properties) throws IOException
+    {
+        beginArray();
+        for (Property property : properties) {
+            element();
+            writeProperty(property, property.getValue());
+        }
+        endArray();
+    }
+
+    private void writeProperty(Property property, Object value) throws IOException
+    {
+        beginObject();
+        stringField(NAME, property.getName());
+        if (value != null) {
+            name(VALUE);
+            writeValue(value);
+        }
+        translationsField(TITLE, property.getTitle());
+        if (property.getValidations() != null) {
+            name(VALIDATIONS);
+            beginArray();
+            for (Validation validation : property.getValidations()) {
+                element();
+                writeValidation(validation);
+            }
+            endArray();
+        }
+        booleanField(READ_ONLY, property.getReadOnly());
+        if (property.getType() != null) {
+            name(TYPE);
+            writeString(property.getType().name());
+        }
+        booleanField(MULTIVALUED, property.getMultivalued());
+        if (property.getProperties() != null) {
+            name(PROPERTIES);
+            writeProperties(property.getProperties());
+        }
+        if (property.getLink() != null) {
+            name(LINK);
+            writeLink(property.getLink());
+        }
+        endObject();
+    }
+
+    private void writeValidation(Validation validation) throws IOException
+    {
+        beginObject();
+        stringField(NAME, validation.getName());
+        if (validation.getValue() != null) {
+            name(VALUE);
+            writeValue(validation.getValue());
+        }
+        translationsField(MESSAGE, validation.getMessage());
+        endObject();
+    }
+
+    private void writeMessage(Message message) throws IOException
+    {
+        beginObject();
+        stringField(NAME, message.getName());
+        stringField(PROPERTY, message.getProperty());
+        translationsField(VALUE, message.getValue());
+        endObject();
+    }
+
+    /**
+     * Write a patch operation, the value is written even if it is <b>null</b> for operations that require it.
+     */
+    private void writePatchOperation(PatchOperation operation) throws IOException
+    {
+        beginObject();
+        stringField(OP, operation.getOp());
+        stringField(PATH, operation.getPath());
+        stringField(FROM, operation.getFrom());
+        String op = operation.getOp();
+        if (operation.getValue() != null || "add".equals(op) || "replace".equals(op) || "test".equals(op)) {
+            name(VALUE);
+            writeValue(operation.getValue());
+        }
+        endObject();
+    }
+
+    private void writeValue(Object value) throws IOException
+    {
+        if (value == null) {
+            writeBytes(NULL);
+        } else if (value instanceof String) {
+            writeString((String)value);
+        } else if (value instanceof Boolean) {
+            writeBytes((Boolean)value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger || value instanceof BigDecimal) {
+            writeAscii(value.toString());
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number)value).doubleValue();
+            writeAscii(Double.isNaN(number) || Double.isInfinite(number) ? "null" : value.toString());
+        } else if (value instanceof Number) {
+            writeAscii(value.toString());
+        } else if (value instanceof CharSequence || value instanceof Character) {
+            writeString(value.toString());
+        } else if (value instanceof Enum) {
+            writeString(((Enum<?>)value).name());
+        } else if (value instanceof Date) {
+            writeString(Dates.format((Date)value));
+        } else if (value instanceof Entity) {
+            writeEntity((Entity)value);
+        } else if (value instanceof Link) {
+            writeLink((Link)value);
+        } else if (value instanceof Template) {
+            writeTemplate((Template)value, null);
+        } else if (value instanceof TemplateValues) {
+            writeTemplate(((TemplateValues)value).getTemplate(), (TemplateValues)value);
+        } else if (value instanceof Property) {
+            writeProperty((Property)value, ((Property)value).getValue());
+        } else if (value instanceof Validation) {
+            writeValidation((Validation)value);
+        } else if (value instanceof Message) {
+            writeMessage((Message)value);
+        } else if (value instanceof PatchOperation) {
+            writePatchOperation((PatchOperation)value);
+        } else if (value instanceof Map) {
+            writeMap((Map<?, ?>)value);
+        } else if (value instanceof Iterable) {
+            writeElements(((Iterable<?>)value).iterator());
+        } else if (value instanceof Iterator) {
+            writeElements((Iterator<?>)value);
+        } else if (value instanceof BaseStream) {
+            try (BaseStream<?, ?> stream = (BaseStream<?, ?>)value) {
+                writeElements(stream.iterator());
+            }
+        } else if (value.getClass().isArray()) {
+            beginArray();
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                element();
+                writeValue(Array.get(value, i));
+            }
+            endArray();
+        } else if (value.getClass().getName().startsWith("java.")) {
+            writeString(value.toString());
+        } else {
+            writeBean(value);
+        }
+    }
+
+    /**
+     * Write elements as array, each element is requested only after the previous one was written.
+     */
+    private void writeElements(Iterator<?> elements) throws IOException
+    {
+        beginArray();
+        while (elements.hasNext()) {
+            element();
+            writeValue(elements.next());
+        }
+        endArray();
+    }
+
+    private void writeMap(Map<?, ?> map) throws IOException
+    {
+        beginObject();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                element();
+                writeString(String.valueOf(entry.getKey()));
+                writeByte(':');
+                writeValue(entry.getValue());
+            }
+        }
+        endObject();
+    }
+
+    private void writeBean(Object bean) throws IOException
+    {
+        if (beans == null) {
+            beans = Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+        if (!beans.add(bean)) {
+            throw new JsonException("Cannot write " + bean.getClass().getName() + ", it contains itself");
+        }
+        AccessorPlan accessors = AccessorPlan.ofBean(bean.getClass());
+        beginObject();
+        for (int i = 0; i < accessors.size(); i++) {
+            if (accessors.isReadable(i)) {
+                Object value = accessors.get(bean, i);
+                if (value != null) {
+                    element();
+                    writeString(accessors.getName(i));
+                    writeByte(':');
+                    writeValue(value);
+                }
+            }
+        }
+        endObject();
+        beans.remove(bean);
+    }
+
+    private void stringField(byte[] key, String value) throws IOException
+    {
+        if (value != null) {
+            name(key);
+            writeString(value);
+        }
+    }
+
+    private void booleanField(byte[] key, Boolean value) throws IOException
+    {
+        if (value != null) {
+            name(key);
+            writeBytes(value ? TRUE : FALSE);
+        }
+    }
+
+    private void translationsField(byte[] key, Map<String, String> translations) throws IOException
+    {
+        if (translations != null) {
+            name(key);
+            writeMap(translations);
+        }
+    }
+
+    private void beginObject() throws IOException
+    {
+        writeByte('{');
+        push();
+    }
+
+    private void endObject() throws IOException
+    {
+        depth--;
+        writeByte('}');
+    }
+
+    private void beginArray() throws IOException
+    {
+        writeByte('[');
+        push();
+    }
+
+    private void endArray() throws IOException
+    {
+        depth--;
+        writeByte(']');
+    }
+
+    private void push()
+    {
+        if (++depth > maxDepth) {
+            throw new JsonException("Value is nested deeper than " + maxDepth + " levels");
+        }
+        if (depth == separators.length) {
+            separators = Arrays.copyOf(separators, depth * 2);
+        }
+        separators[depth] = false;
+    }
+
+    /**
+     * Write the separator before an element of the current object or array.
+     */
+    private void element() throws IOException
+    {
+        if (separators[depth]) {
+            writeByte(',');
+        } else {
+            separators[depth] = true;
+        }
+    }
+
+    private void name(byte[] key) throws IOException
+    {
+        element();
+        writeBytes(key);
+    }
+
+    private void writeString(String value) throws IOException
+    {
+        writeByte('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (buffer.length - position < 12) {
+                flushBuffer();
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c < 0x20 || c == '"' || c == '\\') {
+                    escape(c);
+                } else {
+                    buffer[position++] = (byte)c;
+                }
+            } else if (c < 0x800) {
+                buffer[position++] = (byte)(0xc0 | c >> 6);
+                buffer[position++] = (byte)(0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte)(0xf0 | codePoint >> 18);
+                buffer[position++] = (byte)(0x80 | codePoint >> 12 & 0x3f);
+                buffer[position++] = (byte)(0x80 | codePoint >> 6 & 0x3f);
+                buffer[position++] = (byte)(0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                escape(c);
+            } else {
+                buffer[position++] = (byte)(0xe0 | c >> 12);
+                buffer[position++] = (byte)(0x80 | c >> 6 & 0x3f);
+                buffer[position++] = (byte)(0x80 | c & 0x3f);
+            }
+        }
+        writeByte('"');
+    }
+
+    /**
+     * Escape a character, the buffer must have room for six bytes.
+     */
+    private void escape(char c)
+    {
+        buffer[position++] = '\\';
+        switch (c) {
+            case '"':
+            case '\\':
+                buffer[position++] = (byte)c;
+                return;
+            case '\n':
+                buffer[position++] = 'n';
+                return;
+            case '\r':
+                buffer[position++] = 'r';
+                return;
+            case '\t':
+                buffer[position++] = 't';
+                return;
+            case '\b':
+                buffer[position++] = 'b';
+                return;
+            case '\f':
+                buffer[position++] = 'f';
+                return;
+            default:
+                buffer[position++] = 'u';
+                buffer[position++] = HEX[c >> 12 & 0xf];
+                buffer[position++] = HEX[c >> 8 & 0xf];
+                buffer[position++] = HEX[c >> 4 & 0xf];
+                buffer[position++] = HEX[c & 0xf];
+        }
+    }
+
+    private void writeAscii(String value) throws IOException
+    {
+        for (int i = 0; i < value.length(); i++) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            buffer[position++] = (byte)value.charAt(i);
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException
+    {
+        if (buffer.length - position < bytes.length) {
+            flushBuffer();
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeByte(char c) throws IOException
+    {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte)c;
+    }
+
+    /**
+     * Write encoded bytes, copying them into the buffer only if they fit.
+     */
+    private void writeFragment(ByteBuffer fragment) throws IOException
+    {
+        int length = fragment.remaining();
+        if (length <= buffer.length - position) {
+            fragment.get(buffer, position, length);
+            position += length;
+        } else if (channel instanceof GatheringByteChannel) {
+            ByteBuffer[] buffers = {ByteBuffer.wrap(buffer, 0, position), fragment};
+            while (fragment.hasRemaining()) {
+                ((GatheringByteChannel)channel).write(buffers);
+            }
+            position = 0;
+        } else if (channel != null) {
+            flushBuffer();
+            while (fragment.hasRemaining()) {
+                channel.write(fragment);
+            }
+        } else {
+            while (fragment.hasRemaining()) {
+                if (position == buffer.length) {
+                    flushBuffer();
+                }
+                int chunk = Math.min(fragment.remaining(), buffer.length - position);
+                fragment.get(buffer, position, chunk);
+                position += chunk;
+            }
+        }
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        if (position == 0) {
+            return;
+        }
+        if (out != null) {
+            out.write(buffer, 0, position);
+        } else {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, position);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+        position = 0;
+    }
+}
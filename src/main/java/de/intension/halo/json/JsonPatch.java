@@ -0,0 +1,510 @@
+package de.intension.halo.json;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.BaseStream;
+
+import javax.json.JsonException;
+
+import de.intension.halo.AccessorPlan;
+import de.intension.halo.Dates;
+import de.intension.halo.entity.TemplateValues;
+import lombok.NonNull;
+
+/**
+ * Structural diff of HALO documents as JSON Patch, as defined in
+ * [<a href="https://tools.ietf.org/html/rfc6902">RFC6902</a>].
+ * <br/>
+ * <br/>
+ * Documents are compared in the form written by {@link HaloJsonWriter}, so paths use the JSON field names. Elements of
+ * lists whose elements all have a distinct {@code name}, like links, templates and properties, are matched by name and
+ * compared recursively, other lists are compared by position. Each node of both documents is visited once, so a diff
+ * takes linear time and no subtree is compared as a whole.
+ * 
+ * <pre>
+ * List&lt;PatchOperation&gt; patch = JsonPatch.diff(previous, current);
+ * Entity updated = JsonPatch.apply(previous, patch);
+ * </pre>
+ */
+public final class JsonPatch
+{
+
+    private static final String ADD     = "add";
+    private static final String REMOVE  = "remove";
+    private static final String REPLACE = "replace";
+
+    private JsonPatch()
+    {
+    }
+
+    /**
+     * Create the operations that turn one document into another.
+     * 
+     * @param source Previous document, like an {@link de.intension.halo.entity.Entity}, a template or any value.
+     * @param target Current document.
+     * @return Operations with values in the form read by {@link HaloJsonReader#readValue()}, empty if the documents
+     *         are equal.
+     */
+    public static List<PatchOperation> diff(Object source, Object target)
+    {
+        List<PatchOperation> operations = new ArrayList<>();
+        diff(toTree(source), toTree(target), "", operations);
+        return operations;
+    }
+
+    /**
+     * Apply operations to a document.
+     * <br/>
+     * <br/>
+     * The given document is not modified. The operations are applied to a copy, which is converted back to the class of
+     * the document, so applying to a HALO entity returns a new entity. Values without a class in the model, like
+     * {@link de.intension.halo.entity.Entity#getData()}, are maps and lists afterwards.
+     * 
+     * @param document Document to patch, not a {@link TemplateValues}.
+     * @param operations Operations to apply in order.
+     * @param <T> Class of the document.
+     * @return Patched copy of the document.
+     * @throws JsonException If an operation is invalid, its location does not exist or a test fails.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T apply(T document, @NonNull List<PatchOperation> operations)
+    {
+        if (document instanceof TemplateValues) {
+            throw new IllegalArgumentException("Template values cannot be patched, use TemplateValues.toTemplate().");
+        }
+        Object[] root = {toTree(document)};
+        for (PatchOperation operation : operations) {
+            apply(root, operation);
+        }
+        if (document == null || isTree(document)) {
+            return (T)root[0];
+        }
+        return (T)fromTree(root[0], document.getClass());
+    }
+
+    private static void diff(Object source, Object target, String path, List<PatchOperation> operations)
+    {
+        if (source instanceof Map && target instanceof Map) {
+            diffMap((Map<?, ?>)source, (Map<?, ?>)target, path, operations);
+        } else if (source instanceof List && target instanceof List) {
+            diffList((List<?>)source, (List<?>)target, path, operations);
+        } else if (!equal(source, target)) {
+            operations.add(new PatchOperation(REPLACE, path).setValue(target));
+        }
+    }
+
+    private static void diffMap(Map<?, ?> source, Map<?, ?> target, String path, List<PatchOperation> operations)
+    {
+        for (Object key : source.keySet()) {
+            if (!target.containsKey(key)) {
+                operations.add(new PatchOperation(REMOVE, path + "/" + escape(key.toString())));
+            }
+        }
+        for (Map.Entry<?, ?> entry : target.entrySet()) {
+            String child = path + "/" + escape(entry.getKey().toString());
+            if (source.containsKey(entry.getKey())) {
+                diff(source.get(entry.getKey()), entry.getValue(), child, operations);
+            } else {
+                operations.add(new PatchOperation(ADD, child).setValue(entry.getValue()));
+            }
+        }
+    }
+
+    private static void diffList(List<?> source, List<?> target, String path, List<PatchOperation> operations)
+    {
+        Map<String, Integer> sourceNames = names(source);
+        Map<String, Integer> targetNames = sourceNames == null ? null : names(target);
+        if (targetNames == null) {
+            diffPositions(source, target, path, operations);
+            return;
+        }
+        Iterator<String> order = commonNames(source, targetNames).iterator();
+        for (String name : commonNames(target, sourceNames)) {
+            if (!name.equals(order.next())) {
+                operations.add(new PatchOperation(REPLACE, path).setValue(target));
+                return;
+            }
+        }
+        for (int i = source.size() - 1; i >= 0; i--) {
+            if (!targetNames.containsKey(name(source.get(i)))) {
+                operations.add(new PatchOperation(REMOVE, path + "/" + i));
+            }
+        }
+        for (int i = 0; i < target.size(); i++) {
+            Integer previous = sourceNames.get(name(target.get(i)));
+            if (previous == null) {
+                operations.add(new PatchOperation(ADD, path + "/" + i).setValue(target.get(i)));
+            } else {
+                diff(source.get(previous), target.get(i), path + "/" + i, operations);
+            }
+        }
+    }
+
+    private static void diffPositions(List<?> source, List<?> target, String path, List<PatchOperation> operations)
+    {
+        int common = Math.min(source.size(), target.size());
+        for (int i = 0; i < common; i++) {
+            diff(source.get(i), target.get(i), path + "/" + i, operations);
+        }
+        for (int i = source.size() - 1; i >= common; i--) {
+            operations.add(new PatchOperation(REMOVE, path + "/" + i));
+        }
+        for (int i = common; i < target.size(); i++) {
+            operations.add(new PatchOperation(ADD, path + "/" + i).setValue(target.get(i)));
+        }
+    }
+
+    /**
+     * Get the positions of named elements.
+     * 
+     * @return Position by name or <b>null</b> if an element has no name or a name is not unique.
+     */
+    private static Map<String, Integer> names(List<?> list)
+    {
+        Map<String, Integer> names = new HashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            String name = name(list.get(i));
+            if (name == null || names.put(name, i) != null) {
+                return null;
+            }
+        }
+        return names;
+    }
+
+    private static String name(Object element)
+    {
+        Object name = element instanceof Map ? ((Map<?, ?>)element).get("name") : null;
+        return name instanceof String ? (String)name : null;
+    }
+
+    private static List<String> commonNames(List<?> list, Map<String, Integer> others)
+    {
+        List<String> common = new ArrayList<>();
+        for (Object element : list) {
+            if (others.containsKey(name(element))) {
+                common.add(name(element));
+            }
+        }
+        return common;
+    }
+
+    private static void apply(Object[] root, PatchOperation operation)
+    {
+        String path = operation.getPath();
+        switch (operation.getOp()) {
+            case ADD:
+                add(root, path, toTree(operation.getValue()));
+                break;
+            case REMOVE:
+                remove(root, path);
+                break;
+            case REPLACE:
+                remove(root, path);
+                add(root, path, toTree(operation.getValue()));
+                break;
+            case "move":
+                String from = from(operation);
+                if (path.startsWith(from + "/")) {
+                    throw new JsonException("Cannot move '" + from + "' into its own child '" + path + "'");
+                }
+                add(root, path, remove(root, from));
+                break;
+            case "copy":
+                add(root, path, toTree(get(root, from(operation))));
+                break;
+            case "test":
+                if (!equal(get(root, path), toTree(operation.getValue()))) {
+                    throw new JsonException("Test failed at '" + path + "'");
+                }
+                break;
+            default:
+                throw new JsonException("Unknown operation '" + operation.getOp() + "'");
+        }
+    }
+
+    private static String from(PatchOperation operation)
+    {
+        if (operation.getFrom() == null) {
+            throw new JsonException("Operation '" + operation.getOp() + "' requires 'from'");
+        }
+        return operation.getFrom();
+    }
+
+    private static Object get(Object[] root, String path)
+    {
+        Object node = root[0];
+        for (String token : tokens(path)) {
+            node = child(node, token, path);
+        }
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(Object[] root, String path, Object value)
+    {
+        if (path.isEmpty()) {
+            root[0] = value;
+            return;
+        }
+        int last = path.lastIndexOf('/');
+        Object parent = get(root, path.substring(0, last));
+        String token = unescape(path.substring(last + 1));
+        if (parent instanceof Map) {
+            ((Map<String, Object>)parent).put(token, value);
+        } else if (parent instanceof List) {
+            List<Object> list = (List<Object>)parent;
+            list.add("-".equals(token) ? list.size() : index(token, list.size() + 1, path), value);
+        } else {
+            throw new JsonException("Path '" + path + "' does not exist");
+        }
+    }
+
+    private static Object remove(Object[] root, String path)
+    {
+        if (path.isEmpty()) {
+            Object removed = root[0];
+            root[0] = null;
+            return removed;
+        }
+        int last = path.lastIndexOf('/');
+        Object parent = get(root, path.substring(0, last));
+        String token = unescape(path.substring(last + 1));
+        child(parent, token, path);
+        if (parent instanceof Map) {
+            return ((Map<?, ?>)parent).remove(token);
+        }
+        return ((List<?>)parent).remove(index(token, ((List<?>)parent).size(), path));
+    }
+
+    private static Object child(Object node, String token, String path)
+    {
+        if (node instanceof Map && ((Map<?, ?>)node).containsKey(token)) {
+            return ((Map<?, ?>)node).get(token);
+        } else if (node instanceof List) {
+            return ((List<?>)node).get(index(token, ((List<?>)node).size(), path));
+        }
+        throw new JsonException("Path '" + path + "' does not exist");
+    }
+
+    private static int index(String token, int size, String path)
+    {
+        try {
+            int index = Integer.parseInt(token);
+            if (index >= 0 && index < size && (token.length() == 1 || token.charAt(0) != '0')) {
+                return index;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new JsonException("Path '" + path + "' does not exist");
+    }
+
+    private static List<String> tokens(String path)
+    {
+        List<String> tokens = new ArrayList<>();
+        if (path.isEmpty()) {
+            return tokens;
+        }
+        if (path.charAt(0) != '/') {
+            throw new JsonException("Invalid JSON Pointer '" + path + "'");
+        }
+        for (String token : path.substring(1).split("/", -1)) {
+            tokens.add(unescape(token));
+        }
+        return tokens;
+    }
+
+    private static String escape(String token)
+    {
+        return token.indexOf('~') < 0 && token.indexOf('/') < 0 ? token : token.replace("~", "~0").replace("/", "~1");
+    }
+
+    private static String unescape(String token)
+    {
+        return token.indexOf('~') < 0 ? token : token.replace("~1", "/").replace("~0", "~");
+    }
+
+    /**
+     * Compare JSON values, numbers are equal if they have the same value regardless of their class.
+     */
+    private static boolean equal(Object a, Object b)
+    {
+        if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) {
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString())) == 0;
+        }
+        if (a instanceof Map && b instanceof Map) {
+            Map<?, ?> left = (Map<?, ?>)a;
+            Map<?, ?> right = (Map<?, ?>)b;
+            if (left.size() != right.size()) {
+                return false;
+            }
+            for (Map.Entry<?, ?> entry : left.entrySet()) {
+                if (!right.containsKey(entry.getKey()) || !equal(entry.getValue(), right.get(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof List && b instanceof List) {
+            List<?> left = (List<?>)a;
+            List<?> right = (List<?>)b;
+            if (left.size() != right.size()) {
+                return false;
+            }
+            for (int i = 0; i < left.size(); i++) {
+                if (!equal(left.get(i), right.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static boolean isTree(Object value)
+    {
+        return value instanceof Map || value instanceof List || value instanceof String || value instanceof Number
+                || value instanceof Boolean;
+    }
+
+    /**
+     * Convert a value to maps, lists, strings, numbers and booleans like {@link HaloJsonWriter} writes it.
+     * Maps and lists are always new instances.
+     */
+    static Object toTree(Object value)
+    {
+        if (value == null || value instanceof String || value instanceof Boolean) {
+            return value;
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number)value).doubleValue();
+            return Double.isNaN(number) || Double.isInfinite(number) ? null : value;
+        } else if (value instanceof Number) {
+            return value;
+        } else if (value instanceof CharSequence || value instanceof Character) {
+            return value.toString();
+        } else if (value instanceof Enum) {
+            return ((Enum<?>)value).name();
+        } else if (value instanceof Date) {
+            return Dates.format((Date)value);
+        } else if (value instanceof TemplateValues) {
+            return toTree(((TemplateValues)value).toTemplate());
+        } else if (value instanceof Map) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                if (entry.getValue() != null) {
+                    map.put(String.valueOf(entry.getKey()), toTree(entry.getValue()));
+                }
+            }
+            return map;
+        } else if (value instanceof Iterable) {
+            return toList(((Iterable<?>)value).iterator());
+        } else if (value instanceof Iterator) {
+            return toList((Iterator<?>)value);
+        } else if (value instanceof BaseStream) {
+            try (BaseStream<?, ?> stream = (BaseStream<?, ?>)value) {
+                return toList(stream.iterator());
+            }
+        } else if (value.getClass().isArray()) {
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                list.add(toTree(Array.get(value, i)));
+            }
+            return list;
+        } else if (value.getClass().getName().startsWith("java.")) {
+            return value.toString();
+        }
+        AccessorPlan accessors = AccessorPlan.ofBean(value.getClass());
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < accessors.size(); i++) {
+            Object field = accessors.isReadable(i) ? accessors.get(value, i) : null;
+            if (field != null) {
+                map.put(accessors.getName(i), toTree(field));
+            }
+        }
+        return map;
+    }
+
+    private static List<Object> toList(Iterator<?> elements)
+    {
+        List<Object> list = new ArrayList<>();
+        while (elements.hasNext()) {
+            list.add(toTree(elements.next()));
+        }
+        return list;
+    }
+
+    /**
+     * Convert maps and lists to the declared type of a field, the reverse of {@link #toTree(Object)}.
+     */
+    private static Object fromTree(Object tree, Type type)
+    {
+        Class<?> rawType = rawType(type);
+        if (tree == null || rawType.isInstance(tree) && !(tree instanceof Map) && !(tree instanceof List)) {
+            return tree;
+        }
+        if (tree instanceof List && (Collection.class.isAssignableFrom(rawType) || rawType == Object.class)) {
+            Type elementType = typeArgument(type, 0);
+            List<Object> list = new ArrayList<>(((List<?>)tree).size());
+            for (Object element : (List<?>)tree) {
+                list.add(fromTree(element, elementType));
+            }
+            return Set.class.isAssignableFrom(rawType) ? new HashSet<>(list) : list;
+        }
+        if (tree instanceof Map && (Map.class.isAssignableFrom(rawType) || rawType == Object.class)) {
+            Type valueType = typeArgument(type, 1);
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)tree).entrySet()) {
+                map.put(entry.getKey().toString(), fromTree(entry.getValue(), valueType));
+            }
+            return map;
+        }
+        if (tree instanceof Map) {
+            AccessorPlan accessors = AccessorPlan.ofBean(rawType);
+            Object bean = accessors.newInstance();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)tree).entrySet()) {
+                int index = accessors.indexOf(entry.getKey().toString());
+                if (index >= 0 && accessors.isWritable(index) && entry.getValue() != null) {
+                    accessors.set(bean, index, fromTree(entry.getValue(), accessors.getGenericType(index)));
+                }
+            }
+            return bean;
+        }
+        Object converted = tree instanceof List ? null : PayloadReader.convert(tree, rawType);
+        if (converted == null) {
+            throw new JsonException("Cannot convert " + tree + " to " + rawType.getName());
+        }
+        return converted;
+    }
+
+    private static Class<?> rawType(Type type)
+    {
+        if (type instanceof Class) {
+            return (Class<?>)type;
+        }
+        if (type instanceof ParameterizedType) {
+            return rawType(((ParameterizedType)type).getRawType());
+        }
+        return Object.class;
+    }
+
+    private static Type typeArgument(Type type, int index)
+    {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType)type).getActualTypeArguments();
+            return index < arguments.length ? arguments[index] : Object.class;
+        }
+        return Object.class;
+    }
+}
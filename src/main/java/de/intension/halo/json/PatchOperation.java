@@ -0,0 +1,50 @@
+package de.intension.halo.json;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * A single operation of a JSON Patch as defined in [<a href="https://tools.ietf.org/html/rfc6902">RFC6902</a>].
+ */
+@Data
+@Accessors(chain = true)
+@NoArgsConstructor
+@RequiredArgsConstructor
+public class PatchOperation
+{
+
+    /**
+     * Name of the operation.
+     * 
+     * @param op Set one of {@code add}, {@code remove}, {@code replace}, {@code move}, {@code copy} or {@code test}.
+     * @return Name of the operation.
+     */
+    @NonNull
+    private String op;
+    /**
+     * JSON Pointer to the target location, as defined in
+     * [<a href="https://tools.ietf.org/html/rfc6901">RFC6901</a>].
+     * 
+     * @param path Set pointer to the target location.
+     * @return Pointer to the target location.
+     */
+    @NonNull
+    private String path;
+    /**
+     * JSON Pointer to the source location of {@code move} and {@code copy}.
+     * 
+     * @param from Set pointer to the source location.
+     * @return Pointer to the source location.
+     */
+    private String from;
+    /**
+     * Value of {@code add}, {@code replace} and {@code test}, may be <b>null</b> for the JSON value null.
+     * 
+     * @param value Set value of the operation.
+     * @return Value of the operation.
+     */
+    private Object value;
+}
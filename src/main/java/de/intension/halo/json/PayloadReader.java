@@ -0,0 +1,578 @@
+package de.intension.halo.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.json.JsonException;
+
+import de.intension.halo.AccessorPlan;
+import de.intension.halo.TemplateValidator;
+import de.intension.halo.TemplateValidator.PropertyCheck;
+import de.intension.halo.entity.DataType;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Template;
+import lombok.NonNull;
+
+/**
+ * Reads a JSON payload of a form described by a {@link Template} directly into an object.
+ * <br/>
+ * <br/>
+ * Each property value is validated with the compiled validations of the template as soon as it is read and bound to
+ * the field of the same name through its setter, see {@link AccessorPlan}. Multivalued properties are bound as the
+ * list, set or array the field declares, their elements as the first type argument like
+ * {@link de.intension.halo.hibernate.HibernateTemplateBuilder} reads it. Values of unknown and read-only properties
+ * are skipped without being kept. Reading stops as soon as the maximum number of errors is reached, and a payload that
+ * exceeds the maximum size is rejected while it is read, so neither large nor malicious bodies are buffered.
+ * <br/>
+ * <br/>
+ * A reader is immutable once configured and can be shared by any number of threads.
+ * 
+ * <pre>
+ * PayloadReader&lt;Car&gt; reader = new PayloadReader&lt;&gt;(builder.buildSchema(Car.class), Car.class).setMaxErrors(10);
+ * List&lt;Message&gt; messages = new ArrayList&lt;&gt;();
+ * Car car = reader.read(request.getInputStream(), messages);
+ * if (car == null) {
+ *     messages.forEach(entity::addMessage);
+ * }
+ * </pre>
+ * 
+ * @param <T> Class the payload is bound to.
+ */
+public final class PayloadReader<T>
+{
+
+    private static final Abort ABORT     = new Abort();
+
+    private final Binding      binding;
+    private int                maxErrors = 10;
+    private long               maxBytes  = 1024 * 1024;
+    private int                maxDepth  = 32;
+
+    /**
+     * Compile a reader for a template.
+     * 
+     * @param template Template of the form, usually the shared schema of the builder.
+     * @param type Class the payload is bound to, needs a constructor without parameters.
+     */
+    public PayloadReader(@NonNull Template template, @NonNull Class<T> type)
+    {
+        this.binding = new Binding(TemplateValidator.compile(template), type);
+    }
+
+    /**
+     * Set the number of errors after which reading stops.
+     * 
+     * @param maxErrors Maximum number of messages per payload, default is 10.
+     * @return This reader.
+     */
+    public PayloadReader<T> setMaxErrors(int maxErrors)
+    {
+        this.maxErrors = Math.max(maxErrors, 1);
+        return this;
+    }
+
+    /**
+     * Set the maximum size of a payload.
+     * 
+     * @param maxBytes Maximum number of bytes read per payload, default is 1 MiB.
+     * @return This reader.
+     */
+    public PayloadReader<T> setMaxBytes(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Set the maximum nesting of values without properties, like values of {@link Map} fields.
+     * 
+     * @param maxDepth Maximum number of nested objects and arrays, default is 32.
+     * @return This reader.
+     */
+    public PayloadReader<T> setMaxDepth(int maxDepth)
+    {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Read a payload.
+     * 
+     * @param json UTF-8 encoded JSON.
+     * @param messages Receives the messages of failed validations, see {@link TemplateValidator#validate(Map)}.
+     * @return Bound object or <b>null</b> if the payload is <b>null</b> or a validation failed.
+     * @throws JsonException If the payload is malformed, too large or too deeply nested.
+     */
+    public T read(@NonNull byte[] json, @NonNull List<Message> messages)
+    {
+        try {
+            return read(new ByteArrayInputStream(json), messages);
+        } catch (IOException e) {
+            throw new JsonException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read a payload.
+     * 
+     * @param in Source of the UTF-8 encoded JSON, is not closed. Reading stops at the end of the payload or at the
+     *            first error that exceeds the maximum number of errors.
+     * @param messages Receives the messages of failed validations, see {@link TemplateValidator#validate(Map)}.
+     * @return Bound object or <b>null</b> if the payload is <b>null</b> or a validation failed.
+     * @throws IOException If the source cannot be read.
+     * @throws JsonException If the payload is malformed, too large or too deeply nested.
+     */
+    @SuppressWarnings("unchecked")
+    public T read(@NonNull InputStream in, @NonNull List<Message> messages) throws IOException
+    {
+        HaloJsonReader json = new HaloJsonReader(new LimitedInputStream(in, maxBytes));
+        Session session = new Session(json, messages, messages.size() + maxErrors);
+        try {
+            if (json.readNull()) {
+                return null;
+            }
+            if (json.peek() != '{') {
+                messages.add(new Message().setName("type"));
+                return null;
+            }
+            Object value = session.readObject(binding, null);
+            return session.failed() ? null : (T)value;
+        } catch (Abort e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compiled mapping of the properties of a template to the fields of a class.
+     */
+    private static final class Binding
+    {
+
+        private final AccessorPlan         plan;
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final PropertyCheck[]      checks;
+        private final int[]                fields;
+        private final Class<?>[]           types;
+        private final Class<?>[]           containers;
+        private final Binding[]            nested;
+
+        Binding(TemplateValidator validator, Class<?> type)
+        {
+            this.plan = Map.class.isAssignableFrom(type) || type == Object.class ? null : AccessorPlan.of(type);
+            List<PropertyCheck> properties = validator.getChecks();
+            int size = properties.size();
+            checks = properties.toArray(new PropertyCheck[size]);
+            fields = new int[size];
+            types = new Class<?>[size];
+            containers = new Class<?>[size];
+            nested = new Binding[size];
+            for (int i = 0; i < size; i++) {
+                PropertyCheck check = checks[i];
+                slots.put(check.getName(), i);
+                fields[i] = plan == null ? -1 : plan.indexOf(check.getName());
+                Type fieldType = fields[i] < 0 ? Object.class : plan.getGenericType(fields[i]);
+                types[i] = rawType(check.isMultivalued() ? elementType(fieldType) : fieldType);
+                containers[i] = check.isMultivalued() ? rawType(fieldType) : null;
+                if (check.getNested() != null) {
+                    nested[i] = new Binding(check.getNested(), types[i]);
+                }
+            }
+        }
+
+        Object newInstance()
+        {
+            return plan == null ? new LinkedHashMap<String, Object>() : plan.newInstance();
+        }
+
+        @SuppressWarnings("unchecked")
+        void set(Object bean, int slot, Object value)
+        {
+            if (plan == null) {
+                ((Map<String, Object>)bean).put(checks[slot].getName(), value);
+            } else if (fields[slot] >= 0 && (value != null || !types[slot].isPrimitive())) {
+                try {
+                    plan.set(bean, fields[slot], value);
+                } catch (ClassCastException e) {
+                    throw new JsonException("Cannot bind " + checks[slot].getName() + " of " + plan.getType().getName(),
+                                            e);
+                }
+            }
+        }
+
+        /**
+         * Collect the elements of a multivalued property into the type of its field.
+         * 
+         * @return Collection or array, <b>null</b> if the field has another type.
+         */
+        Object collect(int slot, List<Object> elements)
+        {
+            Class<?> container = containers[slot];
+            if (container == null || container.isAssignableFrom(ArrayList.class)) {
+                return elements;
+            }
+            if (container.isAssignableFrom(LinkedHashSet.class)) {
+                return new LinkedHashSet<>(elements);
+            }
+            if (container.isAssignableFrom(TreeSet.class) && !elements.contains(null)) {
+                try {
+                    return new TreeSet<>(elements);
+                } catch (ClassCastException e) {
+                    return null;
+                }
+            }
+            if (container.isArray()) {
+                Object array = Array.newInstance(container.getComponentType(), elements.size());
+                for (int i = 0; i < elements.size(); i++) {
+                    Object element = elements.get(i);
+                    if (element != null || !container.getComponentType().isPrimitive()) {
+                        Array.set(array, i, element);
+                    }
+                }
+                return array;
+            }
+            return null;
+        }
+
+        /**
+         * Type of the elements of a multivalued field, the first type argument like
+         * {@link de.intension.halo.hibernate.HibernateTemplateBuilder} uses it.
+         */
+        private static Type elementType(Type type)
+        {
+            if (type instanceof ParameterizedType) {
+                return ((ParameterizedType)type).getActualTypeArguments()[0];
+            }
+            if (type instanceof Class && ((Class<?>)type).isArray()) {
+                return ((Class<?>)type).getComponentType();
+            }
+            return Object.class;
+        }
+
+        private static Class<?> rawType(Type type)
+        {
+            if (type instanceof Class) {
+                return (Class<?>)type;
+            }
+            if (type instanceof ParameterizedType) {
+                return rawType(((ParameterizedType)type).getRawType());
+            }
+            return Object.class;
+        }
+    }
+
+    /**
+     * State of reading a single payload.
+     */
+    private final class Session
+    {
+
+        private final HaloJsonReader json;
+        private final List<Message>  messages;
+        private final int            limit;
+        private final int            start;
+
+        Session(HaloJsonReader json, List<Message> messages, int limit)
+        {
+            this.json = json;
+            this.messages = messages;
+            this.limit = limit;
+            this.start = messages.size();
+        }
+
+        boolean failed()
+        {
+            return messages.size() > start;
+        }
+
+        /**
+         * Read an object of a template and bind it, the object start is the next token.
+         * 
+         * @param prefix Path of the object followed by a dot, <b>null</b> for the compiled paths.
+         */
+        Object readObject(Binding binding, String prefix) throws IOException
+        {
+            Object bean = binding.newInstance();
+            boolean[] seen = new boolean[binding.checks.length];
+            if (json.beginObject()) {
+                do {
+                    Integer slot = binding.slots.get(json.readName());
+                    if (slot == null) {
+                        json.skipValue();
+                    } else {
+                        seen[slot] = true;
+                        binding.set(bean, slot, readProperty(binding, slot, prefix));
+                    }
+                } while (json.nextElement('}'));
+            }
+            for (int slot = 0; slot < seen.length; slot++) {
+                if (!seen[slot]) {
+                    binding.checks[slot].check(null, prefix, -1, messages);
+                    limit();
+                }
+            }
+            return bean;
+        }
+
+        private Object readProperty(Binding binding, int slot, String prefix) throws IOException
+        {
+            PropertyCheck check = binding.checks[slot];
+            if (json.readNull()) {
+                check.check(null, prefix, -1, messages);
+                limit();
+                return null;
+            }
+            if (!check.isMultivalued()) {
+                return readElement(binding, slot, prefix, -1);
+            }
+            if (json.peek() != '[') {
+                json.skipValue();
+                check.reject("type", prefix, -1, messages);
+                limit();
+                return null;
+            }
+            List<Object> list = new ArrayList<>();
+            if (json.beginArray()) {
+                int index = 0;
+                do {
+                    list.add(readElement(binding, slot, prefix, index++));
+                } while (json.nextElement(']'));
+            }
+            Object values = binding.collect(slot, list);
+            if (values == null) {
+                check.reject("type", prefix, -1, messages);
+                limit();
+            }
+            return values;
+        }
+
+        /**
+         * Read a single value or an element of a multivalued property.
+         */
+        private Object readElement(Binding binding, int slot, String prefix, int index) throws IOException
+        {
+            PropertyCheck check = binding.checks[slot];
+            int c = json.peek();
+            if (binding.nested[slot] != null) {
+                if (c == '{') {
+                    String path = prefix == null && index < 0 ? null : (prefix == null ? "" : prefix) + check.getName()
+                            + (index < 0 ? "." : "[" + index + "].");
+                    return readObject(binding.nested[slot], path);
+                }
+                if (!json.readNull()) {
+                    json.skipValue();
+                    check.reject("type", prefix, index, messages);
+                    limit();
+                }
+                return null;
+            }
+            if (c == '{' || c == '[') {
+                if (check.getType() != DataType.OBJECT) {
+                    json.skipValue();
+                    check.reject("type", prefix, index, messages);
+                    limit();
+                    return null;
+                }
+                return readGeneric(0);
+            }
+            Object value = json.readValue();
+            int before = messages.size();
+            check.check(value, prefix, index, messages);
+            limit();
+            if (messages.size() > before || value == null) {
+                return null;
+            }
+            Object converted = convert(value, binding.types[slot]);
+            if (converted == null) {
+                check.reject("type", prefix, index, messages);
+                limit();
+            }
+            return converted;
+        }
+
+        /**
+         * Read a value without properties with limited nesting.
+         */
+        private Object readGeneric(int depth) throws IOException
+        {
+            int c = json.peek();
+            if (c != '{' && c != '[') {
+                return json.readValue();
+            }
+            if (depth >= maxDepth) {
+                throw new JsonException("Payload is nested deeper than " + maxDepth + " levels");
+            }
+            if (c == '[') {
+                List<Object> list = new ArrayList<>();
+                if (json.beginArray()) {
+                    do {
+                        list.add(readGeneric(depth + 1));
+                    } while (json.nextElement(']'));
+                }
+                return list;
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            if (json.beginObject()) {
+                do {
+                    map.put(json.readName(), readGeneric(depth + 1));
+                } while (json.nextElement('}'));
+            }
+            return map;
+        }
+
+        private void limit()
+        {
+            if (messages.size() >= limit) {
+                throw ABORT;
+            }
+        }
+    }
+
+    /**
+     * Convert a JSON value to the type of a field.
+     * 
+     * @return Converted value or <b>null</b> if the value does not fit into the type.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object convert(Object value, Class<?> type)
+    {
+        if (type.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            Number number = (Number)value;
+            boolean integral = value instanceof Integer || value instanceof Long || value instanceof BigInteger;
+            if (type == Integer.class || type == int.class) {
+                return integral && number.longValue() == number.intValue() ? (Object)number.intValue() : null;
+            } else if (type == Long.class || type == long.class) {
+                return integral && !(value instanceof BigInteger) ? (Object)number.longValue() : null;
+            } else if (type == Short.class || type == short.class) {
+                return integral && number.longValue() == number.shortValue() ? (Object)number.shortValue() : null;
+            } else if (type == Byte.class || type == byte.class) {
+                return integral && number.longValue() == number.byteValue() ? (Object)number.byteValue() : null;
+            } else if (type == Double.class || type == double.class) {
+                return number.doubleValue();
+            } else if (type == Float.class || type == float.class) {
+                return number.floatValue();
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(number.toString());
+            } else if (type == BigInteger.class) {
+                return integral ? new BigInteger(number.toString()) : null;
+            }
+            return null;
+        }
+        if (value instanceof Boolean) {
+            return type == boolean.class ? value : null;
+        }
+        String text = value.toString();
+        try {
+            if (type.isEnum()) {
+                return Enum.valueOf((Class<Enum>)type, text);
+            } else if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(text);
+            } else if (type == LocalDate.class) {
+                return LocalDate.parse(text);
+            } else if (type == LocalTime.class) {
+                return LocalTime.parse(text);
+            } else if (type == OffsetDateTime.class) {
+                return OffsetDateTime.parse(text);
+            } else if (type == ZonedDateTime.class) {
+                return ZonedDateTime.parse(text);
+            } else if (type == Instant.class) {
+                return Instant.parse(text);
+            } else if ((type == Character.class || type == char.class) && text.length() == 1) {
+                return text.charAt(0);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * Stops reading when the maximum number of errors is reached.
+     */
+    private static final class Abort
+            extends RuntimeException
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        Abort()
+        {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Rejects a payload as soon as it exceeds the maximum size.
+     */
+    private static final class LimitedInputStream
+            extends FilterInputStream
+    {
+
+        private final long maxBytes;
+        private long       remaining;
+
+        LimitedInputStream(InputStream in, long maxBytes)
+        {
+            super(in);
+            this.remaining = maxBytes;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int read = super.read(b, off, (int)Math.min(len, remaining + 1));
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close()
+        {
+            // the source is closed by the caller
+        }
+
+        private void count(int read)
+        {
+            remaining -= read;
+            if (remaining < 0) {
+                throw new JsonException("Payload exceeds " + maxBytes + " bytes");
+            }
+        }
+    }
+}
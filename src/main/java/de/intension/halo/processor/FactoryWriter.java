@@ -0,0 +1,332 @@
+package de.intension.halo.processor;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+
+import lombok.Getter;
+
+/**
+ * Writes the source of a single template factory.
+ * <br/>
+ * <br/>
+ * Mirrors the algorithm of {@link de.intension.halo.hibernate.HibernateTemplateBuilder}: every class that is
+ * expanded into nested properties gets its own static method in the generated factory, references to a type that
+ * is already being expanded are cut off and annotations without a default transformer are expanded into their
+ * meta-annotations. Methods of types whose expansion was cut off depend on their parents and are not reused.
+ */
+class FactoryWriter
+{
+
+    private static final String       ENTITY_PACKAGE = "de.intension.halo.entity.";
+    private static final String       LIST           = "java.util.List<" + ENTITY_PACKAGE + "Property>";
+    private static final String       PARAMETERS     = "de.intension.halo.MessageCatalog messages, "
+            + "java.util.Map<String, " + ENTITY_PACKAGE + "Link> nestedLinks";
+
+    private final ProcessingEnvironment processingEnv;
+    private final Set<String>           transientAnnotations;
+    private final TypeElement           entityType;
+    @Getter
+    private final String                factoryName;
+    private final Map<String, String>   methods        = new LinkedHashMap<>();
+    private final Deque<String>         path           = new ArrayDeque<>();
+    private final StringBuilder         body           = new StringBuilder();
+    private boolean                     truncated;
+    private int                         count;
+
+    FactoryWriter(ProcessingEnvironment processingEnv, Set<String> transientAnnotations, TypeElement entityType)
+    {
+        this.processingEnv = processingEnv;
+        this.transientAnnotations = transientAnnotations;
+        this.entityType = entityType;
+        String packageName = processingEnv.getElementUtils().getPackageOf(entityType).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(entityType).toString();
+        String simpleName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+        String name = simpleName.replace('$', '_') + "TemplateFactory";
+        this.factoryName = packageName.isEmpty() ? name : packageName + "." + name;
+    }
+
+    /**
+     * Generate the factory source.
+     * 
+     * @return Java source of the factory.
+     * @throws UnsupportedTypeException if a field cannot be mapped the same way as at runtime.
+     */
+    String write()
+    {
+        String method = method(entityType);
+        int separator = factoryName.lastIndexOf('.');
+        StringBuilder source = new StringBuilder();
+        if (separator > 0) {
+            source.append("package ").append(factoryName, 0, separator).append(";\n\n");
+        }
+        source.append("/**\n * Generated by ").append(TemplateFactoryProcessor.class.getName()).append(". Do not edit.\n */\n")
+            .append("public final class ").append(factoryName.substring(separator + 1))
+            .append("\n        implements de.intension.halo.hibernate.TemplateFactory\n{\n\n")
+            .append("    private static final de.intension.halo.hibernate.RegexValidationMapper  REGEX     = ")
+            .append("new de.intension.halo.hibernate.RegexValidationMapper();\n")
+            .append("    private static final de.intension.halo.hibernate.LengthValidationMapper LENGTH    = ")
+            .append("new de.intension.halo.hibernate.LengthValidationMapper();\n")
+            .append("    private static final de.intension.halo.hibernate.RangeValidationMapper  RANGE     = ")
+            .append("new de.intension.halo.hibernate.RangeValidationMapper();\n")
+            .append("    private static final de.intension.halo.hibernate.NotNullTransformer     NOT_NULL  = ")
+            .append("new de.intension.halo.hibernate.NotNullTransformer();\n")
+            .append("    private static final de.intension.halo.hibernate.NotEmptyTransformer    NOT_EMPTY = ")
+            .append("new de.intension.halo.hibernate.NotEmptyTransformer();\n\n")
+            .append("    @Override\n    public Class<?> getEntityType()\n    {\n        return ")
+            .append(entityType.getQualifiedName()).append(".class;\n    }\n\n")
+            .append("    @Override\n    public ").append(LIST).append(" buildProperties(").append(PARAMETERS).append(")\n    {\n")
+            .append("        return ").append(method).append("(messages, nestedLinks);\n    }\n")
+            .append(body)
+            .append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * Write the method that builds the properties of a type.
+     * 
+     * @return Name of the method or <b>null</b> if the type is already being expanded.
+     */
+    private String method(TypeElement type)
+    {
+        String qualifiedName = type.getQualifiedName().toString();
+        String method = methods.get(qualifiedName);
+        if (method != null) {
+            return method;
+        }
+        if (path.contains(qualifiedName)) {
+            truncated = true;
+            return null;
+        }
+        boolean outerTruncated = truncated;
+        truncated = false;
+        path.push(qualifiedName);
+        StringBuilder code = new StringBuilder();
+        code.append("        ").append(LIST).append(" properties = new java.util.ArrayList<>();\n");
+        code.append("        ").append(ENTITY_PACKAGE).append("Property property;\n");
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (!isTransient(field)) {
+                property(code, type, field);
+            }
+        }
+        code.append("        return properties;\n");
+        path.pop();
+        method = "build" + count++;
+        if (!truncated) {
+            methods.put(qualifiedName, method);
+        }
+        truncated |= outerTruncated;
+        body.append("\n    private static ").append(LIST).append(' ').append(method).append('(').append(PARAMETERS).append(")\n    {\n")
+            .append(code).append("    }\n");
+        return method;
+    }
+
+    private void property(StringBuilder code, TypeElement type, VariableElement field)
+    {
+        String name = field.getSimpleName().toString();
+        code.append("        property = new ").append(ENTITY_PACKAGE).append("Property(").append(literal(name)).append(");\n");
+        code.append("        if (messages != null) {\n            property.setTitle(messages.get(")
+            .append(literal(type.getSimpleName() + "." + name)).append("));\n        }\n");
+        dataType(code, field);
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            transform(code, annotation, new HashSet<>());
+        }
+        code.append("        properties.add(property);\n");
+    }
+
+    private void dataType(StringBuilder code, VariableElement field)
+    {
+        TypeMirror type = field.asType();
+        if (type.getKind() == TypeKind.DECLARED && !((DeclaredType)type).getTypeArguments().isEmpty()) {
+            code.append("        property.setMultivalued(true);\n");
+            type = ((DeclaredType)type).getTypeArguments().get(0);
+        }
+        String dataType = null;
+        if (type.getKind() == TypeKind.DECLARED) {
+            if (!((DeclaredType)type).getTypeArguments().isEmpty()) {
+                throw new UnsupportedTypeException("Nested generic type " + type + " cannot be mapped", field);
+            }
+            dataType = scalarType(((TypeElement)((DeclaredType)type).asElement()).getQualifiedName().toString());
+        } else if (type.getKind() != TypeKind.ARRAY && !type.getKind().isPrimitive()) {
+            throw new UnsupportedTypeException("Type " + type + " cannot be mapped", field);
+        }
+        if (dataType != null) {
+            code.append("        property.setType(de.intension.halo.entity.DataType.").append(dataType).append(");\n");
+            if ("DATE".equals(dataType)) {
+                code.append("        property.addValidation(new ").append(ENTITY_PACKAGE)
+                    .append("Validation(\"format\", \"yyyy-MM-dd'T'HH:mm:ss.SSS\"));\n");
+            }
+            return;
+        }
+        code.append("        property.setType(de.intension.halo.entity.DataType.OBJECT);\n");
+        if (type.getKind() == TypeKind.DECLARED) {
+            String method = method((TypeElement)((DeclaredType)type).asElement());
+            if (method != null) {
+                code.append("        property.setProperties(").append(method).append("(messages, nestedLinks));\n");
+            }
+        } else {
+            code.append("        property.setProperties(new java.util.ArrayList<>());\n");
+        }
+        code.append("        if (nestedLinks != null) {\n            property.setLink(nestedLinks.get(")
+            .append(literal(field.getSimpleName().toString())).append("));\n        }\n");
+    }
+
+    private static String scalarType(String type)
+    {
+        switch (type) {
+            case "java.lang.Boolean":
+                return "BOOLEAN";
+            case "java.lang.String":
+                return "STRING";
+            case "java.lang.Integer":
+            case "java.lang.Long":
+                return "INTEGER";
+            case "java.lang.Float":
+            case "java.lang.Double":
+                return "FLOAT";
+            case "java.time.LocalDateTime":
+                return "DATE";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Write the transformation for an annotation, composed annotations are expanded into their meta-annotations.
+     */
+    private void transform(StringBuilder code, AnnotationMirror annotation, Set<String> visited)
+    {
+        TypeElement type = (TypeElement)annotation.getAnnotationType().asElement();
+        String annotationType = type.getQualifiedName().toString();
+        Retention retention = type.getAnnotation(Retention.class);
+        if (retention == null || retention.value() != RetentionPolicy.RUNTIME || !visited.add(annotationType)) {
+            return;
+        }
+        switch (annotationType) {
+            case "javax.validation.constraints.Pattern":
+                code.append("        REGEX.addValidation(property, ").append(value(annotation, "regexp")).append(", ")
+                    .append(value(annotation, "message")).append(", messages);\n");
+                break;
+            case "org.hibernate.validator.constraints.Length":
+                code.append("        LENGTH.addValidations(property, ").append(value(annotation, "min")).append(", ")
+                    .append(value(annotation, "max")).append(", ").append(value(annotation, "message")).append(", messages);\n");
+                break;
+            case "org.hibernate.validator.constraints.Range":
+                code.append("        RANGE.addValidations(property, ").append(value(annotation, "min")).append(", ")
+                    .append(value(annotation, "max")).append(", ").append(value(annotation, "message")).append(", messages);\n");
+                break;
+            case "javax.persistence.Id":
+                code.append("        property.setReadOnly(true);\n");
+                break;
+            case "javax.validation.constraints.NotNull":
+                code.append("        NOT_NULL.addValidation(property, ").append(value(annotation, "message")).append(", messages);\n");
+                break;
+            case "javax.validation.constraints.NotEmpty":
+                code.append("        NOT_EMPTY.addValidation(property, ").append(value(annotation, "message")).append(", messages);\n");
+                break;
+            default:
+                for (AnnotationMirror metaAnnotation : type.getAnnotationMirrors()) {
+                    if (!metaAnnotation.getAnnotationType().toString().startsWith("java.lang.annotation.")) {
+                        transform(code, metaAnnotation, visited);
+                    }
+                }
+                break;
+        }
+    }
+
+    private String value(AnnotationMirror annotation, String name)
+    {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : processingEnv.getElementUtils()
+            .getElementValuesWithDefaults(annotation).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                Object value = entry.getValue().getValue();
+                if (value instanceof String) {
+                    return literal((String)value);
+                }
+                if (value instanceof Long) {
+                    return value + "L";
+                }
+                return String.valueOf(value);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private boolean isTransient(VariableElement field)
+    {
+        List<? extends AnnotationMirror> annotations = field.getAnnotationMirrors();
+        for (AnnotationMirror annotation : annotations) {
+            if (transientAnnotations.contains(((TypeElement)annotation.getAnnotationType().asElement()).getQualifiedName().toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String literal(String value)
+    {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        literal.append(String.format("\\u%04x", (int)c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    /**
+     * Thrown if a field cannot be mapped the same way as by the runtime builder.
+     */
+    static class UnsupportedTypeException extends RuntimeException
+    {
+
+        private static final long serialVersionUID = 1L;
+        @Getter
+        private final transient Element element;
+
+        UnsupportedTypeException(String message, Element element)
+        {
+            super(message);
+            this.element = element;
+        }
+    }
+}
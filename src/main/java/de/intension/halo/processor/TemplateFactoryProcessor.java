@@ -0,0 +1,157 @@
+package de.intension.halo.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import de.intension.halo.hibernate.HibernateTemplateBuilder;
+import de.intension.halo.hibernate.TemplateFactory;
+
+/**
+ * Generates a {@link TemplateFactory} for every class annotated with {@link javax.persistence.Entity}.
+ * <br/>
+ * <br/>
+ * The generated factories produce the same templates as a {@link HibernateTemplateBuilder} with its default
+ * annotation transformers, but need no reflection at runtime. They are registered in
+ * {@code META-INF/services/de.intension.halo.hibernate.TemplateFactory}, merged with the factories registered by
+ * previous compilations, so an incremental compilation of some entities keeps the others.
+ * <br/>
+ * <br/>
+ * The processor is not registered automatically, enable it explicitly:
+ * 
+ * <pre>
+ * &lt;annotationProcessors&gt;
+ *     &lt;annotationProcessor&gt;de.intension.halo.processor.TemplateFactoryProcessor&lt;/annotationProcessor&gt;
+ * &lt;/annotationProcessors&gt;
+ * </pre>
+ * 
+ * The option {@value #TRANSIENT_ANNOTATIONS} takes a comma separated list of annotation names that mark
+ * transient fields, like {@link HibernateTemplateBuilder#setTransientAnnotations(Class...)}.
+ */
+@SupportedAnnotationTypes("javax.persistence.Entity")
+@SupportedOptions(TemplateFactoryProcessor.TRANSIENT_ANNOTATIONS)
+public class TemplateFactoryProcessor extends AbstractProcessor
+{
+
+    /**
+     * Processor option for the annotations that mark transient fields.
+     */
+    public static final String TRANSIENT_ANNOTATIONS = "halo.transientAnnotations";
+
+    private final List<String> factories = new ArrayList<>();
+    private Set<String>        transientAnnotations;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv)
+    {
+        super.init(processingEnv);
+        String option = processingEnv.getOptions().get(TRANSIENT_ANNOTATIONS);
+        transientAnnotations = new HashSet<>(Arrays.asList((option == null ? "java.beans.Transient" : option).split("\\s*,\\s*")));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    generate((TypeElement)element);
+                }
+            }
+        }
+        if (roundEnv.processingOver() && !factories.isEmpty()) {
+            writeServices();
+        }
+        return false;
+    }
+
+    private void generate(TypeElement entityType)
+    {
+        FactoryWriter writer = new FactoryWriter(processingEnv, transientAnnotations, entityType);
+        String source;
+        try {
+            source = writer.write();
+        } catch (FactoryWriter.UnsupportedTypeException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR, e.getMessage(), e.getElement());
+            return;
+        }
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(writer.getFactoryName(), entityType);
+            try (Writer out = file.openWriter()) {
+                out.write(source);
+            }
+            factories.add(writer.getFactoryName());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Cannot write template factory: " + e.getMessage(), entityType);
+        }
+    }
+
+    private void writeServices()
+    {
+        String name = "META-INF/services/" + TemplateFactory.class.getName();
+        Set<String> services = readServices(name);
+        services.addAll(factories);
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", name);
+            try (Writer out = file.openWriter()) {
+                for (String factory : services) {
+                    out.write(factory);
+                    out.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Cannot register template factories: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read the factories registered by a previous compilation into the same output.
+     * 
+     * @return Names of the registered factories, empty if there is no registration yet.
+     */
+    private Set<String> readServices(String name)
+    {
+        Set<String> services = new LinkedHashSet<>();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", name);
+            try (BufferedReader in = new BufferedReader(file.openReader(true))) {
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    int comment = line.indexOf('#');
+                    String service = (comment < 0 ? line : line.substring(0, comment)).trim();
+                    if (!service.isEmpty()) {
+                        services.add(service);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // no factories registered yet
+        }
+        return services;
+    }
+}
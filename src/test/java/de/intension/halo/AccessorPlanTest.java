@@ -0,0 +1,102 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.jupiter.api.Test;
+
+public class AccessorPlanTest
+{
+
+    @Test
+    void should_read_values_of_public_class()
+    {
+        AccessorPlan plan = AccessorPlan.of(PublicBean.class);
+
+        assertThat(plan.size(), equalTo(3));
+        assertThat(plan.get(new PublicBean(), "name"), equalTo("public"));
+        assertThat(plan.get(new PublicBean(), "count"), equalTo(3));
+        assertThat(plan.get(new PublicBean(), "active"), equalTo(true));
+    }
+
+    @Test
+    void should_read_values_of_hidden_class()
+    {
+        AccessorPlan plan = AccessorPlan.of(HiddenBean.class);
+
+        assertThat(plan.get(new HiddenBean(), plan.indexOf("name")), equalTo("hidden"));
+    }
+
+    @Test
+    void should_return_null_for_fields_without_getter()
+    {
+        AccessorPlan plan = AccessorPlan.of(HiddenBean.class);
+
+        assertThat(plan.isReadable(plan.indexOf("secret")), equalTo(false));
+        assertThat(plan.get(new HiddenBean(), "secret"), nullValue());
+        assertThat(plan.get(new HiddenBean(), "unknown"), nullValue());
+    }
+
+    @Test
+    void should_write_values_through_setters()
+    {
+        AccessorPlan publicPlan = AccessorPlan.of(PublicBean.class);
+        AccessorPlan hiddenPlan = AccessorPlan.of(HiddenBean.class);
+        PublicBean publicBean = (PublicBean)publicPlan.newInstance();
+        HiddenBean hiddenBean = (HiddenBean)hiddenPlan.newInstance();
+
+        publicPlan.set(publicBean, publicPlan.indexOf("count"), 7);
+        hiddenPlan.set(hiddenBean, hiddenPlan.indexOf("name"), "changed");
+
+        assertThat(publicBean.getCount(), equalTo(7));
+        assertThat(hiddenBean.getName(), equalTo("changed"));
+        assertThat(hiddenPlan.isWritable(hiddenPlan.indexOf("secret")), equalTo(false));
+    }
+
+    public static class PublicBean
+    {
+
+        private String  name   = "public";
+        private int     count  = 3;
+        private boolean active = true;
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+
+        public PublicBean setCount(int count)
+        {
+            this.count = count;
+            return this;
+        }
+
+        public boolean isActive()
+        {
+            return active;
+        }
+    }
+
+    static class HiddenBean
+    {
+
+        private String name   = "hidden";
+        private String secret = "secret";
+
+        public String getName()
+        {
+            return name;
+        }
+
+        void setName(String name)
+        {
+            this.name = name;
+        }
+    }
+}
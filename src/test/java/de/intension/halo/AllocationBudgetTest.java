@@ -0,0 +1,205 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.Id;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+import org.hibernate.validator.constraints.Length;
+import org.hibernate.validator.constraints.Range;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Property;
+import de.intension.halo.hibernate.HibernateTemplateBuilder;
+import de.intension.halo.hibernate.IdTransformer;
+import de.intension.halo.hibernate.LengthValidationMapper;
+import de.intension.halo.hibernate.NotEmptyTransformer;
+import de.intension.halo.hibernate.NotNullTransformer;
+import de.intension.halo.hibernate.RangeValidationMapper;
+import de.intension.halo.hibernate.RegexValidationMapper;
+
+/**
+ * Fails when the bytes allocated per operation on the reference entities exceed their budget, so a per-field map or
+ * an extra regex compile is noticed before release. The budgets leave some headroom above the measured values; raise
+ * them only together with the change that justifies it.
+ * <br/>
+ * <br/>
+ * The budgets are calibrated on a HotSpot JDK 8 with default flags. Coverage agents, {@code -XX:-UseCompressedOops}
+ * or other JDKs change the allocated bytes, so the test is tagged and only runs with
+ * {@code mvn test -P allocation-budgets}.
+ */
+@Tag("allocation")
+public class AllocationBudgetTest
+{
+
+    private static final int WARMUP     = 2_000;
+    private static final int ITERATIONS = 2_000;
+
+    @BeforeAll
+    static void requireAllocationCounter()
+    {
+        assumeTrue(Allocations.current() >= 0, "JVM cannot measure allocated bytes per thread");
+    }
+
+    @Test
+    void should_build_template_of_class_within_budget()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+
+        assertBudget("build(Class)", 1_600, () -> builder.build(Car.class));
+    }
+
+    @Test
+    void should_build_template_of_object_within_budget()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+        Car car = new Car(1L, "Audi", "WAUZZZ8V5KA000001", 4, "A4");
+
+        assertBudget("build(Object)", 1_300, () -> builder.build(car));
+    }
+
+    @Test
+    void should_analyze_class_within_budget()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+
+        assertBudget("analyze", 10_500, () -> {
+            builder.clearCache();
+            builder.build(Car.class);
+        });
+    }
+
+    @Test
+    void should_build_halo_entity_within_budget()
+    {
+        HaloBuilder builder = (haloEntity, entity) -> haloEntity.addLink(new Link("self", "/cars/1"));
+        Car car = new Car(1L, "Audi", "WAUZZZ8V5KA000001", 4, "A4");
+
+        assertBudget("HaloBuilder.build", 200, () -> builder.build(car));
+    }
+
+    @Test
+    void should_transform_properties_within_budget()
+    {
+        List<AnnotationTransformer<?>> transformers = Arrays.asList(new IdTransformer(), new NotNullTransformer(),
+                                                                    new NotEmptyTransformer(),
+                                                                    new LengthValidationMapper(),
+                                                                    new RangeValidationMapper(),
+                                                                    new RegexValidationMapper());
+        MessageCatalog messages = MessageCatalog.of(locales());
+        Field[] fields = Car.class.getDeclaredFields();
+
+        assertBudget("transformers", 4_000, () -> {
+            for (Field field : fields) {
+                Property property = new Property(field.getName());
+                for (Annotation annotation : field.getDeclaredAnnotations()) {
+                    for (AnnotationTransformer<?> transformer : transformers) {
+                        if (transformer.matchesAnnotation(annotation.annotationType())) {
+                            transform(transformer, annotation, property, messages);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private static <A extends Annotation> void transform(AnnotationTransformer<A> transformer, Annotation annotation,
+                                                         Property property, MessageCatalog messages)
+    {
+        transformer.transformProperty(transformer.getAnnotationType().cast(annotation), property, messages);
+    }
+
+    /**
+     * Run the operation until it is compiled, then compare the average bytes it allocates with the budget.
+     */
+    private static void assertBudget(String operation, long budget, Runnable runnable)
+    {
+        for (int i = 0; i < WARMUP; i++) {
+            runnable.run();
+        }
+        long start = Allocations.current();
+        for (int i = 0; i < ITERATIONS; i++) {
+            runnable.run();
+        }
+        long perOperation = (Allocations.current() - start) / ITERATIONS;
+        assertThat(operation + " allocated bytes", perOperation, lessThanOrEqualTo(budget));
+    }
+
+    private static Map<String, Map<String, String>> locales()
+    {
+        Map<String, Map<String, String>> locales = new HashMap<>();
+        Map<String, String> length = new HashMap<>();
+        length.put("en", "Brand must have {min} to {max} characters");
+        length.put("de", "Marke muss {min} bis {max} Zeichen haben");
+        locales.put("Car.brand.length", length);
+        Map<String, String> vin = new HashMap<>();
+        vin.put("en", "Invalid vehicle identification number");
+        vin.put("de", "Ungültige Fahrgestellnummer");
+        locales.put("Car.vin", vin);
+        return locales;
+    }
+
+    static class Car
+    {
+
+        @Id
+        private Long    id;
+        @NotNull
+        @Length(min = 1, max = 20, message = "{Car.brand.length}")
+        private String  brand;
+        @Pattern(regexp = "[A-HJ-NPR-Z0-9]{17}", message = "{Car.vin}")
+        private String  vin;
+        @Range(min = 2, max = 5)
+        private Integer doors;
+        @NotEmpty
+        private String  model;
+
+        Car(Long id, String brand, String vin, Integer doors, String model)
+        {
+            this.id = id;
+            this.brand = brand;
+            this.vin = vin;
+            this.doors = doors;
+            this.model = model;
+        }
+
+        public Long getId()
+        {
+            return id;
+        }
+
+        public String getBrand()
+        {
+            return brand;
+        }
+
+        public String getVin()
+        {
+            return vin;
+        }
+
+        public Integer getDoors()
+        {
+            return doors;
+        }
+
+        public String getModel()
+        {
+            return model;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+
+public class AsyncHaloBuilderTest
+{
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch  release  = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown()
+    {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void should_run_link_providers_concurrently() throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(2);
+        AsyncHaloBuilder builder = new AsyncHaloBuilder(executor).addLinkProvider(car -> {
+            started.countDown();
+            started.await();
+            return new Link("self", "/cars/" + car);
+        }).addLinkProvider(car -> {
+            started.countDown();
+            started.await();
+            return new Link("owner", "/cars/" + car + "/owner");
+        }).addLinkProvider(car -> null);
+
+        Entity entity = builder.build(7).get(5, TimeUnit.SECONDS);
+
+        assertThat(entity.getLinks().stream().map(Link::getName).collect(Collectors.toList()), contains("self", "owner"));
+    }
+
+    @Test
+    void should_omit_link_that_timed_out() throws Exception
+    {
+        AsyncHaloBuilder builder = new AsyncHaloBuilder(executor).addLinkProvider(car -> new Link("self", "/cars/" + car))
+            .addLinkProvider(car -> {
+                release.await();
+                return new Link("owner", "/owners/1");
+            }, Duration.ofMillis(50), true);
+
+        Entity entity = builder.build(7).get(5, TimeUnit.SECONDS);
+
+        assertThat(entity.getLinks().stream().map(Link::getHref).collect(Collectors.toList()), contains("/cars/7"));
+    }
+
+    @Test
+    void should_fail_entity_if_link_timed_out()
+    {
+        AsyncHaloBuilder builder = new AsyncHaloBuilder(executor).addLinkProvider(car -> {
+            release.await();
+            return new Link("owner", "/owners/1");
+        }, Duration.ofMillis(50), false);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> builder.build(7).get(5, TimeUnit.SECONDS));
+
+        assertThat(exception.getCause(), instanceOf(TimeoutException.class));
+    }
+
+    @Test
+    void should_fail_entity_if_provider_throws_error_or_is_rejected()
+    {
+        AsyncHaloBuilder failing = new AsyncHaloBuilder(executor).addLinkProvider(car -> {
+            throw new AssertionError("broken provider");
+        });
+        AsyncHaloBuilder rejected = new AsyncHaloBuilder(runnable -> {
+            throw new RejectedExecutionException("shut down");
+        }).addLinkProvider(car -> new Link("self", "/cars/" + car));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> failing.build(7).get(5, TimeUnit.SECONDS));
+        ExecutionException rejection = assertThrows(ExecutionException.class, () -> rejected.build(7).get(5, TimeUnit.SECONDS));
+
+        assertThat(error.getCause(), instanceOf(AssertionError.class));
+        assertThat(rejection.getCause(), instanceOf(RejectedExecutionException.class));
+    }
+}
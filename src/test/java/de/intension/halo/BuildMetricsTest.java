@@ -0,0 +1,126 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.persistence.Id;
+import javax.validation.constraints.NotNull;
+
+import org.hibernate.validator.constraints.Length;
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Template;
+import de.intension.halo.hibernate.HibernateTemplateBuilder;
+
+public class BuildMetricsTest
+{
+
+    @Test
+    void should_count_phases_of_template_builder()
+    {
+        BuildMetrics metrics = new BuildMetrics();
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car").setListener(metrics);
+
+        builder.build(Car.class);
+        builder.build(new Car(1L, "Audi"));
+
+        assertThat(metrics.getPhaseCounts().get("ANALYZE"), equalTo(1L));
+        assertThat(metrics.getPhaseCounts().get("TRANSFORM"), equalTo(1L));
+        assertThat(metrics.getPhaseCounts().get("READ_VALUES"), equalTo(1L));
+        assertThat(metrics.getCacheRequests(), equalTo(2L));
+        assertThat(metrics.getAnalyzedClasses(), equalTo(1L));
+        assertThat(metrics.getCacheHitRatio(), equalTo(0.5));
+        assertThat(metrics.getFields(), equalTo(2L));
+        assertThat(metrics.getAnnotations(), equalTo(3L));
+        assertThat(metrics.getTransformations(), greaterThan(0L));
+    }
+
+    @Test
+    void should_keep_cache_when_listener_is_attached()
+    {
+        BuildMetrics metrics = new BuildMetrics();
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+        Template schema = builder.buildSchema(Car.class);
+
+        builder.setListener(metrics);
+
+        assertThat(builder.buildSchema(Car.class), sameInstance(schema));
+        assertThat(metrics.getCacheRequests(), equalTo(1L));
+        assertThat(metrics.getAnalyzedClasses(), equalTo(0L));
+        assertThat(builder.getCacheStatistics().getMisses(), equalTo(1L));
+    }
+
+    @Test
+    void should_time_links_of_halo_builder()
+    {
+        BuildMetrics metrics = new BuildMetrics();
+        HaloBuilder builder = new HaloBuilder() {
+
+            @Override
+            public void addLinks(Entity haloEntity, Object entity)
+            {
+                haloEntity.addLink(new Link("self", "/cars/" + entity));
+            }
+
+            @Override
+            public BuildListener getListener()
+            {
+                return metrics;
+            }
+        };
+
+        Entity entity = builder.build(1);
+
+        assertThat(entity.getLinks().get(0).getHref(), equalTo("/cars/1"));
+        assertThat(metrics.getPhaseCounts().get("LINKS"), equalTo(1L));
+        metrics.reset();
+        assertThat(metrics.getPhaseCounts().get("LINKS"), equalTo(0L));
+    }
+
+    @Test
+    void should_export_metrics_as_mbean() throws Exception
+    {
+        BuildMetrics metrics = new BuildMetrics().register("test");
+        try {
+            new HibernateTemplateBuilder("car").setListener(metrics).build(Car.class);
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertThat(server.getAttribute(metrics.getObjectName(), "CacheRequests"), equalTo(1L));
+        } finally {
+            metrics.unregister();
+        }
+    }
+
+    static class Car
+    {
+
+        @Id
+        private Long   id;
+        @NotNull
+        @Length(min = 1, max = 20)
+        private String brand;
+
+        Car(Long id, String brand)
+        {
+            this.id = id;
+            this.brand = brand;
+        }
+
+        public Long getId()
+        {
+            return id;
+        }
+
+        public String getBrand()
+        {
+            return brand;
+        }
+    }
+}
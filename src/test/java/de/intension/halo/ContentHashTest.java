@@ -0,0 +1,106 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.DataType;
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.TemplateValues;
+import de.intension.halo.hibernate.HibernateTemplateBuilder;
+
+public class ContentHashTest
+{
+
+    @Test
+    void should_hash_content_independent_of_map_order()
+    {
+        Map<String, Object> data = new HashMap<>();
+        data.put("brand", "Audi");
+        data.put("doors", 4);
+        Map<String, Object> reversed = new LinkedHashMap<>();
+        reversed.put("doors", 4L);
+        reversed.put("brand", "Audi");
+        reversed.put("color", null);
+
+        assertThat(ContentHash.of(entity(data)), equalTo(ContentHash.of(entity(reversed))));
+        assertThat(ContentHash.of(entity(data).addLink(new Link("next", "/cars?page=2"))), not(equalTo(ContentHash.of(entity(data)))));
+        assertThat(ContentHash.etag(entity(data)), equalTo("\"c2b5e5dd92cc3313\""));
+    }
+
+    @Test
+    void should_combine_cached_schema_hash_with_values()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+
+        long audi = ContentHash.of(builder.buildValues(new Car("Audi")));
+
+        assertThat(ContentHash.of(builder.buildValues(new Car("Audi"))), equalTo(audi));
+        assertThat(ContentHash.of(builder.buildValues(new Car("BMW"))), not(equalTo(audi)));
+        assertThat(ContentHash.of(new HibernateTemplateBuilder("vehicle").buildValues(new Car("Audi"))), not(equalTo(audi)));
+    }
+
+    @Test
+    void should_match_if_none_match_header()
+    {
+        String etag = ContentHash.etag(new Property("brand").setType(DataType.STRING));
+
+        assertThat(ContentHash.matches("\"0000000000000000\", W/" + etag, etag), equalTo(true));
+        assertThat(ContentHash.matches("*", etag), equalTo(true));
+        assertThat(ContentHash.matches("\"0000000000000000\"", etag), equalTo(false));
+        assertThat(ContentHash.matches(null, etag), equalTo(false));
+    }
+
+    @Test
+    void should_rehash_mutable_templates_and_tag_each_format()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+        Template template = new Template("car").addProperties(new Property("brand"));
+        TemplateValues values = new TemplateValues(template, new Object[] {"Audi"});
+        long before = ContentHash.of(values);
+
+        template.getProperties().get(0).setType(DataType.STRING);
+
+        assertThat(ContentHash.of(values), not(equalTo(before)));
+        assertThat(ContentHash.etag(builder.buildValues(new Car("Audi")), HaloFormat.JSON),
+                   not(equalTo(ContentHash.etag(builder.buildValues(new Car("Audi")), HaloFormat.BINARY))));
+        assertThat(ContentHash.etag(template, HaloFormat.JSON), equalTo(ContentHash.etag(template.copy(), HaloFormat.JSON)));
+    }
+
+    private static Entity entity(Map<String, Object> data)
+    {
+        Template template = new Template("update").setMethod("PUT").setTitle("en", "Update").setTitle("de", "Ändern")
+            .addProperties(new Property("brand").setType(DataType.STRING), new Property("doors").setType(DataType.INTEGER));
+        return new Entity().setData(data).addLink(new Link("self", "/cars/1").addTemplate(template))
+            .addLink(new Link("owner", "/persons/1").setTemplates(Arrays.asList()));
+    }
+
+    static class Car
+    {
+
+        @NotNull
+        private String brand;
+
+        Car(String brand)
+        {
+            this.brand = brand;
+        }
+
+        public String getBrand()
+        {
+            return brand;
+        }
+    }
+}
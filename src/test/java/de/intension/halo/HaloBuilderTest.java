@@ -0,0 +1,59 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+
+public class HaloBuilderTest
+{
+
+    @Test
+    void should_add_links_per_entity_by_default()
+    {
+        HaloBuilder builder = (haloEntity, entity) -> haloEntity.addLink(new Link("self", "/cars/" + entity));
+
+        List<Entity> entities = builder.buildAll(Arrays.asList(1, 2, 3));
+
+        assertThat(entities.stream().map(e -> e.getLinks().get(0).getHref()).collect(Collectors.toList()),
+                   contains("/cars/1", "/cars/2", "/cars/3"));
+    }
+
+    @Test
+    void should_add_links_of_all_entities_at_once()
+    {
+        List<List<?>> batches = new ArrayList<>();
+        HaloBuilder builder = new HaloBuilder() {
+
+            @Override
+            public void addLinks(Entity haloEntity, Object entity)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void addLinks(List<Entity> haloEntities, List<?> entities)
+            {
+                batches.add(entities);
+                for (int i = 0; i < haloEntities.size(); i++) {
+                    haloEntities.get(i).addLink(new Link("self", "/cars/" + entities.get(i)));
+                }
+            }
+        };
+
+        List<Entity> entities = builder.buildAll(Arrays.asList(1, 2, 3));
+
+        assertThat(batches, contains(Arrays.asList(1, 2, 3)));
+        assertThat(entities.get(2).getData(), equalTo(3));
+        assertThat(entities.get(2).getLinks().get(0).getHref(), equalTo("/cars/3"));
+    }
+}
@@ -0,0 +1,29 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.jupiter.api.Test;
+
+public class HaloFormatTest
+{
+
+    @Test
+    void should_negotiate_format_by_quality()
+    {
+        assertThat(HaloFormat.negotiate(null), equalTo(HaloFormat.JSON));
+        assertThat(HaloFormat.negotiate("*/*"), equalTo(HaloFormat.JSON));
+        assertThat(HaloFormat.negotiate("application/x-halo-binary, application/json;q=0.5"), equalTo(HaloFormat.BINARY));
+        assertThat(HaloFormat.negotiate("application/*;q=0.2, application/json;q=0"), equalTo(HaloFormat.BINARY));
+        assertThat(HaloFormat.negotiate("text/html"), nullValue());
+    }
+
+    @Test
+    void should_detect_format_of_content_type()
+    {
+        assertThat(HaloFormat.forContentType("application/json; charset=UTF-8"), equalTo(HaloFormat.JSON));
+        assertThat(HaloFormat.forContentType("Application/X-Halo-Binary"), equalTo(HaloFormat.BINARY));
+        assertThat(HaloFormat.forContentType("text/plain"), nullValue());
+    }
+}
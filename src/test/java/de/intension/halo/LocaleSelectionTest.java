@@ -0,0 +1,93 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Frozen;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+
+public class LocaleSelectionTest
+{
+
+    @Test
+    void should_build_fallback_chain()
+    {
+        LocaleSelection locales = LocaleSelection.parse("fr;q=0.5, de-CH", "en");
+
+        assertThat(locales.getLanguages(), contains("de-ch", "de", "fr", "en"));
+        assertThat(LocaleSelection.of("en", Locale.GERMAN), equalTo(LocaleSelection.parse("de", "en")));
+        assertThat(LocaleSelection.parse("not a header;q=x", "en").getLanguages(), contains("en"));
+    }
+
+    @Test
+    void should_select_best_language()
+    {
+        Map<String, String> title = new HashMap<>();
+        title.put("en", "Brand");
+        title.put("de", "Marke");
+        title.put("fr_CH", "Marque");
+
+        assertThat(LocaleSelection.parse("de-CH", "en").select(title), equalTo(Collections.singletonMap("de", "Marke")));
+        assertThat(LocaleSelection.parse("fr-CH", "en").select(title), equalTo(Collections.singletonMap("fr_CH", "Marque")));
+        assertThat(LocaleSelection.parse("it", "en").select(title), equalTo(Collections.singletonMap("en", "Brand")));
+        assertThat(LocaleSelection.parse("it", null).select(title), nullValue());
+        assertThat(LocaleSelection.ALL.select(title), equalTo(title));
+    }
+
+    @Test
+    void should_retain_available_languages()
+    {
+        LocaleSelection locales = LocaleSelection.parse("x-junk, de-CH, fr", "en");
+
+        assertThat(locales.retain(Arrays.asList("EN", "de")).getLanguages(), contains("de", "en"));
+        assertThat(locales.retain(Arrays.asList("de", "en")), equalTo(LocaleSelection.parse("de", "en")));
+        assertThat(locales.retain(Collections.singleton("it")).getLanguages(), contains("en"));
+        assertThat(LocaleSelection.ALL.retain(Collections.singleton("de")), sameInstance(LocaleSelection.ALL));
+    }
+
+    @Test
+    void should_localize_entity_without_modifying_it()
+    {
+        Link link = new Link("self", "/cars").setTitle("en", "Cars").setTitle("de", "Autos");
+        Entity entity = new Entity().addLink(link).addMessage(new Message().setValue("en", "Saved").setValue("de", "Gespeichert"));
+
+        Entity localized = ((HaloBuilder)(haloEntity, object) -> haloEntity.addLink(link)).build("car", LocaleSelection.parse("de", "en"));
+
+        assertThat(localized.getData(), equalTo("car"));
+        assertThat(localized.getLinks().get(0).getTitle(), equalTo(Collections.singletonMap("de", "Autos")));
+        assertThat(LocaleSelection.parse("de", "en").localize(entity).getMessages().get(0).getValue().get("de"), equalTo("Gespeichert"));
+        assertThat(link.getTitle().size(), equalTo(2));
+    }
+
+    @Test
+    void should_localize_nested_links_once()
+    {
+        Template search = new Template("search").setTitle("en", "Search").setTitle("de", "Suchen");
+        Link owner = new Link("owner", "/owners").setTitle("en", "Owner").setTitle("de", "Halter").addTemplate(search).freeze();
+        Property property = new Property("owner").setTitle("en", "Owner").setTitle("de", "Halter").setLink(owner);
+        LocaleSelection locales = LocaleSelection.parse("de", "en");
+
+        Property localized = locales.localize(property);
+
+        assertThat(localized.getLink().getTitle(), equalTo(Collections.singletonMap("de", "Halter")));
+        assertThat(localized.getLink().getTemplates().get(0).getTitle(), equalTo(Collections.singletonMap("de", "Suchen")));
+        assertThat(localized.getLink(), instanceOf(Frozen.class));
+        assertThat(owner.getTitle().size(), equalTo(2));
+    }
+}
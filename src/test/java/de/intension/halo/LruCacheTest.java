@@ -0,0 +1,46 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.jupiter.api.Test;
+
+public class LruCacheTest
+{
+
+    @Test
+    void should_evict_least_recently_used()
+    {
+        LruCache<String, String> cache = LruCache.ofSize(2);
+        cache.putIfAbsent("a", "A");
+        cache.putIfAbsent("b", "B");
+
+        cache.get("a");
+        cache.putIfAbsent("c", "C");
+
+        assertThat(cache.get("b"), nullValue());
+        assertThat(cache.get("a"), equalTo("A"));
+        assertThat(cache.get("c"), equalTo("C"));
+        assertThat(cache.size(), equalTo(2));
+        assertThat(cache.getStatistics().getMisses(), equalTo(1L));
+    }
+
+    @Test
+    void should_keep_weight_within_budget()
+    {
+        LruCache<String, String> cache = new LruCache<>(5, String::length);
+        cache.put("a", "AAA");
+        cache.put("b", "BB");
+
+        cache.put("a", "A");
+        cache.put("c", "CCCCCC");
+        cache.put("d", "DDD");
+
+        assertThat(cache.getWeight(), equalTo(4L));
+        assertThat(cache.get("b"), nullValue());
+        assertThat(cache.get("c"), nullValue());
+        assertThat(cache.putIfAbsent("a", "AA"), equalTo("A"));
+        assertThat(cache.get("d"), equalTo("DDD"));
+    }
+}
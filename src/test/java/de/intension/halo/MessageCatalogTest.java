@@ -0,0 +1,81 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Validation;
+import de.intension.halo.hibernate.LengthValidationMapper;
+
+public class MessageCatalogTest
+{
+
+    @Test
+    void should_render_placeholders()
+    {
+        MessageCatalog messages = MessageCatalog.of(locales());
+
+        Map<String, String> message = messages.render("{Car.brand.length}", name -> "max".equals(name) ? 20 : null);
+
+        assertThat(message.get("en"), equalTo("Brand must have {min} to 20 characters"));
+        assertThat(messages.render("{Car.brand}", name -> null), sameInstance(messages.get("Car.brand")));
+        assertThat(messages.render("{Unknown}", name -> null), nullValue());
+    }
+
+    @Test
+    void should_strip_braces_of_key()
+    {
+        assertThat(MessageCatalog.key("{Car.brand}"), equalTo("Car.brand"));
+        assertThat(MessageCatalog.key("Car.brand"), equalTo("Car.brand"));
+        assertThat(MessageCatalog.key("{}"), equalTo(""));
+    }
+
+    @Test
+    void should_not_modify_given_locales()
+    {
+        Map<String, Map<String, String>> locales = locales();
+        Property property = new Property("brand");
+
+        new LengthValidationMapper().addValidations(property, 1, 20, "{Car.brand.length}", MessageCatalog.of(locales));
+
+        assertThat(locales.get("Car.brand.length").get("en"), equalTo("Brand must have {min} to {max} characters"));
+        for (Validation validation : property.getValidations()) {
+            assertThat(validation.getMessage().get("en"), equalTo("Brand must have 1 to 20 characters"));
+        }
+    }
+
+    @Test
+    void should_return_read_only_copy_of_locales()
+    {
+        Map<String, Map<String, String>> locales = locales();
+        MessageCatalog messages = MessageCatalog.of(locales);
+
+        locales.get("Car.brand").put("en", "Make");
+        locales.remove("Car.brand.length");
+
+        assertThat(messages.getLocales().get("Car.brand").get("en"), equalTo("Brand"));
+        assertThat(messages.getLocales().containsKey("Car.brand.length"), equalTo(true));
+        assertThrows(UnsupportedOperationException.class, () -> messages.getLocales().remove("Car.brand"));
+        assertThat(MessageCatalog.of(messages.getLocales()), sameInstance(messages));
+    }
+
+    private static Map<String, Map<String, String>> locales()
+    {
+        Map<String, Map<String, String>> locales = new HashMap<>();
+        Map<String, String> title = new HashMap<>();
+        title.put("en", "Brand");
+        locales.put("Car.brand", title);
+        Map<String, String> length = new HashMap<>();
+        length.put("en", "Brand must have {min} to {max} characters");
+        locales.put("Car.brand.length", length);
+        return locales;
+    }
+}
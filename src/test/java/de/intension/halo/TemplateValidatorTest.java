@@ -0,0 +1,103 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.validation.constraints.NotNull;
+
+import org.hibernate.validator.constraints.Length;
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.DataType;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.Validation;
+import de.intension.halo.hibernate.HibernateTemplateBuilder;
+
+public class TemplateValidatorTest
+{
+
+    @Test
+    void should_report_failed_validations_with_property_path()
+    {
+        Map<String, Object> line = new HashMap<>();
+        line.put("quantity", 1000);
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("number", "a-1");
+        values.put("customer", "A very long customer name");
+        values.put("paid", "yes");
+        values.put("lines", Arrays.asList(Collections.singletonMap("quantity", 5), line));
+
+        List<Message> messages = TemplateValidator.compile(order()).validate(values);
+
+        assertThat(messages.stream().map(m -> m.getName() + ":" + m.getProperty()).collect(Collectors.toList()),
+                   contains("regex:number", "maxLength:customer", "type:paid", "required:created", "maxValue:lines[1].quantity"));
+        assertThat(messages.get(1).getValue(), equalTo(Collections.singletonMap("en", "Too long")));
+    }
+
+    @Test
+    void should_accept_valid_json() throws IOException
+    {
+        String json = "{\"id\":7,\"number\":\"A-1\",\"customer\":\"Audi\",\"paid\":true,\"created\":\"2020-01-31\","
+                + "\"lines\":[{\"quantity\":5}],\"unknown\":null}";
+
+        List<Message> messages = TemplateValidator.compile(order()).validate(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(messages, empty());
+    }
+
+    @Test
+    void should_share_validator_of_builder()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+        TemplateValidator validator = builder.buildValidator(Car.class);
+        Map<String, Object> values = new HashMap<>();
+        values.put("brand", "A");
+
+        List<Message> messages = validator.validate(values);
+
+        assertThat(builder.buildValidator(Car.class), sameInstance(validator));
+        assertThat(messages.stream().map(Message::getName).collect(Collectors.toList()), contains("minLength"));
+    }
+
+    private static Template order()
+    {
+        Property quantity = new Property("quantity").setType(DataType.INTEGER).addValidation(new Validation("minValue", 1L))
+            .addValidation(new Validation("maxValue", 999L));
+        return new Template("order").addProperties(new Property("id").setType(DataType.INTEGER).setReadOnly(true),
+                                                   new Property("number").setType(DataType.STRING)
+                                                       .addValidation(new Validation("required", true))
+                                                       .addValidation(new Validation("regex", "[A-Z]-[0-9]+")),
+                                                   new Property("customer").addValidation(new Validation("maxLength", 10)
+                                                       .setMessage(Collections.singletonMap("en", "Too long"))),
+                                                   new Property("paid").setType(DataType.BOOLEAN),
+                                                   new Property("created").setType(DataType.DATE)
+                                                       .addValidation(new Validation("required", true))
+                                                       .addValidation(new Validation("format", "yyyy-MM-dd")),
+                                                   new Property("lines").setType(DataType.OBJECT).setMultivalued(true)
+                                                       .setProperties(Arrays.asList(quantity)));
+    }
+
+    static class Car
+    {
+
+        @NotNull
+        @Length(min = 2, max = 20)
+        private String brand;
+    }
+}
@@ -0,0 +1,112 @@
+package de.intension.halo;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.Link;
+
+public class UriTemplateTest
+{
+
+    @Test
+    void should_expand_examples_of_rfc()
+    {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("semi", ";");
+        keys.put("dot", ".");
+        keys.put("comma", ",");
+        Map<String, Object> values = new HashMap<>();
+        values.put("var", "value");
+        values.put("hello", "Hello World!");
+        values.put("path", "/foo/bar");
+        values.put("list", Arrays.asList("red", "green", "blue"));
+        values.put("keys", keys);
+        values.put("x", "1024");
+        values.put("y", "768");
+        values.put("empty", "");
+
+        assertThat(UriTemplate.parse("{var}/{hello}").expand(values), equalTo("value/Hello%20World%21"));
+        assertThat(UriTemplate.parse("{+path}/here{#hello}").expand(values), equalTo("/foo/bar/here#Hello%20World!"));
+        assertThat(UriTemplate.parse("{var:3}{.list}{/list*}").expand(values), equalTo("val.red,green,blue/red/green/blue"));
+        assertThat(UriTemplate.parse("{;x,y,empty}{?x,undef,empty}{&list*}").expand(values),
+                   equalTo(";x=1024;y=768;empty?x=1024&empty=&list=red&list=green&list=blue"));
+        assertThat(UriTemplate.parse("{?keys}{/keys*}").expand(values), equalTo("?keys=semi,%3B,dot,.,comma,%2C/semi=%3B/dot=./comma=%2C"));
+        assertThat(UriTemplate.parse("/städte/{var}").expand(values), equalTo("/st%C3%A4dte/value"));
+    }
+
+    @Test
+    void should_bind_variables_to_fields_of_entity()
+    {
+        Car car = new Car();
+        car.setId(7);
+        car.setBrand("Müller & Söhne");
+        car.setTags(new String[] { "new", "red" });
+        LinkDefinition definition = new LinkDefinition("self", "/cars/{id}{?brand,tags*,missing}").setTitle("en", "Car");
+
+        Link link = definition.toLink(car);
+
+        assertThat(definition.getHref().getVariables(), contains("id", "brand", "tags", "missing"));
+        assertThat(link.getHref(), equalTo("/cars/7?brand=M%C3%BCller%20%26%20S%C3%B6hne&tags=new&tags=red"));
+        assertThat(link.getTitle().get("en"), equalTo("Car"));
+        assertThat(definition.getHref().expand(car, new StringBuilder("http://host")).toString(),
+                   equalTo("http://host/cars/7?brand=M%C3%BCller%20%26%20S%C3%B6hne&tags=new&tags=red"));
+    }
+
+    @Test
+    void should_reject_malformed_template()
+    {
+        List<String> templates = Arrays.asList("/cars/{id", "/cars/id}", "/cars/{=id}", "/cars/{id:0}", "/cars/{}");
+
+        for (String template : templates) {
+            assertThrows(IllegalArgumentException.class, () -> UriTemplate.parse(template), template);
+        }
+    }
+
+    public static class Car
+    {
+
+        private int      id;
+        private String   brand;
+        private String[] tags;
+
+        public int getId()
+        {
+            return id;
+        }
+
+        public void setId(int id)
+        {
+            this.id = id;
+        }
+
+        public String getBrand()
+        {
+            return brand;
+        }
+
+        public void setBrand(String brand)
+        {
+            this.brand = brand;
+        }
+
+        public String[] getTags()
+        {
+            return tags;
+        }
+
+        public void setTags(String[] tags)
+        {
+            this.tags = tags;
+        }
+    }
+}
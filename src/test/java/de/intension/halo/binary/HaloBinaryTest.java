@@ -0,0 +1,193 @@
+package de.intension.halo.binary;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+import org.hibernate.validator.constraints.Length;
+import org.hibernate.validator.constraints.Range;
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.HaloFormat;
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Template;
+import de.intension.halo.hibernate.HibernateTemplateBuilder;
+
+public class HaloBinaryTest
+{
+
+    @Test
+    void should_read_written_entity() throws IOException
+    {
+        Entity entity = entity();
+
+        Entity read = new HaloBinaryReader(new ByteArrayInputStream(write(entity))).readEntity();
+
+        assertThat(read, equalTo(entity));
+    }
+
+    @Test
+    void should_share_interned_strings_between_documents() throws IOException
+    {
+        Template template = template();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HaloBinaryWriter writer = new HaloBinaryWriter(out)) {
+            writer.write(template);
+            int first = out.size();
+            writer.flush();
+            first = out.size() - first;
+            writer.write(template).flush();
+
+            assertThat(out.size() - first, lessThan(first));
+        }
+
+        HaloBinaryReader reader = new HaloBinaryReader(new ByteArrayInputStream(out.toByteArray()));
+        assertThat(reader.readTemplate(), equalTo(template));
+        assertThat(reader.readTemplate(), equalTo(template));
+    }
+
+    @Test
+    void should_be_smaller_than_json() throws IOException
+    {
+        Entity entity = entity();
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        HaloFormat.JSON.write(entity, json);
+
+        assertThat(write(entity).length * 2, lessThan(json.size()));
+    }
+
+    @Test
+    void should_read_streamed_data_as_list() throws IOException
+    {
+        Entity entity = new Entity().setData(Stream.of("a", 1, null).iterator());
+
+        Entity read = new HaloBinaryReader(new ByteArrayInputStream(write(entity))).readEntity();
+
+        assertThat(read.getData(), equalTo(Arrays.asList("a", 1, null)));
+    }
+
+    @Test
+    void should_reject_foreign_streams()
+    {
+        HaloBinaryReader reader = new HaloBinaryReader(new ByteArrayInputStream("{\"data\":1}".getBytes()));
+
+        assertThrows(StreamCorruptedException.class, reader::readEntity);
+    }
+
+    @Test
+    void should_reject_forged_string_lengths()
+    {
+        byte[] header = {'H', 'A', 'L', 'O', 1, 6, (byte)0xfc, (byte)0xff, (byte)0xff, (byte)0xff, 0x1f};
+        HaloBinaryReader reader = new HaloBinaryReader(new ByteArrayInputStream(header));
+
+        StreamCorruptedException exception = assertThrows(StreamCorruptedException.class, reader::read);
+        assertThat(exception.getMessage(), equalTo("String length 2147483647 exceeds 16777216 bytes"));
+        byte[] truncated = {'H', 'A', 'L', 'O', 1, 6, (byte)0xfc, (byte)0xff, (byte)0xff, 0x0f};
+        assertThrows(EOFException.class, new HaloBinaryReader(new ByteArrayInputStream(truncated))::read);
+    }
+
+    @Test
+    void should_reject_deeply_nested_values() throws IOException
+    {
+        byte[] lists = nested(7, new byte[] {1, 7}, 100000);
+        byte[] properties = nested(19, new byte[] {(byte)0x80, 0x01, 1}, 100000);
+        byte[] shallow = write(Arrays.asList(Arrays.asList(Arrays.asList(1))));
+
+        StreamCorruptedException exception = assertThrows(StreamCorruptedException.class,
+                                                          new HaloBinaryReader(new ByteArrayInputStream(lists))::read);
+        assertThat(exception.getMessage(), equalTo("Document is nested deeper than 64 levels"));
+        assertThrows(StreamCorruptedException.class, new HaloBinaryReader(new ByteArrayInputStream(properties))::read);
+        assertThrows(StreamCorruptedException.class,
+                     new HaloBinaryReader(new ByteArrayInputStream(shallow)).setMaxDepth(2)::read);
+        assertThat(new HaloBinaryReader(new ByteArrayInputStream(shallow)).setMaxDepth(3).read(),
+                   equalTo(Arrays.asList(Arrays.asList(Arrays.asList(1)))));
+    }
+
+    private static byte[] nested(int tag, byte[] level, int depth)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('H');
+        out.write('A');
+        out.write('L');
+        out.write('O');
+        out.write(1);
+        out.write(tag);
+        for (int i = 0; i < depth; i++) {
+            out.write(level, 0, level.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] write(Object value) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HaloFormat.BINARY.write(value, out);
+        return out.toByteArray();
+    }
+
+    private static Entity entity()
+    {
+        Template update = template().setMethod("PUT");
+        Template create = template().setMethod("POST");
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", 12345678901L);
+        data.put("number", "A-1");
+        data.put("total", new BigDecimal("19.99"));
+        data.put("rating", 4.5);
+        data.put("lines", Arrays.asList(1, -2, null, true));
+        return new Entity().setData(data).addMessage(new Message().setName("saved").setValue("en", "Saved"))
+            .addLink(new Link("self", "/orders/1").setTitle("en", "Order").addTemplate(update))
+            .addLink(new Link("orders", "/orders").addTemplate(create));
+    }
+
+    private static Template template()
+    {
+        Map<String, Map<String, String>> locales = new HashMap<>();
+        for (String field : Arrays.asList("number", "customer", "street", "city", "quantity")) {
+            Map<String, String> title = new HashMap<>();
+            for (String language : Arrays.asList("en", "de", "fr", "it", "es")) {
+                title.put(language, field + " (" + language + ")");
+            }
+            locales.put("Order." + field, title);
+        }
+        return new HibernateTemplateBuilder("order").setLocales(locales).build(Order.class);
+    }
+
+    static class Order
+    {
+
+        @NotNull
+        @Pattern(regexp = "[A-Z]-[0-9]+")
+        private String       number;
+        @NotNull
+        @Length(min = 2, max = 80)
+        private String       customer;
+        @Length(max = 120)
+        private String       street;
+        @Length(max = 80)
+        private String       city;
+        @Range(min = 1, max = 999)
+        private Integer      quantity;
+        private List<String> notes;
+    }
+}
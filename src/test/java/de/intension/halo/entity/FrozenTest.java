@@ -0,0 +1,107 @@
+package de.intension.halo.entity;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.json.HaloJsonWriter;
+import de.intension.halo.json.JsonPatch;
+
+public class FrozenTest
+{
+
+    @Test
+    void should_reject_changes_anywhere_in_frozen_tree()
+    {
+        Entity frozen = entity().freeze();
+        Link link = frozen.getLinks().get(0);
+        Template template = link.getTemplates().get(0);
+        Property property = template.getProperties().get(0);
+
+        assertThat(frozen, instanceOf(Frozen.class));
+        assertThat(frozen.freeze(), sameInstance(frozen));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.addLink(new Link("next", "/cars?page=2")));
+        assertThrows(UnsupportedOperationException.class, () -> link.setHref("/trucks/1"));
+        assertThrows(UnsupportedOperationException.class, () -> template.getTitle().put("fr", "Voiture"));
+        assertThrows(UnsupportedOperationException.class, () -> property.getValidations().get(0).setValue(5));
+        assertThrows(UnsupportedOperationException.class, () -> property.getLink().setTitle("en", "Brands"));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.getMessages().get(0).setValue("fr", "Vendu"));
+    }
+
+    @Test
+    void should_equal_original_tree()
+    {
+        Entity entity = entity();
+
+        Entity frozen = entity.freeze();
+
+        assertThat(frozen, equalTo(entity));
+        assertThat(entity, equalTo(frozen));
+        assertThat(frozen.hashCode(), equalTo(entity.hashCode()));
+        assertThat(frozen.getLinks().get(0).getTemplates().get(0).getTitle(),
+                   equalTo(entity.getLinks().get(0).getTemplates().get(0).getTitle()));
+        assertThat(JsonPatch.diff(entity, frozen), empty());
+    }
+
+    @Test
+    void should_not_cache_hash_of_mutable_values()
+    {
+        List<String> colors = new ArrayList<>(Arrays.asList("red"));
+        Entity entity = entity();
+        entity.getLinks().get(0).getTemplates().get(0).getProperties().get(1).setValue(colors);
+
+        Entity frozen = entity.freeze();
+        frozen.hashCode();
+        colors.add("blue");
+
+        assertThat(frozen, equalTo(entity));
+        assertThat(frozen.hashCode(), equalTo(entity.hashCode()));
+    }
+
+    @Test
+    void should_write_and_copy_frozen_tree() throws IOException
+    {
+        Entity entity = entity();
+        Template frozen = entity.freeze().getLinks().get(0).getTemplates().get(0);
+
+        Template copy = frozen.copy().setName("change");
+        copy.getProperties().get(0).addValidation(new Validation("maxLength", 20));
+
+        assertThat(write(entity.freeze()), equalTo(write(entity)));
+        assertThat(copy, not(instanceOf(Frozen.class)));
+        assertThat(frozen.getName(), equalTo("edit"));
+        assertThat(frozen.getProperties().get(0).getValidations().size(), equalTo(1));
+    }
+
+    private static Entity entity()
+    {
+        Property brand = new Property("brand").setType(DataType.STRING).setTitle("en", "Brand").setTitle("de", "Marke")
+            .addValidation(new Validation("minLength", 2)).setLink(new Link("brands", "/brands"));
+        Template edit = new Template("edit").setMethod("PUT").setTitle("en", "Edit").setTitle("de", "Bearbeiten")
+            .addProperties(brand, new Property("color"));
+        return new Entity().setData("car").addLink(new Link("self", "/cars/1").addTemplate(edit))
+            .addMessage(new Message().setName("sold").setValue("en", "Sold"));
+    }
+
+    private static String write(Entity entity) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HaloJsonWriter writer = new HaloJsonWriter(out)) {
+            writer.write(entity);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,396 @@
+package de.intension.halo.hibernate;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import javax.persistence.Id;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+import org.hibernate.validator.constraints.Length;
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.CacheStatistics;
+import de.intension.halo.LocaleSelection;
+import de.intension.halo.entity.DataType;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.TemplateValues;
+import de.intension.halo.entity.Validation;
+
+class HibernateTemplateBuilderTest
+{
+
+    @Test
+    void should_build_properties_from_class()
+    {
+        Template template = new HibernateTemplateBuilder("car").build(Car.class);
+
+        assertThat(template.getName(), equalTo("car"));
+        assertThat(template.getProperties(), hasSize(3));
+        Property id = template.getProperties().get(0);
+        assertThat(id.getType(), equalTo(DataType.INTEGER));
+        assertThat(id.getReadOnly(), equalTo(true));
+        Property brand = template.getProperties().get(1);
+        assertThat(brand.getValidations(), hasSize(3));
+    }
+
+    @Test
+    void should_set_values_from_object()
+    {
+        Template template = new HibernateTemplateBuilder("car").build(new Car(1L, "Audi", 4));
+
+        assertThat(template.getProperties().get(0).getValue(), equalTo(1L));
+        assertThat(template.getProperties().get(1).getValue(), equalTo("Audi"));
+        assertThat(template.getProperties().get(2).getValue(), equalTo(4));
+    }
+
+    @Test
+    void should_reuse_analyzed_class()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+
+        Template first = builder.build(Car.class);
+        Template second = builder.build(Car.class);
+        builder.build(new Car(1L, "Audi", 4));
+
+        assertThat(second, equalTo(first));
+        assertThat(second.getProperties().get(0), not(sameInstance(first.getProperties().get(0))));
+        CacheStatistics statistics = builder.getCacheStatistics();
+        assertThat(statistics.getMisses(), equalTo(1L));
+        assertThat(statistics.getHits(), equalTo(2L));
+    }
+
+    @Test
+    void should_not_leak_changes_into_cache()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+
+        builder.build(Car.class).getProperties().get(1).setTitle("en", "changed");
+
+        assertThat(builder.build(Car.class).getProperties().get(1).getTitle(), nullValue());
+    }
+
+    @Test
+    void should_invalidate_cache_when_locales_change()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+        builder.build(Car.class);
+
+        Map<String, Map<String, String>> locales = new HashMap<>();
+        Map<String, String> title = new HashMap<>();
+        title.put("en", "Brand");
+        locales.put("Car.brand", title);
+        Template template = builder.setLocales(locales).build(Car.class);
+
+        assertThat(template.getProperties().get(1).getTitle(), equalTo(title));
+        assertThat(builder.getCacheStatistics().getMisses(), equalTo(2L));
+    }
+
+    @Test
+    void should_build_selected_languages_only()
+    {
+        Map<String, Map<String, String>> locales = new HashMap<>();
+        Map<String, String> title = new HashMap<>();
+        title.put("en", "Brand");
+        title.put("de", "Marke");
+        locales.put("Car.brand", title);
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car").setLocales(locales);
+        LocaleSelection german = LocaleSelection.parse("de-CH", "en");
+
+        Template template = builder.build(new Car(1L, "Audi", 4), german);
+
+        assertThat(template.getProperties().get(1).getTitle(), equalTo(Collections.singletonMap("de", "Marke")));
+        assertThat(template.getProperties().get(1).getValue(), equalTo("Audi"));
+        assertThat(builder.buildSchema(Car.class, LocaleSelection.parse("de-CH", "en")), sameInstance(builder.buildSchema(Car.class, german)));
+        assertThat(builder.build(Car.class).getProperties().get(1).getTitle(), equalTo(title));
+    }
+
+    @Test
+    void should_share_localized_schema_of_unknown_languages()
+    {
+        Map<String, Map<String, String>> locales = new HashMap<>();
+        Map<String, String> title = new HashMap<>();
+        title.put("en", "Brand");
+        title.put("de", "Marke");
+        locales.put("Car.brand", title);
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car").setLocales(locales);
+        Template schema = builder.buildSchema(Car.class, LocaleSelection.parse("de", "en"));
+
+        for (int i = 0; i < 100; i++) {
+            builder.buildSchema(Car.class, LocaleSelection.parse("x" + i + ", de", "en"));
+        }
+
+        assertThat(builder.buildSchema(Car.class, LocaleSelection.parse("de-AT, fr", "en")), sameInstance(schema));
+        assertThat(builder.buildSchema(Car.class, LocaleSelection.parse("fr", "en")).getProperties().get(1).getTitle(),
+                   equalTo(Collections.singletonMap("en", "Brand")));
+    }
+
+    @Test
+    void should_share_schema_of_class()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+
+        Template schema = builder.buildSchema(Car.class);
+
+        assertThat(builder.buildSchema(Car.class), sameInstance(schema));
+        assertThat(schema, equalTo(builder.build(Car.class)));
+        assertThrows(UnsupportedOperationException.class, () -> schema.getProperties().get(1).addValidation(new Validation("regex", ".*")));
+        assertThrows(UnsupportedOperationException.class, () -> schema.getProperties().get(1).setValue("Audi"));
+        assertThrows(UnsupportedOperationException.class, () -> schema.getProperties().get(1).setName("model"));
+        assertThrows(UnsupportedOperationException.class, () -> schema.setName("truck"));
+        assertThrows(UnsupportedOperationException.class,
+                     () -> builder.buildValues(new Car(1L, "Audi", 4)).getTemplate().getProperties().get(0).setType(DataType.STRING));
+    }
+
+    @Test
+    void should_overlay_values_on_shared_schema()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+        Car car = new Car(1L, "Audi", 4);
+
+        TemplateValues values = builder.buildValues(car);
+
+        assertThat(values.getTemplate(), sameInstance(builder.buildValues(car).getTemplate()));
+        assertThat(values.getValue("brand"), equalTo("Audi"));
+        assertThat(values.getTemplate().getProperties().get(1).getValue(), nullValue());
+        assertThat(values.toTemplate(), equalTo(builder.build(car)));
+    }
+
+    @Test
+    void should_share_schema_per_template_name()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+        Car car = new Car(1L, "Audi", 4);
+
+        Template car1 = builder.buildValues(car).getTemplate();
+        Template vehicle1 = builder.setTemplateName("vehicle").buildValues(car).getTemplate();
+        Template car2 = builder.setTemplateName("car").buildValues(car).getTemplate();
+        Template vehicle2 = builder.setTemplateName("vehicle").buildValues(car).getTemplate();
+
+        assertThat(car2, sameInstance(car1));
+        assertThat(vehicle2, sameInstance(vehicle1));
+        assertThat(vehicle1.getName(), equalTo("vehicle"));
+        assertThat(builder.buildSchema(Car.class), sameInstance(builder.buildSchema(Car.class)));
+    }
+
+    @Test
+    void should_build_collection_in_order()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+        List<Object> cars = new ArrayList<>();
+        for (long i = 0; i < 1000; i++) {
+            cars.add(i % 100 == 0 ? new Place() : new Car(i, "Car " + i, 4));
+        }
+
+        List<Template> sequential = builder.build(cars);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<Template> parallel;
+        try {
+            parallel = builder.build(cars, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(sequential, hasSize(1000));
+        assertThat(sequential.get(1).getProperties().get(0).getValue(), equalTo(1L));
+        assertThat(sequential.get(999), equalTo(builder.build((Object)cars.get(999))));
+        assertThat(parallel, equalTo(sequential));
+        assertThat(builder.build(cars.stream()).collect(Collectors.toList()), equalTo(sequential));
+        assertThat(builder.build(cars.parallelStream()).collect(Collectors.toList()), equalTo(sequential));
+    }
+
+    @Test
+    void should_build_selected_languages_of_collection()
+    {
+        Map<String, Map<String, String>> locales = new HashMap<>();
+        Map<String, String> title = new HashMap<>();
+        title.put("en", "Brand");
+        title.put("de", "Marke");
+        locales.put("Car.brand", title);
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car").setLocales(locales);
+        LocaleSelection german = LocaleSelection.parse("de", "en");
+        List<Car> cars = new ArrayList<>();
+        for (long i = 0; i < 600; i++) {
+            cars.add(new Car(i, "Car " + i, 4));
+        }
+
+        List<Template> sequential = builder.build(cars, german);
+        Template schema = builder.buildValues(cars, german).get(0).getTemplate();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertThat(builder.build(cars, pool, german), equalTo(sequential));
+            assertThat(builder.buildValues(cars, pool, german).get(599).getTemplate(), sameInstance(schema));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(sequential.get(0).getProperties().get(1).getTitle(), equalTo(Collections.singletonMap("de", "Marke")));
+        assertThat(schema.getProperties().get(1).getTitle(), equalTo(Collections.singletonMap("de", "Marke")));
+        assertThat(builder.build(cars.parallelStream(), german).collect(Collectors.toList()), equalTo(sequential));
+    }
+
+    @Test
+    void should_transform_composed_annotations()
+    {
+        Template template = new HibernateTemplateBuilder("plate").build(Plate.class);
+
+        Property number = template.getProperties().get(0);
+        assertThat(number.getValidations(), hasSize(3));
+        assertThat(number.getValidations().get(0).getName(), equalTo("maxLength"));
+        assertThat(number.getValidations().get(1).getName(), equalTo("regex"));
+        assertThat(number.getValidations().get(2).getName(), equalTo("required"));
+    }
+
+    @Test
+    void should_cut_off_cyclic_references()
+    {
+        Link link = new Link("owner", "/persons");
+        Template template = new HibernateTemplateBuilder("person").addNestedLink("owner", link).build(Person.class);
+
+        Property car = template.getProperties().get(1);
+        Property owner = car.getProperties().get(0);
+        assertThat(owner.getType(), equalTo(DataType.OBJECT));
+        assertThat(owner.getProperties(), nullValue());
+        assertThat(owner.getLink(), equalTo(link));
+    }
+
+    @Test
+    void should_expand_shared_types_once()
+    {
+        Template template = new HibernateTemplateBuilder("person").build(Person.class);
+
+        Property home = template.getProperties().get(2);
+        Property office = template.getProperties().get(3);
+        assertThat(home.getProperties(), hasSize(1));
+        assertThat(office.getProperties(), equalTo(home.getProperties()));
+    }
+
+    @Test
+    void should_limit_depth_of_nested_objects()
+    {
+        Template template = new HibernateTemplateBuilder("person").setMaxDepth(1).build(Person.class);
+
+        Property car = template.getProperties().get(1);
+        assertThat(car.getProperties(), hasSize(2));
+        assertThat(car.getProperties().get(1).getProperties(), nullValue());
+        assertThat(template.getProperties().get(2).getProperties(), hasSize(1));
+    }
+
+    @Test
+    void should_keep_compiled_builder_when_configuration_changes()
+    {
+        HibernateTemplateBuilder builder = new HibernateTemplateBuilder("car");
+        CompiledTemplateBuilder compiled = builder.compile();
+
+        builder.setLocales(Collections.singletonMap("Car.brand", Collections.singletonMap("en", "Brand")));
+
+        assertThat(compiled.build(Car.class).getProperties().get(1).getTitle(), nullValue());
+        assertThat(builder.build(Car.class).getProperties().get(1).getTitle(), equalTo(Collections.singletonMap("en", "Brand")));
+        assertThat(builder.compile(), sameInstance(builder.compile()));
+    }
+
+    @Test
+    void should_publish_reconfigured_builder()
+    {
+        Link link = new Link("owner", "/persons");
+        AtomicReference<CompiledTemplateBuilder> shared = new AtomicReference<>(new HibernateTemplateBuilder("person").compile());
+        CompiledTemplateBuilder previous = shared.get();
+
+        CompiledTemplateBuilder next = shared.updateAndGet(current -> current.reconfigure(config -> config.setMaxDepth(1)
+            .addNestedLink("owner", link)));
+        link.setHref("/changed");
+
+        assertThat(previous.build(Person.class).getProperties().get(1).getProperties().get(1).getProperties(), hasSize(1));
+        assertThat(next.build(Person.class).getProperties().get(1).getProperties().get(1).getProperties(), nullValue());
+        assertThat(next.build(Person.class).getProperties().get(1).getProperties().get(0).getLink().getHref(), equalTo("/persons"));
+        assertThat(next.withTemplateName("owner").buildSchema(Person.class).getName(), equalTo("owner"));
+    }
+
+    static class Person
+    {
+
+        private String    name;
+        private PersonCar car;
+        private Place     home;
+        private Place     office;
+    }
+
+    static class PersonCar
+    {
+
+        private Person owner;
+        private Place  garage;
+    }
+
+    static class Place
+    {
+
+        private String street;
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Length(max = 10)
+    @Pattern(regexp = "[A-Z]{1,3}-[0-9]{1,4}")
+    @interface LicensePlate
+    {
+    }
+
+    static class Plate
+    {
+
+        @LicensePlate
+        @NotNull
+        private String number;
+    }
+
+    static class Car
+    {
+
+        @Id
+        private Long    id;
+        @NotNull
+        @Length(min = 1, max = 20)
+        private String  brand;
+        private Integer doors;
+
+        Car(Long id, String brand, Integer doors)
+        {
+            this.id = id;
+            this.brand = brand;
+            this.doors = doors;
+        }
+
+        public Long getId()
+        {
+            return id;
+        }
+
+        public String getBrand()
+        {
+            return brand;
+        }
+
+        public Integer getDoors()
+        {
+            return doors;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package de.intension.halo.json;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Frozen;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+
+public class FragmentCacheTest
+{
+
+    @Test
+    void should_splice_cached_templates() throws IOException
+    {
+        FragmentCache fragments = new FragmentCache(1 << 20, true);
+        Template schema = fragments.put(schema("car", 10));
+        Entity entity = new Entity().addLink(new Link("self", "/cars").addTemplate(schema));
+
+        assertThat(write(entity, fragments), equalTo(write(entity, null)));
+        assertThat(fragments.getStatistics().getHits(), equalTo(1L));
+    }
+
+    @Test
+    void should_splice_large_templates_with_gathering_write() throws IOException
+    {
+        FragmentCache fragments = new FragmentCache(1 << 20, false);
+        Template schema = fragments.put(schema("car", 1000));
+        Entity entity = new Entity().addLink(new Link("self", "/cars").addTemplate(schema)).addLink(new Link("next", "/cars?page=2"));
+        Path file = Files.createTempFile("halo", ".json");
+        try {
+            try (HaloJsonWriter writer = new HaloJsonWriter(FileChannel.open(file, StandardOpenOption.WRITE)).setFragments(fragments)) {
+                writer.write(entity);
+            }
+
+            assertThat(Files.readAllBytes(file), equalTo(write(entity, null)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void should_evict_least_recently_used_fragments()
+    {
+        FragmentCache probe = new FragmentCache(Long.MAX_VALUE, false);
+        probe.put(schema("first", 1));
+        FragmentCache fragments = new FragmentCache(probe.getBytes() * 2 + 1, false);
+
+        Template first = fragments.put(schema("first", 1));
+        Template second = fragments.put(schema("second", 1));
+        fragments.get(first);
+        fragments.put(schema("third", 1));
+
+        assertThat(fragments.size(), equalTo(2));
+        assertThat(fragments.get(first), notNullValue());
+        assertThat(fragments.get(second), nullValue());
+    }
+
+    @Test
+    void should_cache_frozen_templates_only() throws IOException
+    {
+        FragmentCache fragments = new FragmentCache(1 << 20, false);
+        Template template = schema("car", 2);
+
+        Template schema = fragments.put(template);
+        template.setMethod("PUT");
+
+        assertThat(schema, instanceOf(Frozen.class));
+        assertThat(fragments.put(schema), sameInstance(schema));
+        assertThat(fragments.get(template), nullValue());
+        assertThat(write(schema, fragments), equalTo(write(schema, null)));
+    }
+
+    private static Template schema(String name, int properties)
+    {
+        Template template = new Template(name).setMethod("POST");
+        for (int i = 0; i < properties; i++) {
+            template.addProperties(new Property("property" + i).setTitle(Collections.singletonMap("en", "Property " + i)));
+        }
+        return template;
+    }
+
+    private static byte[] write(Object value, FragmentCache fragments) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HaloJsonWriter writer = new HaloJsonWriter(out).setFragments(fragments)) {
+            writer.write(value);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,327 @@
+package de.intension.halo.json;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.json.JsonException;
+
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.ContentHash;
+import de.intension.halo.HaloBuilder;
+import de.intension.halo.binary.HaloBinaryWriter;
+import de.intension.halo.entity.DataType;
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.TemplateValues;
+import de.intension.halo.entity.Validation;
+
+public class HaloJsonTest
+{
+
+    @Test
+    void should_read_written_entity() throws IOException
+    {
+        Entity entity = entity();
+
+        Entity read = new HaloJsonReader(new ByteArrayInputStream(write(entity))).readEntity();
+
+        assertThat(read, equalTo(entity));
+    }
+
+    @Test
+    void should_skip_null_fields() throws IOException
+    {
+        Property property = new Property("brand").setReadOnly(true);
+
+        assertThat(new String(write(property), StandardCharsets.UTF_8), equalTo("{\"name\":\"brand\",\"readOnly\":true}"));
+    }
+
+    @Test
+    void should_escape_strings() throws IOException
+    {
+        String text = "\"quoted\"\\ line\nbreak \u0001 umlaut ä euro € emoji 🚗 lone \ud83d";
+
+        byte[] json = write(new Property(text));
+
+        assertThat(new String(json, StandardCharsets.UTF_8).contains("\\n"), equalTo(true));
+        assertThat(new HaloJsonReader(new ByteArrayInputStream(json)).readProperty().getName(), equalTo(text));
+    }
+
+    @Test
+    void should_read_strings_across_buffer_boundaries() throws IOException
+    {
+        String text = String.join("", Collections.nCopies(2000, "ä\\\"🚗"));
+
+        byte[] json = write(new Property(text));
+
+        assertThat(new HaloJsonReader(new ByteArrayInputStream(json)).readProperty().getName(), equalTo(text));
+    }
+
+    @Test
+    void should_write_values_like_merged_template() throws IOException
+    {
+        Template schema = new Template("car").addProperties(new Property("brand").setType(DataType.STRING), new Property("doors"));
+        TemplateValues values = new TemplateValues(schema, new Object[] {"Audi", 4});
+
+        assertThat(write(values), equalTo(write(values.toTemplate())));
+    }
+
+    @Test
+    void should_write_to_channel() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HaloJsonWriter writer = new HaloJsonWriter(Channels.newChannel(out))) {
+            writer.write(entity());
+        }
+
+        assertThat(out.toByteArray(), equalTo(write(entity())));
+        assertThat(new HaloJsonReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray()))).readEntity(), equalTo(entity()));
+    }
+
+    @Test
+    void should_write_streamed_data_while_it_is_produced() throws IOException
+    {
+        int rows = 200_000;
+        AtomicLong written = new AtomicLong();
+        AtomicLong writtenBeforeLastRow = new AtomicLong();
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<Integer> numbers = IntStream.range(0, rows).boxed().peek(i -> {
+            if (i == rows - 1) {
+                writtenBeforeLastRow.set(written.get());
+            }
+        }).onClose(() -> closed.set(true));
+        HaloBuilder builder = (haloEntity, entity) -> haloEntity.addLink(new Link("self", "/numbers/" + entity));
+        OutputStream out = new OutputStream() {
+
+            @Override
+            public void write(int b)
+            {
+                written.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len)
+            {
+                written.addAndGet(len);
+            }
+        };
+
+        try (HaloJsonWriter writer = new HaloJsonWriter(out)) {
+            writer.write(builder.buildStreaming(numbers));
+        }
+
+        assertThat(closed.get(), equalTo(true));
+        assertThat(writtenBeforeLastRow.get(), greaterThan(written.get() - 8192));
+    }
+
+    @Test
+    void should_write_iterator_as_array() throws IOException
+    {
+        HaloBuilder builder = (haloEntity, entity) -> {};
+
+        Entity read = new HaloJsonReader(new ByteArrayInputStream(write(builder.buildStreaming(Arrays.asList("a", "b").iterator()))))
+            .readEntity();
+
+        assertThat(read.getData(), equalTo(Arrays.asList(Collections.singletonMap("data", "a"), Collections.singletonMap("data", "b"))));
+    }
+
+    @Test
+    void should_report_malformed_input()
+    {
+        HaloJsonReader reader = new HaloJsonReader(new ByteArrayInputStream("{\"name\":\"self\",}".getBytes(StandardCharsets.UTF_8)));
+
+        JsonException exception = assertThrows(JsonException.class, reader::readLink);
+        assertThat(exception.getMessage(), equalTo("Unexpected character '}' near offset 15"));
+    }
+
+    @Test
+    void should_reject_deeply_nested_input()
+    {
+        String nested = String.join("", Collections.nCopies(10_000, "["));
+        HaloJsonReader reader = new HaloJsonReader(new ByteArrayInputStream(nested.getBytes(StandardCharsets.UTF_8)));
+
+        JsonException exception = assertThrows(JsonException.class, reader::readValue);
+        assertThat(exception.getMessage(), equalTo("Document is nested deeper than 64 levels near offset 65"));
+    }
+
+    @Test
+    void should_read_numbers_of_json_grammar() throws IOException
+    {
+        assertThat(readValue("[0, -1, 2.5e-3, 1E2]"), equalTo(Arrays.asList(0, -1, 2.5e-3, 100.0)));
+        for (String invalid : Arrays.asList("01", "-", "1.", ".5", "+1", "1e", "-01")) {
+            assertThrows(JsonException.class, () -> readValue(invalid), invalid);
+        }
+    }
+
+    @Test
+    void should_write_sql_dates() throws IOException
+    {
+        Registration registration = new Registration();
+        registration.setDate(java.sql.Date.valueOf("2020-05-01"));
+        registration.setTime(java.sql.Time.valueOf("13:45:30"));
+
+        assertThat(new String(write(registration), StandardCharsets.UTF_8), equalTo("{\"date\":\"2020-05-01\",\"time\":\"13:45:30\"}"));
+        assertThat(JsonPatch.diff(registration, Collections.singletonMap("date", "2020-05-01")).size(), equalTo(1));
+        assertThat(ContentHash.etag(registration), equalTo(ContentHash.etag(registration)));
+        try (HaloBinaryWriter binary = new HaloBinaryWriter(new ByteArrayOutputStream())) {
+            binary.write(registration);
+        }
+    }
+
+    @Test
+    void should_write_inherited_fields_and_reject_cycles() throws IOException
+    {
+        Customer customer = new Customer();
+        customer.setId(7L);
+        customer.setName("Smith");
+        Order order = new Order();
+        order.setCustomer(customer);
+
+        assertThat(new String(write(Arrays.asList(customer, customer)), StandardCharsets.UTF_8),
+                   equalTo("[{\"id\":7,\"name\":\"Smith\"},{\"id\":7,\"name\":\"Smith\"}]"));
+        customer.setOrders(Collections.singletonList(order));
+        JsonException exception = assertThrows(JsonException.class, () -> write(customer));
+        assertThat(exception.getMessage(), equalTo("Cannot write " + Customer.class.getName() + ", it contains itself"));
+        assertThrows(JsonException.class, () -> new HaloJsonWriter(new ByteArrayOutputStream()).setMaxDepth(2).write(order));
+    }
+
+    private static Object readValue(String json) throws IOException
+    {
+        return new HaloJsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))).readValue();
+    }
+
+    private static byte[] write(Object value) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HaloJsonWriter writer = new HaloJsonWriter(out)) {
+            writer.write(value);
+        }
+        return out.toByteArray();
+    }
+
+    private static Entity entity()
+    {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("brand", "Audi");
+        data.put("doors", 4);
+        data.put("price", 12999.5);
+        data.put("mileage", 12345678901L);
+        data.put("tags", Arrays.asList("new", true));
+        Property brand = new Property("brand").setValue("Audi").setTitle("en", "Brand").setTitle("de", "Marke").setType(DataType.STRING)
+            .addValidation(new Validation("maxLength", 20).setMessage(Collections.singletonMap("en", "Too long")));
+        Property owner = new Property("owner").setType(DataType.OBJECT).setMultivalued(false).setReadOnly(true)
+            .setProperties(Arrays.asList(new Property("name"))).setLink(new Link("owner", "/persons"));
+        Template template = new Template("update").setMethod("PUT").setContentType("application/json").setQuery(false)
+            .setTitle("en", "Update").addProperties(brand, owner);
+        Link link = new Link("self", "/cars/1").setTitle("en", "Car").addTemplate(template);
+        return new Entity().setData(data).addLink(link).addMessage(new Message().setName("saved").setProperty("brand").setValue("en", "Saved"));
+    }
+
+    public static class Registration
+    {
+
+        private java.sql.Date date;
+        private java.sql.Time time;
+
+        public java.sql.Date getDate()
+        {
+            return date;
+        }
+
+        public void setDate(java.sql.Date date)
+        {
+            this.date = date;
+        }
+
+        public java.sql.Time getTime()
+        {
+            return time;
+        }
+
+        public void setTime(java.sql.Time time)
+        {
+            this.time = time;
+        }
+    }
+
+    public static class Base
+    {
+
+        private Long id;
+
+        public Long getId()
+        {
+            return id;
+        }
+
+        public void setId(Long id)
+        {
+            this.id = id;
+        }
+    }
+
+    public static class Customer extends Base
+    {
+
+        private String      name;
+        private List<Order> orders;
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public void setName(String name)
+        {
+            this.name = name;
+        }
+
+        public List<Order> getOrders()
+        {
+            return orders;
+        }
+
+        public void setOrders(List<Order> orders)
+        {
+            this.orders = orders;
+        }
+    }
+
+    public static class Order
+    {
+
+        private Customer customer;
+
+        public Customer getCustomer()
+        {
+            return customer;
+        }
+
+        public void setCustomer(Customer customer)
+        {
+            this.customer = customer;
+        }
+    }
+}
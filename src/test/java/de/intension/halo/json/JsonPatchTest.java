@@ -0,0 +1,109 @@
+package de.intension.halo.json;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.json.JsonException;
+
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.DataType;
+import de.intension.halo.entity.Entity;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+
+public class JsonPatchTest
+{
+
+    @Test
+    void should_match_named_elements()
+    {
+        Entity source = entity(3, "brand", "doors", "color");
+        Entity target = entity(4, "brand", "seats", "color");
+        target.getLinks().get(0).getTemplates().get(0).getProperties().get(0).setValue("BMW");
+        target.addLink(new Link("owner", "/persons/1"));
+
+        List<PatchOperation> patch = JsonPatch.diff(source, target);
+
+        assertThat(patch.stream().map(o -> o.getOp() + " " + o.getPath()).collect(Collectors.toList()),
+                   contains("replace /data/doors", "remove /links/0/templates/0/properties/1",
+                            "add /links/0/templates/0/properties/0/value", "add /links/0/templates/0/properties/1",
+                            "add /links/1"));
+        assertThat(JsonPatch.apply(source, patch), equalTo(JsonPatch.apply(target, Collections.emptyList())));
+    }
+
+    @Test
+    void should_replace_reordered_elements_and_compare_other_lists_by_position()
+    {
+        Map<String, Object> source = new LinkedHashMap<>();
+        source.put("properties", Arrays.asList(Collections.singletonMap("name", "a"), Collections.singletonMap("name", "b")));
+        source.put("tags", Arrays.asList("x", "y", "z"));
+        Map<String, Object> target = new LinkedHashMap<>();
+        target.put("properties", Arrays.asList(Collections.singletonMap("name", "b"), Collections.singletonMap("name", "a")));
+        target.put("tags", Arrays.asList("x", "w"));
+
+        List<PatchOperation> patch = JsonPatch.diff(source, target);
+
+        assertThat(patch.stream().map(o -> o.getOp() + " " + o.getPath()).collect(Collectors.toList()),
+                   contains("replace /properties", "replace /tags/1", "remove /tags/2"));
+        assertThat(JsonPatch.apply(source, patch), equalTo(target));
+        assertThat(JsonPatch.diff(target, JsonPatch.apply(source, patch)), empty());
+    }
+
+    @Test
+    void should_apply_patch_read_from_json() throws IOException
+    {
+        String json = "[{\"op\":\"test\",\"path\":\"/data/doors\",\"value\":3},{\"op\":\"copy\",\"from\":\"/data/doors\",\"path\":\"/data/seats\"},"
+                + "{\"op\":\"move\",\"from\":\"/links/0/href\",\"path\":\"/links/0/name\"},{\"op\":\"test\",\"path\":\"/data/brand\",\"value\":null}]";
+        List<PatchOperation> patch = new HaloJsonReader(new ByteArrayInputStream(json.getBytes())).readPatch();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HaloJsonWriter writer = new HaloJsonWriter(out)) {
+            writer.write(patch);
+        }
+
+        assertThat(out.toString("UTF-8"), equalTo(json.replace(",\"from\":\"/data/doors\",\"path\":\"/data/seats\"", ",\"path\":\"/data/seats\",\"from\":\"/data/doors\"")
+            .replace("\"from\":\"/links/0/href\",\"path\":\"/links/0/name\"", "\"path\":\"/links/0/name\",\"from\":\"/links/0/href\"")));
+        JsonException exception = assertThrows(JsonException.class, () -> JsonPatch.apply(entity(3, "brand"), patch));
+        assertThat(exception.getMessage(), equalTo("Test failed at '/data/brand'"));
+        Entity patched = JsonPatch.apply(entity(3, "brand"), patch.subList(0, 3));
+        assertThat(((Map<?, ?>)patched.getData()).get("seats"), equalTo(3));
+        assertThat(patched.getLinks().get(0).getName(), equalTo("/cars/1"));
+    }
+
+    @Test
+    void should_reject_move_into_own_child()
+    {
+        PatchOperation move = new PatchOperation().setOp("move").setFrom("/data").setPath("/data/copy");
+
+        JsonException exception = assertThrows(JsonException.class, () -> JsonPatch.apply(entity(3), Arrays.asList(move)));
+        assertThat(exception.getMessage(), equalTo("Cannot move '/data' into its own child '/data/copy'"));
+        Entity moved = JsonPatch.apply(entity(3), Arrays.asList(move.setFrom("/data/doors").setPath("/data/doorsCount")));
+        assertThat(((Map<?, ?>)moved.getData()).get("doorsCount"), equalTo(3));
+    }
+
+    private static Entity entity(int doors, String... properties)
+    {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("brand", "Audi");
+        data.put("doors", doors);
+        Template template = new Template("update").setMethod("PUT");
+        for (String property : properties) {
+            template.addProperties(new Property(property).setType(DataType.STRING).setTitle("en", property));
+        }
+        return new Entity().setData(data).addLink(new Link("self", "/cars/1").addTemplate(template));
+    }
+}
@@ -0,0 +1,232 @@
+package de.intension.halo.json;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.json.JsonException;
+
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.entity.DataType;
+import de.intension.halo.entity.Message;
+import de.intension.halo.entity.Property;
+import de.intension.halo.entity.Template;
+import de.intension.halo.entity.Validation;
+
+public class PayloadReaderTest
+{
+
+    @Test
+    void should_bind_valid_payload()
+    {
+        String json = "{\"id\":99,\"number\":\"A-1\",\"status\":\"PAID\",\"created\":\"2020-01-31\",\"unknown\":{\"deep\":[1,[2]]},"
+                + "\"lines\":[{\"article\":\"Tyre\",\"quantity\":4}]}";
+        List<Message> messages = new ArrayList<>();
+
+        Order order = new PayloadReader<>(order(), Order.class).read(json.getBytes(StandardCharsets.UTF_8), messages);
+
+        assertThat(messages, empty());
+        assertThat(order.getId(), nullValue());
+        assertThat(order.getNumber(), equalTo("A-1"));
+        assertThat(order.getStatus(), equalTo(Status.PAID));
+        assertThat(order.getCreated(), equalTo(LocalDate.of(2020, 1, 31)));
+        assertThat(order.getLines(), hasSize(1));
+        assertThat(order.getLines().get(0).getArticle(), equalTo("Tyre"));
+        assertThat(order.getLines().get(0).getQuantity(), equalTo(4));
+    }
+
+    @Test
+    void should_stop_at_maximum_number_of_errors()
+    {
+        String json = "{\"number\":\"a-1\",\"status\":\"LOST\",\"lines\":[{\"quantity\":0},{\"quantity\":\"many\"}],\"created\":5}";
+        List<Message> messages = new ArrayList<>();
+
+        Order order = new PayloadReader<>(order(), Order.class).setMaxErrors(3).read(json.getBytes(StandardCharsets.UTF_8), messages);
+
+        assertThat(order, nullValue());
+        assertThat(messages.stream().map(m -> m.getName() + ":" + m.getProperty()).collect(Collectors.toList()),
+                   contains("regex:number", "type:status", "minValue:lines[0].quantity"));
+    }
+
+    @Test
+    void should_reject_oversized_payload_while_reading()
+    {
+        byte[] start = "{\"unknown\":[".getBytes(StandardCharsets.UTF_8);
+        int[] read = new int[1];
+        InputStream endless = new InputStream() {
+
+            @Override
+            public int read()
+            {
+                return read[0] < start.length ? start[read[0]++] : ++read[0] % 2 == 0 ? '0' : ',';
+            }
+        };
+        PayloadReader<Order> reader = new PayloadReader<>(order(), Order.class).setMaxBytes(64 * 1024);
+
+        JsonException exception = assertThrows(JsonException.class, () -> reader.read(endless, new ArrayList<>()));
+        assertThat(exception.getMessage(), equalTo("Payload exceeds 65536 bytes"));
+        assertThat(read[0], lessThan(80 * 1024));
+    }
+
+    @Test
+    void should_bind_declared_collection_types()
+    {
+        String json = "{\"tags\":[\"fragile\",\"heavy\",\"fragile\"],\"sizes\":[30,40]}";
+        Template template = new Template("parcel")
+            .addProperties(new Property("tags").setType(DataType.STRING).setMultivalued(true),
+                           new Property("sizes").setType(DataType.INTEGER).setMultivalued(true));
+        List<Message> messages = new ArrayList<>();
+
+        Parcel parcel = new PayloadReader<>(template, Parcel.class).read(json.getBytes(StandardCharsets.UTF_8), messages);
+
+        assertThat(messages, empty());
+        assertThat(parcel.getTags(), contains("fragile", "heavy"));
+        assertThat(parcel.getSizes(), equalTo(new int[] {30, 40}));
+    }
+
+    private static Template order()
+    {
+        Property lines = new Property("lines").setType(DataType.OBJECT).setMultivalued(true)
+            .setProperties(Arrays.asList(new Property("article").setType(DataType.STRING),
+                                         new Property("quantity").setType(DataType.INTEGER).addValidation(new Validation("minValue", 1L))));
+        return new Template("order").addProperties(new Property("id").setType(DataType.INTEGER).setReadOnly(true),
+                                                   new Property("number").addValidation(new Validation("required", true))
+                                                       .addValidation(new Validation("regex", "[A-Z]-[0-9]+")),
+                                                   new Property("status"), new Property("created").setType(DataType.DATE), lines);
+    }
+
+    enum Status
+    {
+        OPEN,
+        PAID
+    }
+
+    public static class Order
+    {
+
+        private Long       id;
+        private String     number;
+        private Status     status;
+        private LocalDate  created;
+        private List<Line> lines;
+
+        public Long getId()
+        {
+            return id;
+        }
+
+        public void setId(Long id)
+        {
+            this.id = id;
+        }
+
+        public String getNumber()
+        {
+            return number;
+        }
+
+        public void setNumber(String number)
+        {
+            this.number = number;
+        }
+
+        public Status getStatus()
+        {
+            return status;
+        }
+
+        public void setStatus(Status status)
+        {
+            this.status = status;
+        }
+
+        public LocalDate getCreated()
+        {
+            return created;
+        }
+
+        public void setCreated(LocalDate created)
+        {
+            this.created = created;
+        }
+
+        public List<Line> getLines()
+        {
+            return lines;
+        }
+
+        public void setLines(List<Line> lines)
+        {
+            this.lines = lines;
+        }
+    }
+
+    static class Line
+    {
+
+        private String article;
+        private int    quantity;
+
+        String getArticle()
+        {
+            return article;
+        }
+
+        void setArticle(String article)
+        {
+            this.article = article;
+        }
+
+        int getQuantity()
+        {
+            return quantity;
+        }
+
+        void setQuantity(int quantity)
+        {
+            this.quantity = quantity;
+        }
+    }
+
+    public static class Parcel
+    {
+
+        private Set<String> tags;
+        private int[]       sizes;
+
+        public Set<String> getTags()
+        {
+            return tags;
+        }
+
+        public void setTags(Set<String> tags)
+        {
+            this.tags = tags;
+        }
+
+        public int[] getSizes()
+        {
+            return sizes;
+        }
+
+        public void setSizes(int[] sizes)
+        {
+            this.sizes = sizes;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package de.intension.halo.processor;
+
+import org.hibernate.validator.constraints.Length;
+
+public class Address
+{
+
+    @Length(max = 80)
+    String street;
+    String city;
+}
@@ -0,0 +1,17 @@
+package de.intension.halo.processor;
+
+import java.util.List;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+public class Customer
+{
+
+    @Id
+    Long        id;
+    String      name;
+    Address     address;
+    List<Order> orders;
+}
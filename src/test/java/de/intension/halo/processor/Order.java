@@ -0,0 +1,39 @@
+package de.intension.halo.processor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+import org.hibernate.validator.constraints.Length;
+import org.hibernate.validator.constraints.Range;
+
+@Entity
+public class Order
+{
+
+    @Id
+    Long             id;
+    @NotNull(message = "{Order.number.required}")
+    @Pattern(regexp = "[A-Z]+\\d*\"?", message = "{Order.number.format}")
+    String           number;
+    @Length(min = 2, max = 40, message = "{Order.customer.length}")
+    String           customer;
+    @Range(min = 1, max = 99)
+    Integer          quantity;
+    Double           price;
+    Boolean          paid;
+    @OrderNumber
+    String           reference;
+    LocalDateTime    created;
+    Address          address;
+    Customer         buyer;
+    @NotEmpty
+    List<OrderLine>  lines;
+    List<String>     tags;
+    int              priority;
+}
@@ -0,0 +1,12 @@
+package de.intension.halo.processor;
+
+import javax.validation.constraints.NotNull;
+
+public class OrderLine
+{
+
+    @NotNull
+    String  article;
+    Float   amount;
+    Address delivery;
+}
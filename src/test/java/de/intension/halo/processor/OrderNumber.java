@@ -0,0 +1,21 @@
+package de.intension.halo.processor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.validation.constraints.Pattern;
+
+import org.hibernate.validator.constraints.Length;
+
+/**
+ * Composed constraint to check that meta-annotations are transformed.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Length(min = 4, max = 12)
+@Pattern(regexp = "ORD-\\d+")
+public @interface OrderNumber
+{
+}
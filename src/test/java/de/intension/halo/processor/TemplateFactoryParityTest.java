@@ -0,0 +1,85 @@
+package de.intension.halo.processor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.intension.halo.MessageCatalog;
+import de.intension.halo.entity.Link;
+import de.intension.halo.entity.Template;
+import de.intension.halo.hibernate.HibernateTemplateBuilder;
+import de.intension.halo.hibernate.TemplateFactories;
+import de.intension.halo.hibernate.TemplateFactory;
+
+class TemplateFactoryParityTest
+{
+
+    @Test
+    void should_register_generated_factory()
+    {
+        TemplateFactory factory = TemplateFactories.get(Order.class);
+
+        assertThat(factory, notNullValue());
+        assertThat(factory.getEntityType(), equalTo(Order.class));
+    }
+
+    @Test
+    void should_build_same_template_without_configuration()
+    {
+        Template expected = new HibernateTemplateBuilder("order").build(Order.class);
+
+        Template actual = TemplateFactories.get(Order.class).build("order", null, null);
+
+        assertThat(actual, equalTo(expected));
+    }
+
+    @Test
+    void should_build_same_template_with_locales_and_links()
+    {
+        Link addressLink = new Link("address", "/addresses");
+        Template expected = new HibernateTemplateBuilder("order").setLocales(locales())
+            .addNestedLink("address", addressLink)
+            .build(Order.class);
+
+        Map<String, Link> nestedLinks = new HashMap<>();
+        nestedLinks.put("address", addressLink);
+        Template actual = TemplateFactories.get(Order.class).build("order", MessageCatalog.of(locales()), nestedLinks);
+
+        assertThat(actual, equalTo(expected));
+    }
+
+    @Test
+    void should_cut_off_cycles_like_runtime_builder()
+    {
+        Template expected = new HibernateTemplateBuilder("customer").setLocales(locales()).build(Customer.class);
+
+        Template actual = TemplateFactories.get(Customer.class).build("customer", MessageCatalog.of(locales()), null);
+
+        assertThat(actual, equalTo(expected));
+    }
+
+    private static Map<String, Map<String, String>> locales()
+    {
+        Map<String, Map<String, String>> locales = new HashMap<>();
+        locales.put("Order.number", translation("Number"));
+        locales.put("Order.customer", translation("Customer"));
+        locales.put("Address.street", translation("Street"));
+        locales.put("Order.number.required", translation("Number is required"));
+        locales.put("Order.number.format", translation("Number has a wrong format"));
+        locales.put("Order.customer.length", translation("Customer must have {min} to {max} characters"));
+        locales.put("org.hibernate.validator.constraints.Range.message", translation("Between {min} and {max}"));
+        return locales;
+    }
+
+    private static Map<String, String> translation(String value)
+    {
+        Map<String, String> translation = new HashMap<>();
+        translation.put("en", value);
+        return translation;
+    }
+}
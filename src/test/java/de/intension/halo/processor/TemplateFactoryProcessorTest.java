@@ -0,0 +1,45 @@
+package de.intension.halo.processor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.intension.halo.hibernate.TemplateFactory;
+
+class TemplateFactoryProcessorTest
+{
+
+    @Test
+    void should_keep_factories_of_previous_compilations(@TempDir Path output) throws IOException
+    {
+        Path services = output.resolve("META-INF/services/" + TemplateFactory.class.getName());
+        Files.createDirectories(services.getParent());
+        Files.write(services, Arrays.asList("# generated", "com.example.CarTemplateFactory"));
+        Path source = output.resolve("com/example/Truck.java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, Collections.singletonList("package com.example; @javax.persistence.Entity class Truck { Long id; }"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null, "-proc:only", "-processor", TemplateFactoryProcessor.class.getName(),
+                                  "-cp", System.getProperty("java.class.path"), "-d", output.toString(), "-s",
+                                  output.toString(), source.toString());
+
+        List<String> registered = Files.readAllLines(services, StandardCharsets.UTF_8);
+        assertThat(result, equalTo(0));
+        assertThat(registered, contains("com.example.CarTemplateFactory", "com.example.TruckTemplateFactory"));
+    }
+}